@@ -5,14 +5,31 @@ import java.util.List;
 
 public interface MemoryManager {
 
+    /**
+     * @return buffer filled with zeroes
+     */
     ByteBuffer requestBuffer(Integer bytes);
 
     List<ByteBuffer> requestBuffers(Integer bytes, int count);
 
+    /**
+     * Content of the returned buffer is undefined, use it when the whole buffer is going to be overwritten.
+     */
+    default ByteBuffer requestUninitializedBuffer(Integer bytes) {
+        return requestBuffer(bytes);
+    }
+
+    default List<ByteBuffer> requestUninitializedBuffers(Integer bytes, int count) {
+        return requestBuffers(bytes, count);
+    }
+
+    /**
+     * Buffers must be returned as they were requested, views created by slice() or duplicate() are not returned to the pool.
+     */
     void returnBuffer(ByteBuffer buffer);
 
     void returnBuffers(List<ByteBuffer> buffers);
 
     public void dropAllBuffers();
 
-}
\ No newline at end of file
+}
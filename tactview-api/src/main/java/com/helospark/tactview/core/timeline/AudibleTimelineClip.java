@@ -47,29 +47,40 @@ public abstract class AudibleTimelineClip extends TimelineClip {
 
     protected abstract AudioFrameResult requestAudioFrameInternal(AudioRequest audioRequest);
 
+    /**
+     * The enabled effects are applied on a single {@link AudioSampleBlock}, so samples are converted from and to integer PCM only once for the whole chain.
+     */
     protected AudioFrameResult applyEffects(TimelinePosition relativePosition, AudioFrameResult frameResult, boolean applyEffects) {
-        if (applyEffects) {
-            List<StatelessAudioEffect> actualEffects = getEffectsAt(relativePosition, StatelessAudioEffect.class);
-
-            for (StatelessAudioEffect effect : actualEffects) {
-
-                if (effect.isEnabledAt(relativePosition)) {
-                    AudioEffectRequest request = AudioEffectRequest.builder()
-                            .withClipPosition(relativePosition)
-                            .withEffectPosition(relativePosition.from(effect.getInterval().getStartPosition()))
-                            .withInput(frameResult)
-                            .build();
-
-                    AudioFrameResult appliedEffectsResult = effect.applyEffect(request);
+        if (!applyEffects || frameResult.getChannels().isEmpty()) {
+            return frameResult;
+        }
+        List<StatelessAudioEffect> actualEffects = getEffectsAt(relativePosition, StatelessAudioEffect.class);
 
-                    frameResult.getChannels()
-                            .stream()
-                            .forEach(a -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(a));
+        AudioSampleBlock samples = null;
+        for (StatelessAudioEffect effect : actualEffects) {
 
-                    frameResult = appliedEffectsResult;
+            if (effect.isEnabledAt(relativePosition)) {
+                if (samples == null) {
+                    samples = AudioSampleBlock.fromFrame(frameResult);
                 }
+                AudioEffectRequest request = AudioEffectRequest.builder()
+                        .withClipPosition(relativePosition)
+                        .withEffectPosition(relativePosition.from(effect.getInterval().getStartPosition()))
+                        .withInput(frameResult)
+                        .build();
+
+                samples = effect.applyEffect(request, samples);
             }
         }
-        return frameResult;
+        if (samples == null) {
+            return frameResult;
+        }
+        AudioFrameResult appliedEffectsResult = samples.toFrame(frameResult.getBytesPerSample());
+
+        frameResult.getChannels()
+                .stream()
+                .forEach(a -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(a));
+
+        return appliedEffectsResult;
     }
 }
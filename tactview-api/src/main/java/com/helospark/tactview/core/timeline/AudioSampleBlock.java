@@ -0,0 +1,200 @@
+package com.helospark.tactview.core.timeline;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+
+/**
+ * Planar float samples in the [-1, 1) range.
+ * <p>
+ * Audio is processed on these with primitive loops over whole channels, integer PCM samples of {@link AudioFrameResult} are only converted
+ * when reading them in and writing them out, instead of branching on the sample size for every sample.
+ */
+public class AudioSampleBlock {
+    private final float[][] channels;
+    private final int sampleRate;
+    private final int numberOfSamples;
+
+    public AudioSampleBlock(int numberOfChannels, int numberOfSamples, int sampleRate) {
+        this.channels = new float[numberOfChannels][numberOfSamples];
+        this.numberOfSamples = numberOfSamples;
+        this.sampleRate = sampleRate;
+    }
+
+    public static AudioSampleBlock fromFrame(AudioFrameResult frame) {
+        AudioSampleBlock result = new AudioSampleBlock(frame.getChannels().size(), frame.getNumberSamples(), frame.getSamplePerSecond());
+        for (int i = 0; i < result.channels.length; ++i) {
+            readPcm(frame.getChannels().get(i), frame.getBytesPerSample(), result.channels[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Resampled to the given sample rate, samples after the end of the frame are silent.
+     */
+    public static AudioSampleBlock fromFrame(AudioFrameResult frame, int sampleRate, int numberOfSamples) {
+        AudioSampleBlock result = new AudioSampleBlock(frame.getChannels().size(), numberOfSamples, sampleRate);
+        result.addFrame(frame);
+        return result;
+    }
+
+    /**
+     * Mixes the frame into this block, resampling it to the sample rate of this block with {@link PolyphaseResampler} if needed, channels missing from this
+     * block are ignored.
+     */
+    public void addFrame(AudioFrameResult frame) {
+        addFrame(frame, 0, numberOfSamples);
+    }
+
+    /**
+     * Same as {@link #addFrame(AudioFrameResult)}, but the frame is mixed into at most the given number of samples from the given offset.
+     */
+    public void addFrame(AudioFrameResult frame, int offset, int maximumNumberOfSamples) {
+        int channelsToAdd = Math.min(channels.length, frame.getChannels().size());
+        int numberOfSamplesToAdd = Math.min(maximumNumberOfSamples, numberOfSamples - offset);
+        float[] input = new float[frame.getNumberSamples()];
+        PolyphaseResampler resampler = frame.getSamplePerSecond() == sampleRate ? null : PolyphaseResampler.forSampleRates(frame.getSamplePerSecond(), sampleRate);
+        for (int channel = 0; channel < channelsToAdd; ++channel) {
+            readPcm(frame.getChannels().get(channel), frame.getBytesPerSample(), input);
+            float[] output = channels[channel];
+            if (resampler == null) {
+                int length = Math.min(numberOfSamplesToAdd, input.length);
+                for (int i = 0; i < length; ++i) {
+                    output[offset + i] += input[i];
+                }
+            } else {
+                resampler.mixInto(input, output, offset, numberOfSamplesToAdd);
+            }
+        }
+    }
+
+    private static void readPcm(ByteBuffer buffer, int bytesPerSample, float[] output) {
+        ByteBuffer source = buffer.duplicate().order(buffer.order());
+        source.position(0);
+        int length = Math.min(output.length, source.capacity() / bytesPerSample);
+        if (bytesPerSample == 1) {
+            for (int i = 0; i < length; ++i) {
+                output[i] = source.get(i) * (1.0f / 128.0f);
+            }
+        } else if (bytesPerSample == 2) {
+            short[] samples = new short[length];
+            source.asShortBuffer().get(samples);
+            for (int i = 0; i < length; ++i) {
+                output[i] = samples[i] * (1.0f / 32768.0f);
+            }
+        } else {
+            int[] samples = new int[length];
+            source.asIntBuffer().get(samples);
+            for (int i = 0; i < length; ++i) {
+                output[i] = (float) (samples[i] * (1.0 / 2147483648.0));
+            }
+        }
+    }
+
+    public float[] getChannel(int channel) {
+        return channels[channel];
+    }
+
+    public int getNumberOfChannels() {
+        return channels.length;
+    }
+
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Adds the other block's samples to the same channels of this one, channels missing from this block are ignored.
+     */
+    public void add(AudioSampleBlock other) {
+        int channelsToAdd = Math.min(channels.length, other.channels.length);
+        int length = Math.min(numberOfSamples, other.numberOfSamples);
+        for (int channel = 0; channel < channelsToAdd; ++channel) {
+            float[] output = channels[channel];
+            float[] input = other.channels[channel];
+            for (int i = 0; i < length; ++i) {
+                output[i] += input[i];
+            }
+        }
+    }
+
+    public void multiply(float multiplier) {
+        for (int channel = 0; channel < channels.length; ++channel) {
+            multiplyChannel(channel, multiplier);
+        }
+    }
+
+    public void multiplyChannel(int channel, float multiplier) {
+        float[] samples = channels[channel];
+        for (int i = 0; i < samples.length; ++i) {
+            samples[i] *= multiplier;
+        }
+    }
+
+    public float getMaximumAbsoluteValue() {
+        float result = 0.0f;
+        for (float[] samples : channels) {
+            for (int i = 0; i < samples.length; ++i) {
+                result = Math.max(result, Math.abs(samples[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts to integer PCM, samples outside of the representable range are saturated.
+     */
+    public AudioFrameResult toFrame(int bytesPerSample) {
+        List<ByteBuffer> result = new ArrayList<>(channels.length);
+        for (float[] samples : channels) {
+            ByteBuffer buffer = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(numberOfSamples * bytesPerSample);
+            writePcm(samples, bytesPerSample, buffer);
+            result.add(buffer);
+        }
+        return new AudioFrameResult(result, sampleRate, bytesPerSample);
+    }
+
+    private static void writePcm(float[] samples, int bytesPerSample, ByteBuffer buffer) {
+        ByteBuffer target = buffer.duplicate().order(buffer.order());
+        target.position(0);
+        if (bytesPerSample == 1) {
+            for (int i = 0; i < samples.length; ++i) {
+                target.put(i, (byte) saturate(samples[i] * 128.0f, Byte.MIN_VALUE, Byte.MAX_VALUE));
+            }
+        } else if (bytesPerSample == 2) {
+            short[] pcm = new short[samples.length];
+            for (int i = 0; i < samples.length; ++i) {
+                pcm[i] = (short) saturate(samples[i] * 32768.0f, Short.MIN_VALUE, Short.MAX_VALUE);
+            }
+            ShortBuffer output = target.asShortBuffer();
+            output.put(pcm);
+        } else {
+            int[] pcm = new int[samples.length];
+            for (int i = 0; i < samples.length; ++i) {
+                pcm[i] = (int) saturate(samples[i] * 2147483648.0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            }
+            IntBuffer output = target.asIntBuffer();
+            output.put(pcm);
+        }
+    }
+
+    private static long saturate(double value, long min, long max) {
+        long rounded = (long) value;
+        if (rounded < min) {
+            return min;
+        } else if (rounded > max) {
+            return max;
+        } else {
+            return rounded;
+        }
+    }
+
+}
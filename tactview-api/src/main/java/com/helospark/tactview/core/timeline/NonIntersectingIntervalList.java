@@ -1,14 +1,23 @@
 package com.helospark.tactview.core.timeline;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
+/**
+ * Sorted list of non intersecting intervals.
+ * <p>
+ * Elements are kept in a copy-on-write array: queries binary search a snapshot of the array without locking, so they can run on render threads
+ * while the list is modified, and iterating never throws ConcurrentModificationException. Modifications are serialized and publish a new array,
+ * they are O(n), same as the insertion into the previous ArrayList.
+ */
 public class NonIntersectingIntervalList<T extends IntervalAware> implements Iterable<T> {
-    private final List<T> intervalAwares = new ArrayList<>();
+    private static final IntervalAware[] EMPTY = new IntervalAware[0];
+
+    private volatile IntervalAware[] intervalAwares = EMPTY;
 
     public boolean canAddInterval(TimelineInterval interval) {
         return computeIntersectingIntervals(interval).isEmpty();
@@ -21,99 +30,206 @@ public class NonIntersectingIntervalList<T extends IntervalAware> implements Ite
     }
 
     public List<T> computeIntersectingIntervals(TimelineInterval interval) {
+        return computeIntersectingIntervals(intervalAwares, interval);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> computeIntersectingIntervals(IntervalAware[] elements, TimelineInterval interval) {
         List<T> result = new ArrayList<>(); // could be an emptylist, to avoid creating instances here unless necessary
-        int index = 0;
-        while (index < intervalAwares.size() && intervalEndIsLessThanOtherIntervalStartPosition(intervalAwares.get(index), interval)) {
-            ++index;
-        }
-        while (index < intervalAwares.size() && intervalStartPositionIsLessThanOtherIntervalEndPosition(intervalAwares.get(index), interval)) {
-            result.add(intervalAwares.get(index));
+        int index = firstIndexEndingAfter(elements, interval.getStartPosition());
+        while (index < elements.length && intervalStartPositionIsLessThanOtherIntervalEndPosition(elements[index], interval)) {
+            result.add((T) elements[index]);
             ++index;
         }
         return result;
     }
 
-    private boolean intervalEndIsLessThanOtherIntervalStartPosition(T intervalAware, TimelineInterval other) {
-        return intervalAware.getInterval().getEndPosition().isLessOrEqualToThan(other.getStartPosition());
+    /**
+     * Intervals are sorted and do not intersect, so their end positions are sorted too.
+     */
+    private static int firstIndexEndingAfter(IntervalAware[] elements, TimelinePosition position) {
+        int low = 0;
+        int high = elements.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (elements[middle].getInterval().getEndPosition().isLessOrEqualToThan(position)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
-    private boolean intervalStartPositionIsLessThanOtherIntervalEndPosition(T intervalAware, TimelineInterval other) {
+    private static boolean intervalStartPositionIsLessThanOtherIntervalEndPosition(IntervalAware intervalAware, TimelineInterval other) {
         return intervalAware.getInterval().getStartPosition().isLessThan(other.getEndPosition());
     }
 
+    @SuppressWarnings("unchecked")
     public Optional<T> getElementWithIntervalContainingPoint(TimelinePosition position) {
-        for (int i = 0; i < intervalAwares.size(); ++i) {
-            T current = intervalAwares.get(i);
+        IntervalAware[] elements = intervalAwares;
+        // contains() includes the end position, so the element ending exactly at the position is checked first
+        for (int i = Math.max(0, firstIndexEndingAfter(elements, position) - 1); i < elements.length; ++i) {
+            IntervalAware current = elements[i];
             if (current.getInterval().contains(position)) {
-                return Optional.of(current);
+                return Optional.of((T) current);
+            }
+            if (current.getInterval().getStartPosition().isGreaterThan(position)) {
+                break;
             }
         }
         return Optional.empty();
     }
 
-    // TODO: not thread safe
-    public boolean addInterval(T clip) {
-        int i = 0;
-        while (i < intervalAwares.size() && intervalAwares.get(i).getInterval().getEndPosition().isLessOrEqualToThan(clip.getInterval().getStartPosition())) {
-            ++i;
+    /**
+     * All elements containing the point, including the ones ending or starting exactly at it.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getElementsWithIntervalContainingPoint(TimelinePosition position) {
+        IntervalAware[] elements = intervalAwares;
+        List<T> result = new ArrayList<>();
+        int index = firstIndexEndingAfter(elements, position);
+        while (index > 0 && elements[index - 1].getInterval().getEndPosition().isGreaterOrEqualToThan(position)) {
+            --index;
         }
-        intervalAwares.add(i, clip);
+        while (index < elements.length && elements[index].getInterval().getStartPosition().isLessOrEqualToThan(position)) {
+            result.add((T) elements[index]);
+            ++index;
+        }
+        return result;
+    }
+
+    public synchronized boolean addInterval(T clip) {
+        intervalAwares = insert(intervalAwares, clip);
         return true;
     }
 
+    private static IntervalAware[] insert(IntervalAware[] elements, IntervalAware clip) {
+        int index = firstIndexEndingAfter(elements, clip.getInterval().getStartPosition());
+        IntervalAware[] result = new IntervalAware[elements.length + 1];
+        System.arraycopy(elements, 0, result, 0, index);
+        result[index] = clip;
+        System.arraycopy(elements, index, result, index + 1, elements.length - index);
+        return result;
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public Iterator<T> iterator() {
-        return intervalAwares.iterator();
+        return Arrays.asList((T[]) intervalAwares).iterator();
     }
 
-    public T remove(T clip) {
-        boolean result = intervalAwares.remove(clip);
-        if (result == false) {
+    public synchronized T remove(T clip) {
+        IntervalAware[] elements = intervalAwares;
+        int index = indexOf(elements, clip);
+        if (index == -1) {
             throw new IllegalArgumentException("Remove was unsuccesful, because list no longer contains clip");
         } else {
+            intervalAwares = removeIndex(elements, index);
             return clip;
         }
     }
 
+    private static IntervalAware[] removeIndex(IntervalAware[] elements, int index) {
+        IntervalAware[] result = new IntervalAware[elements.length - 1];
+        System.arraycopy(elements, 0, result, 0, index);
+        System.arraycopy(elements, index + 1, result, index, elements.length - index - 1);
+        return result;
+    }
+
+    /**
+     * The element is first searched by its interval, intervals of elements may be changed before they are removed, so all elements are checked if it's not found there.
+     */
+    private static int indexOf(IntervalAware[] elements, Object element) {
+        if (element instanceof IntervalAware) {
+            TimelineInterval interval = ((IntervalAware) element).getInterval();
+            for (int i = firstIndexEndingAfter(elements, interval.getStartPosition()); i < elements.length; ++i) {
+                if (elements[i].equals(element)) {
+                    return i;
+                }
+                if (elements[i].getInterval().getStartPosition().isGreaterThan(interval.getEndPosition())) {
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < elements.length; ++i) {
+            if (elements[i].equals(element)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
     public Stream<T> stream() {
-        return StreamSupport.stream(spliterator(), false);
+        return Arrays.stream((T[]) intervalAwares);
     }
 
     public boolean contains(StatelessEffect effect) {
-        return intervalAwares.contains(effect);
+        return indexOf(intervalAwares, effect) != -1;
     }
 
-    public <H extends IntervalSettable> boolean resize(H clip, TimelineInterval newInterval) {
-        if (newInterval.getLength().getSeconds().doubleValue() < 0.0) {
+    /**
+     * Resized element is replaced in a single modification, so concurrent queries either see it with its original or with its new interval.
+     */
+    public synchronized <H extends IntervalSettable> boolean resize(H clip, TimelineInterval newInterval) {
+        if (newInterval.getLength().lessThan(TimelineLength.ofZero())) {
             return false;
         }
-        this.remove((T) clip);
-        if (canAddInterval(newInterval)) {
+        IntervalAware[] elements = intervalAwares;
+        int index = indexOf(elements, clip);
+        if (index == -1) {
+            throw new IllegalArgumentException("Remove was unsuccesful, because list no longer contains clip");
+        }
+        IntervalAware[] elementsWithoutClip = removeIndex(elements, index);
+        if (computeIntersectingIntervals(elementsWithoutClip, newInterval).isEmpty()) {
             clip.setInterval(newInterval);
-            this.addInterval((T) clip);
+            intervalAwares = insert(elementsWithoutClip, clip);
             return true;
         } else {
-            this.addInterval((T) clip);
             return false;
         }
     }
 
-    public void removeAll(List<T> intersections) {
+    public synchronized void removeAll(List<T> intersections) {
         intersections.stream()
                 .forEach(a -> remove(a));
     }
 
+    /**
+     * Removes the given elements and adds the new ones in a single modification.
+     */
+    public synchronized void replace(List<T> elementsToRemove, List<T> newElements) {
+        IntervalAware[] elements = intervalAwares;
+        for (T element : elementsToRemove) {
+            int index = indexOf(elements, element);
+            if (index == -1) {
+                throw new IllegalArgumentException("Remove was unsuccesful, because list no longer contains clip");
+            }
+            elements = removeIndex(elements, index);
+        }
+        for (T newElement : newElements) {
+            elements = insert(elements, newElement);
+        }
+        intervalAwares = elements;
+    }
+
     public int size() {
-        return intervalAwares.size();
+        return intervalAwares.length;
     }
 
+    @SuppressWarnings("unchecked")
     public T get(int index) {
-        return intervalAwares.get(index);
+        IntervalAware[] elements = intervalAwares;
+        if (index < 0 || index >= elements.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + elements.length);
+        }
+        return (T) elements[index];
     }
 
     @Override
     public String toString() {
-        return "NonIntersectingIntervalList [intervalAwares=" + intervalAwares + "]";
+        return "NonIntersectingIntervalList [intervalAwares=" + Arrays.toString(intervalAwares) + "]";
     }
 
 }
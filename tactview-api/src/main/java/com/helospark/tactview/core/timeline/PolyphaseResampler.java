@@ -0,0 +1,125 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kaiser windowed sinc resampler with precomputed filter tables.
+ * <p>
+ * The filter is tabulated for {@value #NUMBER_OF_PHASES} fractional positions between two input samples, outputs between them are linearly interpolated
+ * from the two nearest phases. When downsampling the cutoff is lowered to the output Nyquist frequency, so frequencies the output can not represent are
+ * filtered out instead of aliasing. Tables only depend on the two sample rates, so they are created once per rate pair and shared.
+ */
+public class PolyphaseResampler {
+    private static final int NUMBER_OF_PHASES = 256;
+    private static final int ZERO_CROSSINGS = 16;
+    private static final double ROLLOFF = 0.95;
+    private static final double KAISER_BETA = 8.6;
+    private static final Map<Long, PolyphaseResampler> RESAMPLERS = new ConcurrentHashMap<>();
+
+    private final int inputSampleRate;
+    private final int outputSampleRate;
+    private final int halfLength;
+    private final float[][] phases;
+
+    private PolyphaseResampler(int inputSampleRate, int outputSampleRate) {
+        this.inputSampleRate = inputSampleRate;
+        this.outputSampleRate = outputSampleRate;
+
+        double cutoff = Math.min(1.0, (double) outputSampleRate / inputSampleRate) * ROLLOFF;
+        this.halfLength = (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+        this.phases = new float[NUMBER_OF_PHASES + 1][2 * halfLength];
+
+        double windowNormalization = besselI0(KAISER_BETA);
+        for (int phase = 0; phase <= NUMBER_OF_PHASES; ++phase) {
+            double fraction = (double) phase / NUMBER_OF_PHASES;
+            for (int tap = 0; tap < 2 * halfLength; ++tap) {
+                double distance = tap - halfLength + 1 - fraction;
+                double windowPosition = distance / halfLength;
+                double window = Math.abs(windowPosition) >= 1.0 ? 0.0 : besselI0(KAISER_BETA * Math.sqrt(1.0 - windowPosition * windowPosition)) / windowNormalization;
+                phases[phase][tap] = (float) (cutoff * sinc(cutoff * distance) * window);
+            }
+        }
+    }
+
+    public static PolyphaseResampler forSampleRates(int inputSampleRate, int outputSampleRate) {
+        long key = ((long) inputSampleRate << 32) | outputSampleRate;
+        return RESAMPLERS.computeIfAbsent(key, k -> new PolyphaseResampler(inputSampleRate, outputSampleRate));
+    }
+
+    /**
+     * Adds the resampled input to the output, the first output sample is aligned with the first input sample.
+     * Samples before and after the input are treated as repeating the first and last sample, so block edges are not faded out.
+     */
+    public void mixInto(float[] input, float[] output, int numberOfOutputSamples) {
+        mixInto(input, output, 0, numberOfOutputSamples);
+    }
+
+    public void mixInto(float[] input, float[] output, int outputOffset, int numberOfOutputSamples) {
+        if (input.length == 0) {
+            return;
+        }
+        int lastInputIndex = input.length - 1;
+        for (int i = 0; i < numberOfOutputSamples; ++i) {
+            long inputPositionNumerator = (long) i * inputSampleRate;
+            int inputIndex = (int) (inputPositionNumerator / outputSampleRate);
+            if (inputIndex > lastInputIndex) {
+                break;
+            }
+            double phasePosition = (double) (inputPositionNumerator % outputSampleRate) * NUMBER_OF_PHASES / outputSampleRate;
+            int phase = (int) phasePosition;
+            float phaseDistance = (float) (phasePosition - phase);
+            float[] firstPhase = phases[phase];
+            float[] secondPhase = phases[phase + 1];
+
+            int firstInputIndex = inputIndex - halfLength + 1;
+            float firstSum = 0.0f;
+            float secondSum = 0.0f;
+            if (firstInputIndex >= 0 && firstInputIndex + firstPhase.length <= input.length) {
+                for (int tap = 0; tap < firstPhase.length; ++tap) {
+                    float sample = input[firstInputIndex + tap];
+                    firstSum += sample * firstPhase[tap];
+                    secondSum += sample * secondPhase[tap];
+                }
+            } else {
+                for (int tap = 0; tap < firstPhase.length; ++tap) {
+                    float sample = input[Math.max(0, Math.min(lastInputIndex, firstInputIndex + tap))];
+                    firstSum += sample * firstPhase[tap];
+                    secondSum += sample * secondPhase[tap];
+                }
+            }
+            output[outputOffset + i] += firstSum + (secondSum - firstSum) * phaseDistance;
+        }
+    }
+
+    public int getInputSampleRate() {
+        return inputSampleRate;
+    }
+
+    public int getOutputSampleRate() {
+        return outputSampleRate;
+    }
+
+    private static double sinc(double x) {
+        if (x == 0.0) {
+            return 1.0;
+        }
+        double piX = Math.PI * x;
+        return Math.sin(piX) / piX;
+    }
+
+    private static double besselI0(double x) {
+        double result = 1.0;
+        double term = 1.0;
+        double halfX = x / 2.0;
+        for (int k = 1; k < 50; ++k) {
+            term *= (halfX / k) * (halfX / k);
+            result += term;
+            if (term < result * 1e-12) {
+                break;
+            }
+        }
+        return result;
+    }
+
+}
@@ -5,4 +5,9 @@ import java.math.BigDecimal;
 public interface SecondsAware {
 
     public BigDecimal getSeconds();
+
+    /**
+     * @return time in {@link TimelineTicks} or {@link TimelineTicks#NOT_ALIGNED}
+     */
+    public long toTicks();
 }
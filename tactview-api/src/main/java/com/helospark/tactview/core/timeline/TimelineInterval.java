@@ -38,8 +38,8 @@ public class TimelineInterval {
     }
 
     public boolean contains(TimelinePosition position) {
-        boolean isLargerThanStart = position.getSeconds().compareTo(startPosition.getSeconds()) >= 0;
-        boolean isSmallerThanEnd = position.getSeconds().compareTo(endPosition.getSeconds()) <= 0;
+        boolean isLargerThanStart = position.compareTo(startPosition) >= 0;
+        boolean isSmallerThanEnd = position.compareTo(endPosition) <= 0;
         return isLargerThanStart && isSmallerThanEnd;
     }
 
@@ -2,45 +2,73 @@ package com.helospark.tactview.core.timeline;
 
 import java.math.BigDecimal;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class TimelineLength implements SecondsAware {
     private static final BigDecimal MICROSECONDS = BigDecimal.valueOf(1000000L);
 
-    private BigDecimal seconds;
+    @JsonIgnore
+    private final long ticks;
+    @JsonIgnore
+    private volatile BigDecimal seconds; // created from ticks when first requested
 
     public TimelineLength(@JsonProperty("seconds") BigDecimal seconds) {
         this.seconds = seconds;
+        this.ticks = TimelineTicks.fromSeconds(seconds);
+    }
+
+    private TimelineLength(long ticks) {
+        this.ticks = ticks;
+    }
+
+    public static TimelineLength ofTicks(long ticks) {
+        return new TimelineLength(ticks);
     }
 
     public static TimelineLength ofZero() {
-        return new TimelineLength(BigDecimal.ZERO);
+        return new TimelineLength(0L);
     }
 
     @Override
+    @JsonProperty("seconds")
     public BigDecimal getSeconds() {
-        return seconds;
+        BigDecimal result = seconds;
+        if (result == null) {
+            result = TimelineTicks.toSeconds(ticks);
+            seconds = result;
+        }
+        return result;
+    }
+
+    @Override
+    public long toTicks() {
+        return ticks;
     }
 
     public static TimelineLength getLength(TimelinePosition startPosition, TimelinePosition endPosition) {
+        long lengthTicks = TimelineTicks.add(endPosition.toTicks(), TimelineTicks.negate(startPosition.toTicks()));
+        if (lengthTicks != TimelineTicks.NOT_ALIGNED) {
+            return new TimelineLength(lengthTicks);
+        }
         return new TimelineLength(endPosition.getSeconds().subtract(startPosition.getSeconds()));
     }
 
     public static TimelineLength ofMicroseconds(long lengthInMicroseconds) {
+        if (Math.abs(lengthInMicroseconds) < Long.MAX_VALUE / TimelineTicks.fromMicroseconds(1)) {
+            return new TimelineLength(TimelineTicks.fromMicroseconds(lengthInMicroseconds));
+        }
         return new TimelineLength(new BigDecimal(lengthInMicroseconds).divide(MICROSECONDS));
     }
 
     @Override
     public String toString() {
-        return "TimelineLength [seconds=" + seconds + "]";
+        return "TimelineLength [seconds=" + getSeconds() + "]";
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((seconds == null) ? 0 : seconds.hashCode());
-        return result;
+        return ticks != TimelineTicks.NOT_ALIGNED ? Long.hashCode(ticks) : getSeconds().hashCode();
     }
 
     @Override
@@ -52,32 +80,39 @@ public class TimelineLength implements SecondsAware {
         if (getClass() != obj.getClass())
             return false;
         TimelineLength other = (TimelineLength) obj;
-        if (seconds == null) {
-            if (other.seconds != null)
-                return false;
-        } else if (!seconds.equals(other.seconds))
-            return false;
-        return true;
+        if (ticks != TimelineTicks.NOT_ALIGNED || other.ticks != TimelineTicks.NOT_ALIGNED) {
+            return ticks == other.ticks;
+        }
+        return getSeconds().equals(other.getSeconds());
     }
 
     public static TimelineLength ofMillis(int i) {
-        return new TimelineLength(BigDecimal.valueOf(i).divide(BigDecimal.valueOf(1000)));
+        return new TimelineLength(i * (TimelineTicks.TICKS_PER_SECOND / 1000));
     }
 
     public boolean lessThan(TimelineLength length) {
-        return this.getSeconds().compareTo(length.getSeconds()) < 0;
+        return this.compareTo(length) < 0;
     }
 
     public boolean greaterThan(TimelineLength length) {
-        return this.getSeconds().compareTo(length.getSeconds()) > 0;
+        return this.compareTo(length) > 0;
     }
 
     public int compareTo(TimelineLength other) {
-        return seconds.compareTo(other.seconds);
+        if (ticks != TimelineTicks.NOT_ALIGNED && other.ticks != TimelineTicks.NOT_ALIGNED) {
+            return Long.compare(ticks, other.ticks);
+        }
+        return getSeconds().compareTo(other.getSeconds());
     }
 
     public TimelineLength multiply(int i) {
-        return new TimelineLength(this.seconds.multiply(BigDecimal.valueOf(i)));
+        if (ticks != TimelineTicks.NOT_ALIGNED) {
+            long result = ticks * i;
+            if (Math.multiplyHigh(ticks, i) == (result >> 63) && result != TimelineTicks.NOT_ALIGNED) {
+                return new TimelineLength(result);
+            }
+        }
+        return new TimelineLength(this.getSeconds().multiply(BigDecimal.valueOf(i)));
     }
 
     public static TimelineLength ofSeconds(double d) {
@@ -85,15 +120,15 @@ public class TimelineLength implements SecondsAware {
     }
 
     public TimelinePosition toPosition() {
-        return new TimelinePosition(this.seconds);
+        return ticks != TimelineTicks.NOT_ALIGNED ? TimelinePosition.ofTicks(ticks) : new TimelinePosition(getSeconds());
     }
 
     public static TimelineLength ofOne() {
-        return new TimelineLength(BigDecimal.ONE);
+        return new TimelineLength(TimelineTicks.TICKS_PER_SECOND);
     }
 
     public TimelineLength multiply(BigDecimal newLengthMultiplier) {
-        return new TimelineLength(this.seconds.multiply(newLengthMultiplier));
+        return new TimelineLength(this.getSeconds().multiply(newLengthMultiplier));
     }
 
 }
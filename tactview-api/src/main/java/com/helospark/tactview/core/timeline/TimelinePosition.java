@@ -4,48 +4,98 @@ import static java.math.RoundingMode.HALF_DOWN;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+/**
+ * Position on the timeline. Positions aligned to {@link TimelineTicks} are compared and added as longs, see there.
+ */
 public class TimelinePosition implements SecondsAware, Comparable<TimelinePosition> {
     private static final TimelinePosition ZERO_POSITION = new TimelinePosition(BigDecimal.ZERO);
-    private final BigDecimal seconds;
+    @JsonIgnore
+    private final long ticks;
+    @JsonIgnore
+    private volatile BigDecimal seconds; // created from ticks when first requested
 
     public TimelinePosition(@JsonProperty("seconds") BigDecimal seconds) {
         this.seconds = seconds;
+        this.ticks = TimelineTicks.fromSeconds(seconds);
     }
 
     public TimelinePosition(double seconds) {
         this(new BigDecimal(seconds));
     }
 
+    private TimelinePosition(long ticks) {
+        this.ticks = ticks;
+    }
+
+    private static TimelinePosition ofTicksOrSeconds(long ticks, SecondsAware fallback, SecondsAware other, boolean subtract) {
+        if (ticks != TimelineTicks.NOT_ALIGNED) {
+            return new TimelinePosition(ticks);
+        }
+        BigDecimal otherSeconds = other.getSeconds();
+        return new TimelinePosition(subtract ? fallback.getSeconds().subtract(otherSeconds) : fallback.getSeconds().add(otherSeconds));
+    }
+
+    public static TimelinePosition ofTicks(long ticks) {
+        return new TimelinePosition(ticks);
+    }
+
     public TimelinePosition add(TimelineLength length) {
-        return new TimelinePosition(seconds.add(length.getSeconds()));
+        return ofTicksOrSeconds(TimelineTicks.add(ticks, length.toTicks()), this, length, false);
     }
 
     @Override
+    @JsonProperty("seconds")
     public BigDecimal getSeconds() {
-        return seconds;
+        BigDecimal result = seconds;
+        if (result == null) {
+            result = TimelineTicks.toSeconds(ticks);
+            seconds = result;
+        }
+        return result;
+    }
+
+    @Override
+    public long toTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return seconds as double, without creating the BigDecimal seconds for tick aligned positions
+     */
+    public double toSecondsDouble() {
+        double result = TimelineTicks.toSecondsDouble(ticks);
+        return Double.isNaN(result) ? getSeconds().doubleValue() : result;
     }
 
     public boolean isLessThan(TimelinePosition other) {
-        return this.getSeconds().compareTo(other.getSeconds()) < 0;
+        return this.compareTo(other) < 0;
     }
 
     public boolean isLessThanOrEqualTo(TimelinePosition other) {
-        return this.getSeconds().compareTo(other.getSeconds()) <= 0;
+        return this.compareTo(other) <= 0;
     }
 
     public TimelinePosition from(TimelinePosition startPosition) {
-        return new TimelinePosition(seconds.subtract(startPosition.seconds));
+        return ofTicksOrSeconds(TimelineTicks.add(ticks, TimelineTicks.negate(startPosition.ticks)), this, startPosition, true);
     }
 
     public static TimelinePosition fromFrameIndexWithFps(long frame, double fps) {
+        long frameTicks = TimelineTicks.fromFrameIndex(frame, fps);
+        if (frameTicks != TimelineTicks.NOT_ALIGNED) {
+            return new TimelinePosition(frameTicks);
+        }
         return new TimelinePosition(new BigDecimal(frame).divide(new BigDecimal(fps), 100, HALF_DOWN));
     }
 
     public TimelinePosition add(BigDecimal increment) {
+        long result = TimelineTicks.add(ticks, TimelineTicks.fromSeconds(increment));
+        if (result != TimelineTicks.NOT_ALIGNED) {
+            return new TimelinePosition(result);
+        }
         return new TimelinePosition(this.getSeconds().add(increment));
     }
 
@@ -58,11 +108,11 @@ public class TimelinePosition implements SecondsAware, Comparable<TimelinePositi
     }
 
     public TimelinePosition add(TimelinePosition position) {
-        return new TimelinePosition(this.getSeconds().add(position.getSeconds()));
+        return ofTicksOrSeconds(TimelineTicks.add(ticks, position.ticks), this, position, false);
     }
 
     public TimelineLength toLength() {
-        return new TimelineLength(seconds);
+        return ticks != TimelineTicks.NOT_ALIGNED ? TimelineLength.ofTicks(ticks) : new TimelineLength(getSeconds());
     }
 
     @Override
@@ -71,22 +121,28 @@ public class TimelinePosition implements SecondsAware, Comparable<TimelinePositi
             return false;
         }
         TimelinePosition castOther = (TimelinePosition) other;
-        return Objects.equals(seconds, castOther.seconds);
+        if (ticks != TimelineTicks.NOT_ALIGNED || castOther.ticks != TimelineTicks.NOT_ALIGNED) {
+            return ticks == castOther.ticks;
+        }
+        return getSeconds().equals(castOther.getSeconds());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(seconds);
+        return ticks != TimelineTicks.NOT_ALIGNED ? Long.hashCode(ticks) : getSeconds().hashCode();
     }
 
     @Override
     //    @JsonValue
     public String toString() {
-        return seconds.toString();
+        return getSeconds().toString();
     }
 
     @Override
     public int compareTo(TimelinePosition o) {
+        if (ticks != TimelineTicks.NOT_ALIGNED && o.ticks != TimelineTicks.NOT_ALIGNED) {
+            return Long.compare(ticks, o.ticks);
+        }
         return this.getSeconds().compareTo(o.getSeconds());
     }
 
@@ -99,27 +155,27 @@ public class TimelinePosition implements SecondsAware, Comparable<TimelinePositi
     }
 
     public boolean isLessOrEqualToThan(TimelinePosition other) {
-        return this.getSeconds().compareTo(other.getSeconds()) <= 0;
+        return this.compareTo(other) <= 0;
     }
 
     public TimelinePosition subtract(SecondsAware endPosition) {
-        return new TimelinePosition(this.getSeconds().subtract(endPosition.getSeconds()));
+        return ofTicksOrSeconds(TimelineTicks.add(ticks, TimelineTicks.negate(endPosition.toTicks())), this, endPosition, true);
     }
 
     public BigDecimal distanceFrom(TimelinePosition position) {
-        return seconds.subtract(position.seconds).abs();
+        return getSeconds().subtract(position.getSeconds()).abs();
     }
 
     public TimelinePosition multiply(BigDecimal rhs) {
-        return new TimelinePosition(this.seconds.multiply(rhs));
+        return new TimelinePosition(this.getSeconds().multiply(rhs));
     }
 
     public TimelinePosition divide(TimelineLength length) {
-        return new TimelinePosition(this.seconds.divide(length.getSeconds(), 2, RoundingMode.HALF_UP));
+        return new TimelinePosition(this.getSeconds().divide(length.getSeconds(), 2, RoundingMode.HALF_UP));
     }
 
     public TimelinePosition divide(BigDecimal length) {
-        return new TimelinePosition(this.seconds.divide(length, 2, RoundingMode.HALF_UP));
+        return new TimelinePosition(this.getSeconds().divide(length, 2, RoundingMode.HALF_UP));
     }
 
     public TimelineInterval toInterval() {
@@ -127,15 +183,21 @@ public class TimelinePosition implements SecondsAware, Comparable<TimelinePositi
     }
 
     public TimelinePosition negate() {
-        return new TimelinePosition(this.seconds.negate());
+        if (ticks != TimelineTicks.NOT_ALIGNED) {
+            return new TimelinePosition(-ticks);
+        }
+        return new TimelinePosition(this.getSeconds().negate());
     }
 
     public TimelinePosition decimalPart() {
-        return new TimelinePosition(this.seconds.remainder(BigDecimal.ONE));
+        if (ticks != TimelineTicks.NOT_ALIGNED) {
+            return new TimelinePosition(ticks % TimelineTicks.TICKS_PER_SECOND);
+        }
+        return new TimelinePosition(this.getSeconds().remainder(BigDecimal.ONE));
     }
 
     public static TimelinePosition ofSeconds(int seconds) {
-        return new TimelinePosition(BigDecimal.valueOf(seconds));
+        return new TimelinePosition(seconds * TimelineTicks.TICKS_PER_SECOND);
     }
 
     public static TimelinePosition ofSeconds(double seconds) {
@@ -143,7 +205,11 @@ public class TimelinePosition implements SecondsAware, Comparable<TimelinePositi
     }
 
     public TimelinePosition subtract(BigDecimal integralcacheresolution) {
-        return new TimelinePosition(seconds.subtract(integralcacheresolution));
+        long result = TimelineTicks.add(ticks, TimelineTicks.negate(TimelineTicks.fromSeconds(integralcacheresolution)));
+        if (result != TimelineTicks.NOT_ALIGNED) {
+            return new TimelinePosition(result);
+        }
+        return new TimelinePosition(getSeconds().subtract(integralcacheresolution));
     }
 
 }
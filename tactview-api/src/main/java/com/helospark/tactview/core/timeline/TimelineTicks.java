@@ -0,0 +1,151 @@
+package com.helospark.tactview.core.timeline;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed point time base for {@link TimelinePosition} and {@link TimelineLength}.
+ * <p>
+ * A second is {@value #TICKS_PER_SECOND} ticks, which is divisible by 10^9, by the common frame rates (24, 25, 30, 48, 50, 60, 90, 120, and the
+ * NTSC rates 24000/1001, 30000/1001, 60000/1001) and sample rates (44100, 48000), so frame and sample positions are exact. Frame rates arrive as
+ * doubles, an NTSC rate is recognized only when the double is exactly the nearest double of N*1000/1001, as decoders compute it from the rational. Positions are compared and added as longs while both are tick aligned,
+ * the {@link BigDecimal} seconds are only created when requested. Seconds, which cannot be represented as ticks, use BigDecimal arithmetic as before.
+ */
+public final class TimelineTicks {
+    public static final long TICKS_PER_SECOND = 441_000_000_000L;
+    public static final long NOT_ALIGNED = Long.MIN_VALUE;
+
+    static final BigDecimal TICKS_PER_SECOND_DECIMAL = BigDecimal.valueOf(TICKS_PER_SECOND);
+    private static final int MAXIMUM_EXACT_SCALE = 9;
+    // decimals with at least this scale are considered as rounded results of a division, ex. 1/30 seconds
+    private static final int MINIMUM_ROUNDED_SCALE = 20;
+    private static final int SECONDS_SCALE = 100;
+    private static final long TICKS_PER_NANOSECOND_PART = TICKS_PER_SECOND / 1_000_000_000L;
+    private static final long MAXIMUM_EXACT_DOUBLE = 1L << 53;
+    private static final long NTSC_DENOMINATOR = 1001;
+    private static final long[] TICKS_PER_DECIMAL_UNIT = new long[MAXIMUM_EXACT_SCALE + 1];
+
+    static {
+        long ticks = TICKS_PER_SECOND;
+        for (int i = 0; i <= MAXIMUM_EXACT_SCALE; ++i) {
+            TICKS_PER_DECIMAL_UNIT[i] = ticks;
+            ticks /= 10;
+        }
+    }
+
+    private TimelineTicks() {
+    }
+
+    /**
+     * @return the ticks of the given seconds or {@link #NOT_ALIGNED} if it cannot be represented
+     */
+    public static long fromSeconds(BigDecimal seconds) {
+        if (seconds.signum() == 0) {
+            return 0;
+        }
+        BigDecimal value = seconds;
+        if (value.scale() > MAXIMUM_EXACT_SCALE) {
+            value = value.stripTrailingZeros();
+            if (value.scale() > MAXIMUM_EXACT_SCALE) {
+                return value.scale() >= MINIMUM_ROUNDED_SCALE ? roundedDecimalToTicks(value) : NOT_ALIGNED;
+            }
+        }
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        BigInteger unscaledValue = value.unscaledValue();
+        if (unscaledValue.bitLength() > 62) {
+            return NOT_ALIGNED;
+        }
+        long unscaled = unscaledValue.longValue();
+        long ticksPerUnit = TICKS_PER_DECIMAL_UNIT[value.scale()];
+        long result = unscaled * ticksPerUnit;
+        if (Math.multiplyHigh(unscaled, ticksPerUnit) != (result >> 63) || result == NOT_ALIGNED) {
+            return NOT_ALIGNED;
+        }
+        return result;
+    }
+
+    private static long roundedDecimalToTicks(BigDecimal seconds) {
+        BigDecimal exactTicks = seconds.multiply(TICKS_PER_SECOND_DECIMAL);
+        BigDecimal roundedTicks = exactTicks.setScale(0, RoundingMode.HALF_UP);
+        BigDecimal allowedError = TICKS_PER_SECOND_DECIMAL.scaleByPowerOfTen(-(seconds.scale() - 2));
+        if (exactTicks.subtract(roundedTicks).abs().compareTo(allowedError) > 0 || roundedTicks.unscaledValue().bitLength() > 62) {
+            return NOT_ALIGNED;
+        }
+        return roundedTicks.longValue();
+    }
+
+    public static BigDecimal toSeconds(long ticks) {
+        if (ticks % TICKS_PER_NANOSECOND_PART == 0) {
+            BigDecimal result = BigDecimal.valueOf(ticks / TICKS_PER_NANOSECOND_PART, MAXIMUM_EXACT_SCALE).stripTrailingZeros();
+            return result.scale() < 0 ? result.setScale(0) : result;
+        } else {
+            return BigDecimal.valueOf(ticks).divide(TICKS_PER_SECOND_DECIMAL, SECONDS_SCALE, RoundingMode.HALF_DOWN);
+        }
+    }
+
+    /**
+     * @return the ticks of the given frame or {@link #NOT_ALIGNED} if the frame rate is neither an integer nor an NTSC rate dividing a second to
+     *         whole ticks
+     */
+    public static long fromFrameIndex(long frame, double fps) {
+        long ticksPerFrame = ticksPerFrame(fps);
+        if (ticksPerFrame == NOT_ALIGNED) {
+            return NOT_ALIGNED;
+        }
+        long result = frame * ticksPerFrame;
+        if (Math.multiplyHigh(frame, ticksPerFrame) != (result >> 63) || result == NOT_ALIGNED) {
+            return NOT_ALIGNED;
+        }
+        return result;
+    }
+
+    private static long ticksPerFrame(double fps) {
+        long integerFps = (long) fps;
+        if (integerFps == fps) {
+            return integerFps > 0 && TICKS_PER_SECOND % integerFps == 0 ? TICKS_PER_SECOND / integerFps : NOT_ALIGNED;
+        }
+        // N*1000/1001 frames per second
+        long ntscNumerator = Math.round(fps * NTSC_DENOMINATOR / 1000.0) * 1000;
+        if (ntscNumerator <= 0 || (double) ntscNumerator / NTSC_DENOMINATOR != fps || (TICKS_PER_SECOND * NTSC_DENOMINATOR) % ntscNumerator != 0) {
+            return NOT_ALIGNED;
+        }
+        return TICKS_PER_SECOND * NTSC_DENOMINATOR / ntscNumerator;
+    }
+
+    public static long fromMicroseconds(long microseconds) {
+        return microseconds * (TICKS_PER_SECOND / 1_000_000L);
+    }
+
+    /**
+     * @return exact sum of the ticks or {@link #NOT_ALIGNED} if either of them is not aligned or the sum overflows
+     */
+    public static long add(long a, long b) {
+        if (a == NOT_ALIGNED || b == NOT_ALIGNED) {
+            return NOT_ALIGNED;
+        }
+        long result = a + b;
+        if (((a ^ result) & (b ^ result)) < 0 || result == NOT_ALIGNED) {
+            return NOT_ALIGNED;
+        }
+        return result;
+    }
+
+    public static long negate(long ticks) {
+        return ticks == NOT_ALIGNED ? NOT_ALIGNED : -ticks;
+    }
+
+    /**
+     * @return seconds as double, or NaN if it cannot be computed exactly from the ticks
+     */
+    static double toSecondsDouble(long ticks) {
+        if (ticks == NOT_ALIGNED || ticks > MAXIMUM_EXACT_DOUBLE || ticks < -MAXIMUM_EXACT_DOUBLE) {
+            return Double.NaN;
+        }
+        // both are exact doubles, so the division is correctly rounded as BigDecimal.doubleValue()
+        return (double) ticks / TICKS_PER_SECOND;
+    }
+
+}
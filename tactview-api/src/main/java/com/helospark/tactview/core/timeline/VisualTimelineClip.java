@@ -93,8 +93,13 @@ public abstract class VisualTimelineClip extends TimelineClip {
     }
 
     protected TimelinePosition calculatePositionToRender(GetFrameRequest request) {
-        TimelinePosition relativePosition = request.calculateRelativePositionFrom(this);
+        return calculateSourcePosition(request.calculateRelativePositionFrom(this));
+    }
 
+    /**
+     * @return position in the source displayed at the given position relative to the clip start, with render offset, time scale and reverse applied
+     */
+    public TimelinePosition calculateSourcePosition(TimelinePosition relativePosition) {
         boolean reverse = reverseTimeProvider.getValueAt(TimelinePosition.ofZero());
 
         if (reverse) {
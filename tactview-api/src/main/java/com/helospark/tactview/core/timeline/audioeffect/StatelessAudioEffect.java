@@ -4,9 +4,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.helospark.tactview.core.clone.CloneRequestMetadata;
 import com.helospark.tactview.core.save.LoadMetadata;
 import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.AudioSampleBlock;
 import com.helospark.tactview.core.timeline.StatelessEffect;
 import com.helospark.tactview.core.timeline.TimelineInterval;
 
+/**
+ * Audio effects work on float sample blocks, clips run their whole effect chain on a single {@link AudioSampleBlock}, so samples are only quantized once.
+ */
 public abstract class StatelessAudioEffect extends StatelessEffect {
 
     public StatelessAudioEffect(TimelineInterval interval) {
@@ -21,14 +25,27 @@ public abstract class StatelessAudioEffect extends StatelessEffect {
         super(node, loadMetadata);
     }
 
+    /**
+     * Applies only this effect on integer PCM samples, effect chains should use {@link #applyEffect(AudioEffectRequest, AudioSampleBlock)} instead.
+     */
     public AudioFrameResult applyEffect(AudioEffectRequest request) {
-        AudioFrameResult effect = applyEffectInternal(request);
-        if (!effect.getLength().equals(request.getInput().getLength())) {
+        AudioFrameResult input = request.getInput();
+        return applyEffect(request, AudioSampleBlock.fromFrame(input))
+                .toFrame(input.getBytesPerSample());
+    }
+
+    /**
+     * @param request the input of the request is only used for the format of the samples, its data may not be up to date with the block
+     * @return block with the effect applied, it may be the given block modified in place
+     */
+    public AudioSampleBlock applyEffect(AudioEffectRequest request, AudioSampleBlock samples) {
+        AudioSampleBlock effect = applyEffectInternal(request, samples);
+        if (effect.getNumberOfSamples() != samples.getNumberOfSamples()) {
             throw new RuntimeException("Length mismatch");
         }
         return effect;
     }
 
-    protected abstract AudioFrameResult applyEffectInternal(AudioEffectRequest input);
+    protected abstract AudioSampleBlock applyEffectInternal(AudioEffectRequest request, AudioSampleBlock samples);
 
 }
@@ -2,31 +2,34 @@ package com.helospark.tactview.core.timeline.effect.interpolation.interpolator;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
 
 import com.helospark.tactview.core.timeline.TimelineLength;
 import com.helospark.tactview.core.timeline.TimelinePosition;
 
+/**
+ * Keyframe based interpolators compile their keyframes into primitive arrays when first queried after a change, subclasses call
+ * {@link #keyframesChanged()} whenever their keyframes are modified.
+ * <p>
+ * Integrals are computed from a table of prefix sums from zero, with the same trapezoid steps as {@link DoubleInterpolator#integrate(TimelinePosition, TimelinePosition)}.
+ */
 public abstract class KeyframeSupportingDoubleInterpolator implements DoubleInterpolator, KeyframeSupportingInterpolator {
-    private static final BigDecimal integralCacheResolution = new BigDecimal("0.1");
-    TreeMap<TimelinePosition, BigDecimal> integralCache;
+    private static final double INTEGRAL_STEP = interpolationResolition.doubleValue();
+    private static final double STEPS_PER_SECOND = BigDecimal.ONE.divide(interpolationResolition).doubleValue();
+    private static final int STEPS_PER_INTEGRAL_TABLE_ENTRY = 100;
+
+    private transient volatile int keyframeVersion = 0;
+    private transient volatile IntegralTable integralTable;
 
     public void valueAdded(TimelinePosition globalTimelinePosition, String value) {
-        if (integralCache != null) {
-            integralCache.clear();
-            integralCache.put(TimelinePosition.ofZero(), BigDecimal.ZERO);
-        }
         valueAddedInternal(globalTimelinePosition, value);
+        keyframesChanged();
     }
 
     public void valueRemoved(TimelinePosition globalTimelinePosition) {
-        if (integralCache != null) {
-            integralCache.clear();
-            integralCache.put(TimelinePosition.ofZero(), BigDecimal.ZERO);
-        }
         valueRemovedInternal(globalTimelinePosition);
+        keyframesChanged();
     }
 
     public abstract void valueAddedInternal(TimelinePosition globalTimelinePosition, String value);
@@ -37,6 +40,35 @@ public abstract class KeyframeSupportingDoubleInterpolator implements DoubleInte
 
     public abstract void setDefaultValue(double defaultValue);
 
+    /**
+     * Invalidates the compiled keyframes and the integral table. A curve compiled concurrently with a change has an older version, so it is compiled again.
+     */
+    protected void keyframesChanged() {
+        ++keyframeVersion;
+        integralTable = null;
+    }
+
+    protected int getKeyframeVersion() {
+        return keyframeVersion;
+    }
+
+    /**
+     * @return index of the first key not before the position, keys.length if every key is before it
+     */
+    protected static int firstKeyNotBefore(TimelinePosition[] keys, TimelinePosition position) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].isLessThan(position)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
     @Override
     public BigDecimal integrate(TimelinePosition from, TimelinePosition to) {
         if (!isUsingKeyframes()) {
@@ -45,42 +77,15 @@ public abstract class KeyframeSupportingDoubleInterpolator implements DoubleInte
             BigDecimal fromSeconds = from.getSeconds();
             return toSeconds.subtract(fromSeconds).multiply(constantValue);
         }
-        if (integralCache == null) {
-            synchronized (this) {
-                if (integralCache == null) {
-                    integralCache = new TreeMap<>();
-                    integralCache.put(TimelinePosition.ofZero(), BigDecimal.ZERO);
-                }
-            }
+        double fromSeconds = from.toSecondsDouble();
+        double toSeconds = to.toSecondsDouble();
+        if (fromSeconds < 0.0 || toSeconds < 0.0) {
+            return DoubleInterpolator.super.integrate(from, to);
         }
-
-        // TODO: check below
-
-        Entry<TimelinePosition, BigDecimal> startFloorEntry = integralCache.floorEntry(from);
-        Entry<TimelinePosition, BigDecimal> endFloorEntry = integralCache.floorEntry(to);
-
-        BigDecimal resultArea;
-        synchronized (this) { // TODO: Use concurrent TreeMap collection somehow
-            TimelinePosition currentTime;
-
-            if (startFloorEntry != null && endFloorEntry != null) {
-                resultArea = endFloorEntry.getValue().subtract(startFloorEntry.getValue());
-                currentTime = endFloorEntry.getKey();
-            } else {
-                currentTime = TimelinePosition.ofZero();
-                resultArea = BigDecimal.ZERO;
-            }
-
-            TimelinePosition newTo = to.subtract(new TimelineLength(integralCacheResolution));
-            while (currentTime.isLessThan(newTo)) {
-                BigDecimal partialArea = DoubleInterpolator.super.integrate(currentTime, currentTime.add(integralCacheResolution));
-                resultArea = resultArea.add(partialArea);
-                currentTime = currentTime.add(integralCacheResolution);
-                integralCache.put(currentTime, resultArea);
-            }
-            resultArea = resultArea.add(DoubleInterpolator.super.integrate(currentTime, to));
+        if (toSeconds <= fromSeconds) {
+            return BigDecimal.ZERO;
         }
-        return resultArea;
+        return BigDecimal.valueOf(integralFromZero(toSeconds) - integralFromZero(fromSeconds));
     }
 
     @Override
@@ -89,9 +94,115 @@ public abstract class KeyframeSupportingDoubleInterpolator implements DoubleInte
             BigDecimal constantValue = BigDecimal.valueOf(valueAt(start));
 
             return untilValue.getSeconds().subtract(start.getSeconds()).divide(constantValue, 10, RoundingMode.HALF_UP);
-        } else {
+        }
+        double startSeconds = start.toSecondsDouble();
+        if (startSeconds < 0.0) {
             return DoubleInterpolator.super.integrateUntil(start, untilValue, max);
         }
+        double targetArea = integralFromZero(startSeconds) + untilValue.getSeconds().doubleValue();
+        double maxSeconds = max.doubleValue();
+
+        // skip whole table entries, then find the first step reaching the area
+        int index = (int) (stepsBefore(startSeconds) / STEPS_PER_INTEGRAL_TABLE_ENTRY) + 1;
+        while (toSeconds((long) index * STEPS_PER_INTEGRAL_TABLE_ENTRY) < maxSeconds && ensureIntegralTable(index).prefix[index] < targetArea) {
+            ++index;
+        }
+        double currentTime = Math.max(startSeconds, toSeconds((long) (index - 1) * STEPS_PER_INTEGRAL_TABLE_ENTRY));
+        double area = integralFromZero(currentTime);
+        double lowValue = valueAtSeconds(currentTime);
+        while (area < targetArea && currentTime < maxSeconds) {
+            double nextTime = toSeconds(stepsBefore(currentTime) + 1);
+            double highValue = valueAtSeconds(nextTime);
+            area += (lowValue + highValue) / 2.0 * (nextTime - currentTime);
+            currentTime = nextTime;
+            lowValue = highValue;
+        }
+        return BigDecimal.valueOf(currentTime);
+    }
+
+    private double integralFromZero(double seconds) {
+        long steps = stepsBefore(seconds);
+        int index = (int) (steps / STEPS_PER_INTEGRAL_TABLE_ENTRY);
+        double area = ensureIntegralTable(index).prefix[index];
+        long step = (long) index * STEPS_PER_INTEGRAL_TABLE_ENTRY;
+        double lowValue = valueAtSeconds(toSeconds(step));
+        for (; step < steps; ++step) {
+            double highValue = valueAtSeconds(toSeconds(step + 1));
+            area += (lowValue + highValue) / 2.0 * INTEGRAL_STEP;
+            lowValue = highValue;
+        }
+        double remaining = seconds - toSeconds(steps);
+        if (remaining > 0.0) {
+            area += (lowValue + valueAtSeconds(seconds)) / 2.0 * remaining;
+        }
+        return area;
+    }
+
+    private IntegralTable ensureIntegralTable(int index) {
+        IntegralTable table = integralTable;
+        if (table != null && table.size > index) {
+            return table;
+        }
+        synchronized (this) {
+            table = integralTable;
+            int version = keyframeVersion;
+            if (table == null || table.version != version) {
+                table = new IntegralTable(version, new double[Math.max(16, index + 1)], 1);
+            }
+            if (table.size > index) {
+                return table;
+            }
+            double[] prefix = table.prefix.length > index ? table.prefix : Arrays.copyOf(table.prefix, Math.max(index + 1, table.prefix.length * 2));
+            for (int i = table.size; i <= index; ++i) {
+                long firstStep = (long) (i - 1) * STEPS_PER_INTEGRAL_TABLE_ENTRY;
+                double area = prefix[i - 1];
+                double lowValue = valueAtSeconds(toSeconds(firstStep));
+                for (int step = 1; step <= STEPS_PER_INTEGRAL_TABLE_ENTRY; ++step) {
+                    double highValue = valueAtSeconds(toSeconds(firstStep + step));
+                    area += (lowValue + highValue) / 2.0 * INTEGRAL_STEP;
+                    lowValue = highValue;
+                }
+                prefix[i] = area;
+            }
+            table = new IntegralTable(version, prefix, index + 1);
+            if (keyframeVersion == version) {
+                integralTable = table;
+            }
+            return table;
+        }
+    }
+
+    // steps are converted by division, so they are the closest doubles to the decimal positions, ex. 0.3 instead of 0.30000000000000004
+    private static double toSeconds(long step) {
+        return step / STEPS_PER_SECOND;
+    }
+
+    private static long stepsBefore(double seconds) {
+        long steps = (long) (seconds * STEPS_PER_SECOND);
+        while (toSeconds(steps) > seconds) {
+            --steps;
+        }
+        while (toSeconds(steps + 1) <= seconds) {
+            ++steps;
+        }
+        return steps;
+    }
+
+    private double valueAtSeconds(double seconds) {
+        return valueAt(new TimelinePosition(BigDecimal.valueOf(seconds)));
+    }
+
+    static class IntegralTable {
+        final int version;
+        final double[] prefix; // integral from zero to index * resolution
+        final int size;
+
+        public IntegralTable(int version, double[] prefix, int size) {
+            this.version = version;
+            this.prefix = prefix;
+            this.size = size;
+        }
+
     }
 
 }
@@ -1,9 +1,11 @@
 package com.helospark.tactview.core.timeline.effect.interpolation.interpolator;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import org.apache.commons.math3.analysis.UnivariateFunction;
 import org.apache.commons.math3.analysis.interpolation.LinearInterpolator;
 import org.apache.commons.math3.analysis.interpolation.UnivariateInterpolator;
 
@@ -16,6 +18,8 @@ public class MultiKeyframeBasedDoubleInterpolator extends KeyframeSupportingDoub
     protected double defaultValue;
     protected boolean useKeyframes;
 
+    private transient volatile CompiledCurve compiledCurve;
+
     public MultiKeyframeBasedDoubleInterpolator(Double singleDefaultValue) {
         this.values = new TreeMap<>();
         this.defaultValue = singleDefaultValue;
@@ -49,8 +53,50 @@ public class MultiKeyframeBasedDoubleInterpolator extends KeyframeSupportingDoub
     }
 
     protected Double doInterpolate(TimelinePosition position) {
-        return interpolatorImplementation.interpolate(getKeys(values), getValuesAsDouble(values))
-                .value(position.getSeconds().doubleValue());
+        return getCompiledCurve().function.value(position.toSecondsDouble());
+    }
+
+    /**
+     * @return the interpolated function of the current keyframes, which is only created again after the keyframes, the keys or the interpolator change
+     */
+    protected CompiledCurve getCompiledCurve() {
+        CompiledCurve curve = compiledCurve;
+        int version = getKeyframeVersion();
+        if (curve == null || curve.version != version) {
+            curve = compileCurve(version);
+            compiledCurve = curve;
+        }
+        return curve;
+    }
+
+    private CompiledCurve compileCurve(int version) {
+        double[] allKeys = getKeys(values);
+        double[] allValues = getValuesAsDouble(values);
+
+        // double representation of different TimelinePositions may be equal, the later value is kept for them
+        double[] keys = new double[allKeys.length];
+        double[] keyValues = new double[allKeys.length];
+        int size = 0;
+        for (int i = 0; i < allKeys.length; ++i) {
+            if (size > 0 && keys[size - 1] == allKeys[i]) {
+                keyValues[size - 1] = allValues[i];
+            } else {
+                keys[size] = allKeys[i];
+                keyValues[size] = allValues[i];
+                ++size;
+            }
+        }
+        keys = Arrays.copyOf(keys, size);
+        keyValues = Arrays.copyOf(keyValues, size);
+
+        UnivariateFunction function;
+        if (size == 1) {
+            double singleValue = keyValues[0];
+            function = x -> singleValue;
+        } else {
+            function = interpolatorImplementation.interpolate(keys, keyValues);
+        }
+        return new CompiledCurve(version, keys, function);
     }
 
     protected double[] getValuesAsDouble(TreeMap<TimelinePosition, Double> values) {
@@ -65,7 +111,6 @@ public class MultiKeyframeBasedDoubleInterpolator extends KeyframeSupportingDoub
                 .stream()
                 .map(key -> key.getSeconds())
                 .map(key -> key.doubleValue())
-                .distinct() // just in case double representation of TimelinePosition is equals. // TODO: this causes exception due to dimension mismatch
                 .mapToDouble(Double::valueOf)
                 .toArray();
     }
@@ -96,6 +141,7 @@ public class MultiKeyframeBasedDoubleInterpolator extends KeyframeSupportingDoub
 
     public void setInterpolatorFunction(UnivariateInterpolator previousInterpolator) {
         this.interpolatorImplementation = previousInterpolator;
+        keyframesChanged();
     }
 
     @Override
@@ -117,6 +163,7 @@ public class MultiKeyframeBasedDoubleInterpolator extends KeyframeSupportingDoub
     @Override
     public void setUseKeyframes(boolean useKeyframes) {
         this.useKeyframes = useKeyframes;
+        keyframesChanged();
     }
 
     @Override
@@ -127,12 +174,14 @@ public class MultiKeyframeBasedDoubleInterpolator extends KeyframeSupportingDoub
     @Override
     public void setDefaultValue(double defaultValue) {
         this.defaultValue = defaultValue;
+        keyframesChanged();
     }
 
     public void valueModifiedAt(TimelinePosition timelinePosition, TimelinePosition newTime, double newValue) {
         if (useKeyframes) {
             values.remove(timelinePosition);
             values.put(newTime, newValue);
+            keyframesChanged();
         }
     }
 
@@ -140,4 +189,17 @@ public class MultiKeyframeBasedDoubleInterpolator extends KeyframeSupportingDoub
         return interpolatorImplementation;
     }
 
+    protected static class CompiledCurve {
+        final int version;
+        final double[] keys;
+        final UnivariateFunction function;
+
+        public CompiledCurve(int version, double[] keys, UnivariateFunction function) {
+            this.version = version;
+            this.keys = keys;
+            this.function = function;
+        }
+
+    }
+
 }
@@ -42,15 +42,16 @@ public class PercentAwareMultiKeyframeBasedDoubleInterpolator extends MultiKeyfr
     public Double valueAt(TimelinePosition nonScaledPosition) {
         Entry<TimelinePosition, Double> lastEntry = values.lastEntry();
         Entry<TimelinePosition, Double> firstEntry = values.firstEntry();
-        double[] keys = getKeys(values);
-        TimelinePosition position = nonScaledPosition.divide(length);
         if (values.isEmpty() || !useKeyframes) {
             return defaultValue;
         } else if (values.size() == 1) {
             return values.firstEntry().getValue();
-        } else if (position.getSeconds().doubleValue() >= keys[keys.length - 1]) {
+        }
+        double[] keys = getCompiledCurve().keys;
+        TimelinePosition position = nonScaledPosition.divide(length);
+        if (position.toSecondsDouble() >= keys[keys.length - 1]) {
             return lastEntry.getValue();
-        } else if (position.getSeconds().doubleValue() <= keys[0]) {
+        } else if (position.toSecondsDouble() <= keys[0]) {
             return firstEntry.getValue();
         } else {
             return doInterpolate(position);
@@ -84,10 +85,12 @@ public class PercentAwareMultiKeyframeBasedDoubleInterpolator extends MultiKeyfr
         }
         this.values = newValues;
         this.length = length;
+        keyframesChanged();
     }
 
     public void setLength(TimelineLength length) {
         this.length = length;
+        keyframesChanged();
     }
 
     @Override
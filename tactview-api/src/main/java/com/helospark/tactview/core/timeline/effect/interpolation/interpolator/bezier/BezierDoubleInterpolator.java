@@ -1,7 +1,6 @@
 package com.helospark.tactview.core.timeline.effect.interpolation.interpolator.bezier;
 
 import java.util.Map;
-import java.util.SortedMap;
 import java.util.TreeMap;
 
 import com.helospark.tactview.core.timeline.TimelinePosition;
@@ -16,6 +15,8 @@ public class BezierDoubleInterpolator extends KeyframeSupportingDoubleInterpolat
     protected double defaultValue;
     protected boolean useKeyframes;
 
+    private transient volatile CompiledKeyframes compiledKeyframes;
+
     public BezierDoubleInterpolator(Double singleDefaultValue) {
         this.values = new TreeMap<>();
         this.defaultValue = singleDefaultValue;
@@ -30,74 +31,64 @@ public class BezierDoubleInterpolator extends KeyframeSupportingDoubleInterpolat
         if (values.isEmpty() || !useKeyframes) {
             return defaultValue;
         } else {
-            SortedMap<TimelinePosition, CubicBezierPoint> headMap = values.headMap(position);
-            SortedMap<TimelinePosition, CubicBezierPoint> tailMap = values.tailMap(position);
-
-            TimelinePosition lowKey = headMap.isEmpty() ? null : headMap.lastKey();
-            TimelinePosition highKey = tailMap.isEmpty() ? null : tailMap.firstKey();
-
-            CubicBezierPoint headElement = lowKey == null ? null : values.get(lowKey);
-            CubicBezierPoint tailElement = highKey == null ? null : values.get(highKey);
+            CompiledKeyframes compiled = getCompiledKeyframes();
+            int highIndex = firstKeyNotBefore(compiled.keys, position);
 
-            if (headElement == null) {
-                return tailElement.value;
-            } else if (tailElement == null) {
-                return headElement.value;
+            if (highIndex == 0) {
+                return compiled.values[0];
+            } else if (highIndex == compiled.keys.length) {
+                return compiled.values[highIndex - 1];
             } else {
-                return doInterpolate(position, lowKey, highKey, headElement, tailElement);
+                return doInterpolate(position, compiled, highIndex - 1, highIndex);
             }
         }
     }
 
-    private Double doInterpolate(TimelinePosition position, TimelinePosition lowKey, TimelinePosition highKey, CubicBezierPoint lowElement, CubicBezierPoint highElement) {
-        double lowTime = lowKey.getSeconds().doubleValue();
-        double highTime = highKey.getSeconds().doubleValue();
-        double currentTime = position.getSeconds().doubleValue();
+    private Double doInterpolate(TimelinePosition position, CompiledKeyframes compiled, int lowIndex, int highIndex) {
+        double lowTime = compiled.times[lowIndex];
+        double highTime = compiled.times[highIndex];
+        double currentTime = position.toSecondsDouble();
 
         double normalizedValue = (currentTime - lowTime) / (highTime - lowTime);
 
-        return cubicBezier(lowKey, highKey, lowElement, highElement, normalizedValue);
+        return cubicBezier(compiled, lowIndex, highIndex, normalizedValue);
     }
 
     // https://stackoverflow.com/questions/37642168/how-to-convert-quadratic-bezier-curve-code-into-cubic-bezier-curve/37642695#37642695
-    private double cubicBezier(TimelinePosition lowKey, TimelinePosition highKey, CubicBezierPoint lowElement, CubicBezierPoint highElement, double percent) {
-        Point startPoint = new Point(lowKey.getSeconds().doubleValue(), lowElement.value);
-        Point endPoint = new Point(highKey.getSeconds().doubleValue(), highElement.value);
-        Point controlPoint = startPoint.add(lowElement.controlPointOut);
-        Point secondControlPoint = endPoint.add(highElement.controlPointIn);
-
-        double x1 = startPoint.x;
-        double y1 = startPoint.y;
-        double x2 = controlPoint.x;
-        double y2 = controlPoint.y;
-        double x3 = secondControlPoint.x;
-        double y3 = secondControlPoint.y;
-        double x4 = endPoint.x;
-        double y4 = endPoint.y;
+    // only the y coordinate of the curve is needed, the x coordinates are not computed
+    private double cubicBezier(CompiledKeyframes compiled, int lowIndex, int highIndex, double percent) {
+        double y1 = compiled.values[lowIndex];
+        double y2 = compiled.outControlValues[lowIndex];
+        double y3 = compiled.inControlValues[highIndex];
+        double y4 = compiled.values[highIndex];
 
         double i = percent;
 
         // The Green Lines
-        double xa = getPt(x1, x2, i);
         double ya = getPt(y1, y2, i);
-        double xb = getPt(x2, x3, i);
         double yb = getPt(y2, y3, i);
-        double xc = getPt(x3, x4, i);
         double yc = getPt(y3, y4, i);
 
         // The Blue Line
-        double xm = getPt(xa, xb, i);
         double ym = getPt(ya, yb, i);
-        double xn = getPt(xb, xc, i);
         double yn = getPt(yb, yc, i);
 
         // The Black Dot
-        double x = getPt(xm, xn, i);
         double y = getPt(ym, yn, i);
 
         return y;
     }
 
+    private CompiledKeyframes getCompiledKeyframes() {
+        CompiledKeyframes compiled = compiledKeyframes;
+        int version = getKeyframeVersion();
+        if (compiled == null || compiled.version != version) {
+            compiled = new CompiledKeyframes(version, values);
+            compiledKeyframes = compiled;
+        }
+        return compiled;
+    }
+
     private double getPt(double n1, double n2, double perc) {
         double diff = n2 - n1;
 
@@ -120,6 +111,7 @@ public class BezierDoubleInterpolator extends KeyframeSupportingDoubleInterpolat
     @Override
     public void setUseKeyframes(boolean useKeyframes) {
         this.useKeyframes = useKeyframes;
+        keyframesChanged();
     }
 
     @Override
@@ -130,6 +122,7 @@ public class BezierDoubleInterpolator extends KeyframeSupportingDoubleInterpolat
     @Override
     public void setDefaultValue(double defaultValue) {
         this.defaultValue = defaultValue;
+        keyframesChanged();
     }
 
     @Override
@@ -160,6 +153,7 @@ public class BezierDoubleInterpolator extends KeyframeSupportingDoubleInterpolat
         CubicBezierPoint previousValue = values.remove(timelinePosition);
         CubicBezierPoint newPoint = new CubicBezierPoint(newValue, previousValue.controlPointIn, previousValue.controlPointOut);
         values.put(newTime, newPoint);
+        keyframesChanged();
     }
 
     public TreeMap<TimelinePosition, CubicBezierPoint> getBezierValues() {
@@ -168,10 +162,12 @@ public class BezierDoubleInterpolator extends KeyframeSupportingDoubleInterpolat
 
     public void updatedInControlPointAt(TimelinePosition positionToModify, Point point) {
         values.put(positionToModify, values.get(positionToModify).butWithInControlPoint(point));
+        keyframesChanged();
     }
 
     public void updatedOutControlPointAt(TimelinePosition positionToModify, Point point) {
         values.put(positionToModify, values.get(positionToModify).butWithOutControlPoint(point));
+        keyframesChanged();
     }
 
     //    @Override
@@ -180,4 +176,33 @@ public class BezierDoubleInterpolator extends KeyframeSupportingDoubleInterpolat
     //        values.put(newTime, newValue);
     //    }
 
+    static class CompiledKeyframes {
+        final int version;
+        final TimelinePosition[] keys;
+        final double[] times;
+        final double[] values;
+        final double[] inControlValues;
+        final double[] outControlValues;
+
+        public CompiledKeyframes(int version, TreeMap<TimelinePosition, CubicBezierPoint> points) {
+            this.version = version;
+            this.keys = new TimelinePosition[points.size()];
+            this.times = new double[keys.length];
+            this.values = new double[keys.length];
+            this.inControlValues = new double[keys.length];
+            this.outControlValues = new double[keys.length];
+            int i = 0;
+            for (var entry : points.entrySet()) {
+                CubicBezierPoint point = entry.getValue();
+                keys[i] = entry.getKey();
+                times[i] = entry.getKey().toSecondsDouble();
+                values[i] = point.value;
+                inControlValues[i] = point.value + point.controlPointIn.y;
+                outControlValues[i] = point.value + point.controlPointOut.y;
+                ++i;
+            }
+        }
+
+    }
+
 }
@@ -3,8 +3,6 @@ package com.helospark.tactview.core.timeline.effect.interpolation.interpolator.m
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
 
 import com.helospark.tactview.core.timeline.TimelinePosition;
@@ -17,6 +15,8 @@ public class MixedDoubleInterpolator extends KeyframeSupportingDoubleInterpolato
     protected double defaultValue;
     protected boolean useKeyframes;
 
+    private transient volatile CompiledKeyframes compiledKeyframes;
+
     public MixedDoubleInterpolator(Double singleDefaultValue) {
         this.values = new TreeMap<>();
         this.defaultValue = singleDefaultValue;
@@ -31,42 +31,44 @@ public class MixedDoubleInterpolator extends KeyframeSupportingDoubleInterpolato
         if (values.isEmpty() || !useKeyframes) {
             return defaultValue;
         } else {
-            SortedMap<TimelinePosition, MixedDoubleInterpolatorElement> headMap = values.headMap(position);
-            SortedMap<TimelinePosition, MixedDoubleInterpolatorElement> tailMap = values.tailMap(position);
-
-            TimelinePosition lowKey = headMap.isEmpty() ? null : headMap.lastKey();
-            TimelinePosition highKey = tailMap.isEmpty() ? null : tailMap.firstKey();
-
-            MixedDoubleInterpolatorElement headElement = lowKey == null ? null : values.get(lowKey);
-            MixedDoubleInterpolatorElement tailElement = highKey == null ? null : values.get(highKey);
+            CompiledKeyframes compiled = getCompiledKeyframes();
+            int highIndex = firstKeyNotBefore(compiled.keys, position);
 
-            if (headElement == null) {
-                return tailElement.value;
-            } else if (tailElement == null) {
-                return headElement.value;
+            if (highIndex == 0) {
+                return compiled.values[0];
+            } else if (highIndex == compiled.keys.length) {
+                return compiled.values[highIndex - 1];
             } else {
-                return doInterpolate(position, lowKey, highKey, headElement, tailElement);
+                return doInterpolate(position, compiled, highIndex - 1, highIndex);
             }
         }
     }
 
-    private Double doInterpolate(TimelinePosition position, TimelinePosition lowKey, TimelinePosition highKey, MixedDoubleInterpolatorElement lowElement, MixedDoubleInterpolatorElement highElement) {
-        Set<Entry<TimelinePosition, MixedDoubleInterpolatorElement>> tailMap = values.tailMap(position).entrySet();
+    private Double doInterpolate(TimelinePosition position, CompiledKeyframes compiled, int lowIndex, int highIndex) {
+        PennerFunction function = compiled.functions[lowIndex];
 
-        PennerFunction function = lowElement.easeFunction.getFunction();
+        double lowValue = compiled.values[lowIndex];
+        double highValue = compiled.values[highIndex];
 
-        double lowValue = lowElement.value;
-        double highValue = highElement.value;
-
-        double lowTime = lowKey.getSeconds().doubleValue();
-        double highTime = highKey.getSeconds().doubleValue();
-        double currentTime = position.getSeconds().doubleValue();
+        double lowTime = compiled.times[lowIndex];
+        double highTime = compiled.times[highIndex];
+        double currentTime = position.toSecondsDouble();
 
         double normalizedValue = (currentTime - lowTime) / (highTime - lowTime);
 
         return function.apply(normalizedValue, lowValue, highValue - lowValue, 1.0);
     }
 
+    private CompiledKeyframes getCompiledKeyframes() {
+        CompiledKeyframes compiled = compiledKeyframes;
+        int version = getKeyframeVersion();
+        if (compiled == null || compiled.version != version) {
+            compiled = new CompiledKeyframes(version, values);
+            compiledKeyframes = compiled;
+        }
+        return compiled;
+    }
+
     @Override
     public MixedDoubleInterpolator deepClone() {
         MixedDoubleInterpolator result = new MixedDoubleInterpolator(values);
@@ -83,6 +85,7 @@ public class MixedDoubleInterpolator extends KeyframeSupportingDoubleInterpolato
     @Override
     public void setUseKeyframes(boolean useKeyframes) {
         this.useKeyframes = useKeyframes;
+        keyframesChanged();
     }
 
     @Override
@@ -93,6 +96,7 @@ public class MixedDoubleInterpolator extends KeyframeSupportingDoubleInterpolato
     @Override
     public void setDefaultValue(double defaultValue) {
         this.defaultValue = defaultValue;
+        keyframesChanged();
     }
 
     @Override
@@ -132,6 +136,7 @@ public class MixedDoubleInterpolator extends KeyframeSupportingDoubleInterpolato
         Entry<TimelinePosition, MixedDoubleInterpolatorElement> value = getEasingAt(position).orElseThrow();
         EaseFunction easeFunction = EaseFunction.fromId(newEasingId);
         value.getValue().easeFunction = easeFunction;
+        keyframesChanged();
     }
 
     public Optional<Entry<TimelinePosition, MixedDoubleInterpolatorElement>> getEasingAt(TimelinePosition position) {
@@ -142,6 +147,32 @@ public class MixedDoubleInterpolator extends KeyframeSupportingDoubleInterpolato
     public void valueModifiedAt(TimelinePosition timelinePosition, TimelinePosition newTime, double newValue) {
         MixedDoubleInterpolatorElement originalValue = values.remove(timelinePosition);
         values.put(newTime, originalValue.butWithPoint(newValue));
+        keyframesChanged();
+    }
+
+    static class CompiledKeyframes {
+        final int version;
+        final TimelinePosition[] keys;
+        final double[] times;
+        final double[] values;
+        final PennerFunction[] functions;
+
+        public CompiledKeyframes(int version, TreeMap<TimelinePosition, MixedDoubleInterpolatorElement> elements) {
+            this.version = version;
+            this.keys = new TimelinePosition[elements.size()];
+            this.times = new double[keys.length];
+            this.values = new double[keys.length];
+            this.functions = new PennerFunction[keys.length];
+            int i = 0;
+            for (var entry : elements.entrySet()) {
+                keys[i] = entry.getKey();
+                times[i] = entry.getKey().toSecondsDouble();
+                values[i] = entry.getValue().value;
+                functions[i] = entry.getValue().easeFunction.getFunction();
+                ++i;
+            }
+        }
+
     }
 
 }
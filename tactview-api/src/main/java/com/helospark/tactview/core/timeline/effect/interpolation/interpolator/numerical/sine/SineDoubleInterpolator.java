@@ -29,7 +29,7 @@ public class SineDoubleInterpolator implements DoubleInterpolator {
     @Override
     public Double valueAt(TimelinePosition position) {
         double interval = (maxValue - minValue);
-        return ((Math.sin(startOffset + position.getSeconds().doubleValue() * frequency) + 1.0) / 2.0) * interval + minValue;
+        return ((Math.sin(startOffset + position.toSecondsDouble() * frequency) + 1.0) / 2.0) * interval + minValue;
     }
 
     public double getFrequency() {
@@ -32,7 +32,7 @@ public class SquareDoubleInterpolator implements DoubleInterpolator {
     @Override
     public Double valueAt(TimelinePosition position) {
         double period = onTime + offTime;
-        double valueInSeconds = position.getSeconds().doubleValue();
+        double valueInSeconds = position.toSecondsDouble();
 
         double currentPositionInWave = valueInSeconds % period;
         if (currentPositionInWave > onTime) {
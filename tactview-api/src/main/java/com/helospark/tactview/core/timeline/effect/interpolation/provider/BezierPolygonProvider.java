@@ -64,7 +64,7 @@ public class BezierPolygonProvider extends KeyframeableEffect {
             Entry<TimelinePosition, List<BezierPolygonPoint>> previousEntry = values.floorEntry(position);
             Entry<TimelinePosition, List<BezierPolygonPoint>> nextEntry = values.ceilingEntry(position);
 
-            if (previousEntry.getKey().getSeconds().doubleValue() >= nextEntry.getKey().getSeconds().doubleValue()) {
+            if (previousEntry.getKey().toSecondsDouble() >= nextEntry.getKey().toSecondsDouble()) {
                 return new BezierPolygon(previousEntry.getValue());
             }
 
@@ -96,8 +96,8 @@ public class BezierPolygonProvider extends KeyframeableEffect {
 
     private double interpolateAxis(Entry<TimelinePosition, List<BezierPolygonPoint>> lastEntry, Entry<TimelinePosition, List<BezierPolygonPoint>> nextEntry, TimelinePosition position,
             double[] yVals) {
-        double[] timeVals = new double[]{lastEntry.getKey().getSeconds().doubleValue(), nextEntry.getKey().getSeconds().doubleValue()};
-        return interpolatorImplementation.interpolate(timeVals, yVals).value(position.getSeconds().doubleValue());
+        double[] timeVals = new double[]{lastEntry.getKey().toSecondsDouble(), nextEntry.getKey().toSecondsDouble()};
+        return interpolatorImplementation.interpolate(timeVals, yVals).value(position.toSecondsDouble());
     }
 
     @Override
@@ -58,7 +58,7 @@ public class PolygonProvider extends KeyframeableEffect {
             Entry<TimelinePosition, List<Point>> previousEntry = values.floorEntry(position);
             Entry<TimelinePosition, List<Point>> nextEntry = values.ceilingEntry(position);
 
-            if (previousEntry.getKey().getSeconds().doubleValue() >= nextEntry.getKey().getSeconds().doubleValue()) {
+            if (previousEntry.getKey().toSecondsDouble() >= nextEntry.getKey().toSecondsDouble()) {
                 return new Polygon(previousEntry.getValue());
             }
 
@@ -88,8 +88,8 @@ public class PolygonProvider extends KeyframeableEffect {
     }
 
     private double interpolateAxis(Entry<TimelinePosition, List<Point>> lastEntry, Entry<TimelinePosition, List<Point>> nextEntry, TimelinePosition position, double[] yVals) {
-        double[] timeVals = new double[]{lastEntry.getKey().getSeconds().doubleValue(), nextEntry.getKey().getSeconds().doubleValue()};
-        return interpolatorImplementation.interpolate(timeVals, yVals).value(position.getSeconds().doubleValue());
+        double[] timeVals = new double[]{lastEntry.getKey().toSecondsDouble(), nextEntry.getKey().toSecondsDouble()};
+        return interpolatorImplementation.interpolate(timeVals, yVals).value(position.toSecondsDouble());
     }
 
     @Override
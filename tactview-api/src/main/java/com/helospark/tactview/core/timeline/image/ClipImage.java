@@ -9,11 +9,13 @@ public class ClipImage implements ReadOnlyClipImage {
     private ByteBuffer buffer;
     private int width;
     private int height;
+    private volatile boolean copyOnWrite;
 
     public ClipImage(ByteBuffer buffer, int width, int height) {
         this.buffer = buffer;
         this.width = width;
         this.height = height;
+        this.copyOnWrite = buffer.isReadOnly();
     }
 
     @Override
@@ -82,21 +84,25 @@ public class ClipImage implements ReadOnlyClipImage {
     }
 
     public void setRed(int red, int x, int y) {
+        prepareForWrite();
         byte r = (byte) (saturateIfNeeded(red) & 0xFF);
         buffer.put(y * width * 4 + x * 4 + 0, r);
     }
 
     public void setGreen(int green, int x, int y) {
+        prepareForWrite();
         byte g = (byte) (saturateIfNeeded(green) & 0xFF);
         buffer.put(y * width * 4 + x * 4 + 1, g);
     }
 
     public void setBlue(int blue, int x, int y) {
+        prepareForWrite();
         byte b = (byte) (saturateIfNeeded(blue) & 0xFF);
         buffer.put(y * width * 4 + x * 4 + 2, b);
     }
 
     public void setAlpha(int alpha, int x, int y) {
+        prepareForWrite();
         byte a = (byte) (saturateIfNeeded(alpha) & 0xFF);
         buffer.put(y * width * 4 + x * 4 + 3, a);
     }
@@ -154,6 +160,7 @@ public class ClipImage implements ReadOnlyClipImage {
     }
 
     public void setColorComponentByOffset(int color, int x, int y, int offset) {
+        prepareForWrite();
         byte value = (byte) (saturateIfNeeded(color) & 0xFF);
         buffer.put(y * width * 4 + x * 4 + offset, value);
     }
@@ -167,6 +174,9 @@ public class ClipImage implements ReadOnlyClipImage {
         if (!isSameSizeAs(currentFrame)) {
             throw new IllegalArgumentException("Copy requires images to be the same size");
         }
+        if (copyOnWrite) {
+            detachSharedBuffer(false);
+        }
         this.buffer.position(0);
         currentFrame.getBuffer().position(0); // is it really readonly?
         this.buffer.put(currentFrame.getBuffer());
@@ -174,18 +184,44 @@ public class ClipImage implements ReadOnlyClipImage {
     }
 
     public static ClipImage copyOf(ReadOnlyClipImage from) {
-        ClipImage result = ClipImage.sameSizeAs(from);
+        ByteBuffer buffer = GlobalMemoryManagerAccessor.memoryManager.requestUninitializedBuffer(from.getWidth() * from.getHeight() * 4);
+        ClipImage result = new ClipImage(buffer, from.getWidth(), from.getHeight());
         result.copyFrom(from);
         return result;
     }
 
     public void copyColorFrom(ReadOnlyClipImage from, int fromX, int fromY, int toX, int toY) {
+        prepareForWrite();
         for (int i = 0; i < 4; ++i) {
             byte component = from.getBuffer().get(fromY * from.getWidth() * 4 + fromX * 4 + i);
             this.buffer.put(toY * this.width * 4 + toX * 4 + i, component);
         }
     }
 
+    private void prepareForWrite() {
+        if (copyOnWrite) {
+            detachSharedBuffer(true);
+        }
+    }
+
+    // Frames shared through FrameHandle are read-only, they are copied only when written
+    private synchronized void detachSharedBuffer(boolean copyContent) {
+        if (!copyOnWrite) {
+            return;
+        }
+        ByteBuffer sharedBuffer = buffer;
+        ByteBuffer ownBuffer = GlobalMemoryManagerAccessor.memoryManager.requestUninitializedBuffer(sharedBuffer.capacity());
+        if (copyContent) {
+            ByteBuffer source = sharedBuffer.duplicate();
+            source.clear();
+            ownBuffer.put(source);
+            ownBuffer.clear();
+        }
+        buffer = ownBuffer;
+        copyOnWrite = false;
+        GlobalMemoryManagerAccessor.memoryManager.returnBuffer(sharedBuffer);
+    }
+
     public void returnBuffer() {
         GlobalMemoryManagerAccessor.memoryManager.returnBuffer(buffer);
     }
@@ -0,0 +1,110 @@
+package com.helospark.tactview.core.timeline.image;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+
+/**
+ * Reference counted owner of a frame buffer, so the cache, the decoders and the clips can share a decoded frame without copying it.
+ * <p>
+ * The creator holds the first reference. Every {@link #acquireView()} adds a reference and returns a read-only view of the frame,
+ * which is released by returning it to the memory manager like any other buffer. The underlying buffer is returned to the memory manager
+ * when the last reference is released. {@link ClipImage} copies a shared view on the first write.
+ */
+public class FrameHandle {
+    private static final Map<ViewIdentity, FrameHandle> OUTSTANDING_VIEWS = new ConcurrentHashMap<>();
+
+    private final ByteBuffer buffer;
+    private final Consumer<ByteBuffer> releaser;
+    private final AtomicInteger referenceCount = new AtomicInteger(1);
+
+    public FrameHandle(ByteBuffer buffer, Consumer<ByteBuffer> releaser) {
+        this.buffer = buffer;
+        this.releaser = releaser;
+    }
+
+    public static FrameHandle of(ByteBuffer buffer) {
+        return new FrameHandle(buffer, ownedBuffer -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(ownedBuffer));
+    }
+
+    /**
+     * @return read-only view of the frame, or empty if the frame was already released
+     */
+    public Optional<ByteBuffer> acquireView() {
+        int current;
+        do {
+            current = referenceCount.get();
+            if (current <= 0) {
+                return Optional.empty();
+            }
+        } while (!referenceCount.compareAndSet(current, current + 1));
+
+        ByteBuffer view = buffer.asReadOnlyBuffer().order(buffer.order());
+        OUTSTANDING_VIEWS.put(new ViewIdentity(view), this);
+        return Optional.of(view);
+    }
+
+    public void release() {
+        int remaining = referenceCount.decrementAndGet();
+        if (remaining == 0) {
+            releaser.accept(buffer);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame handle is released more times than it was acquired");
+        }
+    }
+
+    /**
+     * Buffer owned by this handle, only valid while the caller holds a reference.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getReferenceCount() {
+        return referenceCount.get();
+    }
+
+    public static boolean isSharedView(ByteBuffer buffer) {
+        return buffer.isReadOnly() && OUTSTANDING_VIEWS.containsKey(new ViewIdentity(buffer));
+    }
+
+    /**
+     * Releases the reference held by the given view.
+     * @return true if the buffer was a view of a frame handle, false if it should be returned as a normal buffer
+     */
+    public static boolean releaseView(ByteBuffer buffer) {
+        if (!buffer.isReadOnly()) {
+            return false;
+        }
+        FrameHandle handle = OUTSTANDING_VIEWS.remove(new ViewIdentity(buffer));
+        if (handle == null) {
+            return false;
+        }
+        handle.release();
+        return true;
+    }
+
+    static class ViewIdentity {
+        private final ByteBuffer view;
+
+        public ViewIdentity(ByteBuffer view) {
+            this.view = view;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ViewIdentity && ((ViewIdentity) other).view == view;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(view);
+        }
+    }
+
+}
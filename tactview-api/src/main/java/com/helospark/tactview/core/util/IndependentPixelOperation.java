@@ -1,8 +1,10 @@
 package com.helospark.tactview.core.util;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.function.BiConsumer;
 
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
 import com.helospark.tactview.core.timeline.image.ClipImage;
 import com.helospark.tactview.core.timeline.image.ReadOnlyClipImage;
 
@@ -14,4 +16,34 @@ public interface IndependentPixelOperation {
 
     void executePixelTransformation(int width, int height, BiConsumer<Integer, Integer> consumer);
 
+    /**
+     * Allocation free alternative of {@link #createNewImageWithAppliedTransformation(ReadOnlyClipImage, SimplePixelTransformer)}, the kernel
+     * is called once for each row.
+     */
+    default ClipImage createNewImageWithAppliedRowKernel(ReadOnlyClipImage currentFrame, PixelRowKernel kernel) {
+        int width = currentFrame.getWidth();
+        int rowBytes = width * 4;
+        ByteBuffer inputBuffer = currentFrame.getBuffer();
+        // every pixel is written by the kernel
+        ByteBuffer resultBuffer = GlobalMemoryManagerAccessor.memoryManager.requestUninitializedBuffer(rowBytes * currentFrame.getHeight());
+
+        executeOnRows(currentFrame.getHeight(), (startIndex, endIndex) -> {
+            for (int y = startIndex; y < endIndex; ++y) {
+                kernel.processRow(inputBuffer, y * rowBytes, resultBuffer, y * rowBytes, y, width);
+            }
+        });
+        return new ClipImage(resultBuffer, width, currentFrame.getHeight());
+    }
+
+    /**
+     * Allocation free alternative of {@link #executePixelTransformation(int, int, BiConsumer)}, the rows are split into bands processed in parallel.
+     * Per thread state can be created at the start of the band.
+     * <p>
+     * The default implementation runs every row as a separate band through {@link #executePixelTransformation(int, int, BiConsumer)}, so existing
+     * implementations keep working, but it boxes the row index, implementations should override it.
+     */
+    default void executeOnRows(int height, RowBandConsumer rowBandConsumer) {
+        executePixelTransformation(1, height, (x, y) -> rowBandConsumer.accept(y, y + 1));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.helospark.tactview.core.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Transforms a run of consecutive RGBA pixels, 4 bytes per pixel.
+ * <p>
+ * Called once per row instead of once per pixel, implementations should read and write the buffers with absolute get/put and keep
+ * any scratch state in local variables, so nothing is allocated or boxed in the pixel loop.
+ */
+@FunctionalInterface
+public interface PixelRowKernel {
+
+    /**
+     * @param input source pixels, possibly a read-only buffer
+     * @param inputOffset byte offset of the first pixel in input
+     * @param output destination pixels
+     * @param outputOffset byte offset of the first pixel in output
+     * @param y row of the pixels
+     * @param pixelCount number of pixels to process
+     */
+    void processRow(ByteBuffer input, int inputOffset, ByteBuffer output, int outputOffset, int y, int pixelCount);
+
+}
@@ -0,0 +1,11 @@
+package com.helospark.tactview.core.util;
+
+/**
+ * Processes the rows in [startRow, endRow), one band is always processed by a single thread.
+ */
+@FunctionalInterface
+public interface RowBandConsumer {
+
+    void accept(int startRow, int endRow);
+
+}
@@ -1,5 +1,8 @@
 package com.helospark.tactview.core.util.messaging;
 
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
 public interface MessagingService {
 
     <T> void register(Class<T> messageType, MessageListener<T> listener);
@@ -10,4 +13,9 @@ public interface MessagingService {
 
     void removeListener(Class<?> clazz, Object progressAdvancer);
 
-}
\ No newline at end of file
+    /**
+     * Asynchronous messages of the given type with the same key are merged using the merger while they are waiting for delivery.
+     */
+    <T> void registerCoalescing(Class<T> messageType, Function<T, ?> keyExtractor, BinaryOperator<T> merger);
+
+}
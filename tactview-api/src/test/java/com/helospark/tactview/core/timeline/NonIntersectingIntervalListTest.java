@@ -0,0 +1,102 @@
+package com.helospark.tactview.core.timeline;
+
+import static com.helospark.tactview.core.timeline.TimelinePosition.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class NonIntersectingIntervalListTest {
+
+    @Test
+    public void testLookupsOfOutOfOrderAddedIntervals() {
+        // GIVEN
+        NonIntersectingIntervalList<TestInterval> list = new NonIntersectingIntervalList<>();
+        TestInterval first = new TestInterval(1, 3);
+        TestInterval second = new TestInterval(3, 5);
+        TestInterval third = new TestInterval(7, 9);
+
+        // WHEN
+        list.addInterval(third);
+        list.addInterval(first);
+        list.addInterval(second);
+
+        // THEN
+        assertEquals(List.of(first, second, third), list.stream().collect(Collectors.toList()));
+        assertEquals(Optional.of(first), list.getElementWithIntervalContainingPoint(ofSeconds(3)));
+        assertEquals(Optional.of(second), list.getElementWithIntervalContainingPoint(ofSeconds(4)));
+        assertEquals(Optional.empty(), list.getElementWithIntervalContainingPoint(ofSeconds(6)));
+        assertEquals(List.of(second, third), list.computeIntersectingIntervals(new TimelineInterval(ofSeconds(4), ofSeconds(8))));
+        assertFalse(list.canAddInterval(new TimelineInterval(ofSeconds(8), ofSeconds(10))));
+        assertTrue(list.canAddInterval(new TimelineInterval(ofSeconds(5), ofSeconds(7))));
+    }
+
+    @Test
+    public void testIteratorIsNotAffectedByModification() {
+        // GIVEN
+        NonIntersectingIntervalList<TestInterval> list = new NonIntersectingIntervalList<>();
+        TestInterval first = new TestInterval(1, 3);
+        TestInterval second = new TestInterval(3, 5);
+        list.addInterval(first);
+        list.addInterval(second);
+        Iterator<TestInterval> iterator = list.iterator();
+
+        // WHEN
+        list.remove(first);
+        list.addInterval(new TestInterval(6, 7));
+
+        // THEN
+        assertEquals(first, iterator.next());
+        assertEquals(second, iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals(2, list.size());
+    }
+
+    @Test
+    public void testResizeAndRemoveOfMovedElement() {
+        // GIVEN
+        NonIntersectingIntervalList<TestInterval> list = new NonIntersectingIntervalList<>();
+        TestInterval first = new TestInterval(1, 3);
+        TestInterval second = new TestInterval(3, 5);
+        list.addInterval(first);
+        list.addInterval(second);
+
+        // WHEN
+        boolean overlappingResize = list.resize(first, new TimelineInterval(ofSeconds(1), ofSeconds(4)));
+        boolean resize = list.resize(second, new TimelineInterval(ofSeconds(3), ofSeconds(6)));
+        first.setInterval(new TimelineInterval(ofSeconds(10), ofSeconds(11)));
+        list.remove(first);
+
+        // THEN
+        assertFalse(overlappingResize);
+        assertTrue(resize);
+        assertEquals(1, list.size());
+        assertEquals(Optional.of(second), list.getElementWithIntervalContainingPoint(ofSeconds(6)));
+    }
+
+    static class TestInterval implements IntervalSettable {
+        private TimelineInterval interval;
+
+        public TestInterval(int start, int end) {
+            this.interval = new TimelineInterval(ofSeconds(start), ofSeconds(end));
+        }
+
+        @Override
+        public TimelineInterval getInterval() {
+            return interval;
+        }
+
+        @Override
+        public void setInterval(TimelineInterval newInterval) {
+            this.interval = newInterval;
+        }
+
+    }
+
+}
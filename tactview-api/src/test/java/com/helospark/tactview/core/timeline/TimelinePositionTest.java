@@ -0,0 +1,92 @@
+package com.helospark.tactview.core.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.util.StaticObjectMapper;
+
+public class TimelinePositionTest {
+
+    @Test
+    public void testFramePositionsAreExact() {
+        // GIVEN
+        TimelinePosition position = TimelinePosition.ofZero();
+
+        // WHEN
+        for (int i = 0; i < 30; ++i) {
+            position = position.add(TimelinePosition.fromFrameIndexWithFps(1, 30));
+        }
+
+        // THEN
+        assertEquals(TimelinePosition.ofSeconds(1), position);
+        assertEquals(TimelinePosition.fromFrameIndexWithFps(30, 30), position);
+        assertEquals(new BigDecimal("1"), position.getSeconds());
+    }
+
+    @Test
+    public void testNtscFramePositionsAreExact() {
+        // GIVEN
+        double fps = 30000 / (double) 1001;
+        TimelinePosition position = TimelinePosition.ofZero();
+
+        // WHEN
+        for (int i = 0; i < 30000; ++i) {
+            position = position.add(TimelinePosition.fromFrameIndexWithFps(1, fps));
+        }
+
+        // THEN
+        assertEquals(TimelinePosition.ofSeconds(1001), position);
+        assertEquals(TimelinePosition.fromFrameIndexWithFps(30000, fps), position);
+        assertEquals(TimelineTicks.NOT_ALIGNED, TimelineTicks.fromFrameIndex(1, 29.97));
+    }
+
+    @Test
+    public void testRoundedDecimalIsAlignedToFrame() {
+        // GIVEN
+        BigDecimal oneThirtiethRounded = BigDecimal.ONE.divide(BigDecimal.valueOf(30), 100, RoundingMode.HALF_DOWN);
+
+        // WHEN
+        TimelinePosition result = new TimelinePosition(oneThirtiethRounded);
+
+        // THEN
+        assertEquals(TimelinePosition.fromFrameIndexWithFps(1, 30), result);
+        assertEquals(oneThirtiethRounded, result.getSeconds());
+    }
+
+    @Test
+    public void testNotAlignedPositionsAreComparedAsDecimals() {
+        // GIVEN
+        TimelinePosition notAligned = new TimelinePosition(new BigDecimal("0.1234567890123"));
+        TimelinePosition aligned = new TimelinePosition(new BigDecimal("0.123456789"));
+
+        // WHEN
+        TimelinePosition result = notAligned.add(aligned.toLength());
+
+        // THEN
+        assertEquals(TimelineTicks.NOT_ALIGNED, notAligned.toTicks());
+        assertTrue(aligned.isLessThan(notAligned));
+        assertNotEquals(aligned, notAligned);
+        assertEquals(new BigDecimal("0.2469135780123"), result.getSeconds());
+    }
+
+    @Test
+    public void testSaveFormatIsUnchanged() throws Exception {
+        // GIVEN
+        TimelinePosition position = TimelinePosition.fromFrameIndexWithFps(3, 25);
+
+        // WHEN
+        String result = StaticObjectMapper.getterIgnoringOjectMapper.writeValueAsString(position);
+        TimelinePosition loaded = StaticObjectMapper.objectMapper.readValue(result, TimelinePosition.class);
+
+        // THEN
+        assertEquals("{\"seconds\":0.12}", result.replaceAll("\\s", ""));
+        assertEquals(position, loaded);
+    }
+
+}
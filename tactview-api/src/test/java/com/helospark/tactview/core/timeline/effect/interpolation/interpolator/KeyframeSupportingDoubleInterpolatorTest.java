@@ -0,0 +1,89 @@
+package com.helospark.tactview.core.timeline.effect.interpolation.interpolator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.timeline.TimelineLength;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+import com.helospark.tactview.core.timeline.effect.interpolation.interpolator.bezier.BezierDoubleInterpolator;
+
+public class KeyframeSupportingDoubleInterpolatorTest {
+
+    @Test
+    public void testCompiledCurveIsUpdatedAfterKeyframeChange() {
+        // GIVEN
+        MultiKeyframeBasedDoubleInterpolator interpolator = new MultiKeyframeBasedDoubleInterpolator(0.0);
+        interpolator.setUseKeyframes(true);
+        interpolator.valueAdded(TimelinePosition.ofSeconds(0), "0.0");
+        interpolator.valueAdded(TimelinePosition.ofSeconds(2), "10.0");
+        double valueBeforeChange = interpolator.valueAt(TimelinePosition.ofSeconds(1));
+
+        // WHEN
+        interpolator.valueModifiedAt(TimelinePosition.ofSeconds(2), TimelinePosition.ofSeconds(2), 20.0);
+
+        // THEN
+        assertThat(valueBeforeChange, closeTo(5.0, 0.0001));
+        assertThat(interpolator.valueAt(TimelinePosition.ofSeconds(1)), closeTo(10.0, 0.0001));
+        assertThat(interpolator.valueAt(TimelinePosition.ofSeconds(3)), closeTo(20.0, 0.0001));
+    }
+
+    @Test
+    public void testKeysWithEqualDoubleRepresentationKeepLaterValue() {
+        // GIVEN
+        MultiKeyframeBasedDoubleInterpolator interpolator = new MultiKeyframeBasedDoubleInterpolator(0.0);
+        interpolator.setUseKeyframes(true);
+        interpolator.valueAdded(TimelinePosition.ofSeconds(0), "0.0");
+        interpolator.valueAdded(new TimelinePosition(new BigDecimal("1")), "5.0");
+        interpolator.valueAdded(new TimelinePosition(new BigDecimal("1.00000000000000001")), "10.0");
+
+        // WHEN
+        double result = interpolator.valueAt(new TimelinePosition(new BigDecimal("0.5")));
+
+        // THEN
+        assertThat(result, closeTo(5.0, 0.0001));
+    }
+
+    @Test
+    public void testIntegrateAndIntegrateUntilOfKeyframes() {
+        // GIVEN
+        MultiKeyframeBasedDoubleInterpolator interpolator = new MultiKeyframeBasedDoubleInterpolator(0.0);
+        interpolator.setUseKeyframes(true);
+        interpolator.valueAdded(TimelinePosition.ofSeconds(0), "1.0");
+        interpolator.valueAdded(TimelinePosition.ofSeconds(10), "3.0");
+
+        // WHEN
+        BigDecimal area = interpolator.integrate(new TimelinePosition(new BigDecimal("2.5")), TimelinePosition.ofSeconds(5));
+        BigDecimal until = interpolator.integrateUntil(TimelinePosition.ofZero(), new TimelineLength(new BigDecimal("12")), new BigDecimal("10000"));
+
+        // THEN
+        assertThat(area.doubleValue(), closeTo(4.375, 0.0001));
+        assertThat(until.doubleValue(), closeTo(7.0416, 0.002));
+    }
+
+    @Test
+    public void testBezierInterpolation() {
+        // GIVEN
+        BezierDoubleInterpolator interpolator = new BezierDoubleInterpolator(0.0);
+        interpolator.setUseKeyframes(true);
+        interpolator.valueAdded(TimelinePosition.ofSeconds(1), "0.0");
+        interpolator.valueAdded(TimelinePosition.ofSeconds(2), "10.0");
+
+        // WHEN
+        double beforeFirst = interpolator.valueAt(TimelinePosition.ofZero());
+        double middle = interpolator.valueAt(new TimelinePosition(new BigDecimal("1.5")));
+        double atLast = interpolator.valueAt(TimelinePosition.ofSeconds(2));
+        double afterLast = interpolator.valueAt(TimelinePosition.ofSeconds(3));
+
+        // THEN
+        assertEquals(0.0, beforeFirst);
+        assertThat(middle, closeTo(5.0, 0.0001));
+        assertEquals(10.0, atLast);
+        assertEquals(10.0, afterLast);
+    }
+
+}
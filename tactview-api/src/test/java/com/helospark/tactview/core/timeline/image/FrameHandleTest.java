@@ -0,0 +1,108 @@
+package com.helospark.tactview.core.timeline.image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+
+public class FrameHandleTest {
+    private List<ByteBuffer> returnedBuffers;
+    private MemoryManager originalMemoryManager;
+
+    @BeforeEach
+    public void setUp() {
+        returnedBuffers = new ArrayList<>();
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        GlobalMemoryManagerAccessor.memoryManager = new RecordingMemoryManager();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Test
+    public void testUnderlyingBufferIsReturnedAfterLastReference() {
+        // GIVEN
+        ByteBuffer frame = ByteBuffer.allocateDirect(16);
+        FrameHandle frameHandle = FrameHandle.of(frame);
+
+        // WHEN
+        ByteBuffer view = frameHandle.acquireView().get();
+        frameHandle.release();
+
+        // THEN
+        assertTrue(view.isReadOnly());
+        assertTrue(FrameHandle.isSharedView(view));
+        assertTrue(returnedBuffers.isEmpty());
+
+        GlobalMemoryManagerAccessor.memoryManager.returnBuffer(view);
+
+        assertEquals(List.of(frame), returnedBuffers);
+        assertFalse(frameHandle.acquireView().isPresent());
+    }
+
+    @Test
+    public void testWriteCopiesSharedFrame() {
+        // GIVEN
+        ByteBuffer frame = ByteBuffer.allocateDirect(2 * 2 * 4);
+        frame.put(0, (byte) 10);
+        FrameHandle frameHandle = FrameHandle.of(frame);
+        ClipImage image = new ClipImage(frameHandle.acquireView().get(), 2, 2);
+
+        // WHEN
+        image.setRed(20, 1, 1);
+
+        // THEN
+        assertEquals(10, image.getRed(0, 0));
+        assertEquals(20, image.getRed(1, 1));
+        assertEquals(0, frame.get(12));
+        assertFalse(image.getBuffer().isReadOnly());
+        assertEquals(1, frameHandle.getReferenceCount());
+    }
+
+    class RecordingMemoryManager implements MemoryManager {
+
+        @Override
+        public ByteBuffer requestBuffer(Integer bytes) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+
+        @Override
+        public List<ByteBuffer> requestBuffers(Integer bytes, int count) {
+            List<ByteBuffer> result = new ArrayList<>();
+            for (int i = 0; i < count; ++i) {
+                result.add(requestBuffer(bytes));
+            }
+            return result;
+        }
+
+        @Override
+        public void returnBuffer(ByteBuffer buffer) {
+            if (!FrameHandle.releaseView(buffer)) {
+                returnedBuffers.add(buffer);
+            }
+        }
+
+        @Override
+        public void returnBuffers(List<ByteBuffer> buffers) {
+            buffers.forEach(this::returnBuffer);
+        }
+
+        @Override
+        public void dropAllBuffers() {
+        }
+
+    }
+
+}
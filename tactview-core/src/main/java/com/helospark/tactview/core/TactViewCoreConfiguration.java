@@ -1,5 +1,10 @@
 package com.helospark.tactview.core;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -35,4 +40,25 @@ public class TactViewCoreConfiguration {
         return regularObjectMapper;
     }
 
+    /**
+     * Shared by clip rendering and the pixel loops inside effects, so nested work is stolen instead of blocking a thread of another pool.
+     */
+    @Bean
+    public ForkJoinPool renderForkJoinPool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Decodes media chunks ahead of the playback position, kept small, because each decoder already uses multiple threads internally.
+     */
+    @Bean
+    public ExecutorService mediaDecoderExecutorService() {
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "media-decoder-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
 }
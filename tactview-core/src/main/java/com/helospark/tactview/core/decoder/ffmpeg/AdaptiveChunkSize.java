@@ -0,0 +1,76 @@
+package com.helospark.tactview.core.decoder.ffmpeg;
+
+/**
+ * Number of frames decoded together for one file and resolution.
+ * <p>
+ * Larger chunks amortize the seek to the previous keyframe, but a chunk should still decode fast enough to stay ahead of playback and
+ * it should only take a small share of the media cache, so read ahead chunks do not evict each other.
+ * The size is always a power of two and chunks are aligned to their size, so chunks of different sizes nest instead of partially overlapping.
+ */
+public class AdaptiveChunkSize {
+    static final int MIN_CHUNK_SIZE = 1;
+    static final int MAX_CHUNK_SIZE = 64;
+    static final long TARGET_CHUNK_DECODE_MILLIS = 400;
+    static final int CACHE_SHARE_DIVISOR = 16;
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    private final long maximumChunkBytes;
+    private final long frameBytes;
+    private volatile int chunkSize;
+    private double averageMillisPerFrame = -1.0;
+
+    public AdaptiveChunkSize(long frameBytes, long cacheSize) {
+        this.frameBytes = frameBytes;
+        this.maximumChunkBytes = cacheSize / CACHE_SHARE_DIVISOR;
+        this.chunkSize = limitByMemory(initialChunkSize(frameBytes));
+    }
+
+    private static int initialChunkSize(long frameBytes) {
+        if (frameBytes < 1_000_000) {
+            return 32;
+        } else if (frameBytes < 5_000_000) {
+            return 8;
+        } else if (frameBytes < 20_000_000) {
+            return 4;
+        } else {
+            return 1; // very large frames (ex. 8K, read one by one)
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Moves the chunk size at most one step towards the size, which decodes in about {@link #TARGET_CHUNK_DECODE_MILLIS}.
+     */
+    public synchronized void recordDecode(int numberOfFrames, long decodeMillis) {
+        if (numberOfFrames <= 0) {
+            return;
+        }
+        double millisPerFrame = (double) decodeMillis / numberOfFrames;
+        if (averageMillisPerFrame < 0) {
+            averageMillisPerFrame = millisPerFrame;
+        } else {
+            averageMillisPerFrame = SMOOTHING_FACTOR * millisPerFrame + (1.0 - SMOOTHING_FACTOR) * averageMillisPerFrame;
+        }
+
+        double expectedChunkMillis = averageMillisPerFrame * chunkSize;
+        int newChunkSize = chunkSize;
+        if (expectedChunkMillis > TARGET_CHUNK_DECODE_MILLIS) {
+            newChunkSize = chunkSize / 2;
+        } else if (expectedChunkMillis * 2 <= TARGET_CHUNK_DECODE_MILLIS) {
+            newChunkSize = chunkSize * 2;
+        }
+        chunkSize = limitByMemory(Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, newChunkSize)));
+    }
+
+    private int limitByMemory(int requestedChunkSize) {
+        int result = requestedChunkSize;
+        while (result > MIN_CHUNK_SIZE && result * frameBytes > maximumChunkBytes) {
+            result /= 2;
+        }
+        return result;
+    }
+
+}
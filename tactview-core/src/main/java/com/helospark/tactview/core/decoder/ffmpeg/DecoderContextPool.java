@@ -0,0 +1,279 @@
+package com.helospark.tactview.core.decoder.ffmpeg;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Value;
+
+/**
+ * Bounded pool of native decoder contexts, so the container and the codec are opened once per file and resolution instead of once per chunk.
+ * <p>
+ * A context is used by a single thread at a time, a thread takes it out of the idle list and puts it back after reading.
+ * When several idle contexts exist for the same file, the one positioned closest before the requested time is used, so sequential reads
+ * continue decoding without a seek. Contexts not used for a while are closed.
+ * <p>
+ * When every context is in use, a thread needing a new context waits until one is released, so the number of open contexts never exceeds the limit.
+ */
+@Component
+public class DecoderContextPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DecoderContextPool.class);
+
+    private final FFmpegBasedMediaDecoderImplementation implementation;
+    private final int maximumContexts;
+    private final long idleTimeoutMillis;
+
+    // least recently released first
+    private final LinkedList<DecoderContext> idleContexts = new LinkedList<>();
+    private int openContexts = 0;
+    private boolean destroyed = false;
+    private volatile boolean contextsSupported = true;
+
+    private ScheduledExecutorService idleContextCleaner;
+
+    public DecoderContextPool(FFmpegBasedMediaDecoderImplementation implementation, @Value("${ffmpeg.decoder.context.max}") Integer maximumContexts,
+            @Value("${ffmpeg.decoder.context.idle.timeout.millis}") Long idleTimeoutMillis) {
+        this.implementation = implementation;
+        this.maximumContexts = maximumContexts;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void init() {
+        idleContextCleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "decoder-context-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeoutMillis / 2);
+        idleContextCleaner.scheduleWithFixedDelay(() -> closeIdleContexts(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (idleContextCleaner != null) {
+            idleContextCleaner.shutdown();
+        }
+        List<DecoderContext> contextsToClose;
+        synchronized (this) {
+            destroyed = true;
+            notifyAll();
+            contextsToClose = new ArrayList<>(idleContexts);
+            idleContexts.clear();
+            openContexts -= contextsToClose.size();
+        }
+        close(contextsToClose);
+    }
+
+    public void readFrames(FFmpegImageRequest request) {
+        DecoderContext context = contextsSupported ? acquire(request) : null;
+        if (context == null) {
+            implementation.readFrames(request);
+            return;
+        }
+
+        boolean reusable = false;
+        try {
+            int framesRead = implementation.readFramesWithContext(context.id, request);
+            if (framesRead >= 0) {
+                reusable = true;
+            } else {
+                LOGGER.warn("Decoder context {} of {} is lost, reading without context", context.id, context.key.path);
+                implementation.readFrames(request);
+            }
+        } finally {
+            if (reusable) {
+                release(context, request.startMicroseconds);
+            } else {
+                discard(context);
+            }
+        }
+    }
+
+    private DecoderContext acquire(FFmpegImageRequest request) {
+        DecoderContextKey key = new DecoderContextKey(request.path, request.width, request.height);
+        List<DecoderContext> contextsToClose = new ArrayList<>();
+        synchronized (this) {
+            while (true) {
+                if (destroyed) {
+                    return null;
+                }
+                DecoderContext idleContext = findBestIdleContext(key, request.startMicroseconds);
+                if (idleContext != null) {
+                    idleContexts.remove(idleContext);
+                    return idleContext;
+                }
+                if (openContexts >= maximumContexts && !idleContexts.isEmpty()) {
+                    contextsToClose.add(idleContexts.removeFirst());
+                    --openContexts;
+                }
+                if (openContexts < maximumContexts) {
+                    break;
+                }
+                // Every context is used by another thread, each of them releases its context after a single read
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            ++openContexts; // counted while the lock is held, so threads opening concurrently see each other's contexts
+        }
+        close(contextsToClose);
+
+        DecoderContext result = open(key);
+        if (result == null) {
+            synchronized (this) {
+                --openContexts;
+                notifyAll();
+            }
+        }
+        return result;
+    }
+
+    private DecoderContext findBestIdleContext(DecoderContextKey key, long startMicroseconds) {
+        DecoderContext result = null;
+        for (DecoderContext context : idleContexts) {
+            if (!context.key.equals(key)) {
+                continue;
+            }
+            if (result == null) {
+                result = context;
+            } else {
+                boolean isBefore = context.lastStartMicroseconds <= startMicroseconds;
+                boolean resultIsBefore = result.lastStartMicroseconds <= startMicroseconds;
+                if (isBefore && (!resultIsBefore || context.lastStartMicroseconds > result.lastStartMicroseconds)) {
+                    result = context;
+                }
+            }
+        }
+        return result;
+    }
+
+    private DecoderContext open(DecoderContextKey key) {
+        int id;
+        try {
+            id = implementation.openDecoderContext(key.path, key.width, key.height);
+        } catch (UnsatisfiedLinkError e) {
+            LOGGER.warn("Native decoder does not support decoder contexts, every read will reopen the file", e);
+            contextsSupported = false;
+            return null;
+        }
+        if (id < 0) {
+            LOGGER.warn("Unable to open decoder context for {}", key.path);
+            return null;
+        }
+        LOGGER.debug("Decoder context {} opened for {} {}x{}", id, key.path, key.width, key.height);
+        return new DecoderContext(id, key);
+    }
+
+    private void release(DecoderContext context, long startMicroseconds) {
+        context.lastStartMicroseconds = startMicroseconds;
+        context.lastUsedMillis = System.currentTimeMillis();
+        synchronized (this) {
+            notifyAll();
+            if (!destroyed && openContexts <= maximumContexts) {
+                idleContexts.addLast(context);
+                return;
+            }
+            --openContexts;
+        }
+        close(List.of(context));
+    }
+
+    private void discard(DecoderContext context) {
+        synchronized (this) {
+            --openContexts;
+            notifyAll();
+        }
+        close(List.of(context));
+    }
+
+    void closeIdleContexts(long currentTimeMillis) {
+        List<DecoderContext> contextsToClose = new ArrayList<>();
+        synchronized (this) {
+            Iterator<DecoderContext> iterator = idleContexts.iterator();
+            while (iterator.hasNext()) {
+                DecoderContext context = iterator.next();
+                if (currentTimeMillis - context.lastUsedMillis >= idleTimeoutMillis) {
+                    iterator.remove();
+                    contextsToClose.add(context);
+                    --openContexts;
+                }
+            }
+        }
+        close(contextsToClose);
+    }
+
+    private void close(List<DecoderContext> contexts) {
+        for (DecoderContext context : contexts) {
+            try {
+                implementation.closeDecoderContext(context.id);
+                LOGGER.debug("Decoder context {} closed", context.id);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to close decoder context " + context.id, e);
+            }
+        }
+    }
+
+    synchronized int getNumberOfOpenContexts() {
+        return openContexts;
+    }
+
+    static class DecoderContext {
+        private final int id;
+        private final DecoderContextKey key;
+        private long lastStartMicroseconds = -1;
+        private long lastUsedMillis;
+
+        public DecoderContext(int id, DecoderContextKey key) {
+            this.id = id;
+            this.key = key;
+        }
+
+    }
+
+    static class DecoderContextKey {
+        private final String path;
+        private final int width;
+        private final int height;
+
+        public DecoderContextKey(String path, int width, int height) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, width, height);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DecoderContextKey)) {
+                return false;
+            }
+            DecoderContextKey other = (DecoderContextKey) obj;
+            return Objects.equals(path, other.path) && width == other.width && height == other.height;
+        }
+
+    }
+
+}
@@ -6,46 +6,69 @@ import java.math.RoundingMode;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.util.concurrent.Striped;
 import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Qualifier;
 import com.helospark.tactview.core.decoder.MediaDataResponse;
 import com.helospark.tactview.core.decoder.VideoMediaDataRequest;
 import com.helospark.tactview.core.decoder.VideoMetadata;
 import com.helospark.tactview.core.decoder.VisualMediaDecoder;
+import com.helospark.tactview.core.decoder.framecache.DiskFrameCache;
+import com.helospark.tactview.core.decoder.framecache.DiskFrameCacheKey;
 import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
 import com.helospark.tactview.core.decoder.framecache.MediaCache;
 import com.helospark.tactview.core.decoder.framecache.MediaCache.MediaHashValue;
 import com.helospark.tactview.core.message.DropCachesMessage;
 import com.helospark.tactview.core.timeline.TimelineLength;
+import com.helospark.tactview.core.timeline.message.ClipRemovedMessage;
 import com.helospark.tactview.core.util.cacheable.Cacheable;
 import com.helospark.tactview.core.util.messaging.MessagingService;
 
 @Component
 public class FFmpegBasedMediaDecoderDecorator implements VisualMediaDecoder {
     private static final Logger LOGGER = LoggerFactory.getLogger(FFmpegBasedMediaDecoderDecorator.class);
-    private Striped<Lock> duplicateReadLocks = Striped.lock(100);
+    private static final int READ_AHEAD_CHUNKS = 2;
+    private static final int MAX_READ_AHEADS_IN_FLIGHT = 4;
+
+    private Map<String, CompletableFuture<Void>> chunksInFlight = new ConcurrentHashMap<>();
+    private Map<String, DecodeStreamState> streamStates = new ConcurrentHashMap<>();
+    private AtomicInteger readAheadsInFlight = new AtomicInteger(0);
     private FFmpegBasedMediaDecoderImplementation implementation;
     private MediaCache mediaCache;
+    private DiskFrameCache diskFrameCache;
+    private DecoderContextPool decoderContextPool;
     private MessagingService messagingService;
+    private ExecutorService decoderExecutorService;
 
-    public FFmpegBasedMediaDecoderDecorator(FFmpegBasedMediaDecoderImplementation implementation, MediaCache mediaCache, MessagingService messagingService) {
+    public FFmpegBasedMediaDecoderDecorator(FFmpegBasedMediaDecoderImplementation implementation, MediaCache mediaCache, DiskFrameCache diskFrameCache, DecoderContextPool decoderContextPool,
+            MessagingService messagingService, @Qualifier("mediaDecoderExecutorService") ExecutorService decoderExecutorService) {
         this.implementation = implementation;
         this.mediaCache = mediaCache;
+        this.diskFrameCache = diskFrameCache;
+        this.decoderContextPool = decoderContextPool;
         this.messagingService = messagingService;
+        this.decoderExecutorService = decoderExecutorService;
     }
 
     @PostConstruct
     public void init() {
-        messagingService.register(DropCachesMessage.class, message -> mediaCache.dropCaches());
+        messagingService.register(DropCachesMessage.class, message -> {
+            mediaCache.dropCaches();
+            streamStates.clear();
+        });
+        // Stream states are cheap to recreate, so they are not tracked per clip
+        messagingService.register(ClipRemovedMessage.class, message -> streamStates.clear());
     }
 
     @Cacheable
@@ -70,133 +93,149 @@ public class FFmpegBasedMediaDecoderDecorator implements VisualMediaDecoder {
 
     @Override
     public MediaDataResponse readFrames(VideoMediaDataRequest request) {
-        // TODO: eliminate copypaste copy paste from below
-        int chunkSize = calculateChunkSize(request);
         VideoMetadata metadata = (VideoMetadata) request.getMetadata();
         int startFrame = request.getStart().getSeconds().multiply(new BigDecimal(metadata.getFps())).setScale(0, RoundingMode.HALF_DOWN).intValue();
-        int additionalFramesToReadInBeginning = startFrame % chunkSize;
-        int newStartFrame = startFrame - additionalFramesToReadInBeginning;
-        if (newStartFrame < 0) {
-            newStartFrame = 0;
-        }
+        String filePath = request.getFile().getAbsolutePath();
 
-        Optional<ByteBuffer> framesFromCache = findInCache(request, startFrame, request.getFilePath());
-        ByteBuffer result;
-        if (framesFromCache.isPresent()) {
-            result = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(request.getWidth() * request.getHeight() * 4);
-            copyToResult(result, framesFromCache.get());
-            return new MediaDataResponse(result);
+        if (request.useApproximatePosition()) {
+            Optional<ByteBuffer> framesFromCache = findInCache(request, startFrame, filePath);
+            if (framesFromCache.isPresent()) {
+                return new MediaDataResponse(framesFromCache.get());
+            }
+            System.out.println("Reading without cache " + request);
+            return new MediaDataResponse(readFromFile(request, startFrame, 1, filePath)[0]);
         }
 
-        // end
-        String readId = request.getFile().getAbsolutePath();
-        readId += request.getWidth() + "x" + request.getHeight();
+        DecodeStreamState streamState = streamStates.computeIfAbsent(createHashKey(filePath, request),
+                key -> new DecodeStreamState(new AdaptiveChunkSize((long) request.getWidth() * request.getHeight() * 4, mediaCache.getMaximumSize())));
 
-        Lock lock = duplicateReadLocks.get(readId);
+        Optional<ByteBuffer> result = findInCache(request, startFrame, filePath);
+        ByteBuffer frame = result.isPresent() ? result.get() : readChunkContaining(request, streamState, startFrame);
+        scheduleReadAhead(request, streamState, startFrame);
+        return new MediaDataResponse(frame);
+    }
 
-        try {
-            lock.tryLock(10000000, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace(); // previous thread stuck?
+    /**
+     * Decodes the chunk containing the frame, or waits for it if it is already being decoded.
+     * The frame of a chunk decoded here is acquired before the chunk is cached, so it cannot be evicted before it is used.
+     */
+    private ByteBuffer readChunkContaining(VideoMediaDataRequest request, DecodeStreamState streamState, int frame) {
+        String filePath = request.getFile().getAbsolutePath();
+        int chunkSize = streamState.chunkSize.getChunkSize();
+        int chunkStart = frame - (frame % chunkSize);
+        String chunkId = createChunkId(request, chunkStart, chunkSize);
+
+        CompletableFuture<Void> newChunk = new CompletableFuture<>();
+        CompletableFuture<Void> chunkInFlight = chunksInFlight.putIfAbsent(chunkId, newChunk);
+        if (chunkInFlight != null) {
+            chunkInFlight.handle((value, exception) -> value).join(); // a failed decode is retried below
+            Optional<ByteBuffer> result = findInCache(request, frame, filePath);
+            if (result.isPresent()) {
+                return result.get();
+            }
+            LOGGER.debug("Frame {} of {} is evicted before it could be used, decoding it again", frame, filePath);
+            return decodeAndCacheChunk(request, streamState, chunkStart, chunkSize, frame);
         }
         try {
-            return readFramesInternal(request, chunkSize);
+            return decodeAndCacheChunk(request, streamState, chunkStart, chunkSize, frame);
         } finally {
-            lock.unlock();
+            newChunk.complete(null); // waiters read the frame from the cache
+            chunksInFlight.remove(chunkId, newChunk);
         }
     }
 
-    // simple logic for now to determine how many frames to cache
-    // ideally this should also use the available memory in the system (more memory->more cache) & user settings as well
-    // This should not return different number based on the time index!
-    private int calculateChunkSize(VideoMediaDataRequest request) {
-        int numberOfBytes = request.getWidth() * request.getHeight() * 4;
-
-        if (numberOfBytes < 1_000_000) {
-            return 30; // <30Mb
-        } else if (numberOfBytes < 5_000_000) {
-            return 10; // <50Mb
-        } else if (numberOfBytes < 20_000_000) {
-            return 4; // <100Mb
-        } else {
-            return 1; // very large frames (ex. 8K, read one by one)
-        }
+    private ByteBuffer decodeAndCacheChunk(VideoMediaDataRequest request, DecodeStreamState streamState, int chunkStart, int chunkSize, int frame) {
+        MediaHashValue value = decodeChunk(request, streamState, chunkStart, chunkSize);
+        ByteBuffer result = value.acquireSharedFrame(frame - value.frameStart).orElseThrow(); // not cached yet, so it cannot be evicted
+        mediaCache.cacheMedia(createHashKey(request.getFile().getAbsolutePath(), request), value, false);
+        return result;
     }
 
-    private MediaDataResponse readFramesInternal(VideoMediaDataRequest request, int chunkSize) {
-        VideoMetadata metadata = (VideoMetadata) request.getMetadata();
-        int numberOfFrames = 1;
-        int startFrame = request.getStart().getSeconds().multiply(new BigDecimal(metadata.getFps())).setScale(0, RoundingMode.HALF_DOWN).intValue();
-        String filePath = request.getFile().getAbsolutePath();
-
-        Optional<ByteBuffer> framesFromCache = findInCache(request, startFrame, filePath);
-
-        ByteBuffer result;
-
-        if (framesFromCache.isPresent()) {
-            result = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(request.getWidth() * request.getHeight() * 4);
-            copyToResult(result, framesFromCache.get());
-        } else if (!request.useApproximatePosition()) {
-            System.out.println("Reading " + startFrame + " " + numberOfFrames);
-            // Always read in chunks to minimize overhead
-            int additionalFramesToReadInBeginning = startFrame % chunkSize;
-            int newStartFrame = startFrame - additionalFramesToReadInBeginning;
-            if (newStartFrame < 0) {
-                newStartFrame = 0;
-            }
+    /**
+     * Read ahead for a chunk that is already being decoded is skipped.
+     */
+    private void requestReadAhead(VideoMediaDataRequest request, DecodeStreamState streamState, int chunkStart, int chunkSize) {
+        String chunkId = createChunkId(request, chunkStart, chunkSize);
+        CompletableFuture<Void> newChunk = new CompletableFuture<>();
+        if (chunksInFlight.putIfAbsent(chunkId, newChunk) != null) {
+            return;
+        }
 
-            int newEndFrame = newStartFrame;
-            while (startFrame + numberOfFrames > newEndFrame) {
-                newEndFrame += chunkSize;
+        readAheadsInFlight.incrementAndGet();
+        decoderExecutorService.execute(() -> {
+            try {
+                MediaHashValue value = decodeChunk(request, streamState, chunkStart, chunkSize);
+                mediaCache.cacheMedia(createHashKey(request.getFile().getAbsolutePath(), request), value, false);
+            } catch (Exception e) {
+                LOGGER.warn("Unable to read ahead {} frames from {} of {}", chunkSize, chunkStart, request.getFile(), e);
+            } finally {
+                newChunk.complete(null);
+                chunksInFlight.remove(chunkId, newChunk);
+                readAheadsInFlight.decrementAndGet();
             }
+        });
+    }
 
-            int newNumberOfFrame = newEndFrame - newStartFrame;
-
-            List<ByteBuffer> readFrames = Arrays.asList(readFromFile(request, newStartFrame, newNumberOfFrame, filePath));
-            result = copyResultAtIndex(readFrames, additionalFramesToReadInBeginning);
+    // The returned chunk is not cached yet
+    private MediaHashValue decodeChunk(VideoMediaDataRequest request, DecodeStreamState streamState, int chunkStart, int chunkSize) {
+        String filePath = request.getFile().getAbsolutePath();
+        DiskFrameCacheKey diskCacheKey = DiskFrameCacheKey.of(request.getFile(), request.getWidth(), request.getHeight(), chunkStart, chunkStart + chunkSize);
 
-            storeInCache(request, newStartFrame, filePath, readFrames);
-        } else {
-            System.out.println("Reading without cache " + request);
-            List<ByteBuffer> readFrames = Arrays.asList(readFromFile(request, startFrame, 1, filePath));
-            result = copyResultAtIndex(readFrames, 0);
-            readFrames.stream()
-                    .forEach(a -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(a));
+        Optional<MediaHashValue> valueFromDisk = diskFrameCache.read(diskCacheKey);
+        if (valueFromDisk.isPresent()) {
+            return valueFromDisk.get();
         }
-        return new MediaDataResponse(result);
+        LOGGER.debug("Reading {} frames from {} of {}", chunkSize, chunkStart, filePath);
+        long decodeStartTime = System.currentTimeMillis();
+        List<ByteBuffer> readFrames = Arrays.asList(readFromFile(request, chunkStart, chunkSize, filePath));
+        streamState.chunkSize.recordDecode(chunkSize, System.currentTimeMillis() - decodeStartTime);
+
+        MediaHashValue value = new MediaHashValue(chunkStart, chunkStart + readFrames.size(), readFrames);
+        value.diskCacheKey = diskCacheKey.withFrameRange(chunkStart, chunkStart + readFrames.size());
+        return value;
     }
 
-    private ByteBuffer copyResultAtIndex(List<ByteBuffer> readFrames, int additionalFramesToReadInBeginning) {
-        ByteBuffer from = readFrames.get(additionalFramesToReadInBeginning);
-        ByteBuffer result = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(from.capacity());
-        copyToResult(result, from);
+    private void scheduleReadAhead(VideoMediaDataRequest request, DecodeStreamState streamState, int frame) {
+        int direction = streamState.updatePlaybackDirection(frame);
+        int chunkSize = streamState.chunkSize.getChunkSize();
+        int chunkStart = frame - (frame % chunkSize);
 
-        return result;
-    }
+        VideoMetadata metadata = (VideoMetadata) request.getMetadata();
+        int numberOfFramesInFile = metadata.getLength().getSeconds().multiply(new BigDecimal(metadata.getFps())).intValue();
+        String hashKey = createHashKey(request.getFile().getAbsolutePath(), request);
 
-    private void storeInCache(VideoMediaDataRequest request, int startFrame, String filePath, List<ByteBuffer> result) {
-        String key = createHashKey(filePath, request);
-        MediaHashValue value = new MediaHashValue(startFrame, startFrame + result.size(), result);
-        mediaCache.cacheMedia(key, value, false);
+        for (int i = 1; i <= READ_AHEAD_CHUNKS && readAheadsInFlight.get() < MAX_READ_AHEADS_IN_FLIGHT; ++i) {
+            int readAheadStart = chunkStart + direction * i * chunkSize;
+            if (readAheadStart < 0 || readAheadStart >= numberOfFramesInFile) {
+                break;
+            }
+            if (!mediaCache.isCached(hashKey, readAheadStart, Math.min(readAheadStart + chunkSize, numberOfFramesInFile))) {
+                requestReadAhead(request, streamState, readAheadStart, chunkSize);
+            }
+        }
     }
 
     private String createHashKey(String filePath, VideoMediaDataRequest request) {
         return filePath + " " + request.getWidth() + " " + request.getHeight();
     }
 
+    private String createChunkId(VideoMediaDataRequest request, int chunkStart, int chunkSize) {
+        return createHashKey(request.getFile().getAbsolutePath(), request) + " " + chunkStart + " " + chunkSize;
+    }
+
     private Optional<ByteBuffer> findInCache(VideoMediaDataRequest request, int startFrame, String filePath) {
         Optional<MediaHashValue> found = mediaCache.findInCache(createHashKey(filePath, request), startFrame);
         if (found.isPresent()) {
             MediaHashValue foundCache = found.get();
             int startCopyFrom = startFrame - foundCache.frameStart;
 
-            ByteBuffer result = foundCache.frames.get(startCopyFrom);
+            Optional<ByteBuffer> result = foundCache.acquireSharedFrame(startCopyFrom);
 
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Exact frame from cache {}", System.identityHashCode(result));
+                LOGGER.debug("Exact frame from cache {}", result.map(System::identityHashCode));
             }
 
-            return Optional.ofNullable(result);
+            return result;
         }
         return Optional.empty();
     }
@@ -223,7 +262,7 @@ public class FFmpegBasedMediaDecoderDecorator implements VisualMediaDecoder {
             buffers[i] = array[i].data;
         }
 
-                implementation.readFrames(ffmpegRequest);
+        decoderContextPool.readFrames(ffmpegRequest);
         return buffers;
     }
 
@@ -231,11 +270,22 @@ public class FFmpegBasedMediaDecoderDecorator implements VisualMediaDecoder {
         return new TimelineLength(BigDecimal.valueOf(startFrame).divide(new BigDecimal(fps), 100, RoundingMode.HALF_DOWN));
     }
 
-    private void copyToResult(ByteBuffer result, ByteBuffer fromBuffer) {
-        for (int i = 0; i < result.capacity(); ++i) {
-            result.put(i, fromBuffer.get(i));
+    static class DecodeStreamState {
+        private final AdaptiveChunkSize chunkSize;
+        private int lastRequestedFrame = -1;
+        private int direction = 1;
+
+        public DecodeStreamState(AdaptiveChunkSize chunkSize) {
+            this.chunkSize = chunkSize;
         }
 
+        synchronized int updatePlaybackDirection(int frame) {
+            if (lastRequestedFrame >= 0 && frame != lastRequestedFrame) {
+                direction = frame > lastRequestedFrame ? 1 : -1;
+            }
+            lastRequestedFrame = frame;
+            return direction;
+        }
     }
 
 }
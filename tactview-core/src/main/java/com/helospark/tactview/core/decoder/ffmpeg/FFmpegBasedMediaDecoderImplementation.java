@@ -10,4 +10,17 @@ public interface FFmpegBasedMediaDecoderImplementation extends Library {
 
     public void readFrames(FFmpegImageRequest ffmpegRequest);
 
+    /**
+     * @return id of the opened context or -1 if the file cannot be decoded
+     */
+    public int openDecoderContext(String filePath, int width, int height);
+
+    /**
+     * Contexts are not thread safe, a context must only be used by a single thread at a time.
+     * @return number of frames read, or -1 if the context does not exist
+     */
+    public int readFramesWithContext(int contextId, FFmpegImageRequest ffmpegRequest);
+
+    public void closeDecoderContext(int contextId);
+
 }
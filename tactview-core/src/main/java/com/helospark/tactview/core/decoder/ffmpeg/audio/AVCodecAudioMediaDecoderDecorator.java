@@ -40,16 +40,41 @@ public class AVCodecAudioMediaDecoderDecorator implements AudioMediaDecoder {
 
         Optional<MediaHashValue> cachedResult = mediaCache.findInCache(hashKey, startSample);
         if (cachedResult.isPresent()) {
-            int frameStartIndexInBuffer = cachedResult.get().frameStart;
-            List<ByteBuffer> foindInCache = cachedResult.get().frames;
+            Optional<List<ByteBuffer>> cachedChannels = acquireChannels(cachedResult.get());
+            if (cachedChannels.isPresent()) {
+                return copyRelevantPartsAndRelease(request, startSample - cachedResult.get().frameStart, cachedChannels.get());
+            }
+        }
+        FileReadResult result = readFromFile(request);
+        int realStartSample = secondsToBytes(result.actualStartPosition, request.getExpectedBytesPerSample(), sampleRate);
+        MediaHashValue value = new MediaHashValue(realStartSample, realStartSample + result.actualLength, result.data);
+        List<ByteBuffer> channels = acquireChannels(value).orElseThrow(); // not cached yet, so it cannot be evicted
+        mediaCache.cacheMedia(hashKey, value, false);
+
+        return copyRelevantPartsAndRelease(request, startSample - realStartSample, channels);
+    }
 
-            return copyRelevantParts(request, startSample - frameStartIndexInBuffer, foindInCache);
-        } else {
-            FileReadResult result = readFromFile(request);
-            int realStartSample = secondsToBytes(result.actualStartPosition, request.getExpectedBytesPerSample(), sampleRate);
-            mediaCache.cacheMedia(hashKey, new MediaHashValue(realStartSample, realStartSample + result.actualLength, result.data), false);
+    /**
+     * @return views of every channel that stay valid even if the value is evicted meanwhile, or empty if it is already evicted
+     */
+    private Optional<List<ByteBuffer>> acquireChannels(MediaHashValue value) {
+        List<ByteBuffer> result = new ArrayList<>(value.frames.size());
+        for (int channel = 0; channel < value.frames.size(); ++channel) {
+            Optional<ByteBuffer> view = value.acquireSharedFrame(channel);
+            if (view.isEmpty()) {
+                memoryManager.returnBuffers(result);
+                return Optional.empty();
+            }
+            result.add(view.get());
+        }
+        return Optional.of(result);
+    }
 
-            return copyRelevantParts(request, startSample - realStartSample, result.data);
+    private MediaDataResponse copyRelevantPartsAndRelease(AudioMediaDataRequest request, int startSample, List<ByteBuffer> channels) {
+        try {
+            return copyRelevantParts(request, startSample, channels);
+        } finally {
+            memoryManager.returnBuffers(channels);
         }
     }
 
@@ -0,0 +1,374 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Value;
+import com.helospark.tactview.core.decoder.framecache.MediaCache.MediaHashValue;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Second cache tier below {@link MediaCache}, chunks evicted from memory are stored here as LZ4 compressed RGBA frames, so scrubbing over them again
+ * does not need to run the decoder.
+ * <p>
+ * File layout: magic, version, number of frames, frame size, compressed size of each frame, then the compressed frames.
+ * Files are read frame by frame with {@link FileChannel#read(ByteBuffer, long)} into a reused buffer of the reading thread, writes happen on a background
+ * thread.
+ * <p>
+ * Every source has at most one chunk starting at a given frame. Chunk sizes change with the adaptive chunk size, so chunks are looked up by the range
+ * they contain instead of the exact range requested.
+ */
+@Component
+public class DiskFrameCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskFrameCache.class);
+    private static final int MAGIC = 0x54564643;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 4;
+    private static final String EXTENSION = ".lz4frames";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final long MAX_PENDING_WRITE_BYTES = 512L * 1024L * 1024L;
+    private static final double PROTECTED_SEGMENT_RATIO = 0.8;
+
+    private final boolean enabled;
+    private final File cacheDirectory;
+    private final MemoryManager memoryManager;
+    private final SegmentedLruEvictionPolicy<String> evictionPolicy;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+    private final AtomicLong pendingWriteBytes = new AtomicLong(0);
+    private final Map<String, NavigableMap<Integer, Integer>> chunksOnDisk = new ConcurrentHashMap<>(); // source id -> frame start -> frame end
+    private final AtomicInteger longestChunk = new AtomicInteger(0);
+    private final ThreadLocal<ByteBuffer> readBuffers = new ThreadLocal<>();
+
+    private ExecutorService writerExecutor;
+    private ByteBuffer compressionBuffer;
+
+    public DiskFrameCache(MemoryManager memoryManager, @Value("${mediacache.disk.enabled}") boolean enabled, @Value("${mediacache.disk.max.size}") Long maximumSize,
+            @Value("${mediacache.disk.directory}") File cacheDirectory) {
+        this.memoryManager = memoryManager;
+        this.enabled = enabled;
+        this.cacheDirectory = cacheDirectory;
+        this.evictionPolicy = new SegmentedLruEvictionPolicy<>(maximumSize, PROTECTED_SEGMENT_RATIO);
+
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        cacheDirectory.mkdirs();
+        loadExistingFiles();
+        writerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "disk-frame-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void loadExistingFiles() {
+        File[] files = cacheDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparing(File::lastModified));
+        for (File file : files) {
+            String fileName = file.getName();
+            if (fileName.endsWith(EXTENSION)) {
+                String chunkFileName = fileName.substring(0, fileName.length() - EXTENSION.length());
+                Optional<StoredChunk> chunk = StoredChunk.fromFileName(chunkFileName);
+                if (chunk.isPresent()) {
+                    evictionPolicy.add(chunkFileName, file.length());
+                    addToIndex(chunk.get())
+                            .ifPresent(replacedChunk -> deleteFiles(List.of(replacedChunk.toFileName())));
+                } else {
+                    file.delete();
+                }
+            } else if (fileName.endsWith(TEMPORARY_EXTENSION)) {
+                file.delete();
+            }
+        }
+        deleteFiles(evictionPolicy.evictOverBudget());
+        LOGGER.info("Disk frame cache contains {} bytes", evictionPolicy.getWeight());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (writerExecutor != null) {
+            writerExecutor.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the frames in the background. Frames are returned to the memory manager once they are written, or immediately if the chunk is
+     * already on disk or too many writes are pending.
+     */
+    public void storeAsync(DiskFrameCacheKey key, List<ByteBuffer> frames) {
+        String fileName = key.toFileName();
+        long frameBytes = (long) key.getFrameSize() * frames.size();
+        if (!enabled || findChunkContaining(key).isPresent() || pendingWriteBytes.get() + frameBytes > MAX_PENDING_WRITE_BYTES) {
+            memoryManager.returnBuffers(frames);
+            return;
+        }
+        pendingWriteBytes.addAndGet(frameBytes);
+        writerExecutor.execute(() -> {
+            try {
+                store(fileName, key, frames);
+            } catch (Exception e) {
+                LOGGER.warn("Unable to write frames to disk cache " + key, e);
+            } finally {
+                memoryManager.returnBuffers(frames);
+                pendingWriteBytes.addAndGet(-frameBytes);
+            }
+        });
+    }
+
+    // Only called from the single writer thread
+    void store(String fileName, DiskFrameCacheKey key, List<ByteBuffer> frames) throws IOException {
+        int frameSize = key.getFrameSize();
+        int headerSize = HEADER_SIZE + 4 * frames.size();
+        int maxCompressedLength = compressor.maxCompressedLength(frameSize);
+        if (compressionBuffer == null || compressionBuffer.capacity() < maxCompressedLength) {
+            compressionBuffer = ByteBuffer.allocateDirect(maxCompressedLength);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(frames.size());
+        header.putInt(frameSize);
+
+        Path temporaryFile = new File(cacheDirectory, fileName + TEMPORARY_EXTENSION).toPath();
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = headerSize;
+            for (ByteBuffer frame : frames) {
+                int compressedLength = compressor.compress(frame, 0, frameSize, compressionBuffer, 0, maxCompressedLength);
+                header.putInt(compressedLength);
+
+                ByteBuffer compressed = compressionBuffer.duplicate();
+                compressed.position(0);
+                compressed.limit(compressedLength);
+                while (compressed.hasRemaining()) {
+                    position += channel.write(compressed, position);
+                }
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+
+        Path targetFile = new File(cacheDirectory, fileName + EXTENSION).toPath();
+        Files.move(temporaryFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        evictionPolicy.add(fileName, Files.size(targetFile));
+        StoredChunk chunk = new StoredChunk(key.getSourceId(), key.getFrameStart(), key.getFrameEnd());
+        addToIndex(chunk)
+                .ifPresent(replacedChunk -> deleteFiles(List.of(replacedChunk.toFileName())));
+        deleteFiles(evictionPolicy.evictOverBudget());
+        LOGGER.debug("{} written to disk cache, disk cache size: {}", key, evictionPolicy.getWeight());
+    }
+
+    /**
+     * @return chunk containing the whole range of the key with the frames decompressed into buffers of the memory manager, or empty if no such chunk is on
+     *         disk. The returned chunk may start before and end after the requested range.
+     */
+    public Optional<MediaHashValue> read(DiskFrameCacheKey key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Optional<DiskFrameCacheKey> chunkKey = findChunkContaining(key);
+        if (chunkKey.isEmpty()) {
+            return Optional.empty();
+        }
+        String fileName = chunkKey.get().toFileName();
+        File file = new File(cacheDirectory, fileName + EXTENSION);
+        List<ByteBuffer> result = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int numberOfFrames = chunkKey.get().getNumberOfFrames();
+            int frameSize = chunkKey.get().getFrameSize();
+            if (!readFully(channel, header, 0) || header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != numberOfFrames
+                    || header.getInt(12) != frameSize) {
+                throw new IOException("Invalid disk cache file " + file);
+            }
+            ByteBuffer compressedLengths = ByteBuffer.allocate(4 * numberOfFrames).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(channel, compressedLengths, HEADER_SIZE)) {
+                throw new IOException("Truncated disk cache file " + file);
+            }
+
+            ByteBuffer readBuffer = getReadBuffer(compressor.maxCompressedLength(frameSize));
+            long position = HEADER_SIZE + 4L * numberOfFrames;
+            for (int i = 0; i < numberOfFrames; ++i) {
+                int compressedLength = compressedLengths.getInt(4 * i);
+                if (compressedLength <= 0 || compressedLength > readBuffer.capacity()) {
+                    throw new IOException("Corrupt disk cache file " + file);
+                }
+                readBuffer.clear();
+                readBuffer.limit(compressedLength);
+                if (!readFully(channel, readBuffer, position)) {
+                    throw new IOException("Truncated disk cache file " + file);
+                }
+                ByteBuffer frame = memoryManager.requestUninitializedBuffer(frameSize);
+                result.add(frame);
+                if (decompressor.decompress(readBuffer, 0, frame, 0, frameSize) != compressedLength) {
+                    throw new IOException("Corrupt disk cache file " + file);
+                }
+                position += compressedLength;
+            }
+            evictionPolicy.recordAccess(fileName);
+            LOGGER.debug("{} read from disk cache", chunkKey.get());
+
+            MediaHashValue value = new MediaHashValue(chunkKey.get().getFrameStart(), chunkKey.get().getFrameEnd(), result);
+            value.diskCacheKey = chunkKey.get();
+            return Optional.of(value);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to read disk cache file, deleting it", e);
+            memoryManager.returnBuffers(result);
+            evictionPolicy.remove(fileName);
+            deleteFiles(List.of(fileName));
+            return Optional.empty();
+        }
+    }
+
+    // Chunks can overlap, so earlier chunks are checked until they are too far to contain the range
+    private Optional<DiskFrameCacheKey> findChunkContaining(DiskFrameCacheKey key) {
+        NavigableMap<Integer, Integer> chunks = chunksOnDisk.get(key.getSourceId());
+        if (chunks == null) {
+            return Optional.empty();
+        }
+        int lowestPossibleStart = key.getFrameEnd() - longestChunk.get();
+        for (Map.Entry<Integer, Integer> chunk : chunks.headMap(key.getFrameStart(), true).descendingMap().entrySet()) {
+            if (chunk.getKey() < lowestPossibleStart) {
+                break;
+            }
+            if (chunk.getValue() >= key.getFrameEnd()) {
+                return Optional.of(key.withFrameRange(chunk.getKey(), chunk.getValue()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the chunk with the same start that is replaced by the given chunk
+     */
+    private Optional<StoredChunk> addToIndex(StoredChunk chunk) {
+        longestChunk.accumulateAndGet(chunk.frameEnd - chunk.frameStart, Math::max);
+        Integer previousEnd = chunksOnDisk.computeIfAbsent(chunk.sourceId, id -> new ConcurrentSkipListMap<>())
+                .put(chunk.frameStart, chunk.frameEnd);
+        if (previousEnd == null || previousEnd == chunk.frameEnd) {
+            return Optional.empty();
+        }
+        StoredChunk replacedChunk = new StoredChunk(chunk.sourceId, chunk.frameStart, previousEnd);
+        evictionPolicy.remove(replacedChunk.toFileName());
+        return Optional.of(replacedChunk);
+    }
+
+    private ByteBuffer getReadBuffer(int size) {
+        ByteBuffer result = readBuffers.get();
+        if (result == null || result.capacity() < size) {
+            result = ByteBuffer.allocateDirect(size);
+            readBuffers.set(result);
+        }
+        return result;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    public long getCachedBytes() {
+        return evictionPolicy.getWeight();
+    }
+
+    private void deleteFiles(List<String> fileNames) {
+        for (String fileName : fileNames) {
+            StoredChunk.fromFileName(fileName)
+                    .ifPresent(chunk -> {
+                        NavigableMap<Integer, Integer> chunks = chunksOnDisk.get(chunk.sourceId);
+                        if (chunks != null) {
+                            chunks.remove(chunk.frameStart, chunk.frameEnd);
+                        }
+                    });
+            new File(cacheDirectory, fileName + EXTENSION).delete();
+        }
+    }
+
+    static class StoredChunk {
+        private final String sourceId;
+        private final int frameStart;
+        private final int frameEnd;
+
+        public StoredChunk(String sourceId, int frameStart, int frameEnd) {
+            this.sourceId = sourceId;
+            this.frameStart = frameStart;
+            this.frameEnd = frameEnd;
+        }
+
+        // File names are written by DiskFrameCacheKey.toFileName as source id-frame start-frame end
+        public static Optional<StoredChunk> fromFileName(String fileName) {
+            int endSeparator = fileName.lastIndexOf('-');
+            int startSeparator = endSeparator > 0 ? fileName.lastIndexOf('-', endSeparator - 1) : -1;
+            if (startSeparator <= 0) {
+                return Optional.empty();
+            }
+            try {
+                int frameStart = Integer.parseInt(fileName.substring(startSeparator + 1, endSeparator));
+                int frameEnd = Integer.parseInt(fileName.substring(endSeparator + 1));
+                return Optional.of(new StoredChunk(fileName.substring(0, startSeparator), frameStart, frameEnd));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+
+        public String toFileName() {
+            return sourceId + "-" + frameStart + "-" + frameEnd;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Identifies a decoded chunk on disk. File size and modification time are part of the key, so a changed source file never reads stale frames.
+ * <p>
+ * The file name is the id of the source at the given size followed by the frame range, so chunks of a source can be found by the range they contain.
+ */
+public class DiskFrameCacheKey {
+    private final String filePath;
+    private final long fileSize;
+    private final long lastModified;
+    private final int width;
+    private final int height;
+    private final int frameStart;
+    private final int frameEnd;
+
+    public DiskFrameCacheKey(String filePath, long fileSize, long lastModified, int width, int height, int frameStart, int frameEnd) {
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.width = width;
+        this.height = height;
+        this.frameStart = frameStart;
+        this.frameEnd = frameEnd;
+    }
+
+    public static DiskFrameCacheKey of(File file, int width, int height, int frameStart, int frameEnd) {
+        return new DiskFrameCacheKey(file.getAbsolutePath(), file.length(), file.lastModified(), width, height, frameStart, frameEnd);
+    }
+
+    public String toFileName() {
+        return getSourceId() + "-" + frameStart + "-" + frameEnd;
+    }
+
+    public String getSourceId() {
+        String sourceKey = filePath + " " + fileSize + " " + lastModified + " " + width + " " + height;
+        return UUID.nameUUIDFromBytes(sourceKey.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    public DiskFrameCacheKey withFrameRange(int newFrameStart, int newFrameEnd) {
+        return new DiskFrameCacheKey(filePath, fileSize, lastModified, width, height, newFrameStart, newFrameEnd);
+    }
+
+    public int getFrameStart() {
+        return frameStart;
+    }
+
+    public int getFrameEnd() {
+        return frameEnd;
+    }
+
+    public int getNumberOfFrames() {
+        return frameEnd - frameStart;
+    }
+
+    public int getFrameSize() {
+        return width * height * 4;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof DiskFrameCacheKey)) {
+            return false;
+        }
+        DiskFrameCacheKey castOther = (DiskFrameCacheKey) other;
+        return Objects.equals(filePath, castOther.filePath) && Objects.equals(fileSize, castOther.fileSize) && Objects.equals(lastModified, castOther.lastModified)
+                && Objects.equals(width, castOther.width) && Objects.equals(height, castOther.height) && Objects.equals(frameStart, castOther.frameStart)
+                && Objects.equals(frameEnd, castOther.frameEnd);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filePath, fileSize, lastModified, width, height, frameStart, frameEnd);
+    }
+
+    @Override
+    public String toString() {
+        return "DiskFrameCacheKey [filePath=" + filePath + ", fileSize=" + fileSize + ", lastModified=" + lastModified + ", width=" + width + ", height=" + height + ", frameStart="
+                + frameStart + ", frameEnd=" + frameEnd + "]";
+    }
+
+}
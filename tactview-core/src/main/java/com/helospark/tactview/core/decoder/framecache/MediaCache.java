@@ -2,101 +2,52 @@ package com.helospark.tactview.core.decoder.framecache;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 
 import com.helospark.lightdi.annotation.Component;
 import com.helospark.lightdi.annotation.Value;
-import com.helospark.tactview.core.util.ThreadSleep;
+import com.helospark.tactview.core.timeline.image.FrameHandle;
 import com.helospark.tactview.core.util.logger.Slf4j;
 import com.helospark.tactview.core.util.messaging.MessagingService;
 
 @Component
 public class MediaCache {
-    private ConcurrentHashMap<String, NavigableMap<Integer, MediaHashValue>> backCache = new ConcurrentHashMap<>();
-    private Set<CacheRemoveDomain> accessTimeOrderedList = new ConcurrentSkipListSet<>();
+    private static final double PROTECTED_SEGMENT_RATIO = 0.8;
+
+    private ConcurrentHashMap<String, CachedChunks> backCache = new ConcurrentHashMap<>();
+    private Map<String, MediaCacheStatistics> statistics = new ConcurrentHashMap<>();
+    private SegmentedLruEvictionPolicy<MediaHashValue> evictionPolicy;
     private MemoryManager memoryManager;
     private MessagingService messagingService;
+    private DiskFrameCache diskFrameCache;
 
     @Slf4j
     private Logger logger;
 
-    private volatile long approximateSize = 0;
-    private volatile long maximumSizeHint;
-    private volatile boolean running = true;
-
-    public MediaCache(MemoryManager memoryManager, @Value("${mediacache.max.size}") Long maximumSize, MessagingService messagingService) {
+    public MediaCache(MemoryManager memoryManager, @Value("${mediacache.max.size}") Long maximumSize, MessagingService messagingService, DiskFrameCache diskFrameCache) {
         this.memoryManager = memoryManager;
-        this.maximumSizeHint = maximumSize;
+        this.evictionPolicy = new SegmentedLruEvictionPolicy<>(maximumSize, PROTECTED_SEGMENT_RATIO);
         this.messagingService = messagingService;
+        this.diskFrameCache = diskFrameCache;
     }
 
     @PostConstruct
     public void init() {
         messagingService.register(MemoryPressureMessage.class, message -> {
-            doImmediateCleanup(0);
+            removeEvicted(evictionPolicy.evictUntil(0), false);
         });
-
-        new Thread(() -> {
-            try {
-                while (running) {
-                    ThreadSleep.sleep(1000);
-                    if (approximateSize >= maximumSizeHint * 0.8) {
-                        doImmediateCleanup((int) (maximumSizeHint * 0.5));
-                    } else {
-                        logger.debug("Mediacache is within size limits, fill ratio {}", (double) approximateSize / maximumSizeHint);
-                    }
-                }
-            } catch (Exception e) {
-                logger.warn("Error while cleaning mediacache", e);
-            }
-
-        }, "cache-cleaner-thread").start();
-
-    }
-
-    private void doImmediateCleanup(int size) {
-        TreeSet<CacheRemoveDomain> elements = new TreeSet<>(accessTimeOrderedList);
-        while (approximateSize >= size) {
-            if (elements.isEmpty()) {
-                logger.debug("ToRemove elements is empty");
-                break;
-            }
-            CacheRemoveDomain firstElement = elements.pollFirst();
-            //                            logger.debug("Trying to clean {}", firstElement);
-            if (firstElement != null) {
-                NavigableMap<Integer, MediaHashValue> line = backCache.get(firstElement.key);
-                if (line != null) {
-                    MediaHashValue removedElement = line.remove(firstElement.value.frameStart);
-                    if (removedElement != null) {
-                        for (var buffer : removedElement.frames) {
-                            returnBuffer(buffer);
-                        }
-                        logger.debug("Removed buffer {} {}, current buffer size: {}", firstElement.key, removedElement, approximateSize);
-                    }
-                }
-                accessTimeOrderedList.remove(firstElement);
-            }
-        }
-    }
-
-    @PreDestroy
-    public void destroy() {
-        running = false;
     }
 
     public void cacheMedia(String key, MediaHashValue value) {
@@ -109,28 +60,21 @@ public class MediaCache {
             clonedValue = cloneValue(value);
         } else {
             clonedValue = value;
-            int newCachedSize = value.frames
-                    .stream()
-                    .map(a -> a.capacity())
-                    .mapToInt(Integer::valueOf)
-                    .sum();
-            approximateSize += newCachedSize;
-        }
-        NavigableMap<Integer, MediaHashValue> cachedFrames = backCache.get(key);
-        if (cachedFrames == null) {
-            cachedFrames = new ConcurrentSkipListMap<>();
-            backCache.put(key, cachedFrames);
         }
+        clonedValue.cacheKey = key;
 
+        CachedChunks cachedChunks = backCache.computeIfAbsent(key, k -> new CachedChunks());
+        cachedChunks.longestChunk.accumulateAndGet(clonedValue.endIndex - clonedValue.frameStart, Math::max);
+        NavigableMap<Integer, MediaHashValue> cachedFrames = cachedChunks.chunks;
         MediaHashValue previousValue = cachedFrames.put(clonedValue.frameStart, clonedValue);
 
-        if (previousValue != null) {
-            previousValue.frames
-                    .stream()
-                    .forEach(f -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(f));
+        if (previousValue != null && previousValue != clonedValue) {
+            evictionPolicy.remove(previousValue);
+            releaseFrames(previousValue);
         }
+        removeChunksCoveredBy(cachedFrames, clonedValue);
 
-        accessTimeOrderedList.add(new CacheRemoveDomain(key, clonedValue));
+        evictionPolicy.add(clonedValue, clonedValue.getSizeInBytes());
 
         if (logger.isDebugEnabled()) {
             logger.debug("Following frames are cached {}", value.frames.stream()
@@ -138,13 +82,56 @@ public class MediaCache {
                     .collect(Collectors.toList()));
         }
 
-        logger.debug("{} added to cache, current buffer size: {}", clonedValue, approximateSize);
+        removeEvicted(evictionPolicy.evictOverBudget(), true);
+
+        logger.debug("{} added to cache, current buffer size: {}", clonedValue, evictionPolicy.getWeight());
+    }
+
+    // Chunks of different sizes can overlap, chunks completely inside the new chunk would never be found before it, so they are dropped
+    private void removeChunksCoveredBy(NavigableMap<Integer, MediaHashValue> cachedFrames, MediaHashValue value) {
+        for (var coveredValue : cachedFrames.subMap(value.frameStart, false, value.endIndex, false).values()) {
+            if (coveredValue.endIndex <= value.endIndex && cachedFrames.remove(coveredValue.frameStart, coveredValue)) {
+                evictionPolicy.remove(coveredValue);
+                releaseFrames(coveredValue);
+            }
+        }
+    }
+
+    // Under memory pressure the frames are needed right away, so they are not kept alive for the disk writer
+    private void removeEvicted(List<MediaHashValue> evictedValues, boolean storeOnDisk) {
+        for (var evicted : evictedValues) {
+            CachedChunks line = backCache.get(evicted.cacheKey);
+            if (line != null) {
+                line.chunks.remove(evicted.frameStart, evicted);
+            }
+            getStatisticsFor(evicted.cacheKey).recordEviction();
+            if (storeOnDisk && evicted.diskCacheKey != null && diskFrameCache.isEnabled()) {
+                storeOnDisk(evicted);
+            }
+            releaseFrames(evicted);
+        }
+        if (!evictedValues.isEmpty()) {
+            logger.debug("Evicted {} elements, current buffer size: {}", evictedValues.size(), evictionPolicy.getWeight());
+        }
+    }
+
+    private void storeOnDisk(MediaHashValue evicted) {
+        List<ByteBuffer> sharedFrames = new ArrayList<>(evicted.frameHandles.size());
+        for (var frameHandle : evicted.frameHandles) {
+            Optional<ByteBuffer> sharedFrame = frameHandle.acquireView();
+            if (sharedFrame.isEmpty()) {
+                memoryManager.returnBuffers(sharedFrames);
+                return;
+            }
+            sharedFrames.add(sharedFrame.get());
+        }
+        diskFrameCache.storeAsync(evicted.diskCacheKey, sharedFrames);
     }
 
     private MediaHashValue cloneValue(MediaHashValue value) {
         List<ByteBuffer> copied = new ArrayList<>(value.frames.size());
         for (ByteBuffer bufferToClone : value.frames) {
-            ByteBuffer result = requestBuffersForCloning(bufferToClone);
+            ByteBuffer result = memoryManager.requestUninitializedBuffer(bufferToClone.capacity());
             copyToResult(result, bufferToClone);
             copied.add(result);
         }
@@ -152,31 +139,29 @@ public class MediaCache {
         return new MediaHashValue(value.frameStart, value.endIndex, copied);
     }
 
-    private ByteBuffer requestBuffersForCloning(ByteBuffer bufferToClone) {
-        int requested = bufferToClone.capacity();
-        ByteBuffer result = memoryManager.requestBuffer(requested);
-        approximateSize += requested;
-        return result;
-    }
-
-    private void returnBuffer(ByteBuffer buffer) {
-        memoryManager.returnBuffer(buffer);
-        approximateSize -= buffer.capacity();
-        logger.debug("Returned " + System.identityHashCode(buffer) + " new size: " + approximateSize);
+    // Frames still used through a shared view are returned to the memory manager when the last view is returned
+    private void releaseFrames(MediaHashValue value) {
+        for (var frameHandle : value.frameHandles) {
+            frameHandle.release();
+        }
     }
 
     public Optional<MediaHashValue> findInCache(String key, int frame) {
-        NavigableMap<Integer, MediaHashValue> media = backCache.get(key);
+        CachedChunks media = backCache.get(key);
+        MediaCacheStatistics fileStatistics = getStatisticsFor(key);
         if (media == null) {
             logger.debug("NOT found " + key + " at frame " + frame);
+            fileStatistics.recordMiss();
             return Optional.empty();
         } else {
-            Optional<MediaHashValue> result = media // todo: avoid linear search
-                    .values()
-                    .stream()
-                    .filter(value -> frame >= value.frameStart && frame < value.endIndex)
-                    .findFirst();
-            result.ifPresent(value -> value.lastAccessed = System.currentTimeMillis());
+            Optional<MediaHashValue> result = findChunkContaining(media, frame);
+
+            if (result.isPresent()) {
+                evictionPolicy.recordAccess(result.get());
+                fileStatistics.recordHit();
+            } else {
+                fileStatistics.recordMiss();
+            }
 
             logger.debug("Found " + key + " at frame " + frame + " = " + result.isPresent());
 
@@ -184,95 +169,150 @@ public class MediaCache {
         }
     }
 
+    /**
+     * Same lookup as {@link #findInCache(String, int)}, but does not count as an access, used to decide what to read ahead.
+     */
+    public boolean isCached(String key, int frame) {
+        CachedChunks media = backCache.get(key);
+        if (media == null) {
+            return false;
+        }
+        return findChunkContaining(media, frame).isPresent();
+    }
+
+    /**
+     * @return true if every frame in [frameStart, frameEnd) is in one of the cached chunks, does not count as an access
+     */
+    public boolean isCached(String key, int frameStart, int frameEnd) {
+        CachedChunks media = backCache.get(key);
+        if (media == null) {
+            return false;
+        }
+        int frame = frameStart;
+        while (frame < frameEnd) {
+            Optional<MediaHashValue> chunk = findChunkContaining(media, frame);
+            if (chunk.isEmpty()) {
+                return false;
+            }
+            frame = chunk.get().endIndex;
+        }
+        return true;
+    }
+
+    // A chunk starting earlier may still contain the frame when a shorter chunk starts between them, so earlier chunks are checked until they are
+    // too far to reach the frame
+    private Optional<MediaHashValue> findChunkContaining(CachedChunks media, int frame) {
+        int lowestPossibleStart = frame - media.longestChunk.get();
+        Map.Entry<Integer, MediaHashValue> entry = media.chunks.floorEntry(frame);
+        while (entry != null && entry.getKey() >= lowestPossibleStart) {
+            if (frame < entry.getValue().endIndex) {
+                return Optional.of(entry.getValue());
+            }
+            entry = media.chunks.lowerEntry(entry.getKey());
+        }
+        return Optional.empty();
+    }
+
+    // Chunks of the key starting this far before a frame are checked when looking for it
+    int getLongestChunk(String key) {
+        CachedChunks media = backCache.get(key);
+        return media == null ? 0 : media.longestChunk.get();
+    }
+
+    public long getMaximumSize() {
+        return evictionPolicy.getMaximumWeight();
+    }
+
+    private MediaCacheStatistics getStatisticsFor(String key) {
+        return statistics.computeIfAbsent(key, k -> new MediaCacheStatistics());
+    }
+
+    public Map<String, MediaCacheStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    public long getCachedBytes() {
+        return evictionPolicy.getWeight();
+    }
+
+    // Longest chunk is tracked per key, audio chunks are measured in bytes, so they are far longer than the chunks of a video key
+    private static class CachedChunks {
+        private final NavigableMap<Integer, MediaHashValue> chunks = new ConcurrentSkipListMap<>();
+        private final AtomicInteger longestChunk = new AtomicInteger(0);
+    }
+
     public static class MediaHashValue implements Comparable<MediaHashValue> {
         public int frameStart;
         public int endIndex;
         public List<ByteBuffer> frames;
-        private volatile long lastAccessed = System.currentTimeMillis();
+        public DiskFrameCacheKey diskCacheKey;
+        private List<FrameHandle> frameHandles;
+        private String cacheKey;
 
         public MediaHashValue(int frameStart, int endIndex, List<ByteBuffer> frames) {
             this.frameStart = frameStart;
             this.endIndex = endIndex;
             this.frames = frames;
+            this.frameHandles = createHandles(frames);
         }
 
         public MediaHashValue(ByteBuffer singleFrame) {
             this.frameStart = 0;
             this.endIndex = 0;
             this.frames = List.of(singleFrame);
+            this.frameHandles = createHandles(frames);
         }
 
-        @Override
-        public int compareTo(MediaHashValue o) {
-            return Integer.valueOf(frameStart).compareTo(o.frameStart); // may not work correctly for variable length
-        }
-
-        @Override
-        public String toString() {
-            return "MediaHashValue [frameStart=" + frameStart + "]";
+        private static List<FrameHandle> createHandles(List<ByteBuffer> frames) {
+            return frames.stream()
+                    .map(FrameHandle::of)
+                    .collect(Collectors.toList());
         }
 
-    }
-
-    private void copyToResult(ByteBuffer copyTo, ByteBuffer elementToCopy) {
-        for (int i = 0; i < elementToCopy.capacity(); ++i) {
-            copyTo.put(i, elementToCopy.get(i));
+        /**
+         * Shares the frame at the given index without copying it. The returned view must be returned to the memory manager.
+         * Acquire the frame before passing this value to the cache, after that it may be evicted any time.
+         * @return read-only view of the frame or empty if the frame is already evicted
+         */
+        public Optional<ByteBuffer> acquireSharedFrame(int index) {
+            return frameHandles.get(index).acquireView();
         }
-    }
 
-    public static class CacheRemoveDomain implements Comparable<CacheRemoveDomain> {
-        private String key;
-        private MediaHashValue value;
-
-        public CacheRemoveDomain(String key, MediaHashValue value) {
-            this.key = key;
-            this.value = value;
+        long getSizeInBytes() {
+            long result = 0;
+            for (var frame : frames) {
+                result += frame.capacity();
+            }
+            return result;
         }
 
         @Override
-        public int compareTo(final CacheRemoveDomain other) {
-            return Long.compare(value.lastAccessed, other.value.lastAccessed);
+        public int compareTo(MediaHashValue o) {
+            return Integer.valueOf(frameStart).compareTo(o.frameStart); // may not work correctly for variable length
         }
 
         @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((key == null) ? 0 : key.hashCode());
-            return result;
+        public String toString() {
+            return "MediaHashValue [frameStart=" + frameStart + "]";
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            CacheRemoveDomain other = (CacheRemoveDomain) obj;
-            if (key == null) {
-                if (other.key != null)
-                    return false;
-            } else if (!key.equals(other.key))
-                return false;
-            return true;
-        }
+    }
 
+    private void copyToResult(ByteBuffer copyTo, ByteBuffer elementToCopy) {
+        ByteBuffer source = elementToCopy.duplicate();
+        source.clear();
+        copyTo.clear();
+        copyTo.put(source);
+        copyTo.clear();
     }
 
     public void dropCaches() {
         logger.debug("Drop all media caches");
 
-        Map<String, NavigableMap<Integer, MediaHashValue>> copiedElements = new HashMap<>(backCache);
+        List<MediaHashValue> removedValues = evictionPolicy.removeAll();
         backCache.clear();
-        accessTimeOrderedList.clear();
-        for (var cachedEntry : copiedElements.entrySet()) {
-            for (var cachedFrameSequence : cachedEntry.getValue().entrySet()) {
-                for (var frame : cachedFrameSequence.getValue().frames) {
-                    returnBuffer(frame);
-                }
-            }
+        for (var removedValue : removedValues) {
+            releaseFrames(removedValue);
         }
     }
 
@@ -2,17 +2,12 @@ package com.helospark.tactview.core.decoder.framecache;
 
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -22,6 +17,7 @@ import org.slf4j.Logger;
 
 import com.helospark.lightdi.annotation.Component;
 import com.helospark.lightdi.annotation.Value;
+import com.helospark.tactview.core.timeline.image.FrameHandle;
 import com.helospark.tactview.core.util.DebugImageRenderer;
 import com.helospark.tactview.core.util.ThreadSleep;
 import com.helospark.tactview.core.util.logger.Slf4j;
@@ -31,7 +27,10 @@ import sun.misc.Unsafe;
 
 @Component
 public class MemoryManagerImpl implements MemoryManager {
-    private Map<Integer, BufferInformation> freeBuffersMap = new ConcurrentHashMap<>();
+    private static final int SLAB_SIZE = 64 * 1024 * 1024;
+    private static final ByteBuffer ZEROES = ByteBuffer.allocateDirect(1024 * 1024).asReadOnlyBuffer();
+
+    private final SlabAllocator slabAllocator;
     private Map<ByteBuffer, String> debugTrace = Collections.synchronizedMap(new IdentityHashMap<>());
     private Long maximumSizeHint;
     @Slf4j
@@ -42,7 +41,6 @@ public class MemoryManagerImpl implements MemoryManager {
 
     private Unsafe unsafe;
 
-    private AtomicLong currentSize = new AtomicLong(0);
     private boolean running = true;
 
     private boolean firstOutOfMemoryError = true;
@@ -52,6 +50,7 @@ public class MemoryManagerImpl implements MemoryManager {
         this.unsafe = getUnsafe();
         this.debug = debug;
         this.messagingService = messagingService;
+        this.slabAllocator = new SlabAllocator(SLAB_SIZE, this::allocateArena, this::removeBuffer);
     }
 
     @PostConstruct
@@ -63,7 +62,7 @@ public class MemoryManagerImpl implements MemoryManager {
 
                     cleanupOfOldBuffers(120000L);
 
-                    if (currentSize.get() >= maximumSizeHint * 0.8) {
+                    if (slabAllocator.getReservedBytes() >= maximumSizeHint * 0.8) {
                         doForcefulCleanup(maximumSizeHint * 0.6);
                     }
                 } catch (Exception e) {
@@ -74,56 +73,52 @@ public class MemoryManagerImpl implements MemoryManager {
     }
 
     private void doForcefulCleanup(double target) {
-        // step1 clean buffers not accessed in the last 2 secs
-        if (currentSize.get() > target) {
-            cleanupOfOldBuffers(10000);
+        long now = System.currentTimeMillis();
+        // step1 clean slabs not requested in the last 10 secs
+        if (slabAllocator.getReservedBytes() > target) {
+            slabAllocator.releaseFreeSlabs(now - 10000L, Integer.MAX_VALUE);
         }
-        // step2 clean 50% of buffers that have not needed an increase in size in 10 secs
-        if (currentSize.get() > target) {
-            clearPartOfBuffersThatNotNeededAnUpdate(10000L, 0.5);
+        // step2 clean 50% of free slabs that have not needed an increase in size in 10 secs
+        if (slabAllocator.getReservedBytes() > target) {
+            slabAllocator.releasePartOfFreeSlabs(now - 10000L, 0.5);
         }
-        // step3 clean 70% of buffers that have not needed an increase in size in 2 secs
-        if (currentSize.get() > target) {
-            clearPartOfBuffersThatNotNeededAnUpdate(2000L, 0.7);
+        // step3 clean 70% of free slabs that have not needed an increase in size in 2 secs
+        if (slabAllocator.getReservedBytes() > target) {
+            slabAllocator.releasePartOfFreeSlabs(now - 2000L, 0.7);
         }
+        logger.debug("Forceful cleanup finished {}", slabAllocator.getStatistics());
         // step4: profit???
     }
 
-    private void clearPartOfBuffersThatNotNeededAnUpdate(long time, double percent) {
-        long now = System.currentTimeMillis();
-        freeBuffersMap.values()
-                .stream()
-                .filter(a -> now - a.lastNeededAnUpdate > time)
-                .forEach(a -> {
-                    int approximateSize = a.buffers.size();
-                    int i = 0;
-                    ByteBuffer buffer;
-                    while (i <= approximateSize * percent && (buffer = a.buffers.poll()) != null) {
-                        removeBuffer(buffer);
-                    }
-                });
+    private void cleanupOfOldBuffers(long oldThreashold) {
+        slabAllocator.releaseFreeSlabs(System.currentTimeMillis() - oldThreashold, 10);
     }
 
-    private void cleanupOfOldBuffers(long oldThreashold) {
-        long now = System.currentTimeMillis();
-        freeBuffersMap.values()
-                .stream()
-                .filter(e -> now - e.lastRequestedAccessed > oldThreashold)
-                .forEach(e -> {
-                    ByteBuffer buffer;
-
-                    int counter = 0;
-                    while (counter < 10 && (buffer = e.buffers.poll()) != null) {
-                        removeBuffer(buffer);
-                        ++counter;
-                    }
-                });
+    private ByteBuffer allocateArena(int bytes) {
+        ByteBuffer resultBuffer;
+        try {
+            resultBuffer = ByteBuffer.allocateDirect(bytes);
+        } catch (OutOfMemoryError e) {
+            logger.warn("No more memory left, trying to free some", e);
+            messagingService.sendMessage(new MemoryPressureMessage());
+            doForcefulCleanup(maximumSizeHint * 0.3);
+            try {
+                resultBuffer = ByteBuffer.allocateDirect(bytes);
+            } catch (OutOfMemoryError e2) {
+                if (firstOutOfMemoryError) {
+                    DebugImageRenderer.writeToString(debugTrace);
+                    firstOutOfMemoryError = false;
+                }
+                throw e2;
+            }
+        }
+        logger.debug("Slab allocated with size {} current size {}", bytes, slabAllocator.getReservedBytes() + bytes);
+        return resultBuffer;
     }
 
     private void removeBuffer(ByteBuffer buffer) {
         int capacity = buffer.capacity();
-        currentSize.addAndGet(-capacity);
-        logger.debug("Buffer removed with size {} current size {}", capacity, currentSize.get());
+        logger.debug("Slab removed with size {} current size {}", capacity, slabAllocator.getReservedBytes());
         try {
             unsafe.invokeCleaner(buffer);
         } catch (Throwable t) {
@@ -160,43 +155,27 @@ public class MemoryManagerImpl implements MemoryManager {
 
     @Override
     public List<ByteBuffer> requestBuffers(Integer bytes, int count) {
+        return requestBuffersInternal(bytes, count, true);
+    }
+
+    @Override
+    public ByteBuffer requestUninitializedBuffer(Integer bytes) {
+        return requestBuffersInternal(bytes, 1, false).get(0);
+    }
+
+    @Override
+    public List<ByteBuffer> requestUninitializedBuffers(Integer bytes, int count) {
+        return requestBuffersInternal(bytes, count, false);
+    }
+
+    private List<ByteBuffer> requestBuffersInternal(Integer bytes, int count, boolean cleared) {
         List<ByteBuffer> result = new ArrayList<>(count);
-        BufferInformation freeBuffers = freeBuffersMap.get(bytes);
-        if (freeBuffers == null) {
-            freeBuffers = new BufferInformation(new ConcurrentLinkedQueue<>());
-            freeBuffersMap.put(bytes, freeBuffers);
-        }
-        freeBuffers.lastRequestedAccessed = System.currentTimeMillis();
-        ByteBuffer element;
-        while (result.size() < count && (element = freeBuffers.buffers.poll()) != null) {
-            result.add(element);
-        }
-        int remainingElements = count - result.size();
-        if (remainingElements > 0) {
-            freeBuffers.lastNeededAnUpdate = System.currentTimeMillis();
-        }
-        for (int i = 0; i < remainingElements; ++i) {
-            currentSize.addAndGet(bytes);
-            ByteBuffer resultBuffer;
-            try {
-                resultBuffer = ByteBuffer.allocateDirect(bytes);
-            } catch (OutOfMemoryError e) {
-                logger.warn("No more memory left, trying to free some", e);
-                messagingService.sendMessage(new MemoryPressureMessage());
-                doForcefulCleanup(maximumSizeHint * 0.3);
-                try {
-                    resultBuffer = ByteBuffer.allocateDirect(bytes);
-                } catch (OutOfMemoryError e2) {
-                    if (firstOutOfMemoryError) {
-                        DebugImageRenderer.writeToString(debugTrace);
-                        firstOutOfMemoryError = false;
-                    }
-                    throw e2;
-                }
+        for (int i = 0; i < count; ++i) {
+            ByteBuffer resultBuffer = slabAllocator.allocate(bytes);
+            if (cleared) {
+                clearBuffer(resultBuffer);
             }
-            resultBuffer.order(ByteOrder.nativeOrder());
             result.add(resultBuffer);
-            logger.debug("{} {} buffer requested, from this {} was server from free buffer map, rest are newly allocated", count, bytes, result.size());
         }
 
         if (debug) {
@@ -205,7 +184,7 @@ public class MemoryManagerImpl implements MemoryManager {
             }
         }
         if (logger.isDebugEnabled()) {
-            logger.debug("Requested buffers are: {}", bufferDebugString(result));
+            logger.debug("Requested {} buffers with size {} are: {}", count, bytes, bufferDebugString(result));
         }
 
         return result;
@@ -225,67 +204,40 @@ public class MemoryManagerImpl implements MemoryManager {
     @Override
     public void returnBuffers(List<ByteBuffer> buffers) {
         for (ByteBuffer buffer : buffers) {
-            clearBuffer(buffer);
-            freeBuffersMap.compute(buffer.capacity(), (k, value) -> {
-                if (value == null) {
-                    value = new BufferInformation(new ConcurrentLinkedQueue<>());
-                }
-                value.buffers.offer(buffer);
-                if (debug) {
-                    debugTrace.remove(buffer);
-                }
+            if (FrameHandle.releaseView(buffer)) {
+                continue;
+            }
+            if (debug) {
+                debugTrace.remove(buffer);
+            }
+            if (slabAllocator.free(buffer)) {
                 logger.debug("id={} {} returned", System.identityHashCode(buffer), buffer.capacity());
-                return value;
-            });
+            } else if (debug) {
+                logger.warn("Buffer id={} {} is either returned twice or not allocated by the memory manager", System.identityHashCode(buffer), buffer.capacity());
+            } else {
+                logger.debug("Buffer id={} {} is not known, it was returned twice, is a view of an allocated buffer or not allocated here", System.identityHashCode(buffer),
+                        buffer.capacity());
+            }
         }
     }
 
     @Override
     public void dropAllBuffers() {
-        freeBuffersMap.values()
-                .stream()
-                .forEach(e -> {
-                    ByteBuffer buffer;
-
-                    while ((buffer = e.buffers.poll()) != null) {
-                        removeBuffer(buffer);
-                    }
-                });
+        slabAllocator.releaseAllFreeSlabs();
     }
 
-    private void clearBuffer(ByteBuffer buffer) {
-        //        try {
-        //            // is it actually faster? TODO measure
-        //            long address = (long) buffer.getClass().getMethod("address").invoke(buffer); //damn module system
-        //            unsafe.setMemory(address, buffer.capacity(), (byte) 0);
-        //        } catch (Throwable e) {
-        //        logger.warn("Unable to clear bytebuffer the efficient way", e);
-        //        buffer.position(0);
-        for (int i = 0; i < buffer.capacity(); ++i) {
-            buffer.put(i, (byte) 0);
-        }
-        //        }
+    public SlabAllocatorStatistics getStatistics() {
+        return slabAllocator.getStatistics();
     }
 
-    static class BufferInformation implements Comparable<BufferInformation> {
-        public Queue<ByteBuffer> buffers;
-        public volatile long lastRequestedAccessed = System.currentTimeMillis();
-        public volatile long lastNeededAnUpdate = System.currentTimeMillis();
-
-        public BufferInformation(Queue<ByteBuffer> buffers) {
-            this.buffers = buffers;
-        }
-
-        @Override
-        public int compareTo(BufferInformation o) {
-            return Long.compare(lastNeededAnUpdate, o.lastNeededAnUpdate);
-        }
-
-        @Override
-        public String toString() {
-            return "BufferInformation [buffers=" + buffers + ", lastRequestedAccessed=" + lastRequestedAccessed + ", lastNeededAnUpdate=" + lastNeededAnUpdate + "]";
+    private void clearBuffer(ByteBuffer buffer) {
+        ByteBuffer target = buffer.duplicate();
+        target.clear();
+        while (target.hasRemaining()) {
+            ByteBuffer zeroes = ZEROES.duplicate();
+            zeroes.limit(Math.min(zeroes.capacity(), target.remaining()));
+            target.put(zeroes);
         }
-
     }
 
 }
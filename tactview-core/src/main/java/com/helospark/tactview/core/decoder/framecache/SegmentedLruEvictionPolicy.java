@@ -0,0 +1,128 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte weighted segmented LRU.
+ * <p>
+ * New entries go to the probation segment, entries hit again are promoted to the protected segment. Eviction takes the least recently used
+ * probation entries first, so a single pass over a long source (export, scrubbing) does not flush the frames that are used repeatedly.
+ * When the protected segment grows over its share of the budget, its least recently used entries are demoted back to probation.
+ * All operations are O(1) per touched entry.
+ */
+public class SegmentedLruEvictionPolicy<K> {
+    private final LinkedHashMap<K, Long> probationSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Long> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maximumWeight;
+    private final long maximumProtectedWeight;
+
+    private long probationWeight = 0;
+    private long protectedWeight = 0;
+
+    public SegmentedLruEvictionPolicy(long maximumWeight, double protectedRatio) {
+        this.maximumWeight = maximumWeight;
+        this.maximumProtectedWeight = (long) (maximumWeight * protectedRatio);
+    }
+
+    public synchronized void add(K key, long weight) {
+        remove(key);
+        probationSegment.put(key, weight);
+        probationWeight += weight;
+    }
+
+    public synchronized void recordAccess(K key) {
+        Long probationEntryWeight = probationSegment.remove(key);
+        if (probationEntryWeight != null) {
+            probationWeight -= probationEntryWeight;
+            protectedSegment.put(key, probationEntryWeight);
+            protectedWeight += probationEntryWeight;
+            demoteOverflowingProtectedEntries();
+        } else {
+            protectedSegment.get(key); // moves to most recently used
+        }
+    }
+
+    private void demoteOverflowingProtectedEntries() {
+        Iterator<Map.Entry<K, Long>> iterator = protectedSegment.entrySet().iterator();
+        while (protectedWeight > maximumProtectedWeight && protectedSegment.size() > 1) {
+            Map.Entry<K, Long> leastRecentlyUsed = iterator.next();
+            iterator.remove();
+            protectedWeight -= leastRecentlyUsed.getValue();
+            probationSegment.put(leastRecentlyUsed.getKey(), leastRecentlyUsed.getValue());
+            probationWeight += leastRecentlyUsed.getValue();
+        }
+    }
+
+    public synchronized boolean remove(K key) {
+        Long weight = probationSegment.remove(key);
+        if (weight != null) {
+            probationWeight -= weight;
+            return true;
+        }
+        weight = protectedSegment.remove(key);
+        if (weight != null) {
+            protectedWeight -= weight;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean contains(K key) {
+        return probationSegment.containsKey(key) || protectedSegment.containsKey(key);
+    }
+
+    public List<K> evictOverBudget() {
+        return evictUntil(maximumWeight);
+    }
+
+    /**
+     * @return entries removed from the policy, the caller is responsible to release them
+     */
+    public synchronized List<K> evictUntil(long targetWeight) {
+        List<K> result = new ArrayList<>();
+        evictFrom(probationSegment, targetWeight, result);
+        evictFrom(protectedSegment, targetWeight, result);
+        return result;
+    }
+
+    private void evictFrom(LinkedHashMap<K, Long> segment, long targetWeight, List<K> result) {
+        Iterator<Map.Entry<K, Long>> iterator = segment.entrySet().iterator();
+        while (getWeight() > targetWeight && iterator.hasNext()) {
+            Map.Entry<K, Long> leastRecentlyUsed = iterator.next();
+            iterator.remove();
+            if (segment == probationSegment) {
+                probationWeight -= leastRecentlyUsed.getValue();
+            } else {
+                protectedWeight -= leastRecentlyUsed.getValue();
+            }
+            result.add(leastRecentlyUsed.getKey());
+        }
+    }
+
+    public synchronized List<K> removeAll() {
+        List<K> result = new ArrayList<>(probationSegment.keySet());
+        result.addAll(protectedSegment.keySet());
+        probationSegment.clear();
+        protectedSegment.clear();
+        probationWeight = 0;
+        protectedWeight = 0;
+        return result;
+    }
+
+    public synchronized long getWeight() {
+        return probationWeight + protectedWeight;
+    }
+
+    public synchronized long getProtectedWeight() {
+        return protectedWeight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+}
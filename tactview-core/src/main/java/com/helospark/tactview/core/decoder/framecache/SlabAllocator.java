@@ -0,0 +1,295 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Allocates direct buffers from large arenas (slabs) divided into blocks of a fixed size class.
+ * <p>
+ * Requests are rounded up to size classes of 2^n, 1.25*2^n, 1.5*2^n and 1.75*2^n bytes, so frames of slightly different sizes (odd crops, resolution changes)
+ * share the same free blocks. Returned buffers are exact sized views of a block, so {@link ByteBuffer#capacity()} is always the requested size.
+ * A slab holds at most {@value #MAX_BLOCKS_PER_SLAB} blocks, so small size classes reserve small slabs instead of a full slab size each.
+ * A slab is released only when all of its blocks are free.
+ */
+public class SlabAllocator {
+    static final int BLOCK_ALIGNMENT = 64;
+    static final int MIN_BLOCK_SIZE = 256;
+    static final int MAX_BLOCKS_PER_SLAB = 32;
+
+    private final int slabSize;
+    private final IntFunction<ByteBuffer> arenaAllocator;
+    private final Consumer<ByteBuffer> arenaReleaser;
+
+    private final Map<Integer, SizeClass> sizeClasses = new ConcurrentSkipListMap<>();
+    private final Map<BufferIdentity, Block> blocksInUse = new ConcurrentHashMap<>();
+
+    private final AtomicLong reservedBytes = new AtomicLong(0);
+    private final AtomicLong requestedBytesInUse = new AtomicLong(0);
+
+    public SlabAllocator(int slabSize, IntFunction<ByteBuffer> arenaAllocator, Consumer<ByteBuffer> arenaReleaser) {
+        this.slabSize = slabSize;
+        this.arenaAllocator = arenaAllocator;
+        this.arenaReleaser = arenaReleaser;
+    }
+
+    public static int sizeClassFor(int bytes) {
+        if (bytes <= MIN_BLOCK_SIZE) {
+            return MIN_BLOCK_SIZE;
+        }
+        int highestPowerOfTwo = Integer.highestOneBit(bytes);
+        int quarter = highestPowerOfTwo >>> 2;
+        long result = highestPowerOfTwo;
+        while (result < bytes) {
+            result += quarter;
+        }
+        result = ((result + BLOCK_ALIGNMENT - 1) / BLOCK_ALIGNMENT) * BLOCK_ALIGNMENT;
+        if (result > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot allocate " + bytes + " bytes");
+        }
+        return (int) result;
+    }
+
+    /**
+     * @return buffer of exactly the requested size, a new slab is allocated if the size class has no free block
+     */
+    public ByteBuffer allocate(int bytes) {
+        SizeClass sizeClass = sizeClasses.computeIfAbsent(sizeClassFor(bytes), SizeClass::new);
+        sizeClass.lastRequested = System.currentTimeMillis();
+
+        Block block = sizeClass.takeFreeBlock();
+        if (block == null) {
+            sizeClass.lastNeededNewSlab = System.currentTimeMillis();
+            Slab slab = createSlab(sizeClass);
+            block = sizeClass.addSlabAndTakeBlock(slab);
+        }
+
+        ByteBuffer view = block.createView(bytes);
+        block.requestedBytes = bytes;
+        requestedBytesInUse.addAndGet(bytes);
+        blocksInUse.put(new BufferIdentity(view), block);
+        return view;
+    }
+
+    private Slab createSlab(SizeClass sizeClass) {
+        int blockSize = sizeClass.blockSize;
+        int blocksPerSlab = Math.max(1, Math.min(MAX_BLOCKS_PER_SLAB, slabSize / blockSize));
+        int arenaSize = blocksPerSlab * blockSize;
+        ByteBuffer arena = arenaAllocator.apply(arenaSize);
+        reservedBytes.addAndGet(arenaSize);
+        return new Slab(arena, blockSize, blocksPerSlab);
+    }
+
+    /**
+     * Only the buffer returned by {@link #allocate(int)} can be freed, views created from it with {@link ByteBuffer#slice()} or
+     * {@link ByteBuffer#duplicate()} are not known by the allocator, freeing them returns false and the block stays in use.
+     * @return true if the buffer was allocated by this allocator and it is now free
+     */
+    public boolean free(ByteBuffer buffer) {
+        Block block = blocksInUse.remove(new BufferIdentity(buffer));
+        if (block == null) {
+            return false;
+        }
+        requestedBytesInUse.addAndGet(-block.requestedBytes);
+        sizeClasses.get(block.slab.blockSize).returnBlock(block);
+        return true;
+    }
+
+    public boolean isAllocatedHere(ByteBuffer buffer) {
+        return blocksInUse.containsKey(new BufferIdentity(buffer));
+    }
+
+    /**
+     * Releases slabs where all blocks are free and the size class was not requested since the given time.
+     * @return number of released bytes
+     */
+    public long releaseFreeSlabs(long notRequestedSince, int maximumSlabsPerSizeClass) {
+        long releasedBytes = 0;
+        for (var sizeClass : sizeClasses.values()) {
+            if (sizeClass.lastRequested <= notRequestedSince) {
+                for (var slab : sizeClass.removeFreeSlabs(maximumSlabsPerSizeClass)) {
+                    releasedBytes += releaseSlab(slab);
+                }
+            }
+        }
+        return releasedBytes;
+    }
+
+    /**
+     * Releases a part of the free slabs of the size classes that did not need a new slab since the given time.
+     * @return number of released bytes
+     */
+    public long releasePartOfFreeSlabs(long noNewSlabSince, double percent) {
+        long releasedBytes = 0;
+        for (var sizeClass : sizeClasses.values()) {
+            if (sizeClass.lastNeededNewSlab <= noNewSlabSince) {
+                int slabsToRelease = (int) Math.ceil(sizeClass.numberOfFreeSlabs() * percent);
+                for (var slab : sizeClass.removeFreeSlabs(slabsToRelease)) {
+                    releasedBytes += releaseSlab(slab);
+                }
+            }
+        }
+        return releasedBytes;
+    }
+
+    public long releaseAllFreeSlabs() {
+        return releaseFreeSlabs(Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private long releaseSlab(Slab slab) {
+        int capacity = slab.arena.capacity();
+        reservedBytes.addAndGet(-capacity);
+        arenaReleaser.accept(slab.arena);
+        return capacity;
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    public SlabAllocatorStatistics getStatistics() {
+        long blockBytesInUse = 0;
+        long freeBytesInReleasableSlabs = 0;
+        long freeBytesInPartiallyUsedSlabs = 0;
+        int numberOfSlabs = 0;
+        for (var sizeClass : sizeClasses.values()) {
+            synchronized (sizeClass) {
+                for (var slab : sizeClass.slabs) {
+                    ++numberOfSlabs;
+                    long freeBytes = (long) slab.freeBlocks.size() * slab.blockSize;
+                    blockBytesInUse += (long) (slab.blockCount - slab.freeBlocks.size()) * slab.blockSize;
+                    if (slab.isFree()) {
+                        freeBytesInReleasableSlabs += freeBytes;
+                    } else {
+                        freeBytesInPartiallyUsedSlabs += freeBytes;
+                    }
+                }
+            }
+        }
+        return new SlabAllocatorStatistics(reservedBytes.get(), blockBytesInUse, requestedBytesInUse.get(), freeBytesInReleasableSlabs, freeBytesInPartiallyUsedSlabs,
+                numberOfSlabs, sizeClasses.size());
+    }
+
+    static class SizeClass {
+        private final int blockSize;
+        private final List<Slab> slabs = new ArrayList<>();
+        private volatile long lastRequested = System.currentTimeMillis();
+        private volatile long lastNeededNewSlab = System.currentTimeMillis();
+
+        public SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        // Older slabs are filled first, so newer slabs are more likely to become fully free and releasable
+        synchronized Block takeFreeBlock() {
+            for (var slab : slabs) {
+                Block block = slab.freeBlocks.pollFirst();
+                if (block != null) {
+                    return block;
+                }
+            }
+            return null;
+        }
+
+        synchronized Block addSlabAndTakeBlock(Slab slab) {
+            slabs.add(slab);
+            return slab.freeBlocks.pollFirst();
+        }
+
+        synchronized void returnBlock(Block block) {
+            block.slab.freeBlocks.addFirst(block);
+        }
+
+        synchronized int numberOfFreeSlabs() {
+            int result = 0;
+            for (var slab : slabs) {
+                if (slab.isFree()) {
+                    ++result;
+                }
+            }
+            return result;
+        }
+
+        synchronized List<Slab> removeFreeSlabs(int maximumNumberOfSlabs) {
+            List<Slab> result = new ArrayList<>();
+            // newest slabs first
+            for (int i = slabs.size() - 1; i >= 0 && result.size() < maximumNumberOfSlabs; --i) {
+                if (slabs.get(i).isFree()) {
+                    result.add(slabs.remove(i));
+                }
+            }
+            return result;
+        }
+    }
+
+    static class Slab {
+        private final ByteBuffer arena;
+        private final int blockSize;
+        private final int blockCount;
+        private final Deque<Block> freeBlocks = new ArrayDeque<>();
+
+        public Slab(ByteBuffer arena, int blockSize, int blockCount) {
+            this.arena = arena;
+            this.blockSize = blockSize;
+            this.blockCount = blockCount;
+            for (int i = 0; i < blockCount; ++i) {
+                freeBlocks.add(new Block(this, i * blockSize));
+            }
+        }
+
+        boolean isFree() {
+            return freeBlocks.size() == blockCount;
+        }
+    }
+
+    static class Block {
+        private final Slab slab;
+        private final int offset;
+        private int requestedBytes;
+
+        public Block(Slab slab, int offset) {
+            this.slab = slab;
+            this.offset = offset;
+        }
+
+        ByteBuffer createView(int bytes) {
+            ByteBuffer duplicate = slab.arena.duplicate();
+            duplicate.position(offset);
+            duplicate.limit(offset + bytes);
+            ByteBuffer result = duplicate.slice();
+            result.order(ByteOrder.nativeOrder());
+            return result;
+        }
+    }
+
+    /**
+     * ByteBuffer's equals and hashCode depend on the content, blocks in use are looked up by the identity of the returned view.
+     */
+    static class BufferIdentity {
+        private final ByteBuffer buffer;
+
+        public BufferIdentity(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BufferIdentity && ((BufferIdentity) other).buffer == buffer;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(buffer);
+        }
+    }
+
+}
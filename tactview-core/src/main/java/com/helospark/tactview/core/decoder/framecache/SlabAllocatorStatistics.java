@@ -0,0 +1,72 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+public class SlabAllocatorStatistics {
+    private final long reservedBytes;
+    private final long blockBytesInUse;
+    private final long requestedBytesInUse;
+    private final long freeBytesInReleasableSlabs;
+    private final long freeBytesInPartiallyUsedSlabs;
+    private final int numberOfSlabs;
+    private final int numberOfSizeClasses;
+
+    public SlabAllocatorStatistics(long reservedBytes, long blockBytesInUse, long requestedBytesInUse, long freeBytesInReleasableSlabs, long freeBytesInPartiallyUsedSlabs,
+            int numberOfSlabs, int numberOfSizeClasses) {
+        this.reservedBytes = reservedBytes;
+        this.blockBytesInUse = blockBytesInUse;
+        this.requestedBytesInUse = requestedBytesInUse;
+        this.freeBytesInReleasableSlabs = freeBytesInReleasableSlabs;
+        this.freeBytesInPartiallyUsedSlabs = freeBytesInPartiallyUsedSlabs;
+        this.numberOfSlabs = numberOfSlabs;
+        this.numberOfSizeClasses = numberOfSizeClasses;
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public long getBlockBytesInUse() {
+        return blockBytesInUse;
+    }
+
+    public long getRequestedBytesInUse() {
+        return requestedBytesInUse;
+    }
+
+    public long getFreeBytesInReleasableSlabs() {
+        return freeBytesInReleasableSlabs;
+    }
+
+    public long getFreeBytesInPartiallyUsedSlabs() {
+        return freeBytesInPartiallyUsedSlabs;
+    }
+
+    public int getNumberOfSlabs() {
+        return numberOfSlabs;
+    }
+
+    public int getNumberOfSizeClasses() {
+        return numberOfSizeClasses;
+    }
+
+    /**
+     * @return ratio of bytes lost by rounding up to size classes in the used blocks
+     */
+    public double getInternalFragmentation() {
+        return blockBytesInUse == 0 ? 0.0 : (double) (blockBytesInUse - requestedBytesInUse) / blockBytesInUse;
+    }
+
+    /**
+     * @return ratio of reserved bytes that are free, but cannot be released, because other blocks of their slab are in use
+     */
+    public double getExternalFragmentation() {
+        return reservedBytes == 0 ? 0.0 : (double) freeBytesInPartiallyUsedSlabs / reservedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SlabAllocatorStatistics [reservedBytes=" + reservedBytes + ", blockBytesInUse=" + blockBytesInUse + ", requestedBytesInUse=" + requestedBytesInUse
+                + ", freeBytesInReleasableSlabs=" + freeBytesInReleasableSlabs + ", freeBytesInPartiallyUsedSlabs=" + freeBytesInPartiallyUsedSlabs + ", numberOfSlabs=" + numberOfSlabs
+                + ", numberOfSizeClasses=" + numberOfSizeClasses + ", internalFragmentation=" + getInternalFragmentation() + ", externalFragmentation=" + getExternalFragmentation() + "]";
+    }
+
+}
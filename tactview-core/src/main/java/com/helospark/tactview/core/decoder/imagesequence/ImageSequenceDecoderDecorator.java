@@ -40,8 +40,10 @@ public class ImageSequenceDecoderDecorator implements VisualMediaDecoder {
 
         Optional<MediaHashValue> foundElement = mediaCache.findInCache(createCacheKey(request), startFrame);
 
-        if (foundElement.isPresent()) {
-            return copyOf(foundElement.get());
+        Optional<ByteBuffer> sharedFrame = foundElement.flatMap(value -> value.acquireSharedFrame(0));
+
+        if (sharedFrame.isPresent()) {
+            return new MediaDataResponse(sharedFrame.get());
         } else {
             return loadAndCacheFrame(request, startFrame);
         }
@@ -62,9 +64,11 @@ public class ImageSequenceDecoderDecorator implements VisualMediaDecoder {
             imageRequest.data = memoryManager.requestBuffer(imageRequest.width * imageRequest.height * 4);
             ByteBuffer data = readImageFromFile(imageRequest);
 
-            mediaCache.cacheMedia(createCacheKey(request), new MediaHashValue(frame, frame + 1, List.of(data)));
+            MediaHashValue value = new MediaHashValue(frame, frame + 1, List.of(data));
+            ByteBuffer result = value.acquireSharedFrame(0).get();
+            mediaCache.cacheMedia(createCacheKey(request), value, false);
 
-            return new MediaDataResponse(data);
+            return new MediaDataResponse(result);
         } else {
             ByteBuffer emptyBuffer = memoryManager.requestBuffer(request.getWidth() * request.getHeight() * 4);
             return new MediaDataResponse(emptyBuffer);
@@ -100,15 +104,6 @@ public class ImageSequenceDecoderDecorator implements VisualMediaDecoder {
         return Optional.empty();
     }
 
-    private MediaDataResponse copyOf(MediaHashValue mediaHashValue) {
-        ByteBuffer frame = mediaHashValue.frames.get(0);
-        ByteBuffer result = memoryManager.requestBuffer(frame.capacity());
-        for (int i = 0; i < frame.capacity(); ++i) {
-            result.put(i, frame.get(i));
-        }
-        return new MediaDataResponse(List.of(result));
-    }
-
     private String createCacheKey(VideoMediaDataRequest request) {
         return request.getFilePath() + "_" + request.getWidth() + "_" + request.getHeight();
     }
@@ -1,26 +0,0 @@
-package com.helospark.tactview.core.decoder.opencv;
-
-import com.helospark.lightdi.annotation.Component;
-
-@Component
-public class Lz4ImageMediaLoader { // implements IImageMediaLoader {
-    //    private LZ4FastDecompressor decompressor;
-    //    private MemoryManager memoryManager;
-    //
-    //    public Lz4ImageMediaLoader(MemoryManager memoryManager) {
-    //        this.memoryManager = memoryManager;
-    //
-    //        LZ4Factory factory = LZ4Factory.fastestInstance();
-    //        decompressor = factory.fastDecompressor();
-    //    }
-    //
-    //    @Override
-    //    public void readImage(ImageRequest request) {
-    //        byte[] file = Files.readAllBytes(new File(request.path).toPath());
-    //
-    //        memoryManager.requestBuffer(null);
-    //        
-    //        //        request.path;
-    //    }
-
-}
@@ -51,35 +51,25 @@ public class OpenCvImageDecorderDecorator implements VisualMediaDecoder {
         String cacheKey = request.getFile().getAbsolutePath() + " " + request.getWidth() + " " + request.getHeight();
         Optional<MediaHashValue> result = mediaCache.findInCache(cacheKey, 0);
 
-        ByteBuffer image;
-        if (result.isPresent()) {
-            image = result.get().frames.get(0);
-        } else {
-            ImageRequest imageRequest = new ImageRequest();
-
-            imageRequest.data = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(request.getWidth() * request.getHeight() * 4);
-            imageRequest.width = request.getWidth();
-            imageRequest.height = request.getHeight();
-            imageRequest.path = request.getFile().getAbsolutePath();
-
-            implementation.readImage(imageRequest);
-            image = imageRequest.data;
-
-            mediaCache.cacheMedia(cacheKey, new MediaHashValue(0, 1, Collections.singletonList(image)));
+        Optional<ByteBuffer> sharedImage = result.flatMap(value -> value.acquireSharedFrame(0));
+        if (sharedImage.isPresent()) {
+            return new MediaDataResponse(sharedImage.get());
         }
 
-        ByteBuffer resultFrame = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(request.getWidth() * request.getHeight() * 4);
+        ImageRequest imageRequest = new ImageRequest();
 
-        copyToResult(resultFrame, image);
+        imageRequest.data = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(request.getWidth() * request.getHeight() * 4);
+        imageRequest.width = request.getWidth();
+        imageRequest.height = request.getHeight();
+        imageRequest.path = request.getFile().getAbsolutePath();
 
-        return new MediaDataResponse(resultFrame);
-    }
+        implementation.readImage(imageRequest);
 
-    private void copyToResult(ByteBuffer result, ByteBuffer fromCopy) {
-        result.position(0);
-        fromCopy.position(0);
-        result.put(fromCopy);
+        MediaHashValue value = new MediaHashValue(0, 1, Collections.singletonList(imageRequest.data));
+        ByteBuffer resultFrame = value.acquireSharedFrame(0).get();
+        mediaCache.cacheMedia(cacheKey, value, false);
 
+        return new MediaDataResponse(resultFrame);
     }
 
     public TimelineLength getImageLength() {
@@ -0,0 +1,176 @@
+package com.helospark.tactview.core.decoder.thumbnail;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thumbnails of a single source at a single size, one slot for every {@value ThumbnailService#SLOT_LENGTH_IN_SECONDS} seconds of the source.
+ * <p>
+ * File layout (little endian): magic, version, width, height, number of slots, file offset of the thumbnail of each slot or 0 if it is not decoded yet,
+ * then the RGBA thumbnails in the order they were decoded. Thumbnails are appended, so the file only grows with the parts of the source that are shown.
+ * Reads can happen from any thread, writes only from a single thread.
+ * <p>
+ * The atlas is reference counted, {@link #close()} releases the reference of the opener, the file is closed once every reference taken with
+ * {@link #retain()} is released as well, so an atlas can be closed while other threads still read it.
+ */
+class ThumbnailAtlas implements Closeable {
+    static final int MAGIC = 0x54565448;
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * 4;
+    private static final int SLOT_OFFSET_SIZE = 8;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final AtomicLongArray slotOffsets;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile boolean deleteWhenClosed = false;
+
+    private ThumbnailAtlas(File file, FileChannel channel, int width, int height, AtomicLongArray slotOffsets) {
+        this.file = file;
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.slotOffsets = slotOffsets;
+    }
+
+    /**
+     * Opens the atlas, starting a new one if the file does not exist or was written for a different size.
+     */
+    public static ThumbnailAtlas open(File file, int width, int height, int numberOfSlots) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + numberOfSlots * SLOT_OFFSET_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        AtomicLongArray slotOffsets = new AtomicLongArray(numberOfSlots);
+
+        if (channel.size() >= header.capacity() && readFully(channel, header, 0) && isSameAtlas(header, width, height, numberOfSlots)) {
+            for (int slot = 0; slot < numberOfSlots; ++slot) {
+                slotOffsets.set(slot, header.getLong(HEADER_SIZE + slot * SLOT_OFFSET_SIZE));
+            }
+        } else {
+            channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(width);
+            header.putInt(height);
+            header.putInt(numberOfSlots);
+            header.position(0);
+            writeFully(channel, header, 0);
+        }
+        return new ThumbnailAtlas(file, channel, width, height, slotOffsets);
+    }
+
+    private static boolean isSameAtlas(ByteBuffer header, int width, int height, int numberOfSlots) {
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getInt(8) == width && header.getInt(12) == height && header.getInt(16) == numberOfSlots;
+    }
+
+    /**
+     * @return heap copy of the thumbnail or empty if the slot is not decoded yet
+     */
+    public Optional<ByteBuffer> read(int slot) throws IOException {
+        long offset = slotOffsets.get(slot);
+        if (offset == 0) {
+            return Optional.empty();
+        }
+        ByteBuffer result = ByteBuffer.allocate(getThumbnailSize());
+        if (!readFully(channel, result, offset)) {
+            return Optional.empty();
+        }
+        return Optional.of(result);
+    }
+
+    // Only called from a single writer thread
+    public void write(int slot, ByteBuffer thumbnail) throws IOException {
+        long offset = channel.size();
+        ByteBuffer data = thumbnail.duplicate();
+        data.position(0);
+        data.limit(getThumbnailSize());
+        writeFully(channel, data, offset);
+
+        ByteBuffer slotOffset = ByteBuffer.allocate(SLOT_OFFSET_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        slotOffset.putLong(0, offset);
+        writeFully(channel, slotOffset, HEADER_SIZE + (long) slot * SLOT_OFFSET_SIZE);
+
+        slotOffsets.set(slot, offset); // thumbnail is only visible once it is completely written
+    }
+
+    public int getNumberOfSlots() {
+        return slotOffsets.length();
+    }
+
+    public int getThumbnailSize() {
+        return width * height * 4;
+    }
+
+    public long getFileSize() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * @return false if the atlas is already closed, otherwise it stays open until {@link #release()} is called
+     */
+    public boolean retain() {
+        while (true) {
+            int currentReferences = references.get();
+            if (currentReferences == 0) {
+                return false;
+            }
+            if (references.compareAndSet(currentReferences, currentReferences + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() throws IOException {
+        if (references.decrementAndGet() == 0) {
+            channel.close();
+            if (deleteWhenClosed) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * The file is deleted once the atlas is closed.
+     */
+    public void deleteWhenClosed() {
+        deleteWhenClosed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long startPosition = buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position() - startPosition);
+        }
+    }
+
+}
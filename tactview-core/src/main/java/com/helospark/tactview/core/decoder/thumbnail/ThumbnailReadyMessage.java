@@ -0,0 +1,19 @@
+package com.helospark.tactview.core.decoder.thumbnail;
+
+public class ThumbnailReadyMessage {
+    private String backingFile;
+
+    public ThumbnailReadyMessage(String backingFile) {
+        this.backingFile = backingFile;
+    }
+
+    public String getBackingFile() {
+        return backingFile;
+    }
+
+    @Override
+    public String toString() {
+        return "ThumbnailReadyMessage [backingFile=" + backingFile + "]";
+    }
+
+}
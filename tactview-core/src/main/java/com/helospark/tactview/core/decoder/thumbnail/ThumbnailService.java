@@ -0,0 +1,276 @@
+package com.helospark.tactview.core.decoder.thumbnail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Value;
+import com.helospark.tactview.core.decoder.VideoMediaDataRequest;
+import com.helospark.tactview.core.decoder.VisualMediaMetadata;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.decoder.framecache.SegmentedLruEvictionPolicy;
+import com.helospark.tactview.core.message.DropCachesMessage;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+import com.helospark.tactview.core.timeline.VisualMediaSource;
+import com.helospark.tactview.core.util.messaging.MessagingService;
+
+/**
+ * Timeline thumbnails of video sources, decoded on a background thread directly at thumbnail size.
+ * <p>
+ * Every source has a {@link ThumbnailAtlas} on disk with a thumbnail for every {@value #SLOT_LENGTH_IN_SECONDS} seconds, the recently used thumbnails
+ * are also kept in memory. Thumbnails are decoded with approximate position, so the decoder seeks to the keyframe before the slot and returns the first
+ * frame it decodes instead of decoding every frame up to the exact position.
+ * <p>
+ * Only the {@value #MAX_OPEN_ATLASES} recently used atlases are kept open, and the least recently used atlas files are deleted when the thumbnail directory
+ * grows over its maximum size. Atlases are retained while they are read or written, so they can be closed and deleted from any thread.
+ */
+@Component
+public class ThumbnailService {
+    static final int SLOT_LENGTH_IN_SECONDS = 1;
+    static final int MAX_OPEN_ATLASES = 16;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final String EXTENSION = ".thumbnails";
+    private static final double PROTECTED_SEGMENT_RATIO = 0.8;
+
+    private final File thumbnailDirectory;
+    private final MemoryManager memoryManager;
+    private final MessagingService messagingService;
+    private final SegmentedLruEvictionPolicy<String> memoryEvictionPolicy;
+    private final SegmentedLruEvictionPolicy<String> diskEvictionPolicy;
+    private final SegmentedLruEvictionPolicy<String> openAtlasEvictionPolicy = new SegmentedLruEvictionPolicy<>(MAX_OPEN_ATLASES, PROTECTED_SEGMENT_RATIO);
+    private final Map<String, ByteBuffer> thumbnailsInMemory = new ConcurrentHashMap<>();
+    private final Map<String, ThumbnailAtlas> atlases = new ConcurrentHashMap<>();
+    private final Set<String> scheduledThumbnails = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService decoderExecutor;
+
+    public ThumbnailService(@Value("${thumbnail.cache.directory}") File thumbnailDirectory, @Value("${thumbnail.cache.memory.max.size}") Long maximumMemorySize,
+            @Value("${thumbnail.cache.max.size}") Long maximumDiskSize, MemoryManager memoryManager, MessagingService messagingService) {
+        this.thumbnailDirectory = thumbnailDirectory;
+        this.memoryManager = memoryManager;
+        this.messagingService = messagingService;
+        this.memoryEvictionPolicy = new SegmentedLruEvictionPolicy<>(maximumMemorySize, PROTECTED_SEGMENT_RATIO);
+        this.diskEvictionPolicy = new SegmentedLruEvictionPolicy<>(maximumDiskSize, PROTECTED_SEGMENT_RATIO);
+    }
+
+    @PostConstruct
+    public void init() {
+        thumbnailDirectory.mkdirs();
+        loadExistingFiles();
+        decoderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        messagingService.register(DropCachesMessage.class, message -> {
+            memoryEvictionPolicy.removeAll()
+                    .forEach(thumbnailsInMemory::remove);
+        });
+    }
+
+    private void loadExistingFiles() {
+        File[] files = thumbnailDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparing(File::lastModified));
+        for (File file : files) {
+            String fileName = file.getName();
+            if (fileName.endsWith(EXTENSION)) {
+                diskEvictionPolicy.add(fileName.substring(0, fileName.length() - EXTENSION.length()), file.length());
+            }
+        }
+        deleteAtlases(diskEvictionPolicy.evictOverBudget());
+        LOGGER.info("Thumbnail cache contains {} bytes", diskEvictionPolicy.getWeight());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (decoderExecutor != null) {
+            decoderExecutor.shutdownNow();
+        }
+        atlases.values().forEach(this::closeAtlas);
+    }
+
+    public int getThumbnailWidth(VisualMediaMetadata metadata, int height) {
+        return Math.max(1, (int) ((double) metadata.getWidth() / metadata.getHeight() * height));
+    }
+
+    /**
+     * @return RGBA thumbnail of {@link #getThumbnailWidth} x height showing the source around the given position if it is already decoded, otherwise empty
+     *         and the thumbnail is decoded in the background, a {@link ThumbnailReadyMessage} is sent once it is ready
+     */
+    public Optional<ByteBuffer> findOrScheduleThumbnail(VisualMediaSource source, VisualMediaMetadata metadata, TimelinePosition sourcePosition, int height) {
+        int width = getThumbnailWidth(metadata, height);
+        File sourceFile = new File(source.getBackingFile());
+        String atlasName = toFileName(sourceFile, width, height);
+        try {
+            ThumbnailAtlas atlas = retainAtlas(atlasName, metadata, width, height);
+            try {
+                return findOrScheduleThumbnail(source, metadata, sourcePosition, atlas, atlasName, width, height);
+            } finally {
+                atlas.release();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Unable to read thumbnail of " + sourceFile, e);
+        }
+        return Optional.empty();
+    }
+
+    private Optional<ByteBuffer> findOrScheduleThumbnail(VisualMediaSource source, VisualMediaMetadata metadata, TimelinePosition sourcePosition, ThumbnailAtlas atlas,
+            String atlasName, int width, int height) throws IOException {
+        int slot = Math.max(0, Math.min(atlas.getNumberOfSlots() - 1, sourcePosition.getSeconds().intValue() / SLOT_LENGTH_IN_SECONDS));
+        String key = atlasName + " " + slot;
+
+        ByteBuffer thumbnail = thumbnailsInMemory.get(key);
+        if (thumbnail != null) {
+            memoryEvictionPolicy.recordAccess(key);
+            return Optional.of(thumbnail.asReadOnlyBuffer());
+        }
+        Optional<ByteBuffer> thumbnailFromDisk = atlas.read(slot);
+        if (thumbnailFromDisk.isPresent()) {
+            storeInMemory(key, thumbnailFromDisk.get());
+            return Optional.of(thumbnailFromDisk.get().asReadOnlyBuffer());
+        }
+        if (scheduledThumbnails.add(key)) {
+            decoderExecutor.execute(() -> {
+                try {
+                    decodeThumbnail(source, metadata, atlasName, slot, key, width, height);
+                } catch (Exception e) {
+                    LOGGER.warn("Unable to decode thumbnail " + slot + " of " + source.getBackingFile(), e);
+                } finally {
+                    scheduledThumbnails.remove(key);
+                }
+            });
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return open atlas, which has to be released after it is used
+     */
+    private ThumbnailAtlas retainAtlas(String atlasName, VisualMediaMetadata metadata, int width, int height) {
+        while (true) {
+            ThumbnailAtlas atlas = getOrOpenAtlas(atlasName, metadata, width, height);
+            if (atlas.retain()) {
+                return atlas;
+            }
+            atlases.remove(atlasName, atlas); // closed since it was looked up, opened again
+        }
+    }
+
+    private ThumbnailAtlas getOrOpenAtlas(String atlasName, VisualMediaMetadata metadata, int width, int height) {
+        ThumbnailAtlas atlas = atlases.get(atlasName);
+        if (atlas != null) {
+            openAtlasEvictionPolicy.recordAccess(atlasName);
+            return atlas;
+        }
+        atlas = atlases.computeIfAbsent(atlasName, name -> openAtlas(name, metadata, width, height));
+        openAtlasEvictionPolicy.add(atlasName, 1);
+        for (String evictedAtlasName : openAtlasEvictionPolicy.evictOverBudget()) {
+            ThumbnailAtlas evictedAtlas = atlases.remove(evictedAtlasName);
+            if (evictedAtlas != null) {
+                closeAtlas(evictedAtlas);
+            }
+        }
+        return atlas;
+    }
+
+    private ThumbnailAtlas openAtlas(String atlasName, VisualMediaMetadata metadata, int width, int height) {
+        int numberOfSlots = metadata.getLength().getSeconds().divide(BigDecimal.valueOf(SLOT_LENGTH_IN_SECONDS), 0, RoundingMode.CEILING).intValue() + 1;
+        try {
+            ThumbnailAtlas atlas = ThumbnailAtlas.open(new File(thumbnailDirectory, atlasName + EXTENSION), width, height, numberOfSlots);
+            if (diskEvictionPolicy.contains(atlasName)) {
+                diskEvictionPolicy.recordAccess(atlasName);
+            } else {
+                diskEvictionPolicy.add(atlasName, atlas.getFileSize());
+            }
+            return atlas;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The file is closed once the threads still reading it release it
+    private void closeAtlas(ThumbnailAtlas atlas) {
+        try {
+            atlas.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to close thumbnail atlas", e);
+        }
+    }
+
+    private void deleteAtlases(List<String> atlasNames) {
+        for (String atlasName : atlasNames) {
+            openAtlasEvictionPolicy.remove(atlasName);
+            ThumbnailAtlas atlas = atlases.remove(atlasName);
+            if (atlas != null) {
+                atlas.deleteWhenClosed();
+                closeAtlas(atlas);
+            } else {
+                new File(thumbnailDirectory, atlasName + EXTENSION).delete();
+            }
+        }
+    }
+
+    private void decodeThumbnail(VisualMediaSource source, VisualMediaMetadata metadata, String atlasName, int slot, String key, int width, int height) throws IOException {
+        VideoMediaDataRequest request = VideoMediaDataRequest.builder()
+                .withFilePath(source.getBackingFile())
+                .withMetadata(metadata)
+                .withStart(TimelinePosition.ofSeconds(slot * SLOT_LENGTH_IN_SECONDS))
+                .withWidth(width)
+                .withHeight(height)
+                .withUseApproximatePosition(true)
+                .build();
+        ByteBuffer frame = source.decoder.readFrames(request).getFrame();
+        ThumbnailAtlas atlas = retainAtlas(atlasName, metadata, width, height); // the atlas may have been closed since the thumbnail was scheduled
+        try {
+            try {
+                atlas.write(slot, frame);
+            } finally {
+                memoryManager.returnBuffer(frame);
+            }
+            atlas.read(slot)
+                    .ifPresent(thumbnail -> storeInMemory(key, thumbnail));
+            diskEvictionPolicy.add(atlasName, atlas.getFileSize());
+        } finally {
+            atlas.release();
+        }
+        deleteAtlases(diskEvictionPolicy.evictOverBudget());
+        messagingService.sendAsyncMessage(new ThumbnailReadyMessage(source.getBackingFile()));
+    }
+
+    private void storeInMemory(String key, ByteBuffer thumbnail) {
+        thumbnailsInMemory.put(key, thumbnail);
+        memoryEvictionPolicy.add(key, thumbnail.capacity());
+        memoryEvictionPolicy.evictOverBudget()
+                .forEach(thumbnailsInMemory::remove);
+    }
+
+    private String toFileName(File sourceFile, int width, int height) {
+        String key = sourceFile.getAbsolutePath() + " " + sourceFile.length() + " " + sourceFile.lastModified() + " " + width + " " + height;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+}
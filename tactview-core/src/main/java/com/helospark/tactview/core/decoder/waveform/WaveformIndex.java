@@ -0,0 +1,106 @@
+package com.helospark.tactview.core.decoder.waveform;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Multi-resolution peak index of an audio source. Level 0 has a bucket for every {@value #BASE_BUCKET_SIZE} samples, every further level halves the
+ * number of buckets, so the peak of any sample range is read from the level where a bucket is about as large as the range, touching at most three buckets.
+ * <p>
+ * File layout (little endian): magic, version, sample rate, number of channels, base bucket size, number of levels, maximum RMS, number of samples,
+ * number of buckets and data offset of each level, then for each bucket and channel the minimum, maximum and RMS as shorts.
+ */
+public class WaveformIndex {
+    public static final int BASE_BUCKET_SIZE = 256;
+    static final int MAGIC = 0x54565746;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 36;
+    static final int LEVEL_HEADER_SIZE = 8;
+    static final int PEAK_SIZE = 3 * 2;
+
+    private final ByteBuffer buffer;
+    private final int sampleRate;
+    private final int numberOfChannels;
+    private final int numberOfLevels;
+    private final float maxRms;
+    private final long numberOfSamples;
+
+    public WaveformIndex(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION || this.buffer.getInt(16) != BASE_BUCKET_SIZE) {
+            throw new IllegalArgumentException("Not a waveform index of the current version");
+        }
+        this.sampleRate = this.buffer.getInt(8);
+        this.numberOfChannels = this.buffer.getInt(12);
+        this.numberOfLevels = this.buffer.getInt(20);
+        this.maxRms = this.buffer.getFloat(24);
+        this.numberOfSamples = this.buffer.getLong(28);
+    }
+
+    /**
+     * @return peak of the samples in [startSample, endSample) of the channel, approximated by the buckets containing them
+     */
+    public WaveformPeak getPeak(int channel, long startSample, long endSample) {
+        if (startSample >= numberOfSamples || endSample <= 0) {
+            return WaveformPeak.SILENCE;
+        }
+        long numberOfSamplesInRange = Math.max(1, endSample - startSample);
+        int level = 0;
+        while (level + 1 < numberOfLevels && ((long) BASE_BUCKET_SIZE << (level + 1)) <= numberOfSamplesInRange) {
+            ++level;
+        }
+        long bucketSize = (long) BASE_BUCKET_SIZE << level;
+        int numberOfBuckets = getNumberOfBuckets(level);
+        int dataOffset = buffer.getInt(HEADER_SIZE + level * LEVEL_HEADER_SIZE + 4);
+        int firstBucket = (int) (Math.max(0, startSample) / bucketSize);
+        int lastBucket = (int) Math.min(numberOfBuckets - 1, (Math.max(startSample + 1, endSample) - 1) / bucketSize);
+
+        float minimum = Float.MAX_VALUE;
+        float maximum = -Float.MAX_VALUE;
+        float sumOfSquaredRms = 0.0f;
+        for (int bucket = firstBucket; bucket <= lastBucket; ++bucket) {
+            int offset = dataOffset + (bucket * numberOfChannels + channel) * PEAK_SIZE;
+            minimum = Math.min(minimum, toFloat(buffer.getShort(offset)));
+            maximum = Math.max(maximum, toFloat(buffer.getShort(offset + 2)));
+            float rms = toFloat(buffer.getShort(offset + 4));
+            sumOfSquaredRms += rms * rms;
+        }
+        return new WaveformPeak(minimum, maximum, (float) Math.sqrt(sumOfSquaredRms / (lastBucket - firstBucket + 1)));
+    }
+
+    public int getNumberOfBuckets(int level) {
+        return buffer.getInt(HEADER_SIZE + level * LEVEL_HEADER_SIZE);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getNumberOfChannels() {
+        return numberOfChannels;
+    }
+
+    public int getNumberOfLevels() {
+        return numberOfLevels;
+    }
+
+    /**
+     * @return the largest RMS of any base bucket in any channel
+     */
+    public float getMaxRms() {
+        return maxRms;
+    }
+
+    public long getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    static short toShort(float value) {
+        return (short) Math.round(Math.max(-1.0f, Math.min(1.0f, value)) * Short.MAX_VALUE);
+    }
+
+    private static float toFloat(short value) {
+        return value / (float) Short.MAX_VALUE;
+    }
+
+}
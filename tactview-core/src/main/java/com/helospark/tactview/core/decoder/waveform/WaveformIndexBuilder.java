@@ -0,0 +1,153 @@
+package com.helospark.tactview.core.decoder.waveform;
+
+import static com.helospark.tactview.core.decoder.waveform.WaveformIndex.BASE_BUCKET_SIZE;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.helospark.tactview.core.timeline.AudioFrameResult;
+
+/**
+ * Collects the minimum, maximum and sum of squares of every base bucket while the source is decoded, then reduces them pairwise into the coarser levels.
+ * Sums of squares are kept until the end, so RMS of every level is exact, not an average of averages.
+ */
+class WaveformIndexBuilder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int sampleRate;
+    private final int numberOfChannels;
+    private final Level baseLevel;
+    private long numberOfSamples = 0;
+
+    public WaveformIndexBuilder(int sampleRate, int numberOfChannels) {
+        this.sampleRate = sampleRate;
+        this.numberOfChannels = numberOfChannels;
+        this.baseLevel = new Level(numberOfChannels, INITIAL_CAPACITY);
+    }
+
+    public void addSamples(AudioFrameResult frame) {
+        int numberOfSamplesInFrame = frame.getNumberSamples();
+        for (int i = 0; i < numberOfSamplesInFrame; ++i) {
+            int bucket = (int) (numberOfSamples / BASE_BUCKET_SIZE);
+            if (bucket == baseLevel.numberOfBuckets) {
+                baseLevel.addEmptyBucket();
+            }
+            for (int channel = 0; channel < numberOfChannels; ++channel) {
+                float sample = frame.getNormalizedSampleAt(channel, i);
+                baseLevel.minimums[channel][bucket] = Math.min(baseLevel.minimums[channel][bucket], sample);
+                baseLevel.maximums[channel][bucket] = Math.max(baseLevel.maximums[channel][bucket], sample);
+                baseLevel.sumOfSquares[channel][bucket] += sample * sample;
+            }
+            ++baseLevel.sampleCounts[bucket];
+            ++numberOfSamples;
+        }
+    }
+
+    public ByteBuffer build() {
+        List<Level> levels = new ArrayList<>();
+        levels.add(baseLevel);
+        while (levels.get(levels.size() - 1).numberOfBuckets > 1) {
+            levels.add(levels.get(levels.size() - 1).reduce());
+        }
+
+        int dataSize = 0;
+        for (Level level : levels) {
+            dataSize += level.numberOfBuckets * numberOfChannels * WaveformIndex.PEAK_SIZE;
+        }
+        int headerSize = WaveformIndex.HEADER_SIZE + levels.size() * WaveformIndex.LEVEL_HEADER_SIZE;
+        ByteBuffer result = ByteBuffer.allocate(headerSize + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        result.putInt(WaveformIndex.MAGIC);
+        result.putInt(WaveformIndex.VERSION);
+        result.putInt(sampleRate);
+        result.putInt(numberOfChannels);
+        result.putInt(BASE_BUCKET_SIZE);
+        result.putInt(levels.size());
+        result.putFloat(baseLevel.getMaxRms());
+        result.putLong(numberOfSamples);
+
+        int dataOffset = headerSize;
+        for (Level level : levels) {
+            result.putInt(level.numberOfBuckets);
+            result.putInt(dataOffset);
+            dataOffset += level.numberOfBuckets * numberOfChannels * WaveformIndex.PEAK_SIZE;
+        }
+        for (Level level : levels) {
+            for (int bucket = 0; bucket < level.numberOfBuckets; ++bucket) {
+                for (int channel = 0; channel < numberOfChannels; ++channel) {
+                    result.putShort(WaveformIndex.toShort(level.minimums[channel][bucket]));
+                    result.putShort(WaveformIndex.toShort(level.maximums[channel][bucket]));
+                    result.putShort(WaveformIndex.toShort(level.getRms(channel, bucket)));
+                }
+            }
+        }
+        result.flip();
+        return result;
+    }
+
+    static class Level {
+        private float[][] minimums;
+        private float[][] maximums;
+        private double[][] sumOfSquares;
+        private long[] sampleCounts;
+        private int numberOfBuckets = 0;
+
+        public Level(int numberOfChannels, int capacity) {
+            this.minimums = new float[numberOfChannels][capacity];
+            this.maximums = new float[numberOfChannels][capacity];
+            this.sumOfSquares = new double[numberOfChannels][capacity];
+            this.sampleCounts = new long[capacity];
+        }
+
+        public void addEmptyBucket() {
+            if (numberOfBuckets == sampleCounts.length) {
+                int newCapacity = sampleCounts.length * 2;
+                for (int channel = 0; channel < minimums.length; ++channel) {
+                    minimums[channel] = Arrays.copyOf(minimums[channel], newCapacity);
+                    maximums[channel] = Arrays.copyOf(maximums[channel], newCapacity);
+                    sumOfSquares[channel] = Arrays.copyOf(sumOfSquares[channel], newCapacity);
+                }
+                sampleCounts = Arrays.copyOf(sampleCounts, newCapacity);
+            }
+            for (int channel = 0; channel < minimums.length; ++channel) {
+                minimums[channel][numberOfBuckets] = Float.MAX_VALUE;
+                maximums[channel][numberOfBuckets] = -Float.MAX_VALUE;
+            }
+            ++numberOfBuckets;
+        }
+
+        public Level reduce() {
+            Level result = new Level(minimums.length, (numberOfBuckets + 1) / 2);
+            for (int bucket = 0; bucket < numberOfBuckets; bucket += 2) {
+                result.addEmptyBucket();
+                int target = bucket / 2;
+                int lastBucket = Math.min(bucket + 1, numberOfBuckets - 1);
+                for (int channel = 0; channel < minimums.length; ++channel) {
+                    result.minimums[channel][target] = Math.min(minimums[channel][bucket], minimums[channel][lastBucket]);
+                    result.maximums[channel][target] = Math.max(maximums[channel][bucket], maximums[channel][lastBucket]);
+                    result.sumOfSquares[channel][target] = sumOfSquares[channel][bucket] + (lastBucket != bucket ? sumOfSquares[channel][lastBucket] : 0.0);
+                }
+                result.sampleCounts[target] = sampleCounts[bucket] + (lastBucket != bucket ? sampleCounts[lastBucket] : 0);
+            }
+            return result;
+        }
+
+        public float getRms(int channel, int bucket) {
+            return (float) Math.sqrt(sumOfSquares[channel][bucket] / sampleCounts[bucket]);
+        }
+
+        public float getMaxRms() {
+            float result = 0.0f;
+            for (int channel = 0; channel < minimums.length; ++channel) {
+                for (int bucket = 0; bucket < numberOfBuckets; ++bucket) {
+                    result = Math.max(result, getRms(channel, bucket));
+                }
+            }
+            return result;
+        }
+    }
+
+}
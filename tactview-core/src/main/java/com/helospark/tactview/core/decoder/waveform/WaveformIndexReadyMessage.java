@@ -0,0 +1,19 @@
+package com.helospark.tactview.core.decoder.waveform;
+
+public class WaveformIndexReadyMessage {
+    private String backingFile;
+
+    public WaveformIndexReadyMessage(String backingFile) {
+        this.backingFile = backingFile;
+    }
+
+    public String getBackingFile() {
+        return backingFile;
+    }
+
+    @Override
+    public String toString() {
+        return "WaveformIndexReadyMessage [backingFile=" + backingFile + "]";
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.helospark.tactview.core.decoder.waveform;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Value;
+import com.helospark.tactview.core.decoder.AudioMediaDataRequest;
+import com.helospark.tactview.core.decoder.AudioMediaMetadata;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.AudioMediaSource;
+import com.helospark.tactview.core.timeline.TimelineLength;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+import com.helospark.tactview.core.util.messaging.MessagingService;
+
+/**
+ * Builds {@link WaveformIndex} of audio sources on a background thread, decoding every source only once. Indexes are stored next to each other
+ * in the index directory and read through {@link FileChannel#map}, so reopening a project does not decode its sources again.
+ * <p>
+ * Index files are identified by the path, size and modification time of the source, the same way as {@code DiskFrameCacheKey}, which is much cheaper
+ * than hashing the content and still never reads an index of a changed file.
+ */
+@Component
+public class WaveformIndexService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WaveformIndexService.class);
+    private static final String EXTENSION = ".waveform";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final int CHUNK_LENGTH_IN_SECONDS = 30; // same as the chunks read by the audio decoder
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    private final File indexDirectory;
+    private final MemoryManager memoryManager;
+    private final MessagingService messagingService;
+    private final Map<String, WaveformIndex> indexes = new ConcurrentHashMap<>();
+    private final Set<String> scheduledIndexes = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService indexerExecutor;
+
+    public WaveformIndexService(@Value("${waveform.index.directory}") File indexDirectory, MemoryManager memoryManager, MessagingService messagingService) {
+        this.indexDirectory = indexDirectory;
+        this.memoryManager = memoryManager;
+        this.messagingService = messagingService;
+    }
+
+    @PostConstruct
+    public void init() {
+        indexDirectory.mkdirs();
+        File[] files = indexDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(TEMPORARY_EXTENSION)) {
+                    file.delete();
+                }
+            }
+        }
+        indexerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waveform-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (indexerExecutor != null) {
+            indexerExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return index of the source if it is already built, otherwise empty and the index is built in the background, a {@link WaveformIndexReadyMessage}
+     *         is sent once it is ready
+     */
+    public Optional<WaveformIndex> findOrScheduleIndex(AudioMediaSource source, AudioMediaMetadata metadata) {
+        File sourceFile = new File(source.getBackingFile());
+        String fileName = toFileName(sourceFile);
+        WaveformIndex index = indexes.get(fileName);
+        if (index != null) {
+            return Optional.of(index);
+        }
+        if (scheduledIndexes.add(fileName)) { // failed sources are not retried
+            indexerExecutor.execute(() -> {
+                try {
+                    indexes.put(fileName, loadOrBuild(fileName, source, metadata));
+                    messagingService.sendAsyncMessage(new WaveformIndexReadyMessage(source.getBackingFile()));
+                } catch (Exception e) {
+                    LOGGER.warn("Unable to build waveform index of " + sourceFile, e);
+                }
+            });
+        }
+        return Optional.empty();
+    }
+
+    private WaveformIndex loadOrBuild(String fileName, AudioMediaSource source, AudioMediaMetadata metadata) throws IOException {
+        File indexFile = new File(indexDirectory, fileName + EXTENSION);
+        if (indexFile.exists()) {
+            try {
+                return readIndex(indexFile);
+            } catch (IllegalArgumentException | IOException e) {
+                LOGGER.info("Waveform index {} is unusable, rebuilding it", indexFile, e);
+            }
+        }
+        long start = System.currentTimeMillis();
+        ByteBuffer data = decode(source, metadata);
+
+        Path temporaryFile = new File(indexDirectory, fileName + TEMPORARY_EXTENSION).toPath();
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        Files.move(temporaryFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info("Waveform index of {} built in {} ms", source.getBackingFile(), System.currentTimeMillis() - start);
+
+        return readIndex(indexFile);
+    }
+
+    private ByteBuffer decode(AudioMediaSource source, AudioMediaMetadata metadata) {
+        File sourceFile = new File(source.getBackingFile());
+        WaveformIndexBuilder builder = new WaveformIndexBuilder(metadata.getSampleRate(), metadata.getChannels());
+        BigDecimal sourceLength = metadata.getLength().getSeconds();
+
+        for (int chunkStart = 0; BigDecimal.valueOf(chunkStart).compareTo(sourceLength) < 0; chunkStart += CHUNK_LENGTH_IN_SECONDS) {
+            AudioMediaDataRequest request = AudioMediaDataRequest.builder()
+                    .withFile(sourceFile)
+                    .withMetadata(metadata)
+                    .withStart(TimelinePosition.ofSeconds(chunkStart))
+                    .withLength(TimelineLength.ofSeconds(CHUNK_LENGTH_IN_SECONDS))
+                    .withExpectedSampleRate(metadata.getSampleRate())
+                    .withExpectedBytesPerSample(BYTES_PER_SAMPLE)
+                    .withExpectedChannels(metadata.getChannels())
+                    .build();
+            List<ByteBuffer> channels = source.decoder.readFrames(request).getFrames();
+            if (channels.isEmpty()) {
+                break;
+            }
+            builder.addSamples(new AudioFrameResult(channels, metadata.getSampleRate(), BYTES_PER_SAMPLE));
+            memoryManager.returnBuffers(channels);
+        }
+        return builder.build();
+    }
+
+    private WaveformIndex readIndex(File indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            return new WaveformIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    private String toFileName(File sourceFile) {
+        String key = sourceFile.getAbsolutePath() + " " + sourceFile.length() + " " + sourceFile.lastModified();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.helospark.tactview.core.decoder.waveform;
+
+/**
+ * Minimum, maximum and RMS of a range of samples, normalized to [-1, 1].
+ */
+public class WaveformPeak {
+    public static final WaveformPeak SILENCE = new WaveformPeak(0.0f, 0.0f, 0.0f);
+
+    private final float minimum;
+    private final float maximum;
+    private final float rms;
+
+    public WaveformPeak(float minimum, float maximum, float rms) {
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.rms = rms;
+    }
+
+    public float getMinimum() {
+        return minimum;
+    }
+
+    public float getMaximum() {
+        return maximum;
+    }
+
+    public float getRms() {
+        return rms;
+    }
+
+    @Override
+    public String toString() {
+        return "WaveformPeak [minimum=" + minimum + ", maximum=" + maximum + ", rms=" + rms + "]";
+    }
+
+}
@@ -1,6 +1,11 @@
 package com.helospark.tactview.core.render;
 
-import java.nio.ByteBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -8,15 +13,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,16 +33,20 @@ import com.helospark.tactview.core.render.ffmpeg.CodecExtraDataRequest;
 import com.helospark.tactview.core.render.ffmpeg.CodecInformation;
 import com.helospark.tactview.core.render.ffmpeg.FFmpegBasedMediaEncoder;
 import com.helospark.tactview.core.render.ffmpeg.FFmpegClearEncoderRequest;
+import com.helospark.tactview.core.render.ffmpeg.FFmpegConcatenateSegmentsRequest;
 import com.helospark.tactview.core.render.ffmpeg.FFmpegEncodeFrameRequest;
 import com.helospark.tactview.core.render.ffmpeg.FFmpegInitEncoderRequest;
 import com.helospark.tactview.core.render.ffmpeg.NativeMap;
 import com.helospark.tactview.core.render.ffmpeg.NativePair;
 import com.helospark.tactview.core.render.ffmpeg.QueryCodecRequest;
 import com.helospark.tactview.core.render.ffmpeg.RenderFFMpegFrame;
+import com.helospark.tactview.core.render.helper.AudioInterleaver;
 import com.helospark.tactview.core.render.helper.IntervalThreadingPartitioner;
+import com.helospark.tactview.core.render.helper.OrderedFrameRing;
+import com.helospark.tactview.core.render.helper.RenderSegment;
+import com.helospark.tactview.core.render.helper.RenderSegmentPlanner;
 import com.helospark.tactview.core.render.helper.ThreadingAccessorResult;
 import com.helospark.tactview.core.repository.ProjectRepository;
-import com.helospark.tactview.core.timeline.AudioFrameResult;
 import com.helospark.tactview.core.timeline.AudioVideoFragment;
 import com.helospark.tactview.core.timeline.MergeOnIntersectingIntervalList;
 import com.helospark.tactview.core.timeline.TimelineInterval;
@@ -48,30 +57,164 @@ import com.helospark.tactview.core.timeline.effect.interpolation.provider.ValueL
 import com.helospark.tactview.core.timeline.effect.scale.service.ScaleService;
 import com.helospark.tactview.core.timeline.message.progress.ProgressAdvancedMessage;
 import com.helospark.tactview.core.util.messaging.MessagingService;
+import com.sun.jna.StringArray;
 
 @Component
 public class FFmpegBasedRenderService extends AbstractRenderService {
     private static final Logger LOGGER = LoggerFactory.getLogger(FFmpegBasedRenderService.class);
     private static final Set<String> COMMON_AUDIO_CONTAINERS = Set.of("mp3", "wav", "oga");
     private static final Set<String> COMMON_VIDEO_CONTAINERS = Set.of("mp4", "ogg", "flv", "webm", "avi", "gif", "wmv");
+    private static final Set<String> VIDEO_CONTAINERS_WITHOUT_AUDIO = Set.of("gif");
     private static final String DEFAULT_VALUE = "default";
     private static final String NONE_VALUE = "none";
     private static final int MAX_NUMBER_OF_CODECS = 400;
+    private static final int FRAMES_IN_FLIGHT_PER_THREAD = 2;
     private final FFmpegBasedMediaEncoder ffmpegBasedMediaEncoder;
     private final TimelineManagerAccessor timelineManagerAccessor;
     private final IntervalThreadingPartitioner intervalThreadingPartitioner;
+    private final AudioInterleaver audioInterleaver;
+    private final RenderSegmentPlanner renderSegmentPlanner;
 
     public FFmpegBasedRenderService(TimelineManagerRenderService timelineManager, FFmpegBasedMediaEncoder ffmpegBasedMediaEncoder, MessagingService messagingService,
-            ScaleService scaleService, TimelineManagerAccessor timelineManagerAccessor, ProjectRepository projectRepository, IntervalThreadingPartitioner intervalThreadingPartitioner) {
+            ScaleService scaleService, TimelineManagerAccessor timelineManagerAccessor, ProjectRepository projectRepository, IntervalThreadingPartitioner intervalThreadingPartitioner,
+            AudioInterleaver audioInterleaver, RenderSegmentPlanner renderSegmentPlanner) {
         super(timelineManager, messagingService, scaleService, projectRepository);
         this.ffmpegBasedMediaEncoder = ffmpegBasedMediaEncoder;
         this.timelineManagerAccessor = timelineManagerAccessor;
         this.intervalThreadingPartitioner = intervalThreadingPartitioner;
+        this.audioInterleaver = audioInterleaver;
+        this.renderSegmentPlanner = renderSegmentPlanner;
     }
 
     @Override
     public void renderInternal(RenderRequest renderRequest) {
+        int threads = Integer.parseInt(renderRequest.getOptions().get("threads").getValue().toString());
+        LOGGER.debug("threads: {}", threads);
+
+        int maximumNumberOfSegments = Optional.ofNullable(renderRequest.getOptions().get("segments"))
+                .map(a -> Integer.parseInt(a.getValue().toString()))
+                .orElse(1);
+        LOGGER.debug("segments: {}", maximumNumberOfSegments);
+
+        if (threads < 1) {
+            threads = 1;
+        }
 
+        long numberOfFrames = countFrames(renderRequest);
+
+        // only the video is encoded in segments, without video there is nothing to parallelize
+        boolean hasVideo = !NONE_VALUE.equals(renderRequest.getOptions().get("videocodec").getValue());
+        if (maximumNumberOfSegments > 1 && hasVideo && !FilenameUtils.getExtension(renderRequest.getFileName()).isEmpty()) {
+            List<RenderSegment> segments = renderSegmentPlanner.planSegments(renderRequest.getStartPosition(), renderRequest.getStep(), numberOfFrames, maximumNumberOfSegments);
+            if (segments.size() > 1) {
+                renderSegmentsInParallel(renderRequest, segments, numberOfFrames, threads);
+                return;
+            }
+        }
+
+        FFmpegInitEncoderRequest initNativeRequest = createInitEncoderRequest(renderRequest, renderRequest.getFileName());
+        renderSegment(renderRequest, initNativeRequest, new RenderSegment(0, numberOfFrames), threads, renderRequest.getIsCancelledSupplier(), true);
+    }
+
+    private long countFrames(RenderRequest renderRequest) {
+        BigDecimal length = renderRequest.getEndPosition().getSeconds().subtract(renderRequest.getStartPosition().getSeconds());
+        if (length.signum() < 0) {
+            return 0;
+        }
+        return length.divide(renderRequest.getStep(), 0, RoundingMode.FLOOR).longValue() + 1;
+    }
+
+    /**
+     * Video segments are rendered and encoded in parallel into files of a temporary directory, then their packets are copied into the output.
+     * The audio of the whole render is encoded in a single pass into another file of the same directory and muxed with the concatenated video, so the
+     * audio has no encoder delay or dropped partial frames at the segment boundaries.
+     * The temporary directory is always deleted, if the render is cancelled or fails no output is written.
+     * <p>
+     * Single threaded renderables get their start and end render callbacks from each job rendering them, the audio pass covers every segment, so when
+     * there are any, it only starts after the video segments are done.
+     */
+    private void renderSegmentsInParallel(RenderRequest renderRequest, List<RenderSegment> segments, long numberOfFrames, int threads) {
+        LOGGER.info("Rendering in segments {}", segments);
+        String extension = FilenameUtils.getExtension(renderRequest.getFileName());
+        String baseName = FilenameUtils.getBaseName(renderRequest.getFileName());
+        boolean hasAudio = !NONE_VALUE.equals(renderRequest.getOptions().get("audiocodec").getValue()) && !VIDEO_CONTAINERS_WITHOUT_AUDIO.contains(extension);
+        int numberOfJobs = segments.size() + (hasAudio ? 1 : 0);
+        int threadsPerJob = Math.max(1, threads / numberOfJobs);
+        AtomicBoolean segmentFailed = new AtomicBoolean(false);
+        Supplier<Boolean> isCancelledSupplier = () -> segmentFailed.get() || renderRequest.getIsCancelledSupplier().get();
+        boolean hasSingleThreadedRenderables = !intervalThreadingPartitioner
+                .partitionBasedOnRenderThreadability(new TimelineInterval(renderRequest.getStartPosition(), renderRequest.getEndPosition()))
+                .getSingleTheadRenderables()
+                .isEmpty();
+        File temporaryDirectory = createTemporaryDirectory();
+        ExecutorService segmentExecutorService = Executors.newFixedThreadPool(numberOfJobs);
+        try {
+            List<CompletableFuture<Void>> segmentJobs = new ArrayList<>();
+            List<String> segmentFileNames = new ArrayList<>();
+            for (int i = 0; i < segments.size(); ++i) {
+                String segmentFileName = new File(temporaryDirectory, baseName + ".segment" + i + "." + extension).getAbsolutePath();
+                segmentFileNames.add(segmentFileName);
+                FFmpegInitEncoderRequest initNativeRequest = createInitEncoderRequest(renderRequest, segmentFileName);
+                initNativeRequest.audioCodec = NONE_VALUE;
+                segmentJobs.add(startSegmentJob(renderRequest, initNativeRequest, segments.get(i), threadsPerJob, isCancelledSupplier, true, segmentFailed, segmentExecutorService));
+            }
+            String audioFileName = null;
+            if (hasAudio) {
+                audioFileName = new File(temporaryDirectory, baseName + ".audio." + extension).getAbsolutePath();
+                FFmpegInitEncoderRequest initNativeRequest = createInitEncoderRequest(renderRequest, audioFileName);
+                initNativeRequest.videoCodec = NONE_VALUE;
+                if (hasSingleThreadedRenderables) {
+                    CompletableFuture.allOf(segmentJobs.toArray(new CompletableFuture[0])).join();
+                }
+                // progress is already reported by the video segments for every frame
+                segmentJobs.add(startSegmentJob(renderRequest, initNativeRequest, new RenderSegment(0, numberOfFrames), threadsPerJob, isCancelledSupplier, false, segmentFailed,
+                        segmentExecutorService));
+            }
+            CompletableFuture.allOf(segmentJobs.toArray(new CompletableFuture[0])).join();
+
+            if (!renderRequest.getIsCancelledSupplier().get()) {
+                concatenateSegments(renderRequest.getFileName(), segmentFileNames, audioFileName);
+            }
+        } finally {
+            segmentExecutorService.shutdownNow();
+            FileUtils.deleteQuietly(temporaryDirectory);
+        }
+    }
+
+    private File createTemporaryDirectory() {
+        try {
+            return Files.createTempDirectory("tactview-render").toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<Void> startSegmentJob(RenderRequest renderRequest, FFmpegInitEncoderRequest initNativeRequest, RenderSegment segment, int threads,
+            Supplier<Boolean> isCancelledSupplier, boolean reportProgress, AtomicBoolean segmentFailed, ExecutorService segmentExecutorService) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                renderSegment(renderRequest, initNativeRequest, segment, threads, isCancelledSupplier, reportProgress);
+            } catch (RuntimeException e) {
+                segmentFailed.set(true);
+                throw e;
+            }
+        }, segmentExecutorService);
+    }
+
+    private void concatenateSegments(String fileName, List<String> segmentFileNames, String audioFileName) {
+        FFmpegConcatenateSegmentsRequest nativeRequest = new FFmpegConcatenateSegmentsRequest();
+        nativeRequest.fileName = fileName;
+        nativeRequest.segmentFileNames = new StringArray(segmentFileNames.toArray(new String[0]));
+        nativeRequest.numberOfSegments = segmentFileNames.size();
+        nativeRequest.audioFileName = audioFileName;
+
+        int result = ffmpegBasedMediaEncoder.concatenateSegments(nativeRequest);
+        if (result < 0) {
+            throw new RuntimeException("Unable to concatenate segments, statuscode is " + result + " , check logs");
+        }
+    }
+
+    private FFmpegInitEncoderRequest createInitEncoderRequest(RenderRequest renderRequest, String fileName) {
         int videoBitRate = (int) renderRequest.getOptions().get("videobitrate").getValue();
 
         System.out.println("Video BitRate: " + videoBitRate);
@@ -100,11 +243,8 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
         String videoPresetOrNull = (String) Optional.ofNullable(renderRequest.getOptions().get("preset")).map(a -> a.getValue()).orElse(null);
         System.out.println("video preset: " + videoPresetOrNull);
 
-        int threads = Integer.parseInt(renderRequest.getOptions().get("threads").getValue().toString());
-        System.out.println("threads: " + threads);
-
         FFmpegInitEncoderRequest initNativeRequest = new FFmpegInitEncoderRequest();
-        initNativeRequest.fileName = renderRequest.getFileName();
+        initNativeRequest.fileName = fileName;
         initNativeRequest.fps = renderRequest.getFps();
         int width = renderRequest.getWidth();
         if (width % 2 == 1) {
@@ -132,6 +272,14 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
         initNativeRequest.videoPreset = videoPresetOrNull;
         initNativeRequest.metadata = convertToNativeMap(renderRequest.getMetadata());
         // frame not freed
+        return initNativeRequest;
+    }
+
+    private void renderSegment(RenderRequest renderRequest, FFmpegInitEncoderRequest initNativeRequest, RenderSegment segment, int threads,
+            Supplier<Boolean> isCancelledSupplier, boolean reportProgress) {
+        int bytesPerSample = initNativeRequest.bytesPerSample;
+        int numberOfChannels = initNativeRequest.audioChannels;
+        int audioSampleRate = initNativeRequest.audioSampleRate;
 
         int encoderIndex = ffmpegBasedMediaEncoder.initEncoder(initNativeRequest);
 
@@ -141,26 +289,24 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
 
         int frameIndex = 0;
 
-        boolean needsVideo = !videoCodec.equals(NONE_VALUE);
-        boolean needsAudio = !audioCodec.equals(NONE_VALUE);
+        boolean needsVideo = !initNativeRequest.videoCodec.equals(NONE_VALUE);
+        boolean needsAudio = !initNativeRequest.audioCodec.equals(NONE_VALUE);
 
         // Producer consumer pattern below
 
-        if (threads < 1) {
-            threads = 1;
-        }
-
-        BlockingQueue<CompletableFuture<AudioVideoFragment>> queue = new ArrayBlockingQueue<>(threads);
+        // frames rendered ahead of the encoder, so workers do not wait for each other's frames to be encoded
+        OrderedFrameRing<AudioVideoFragment> frameRing = new OrderedFrameRing<>(threads * FRAMES_IN_FLIGHT_PER_THREAD, this::returnFrameBuffers);
         ExecutorService executorService = Executors.newFixedThreadPool(threads);
 
         try {
             var producerThread = new Thread() {
-                public volatile boolean isFinished = false;
 
                 @Override
                 public void run() {
+                    TimelinePosition segmentStartPosition = renderRequest.getStartPosition().add(renderRequest.getStep().multiply(BigDecimal.valueOf(segment.getFirstFrame())));
+                    TimelinePosition segmentEndPosition = segmentStartPosition.add(renderRequest.getStep().multiply(BigDecimal.valueOf(segment.getNumberOfFrames() - 1)));
                     ThreadingAccessorResult partitionResult = intervalThreadingPartitioner
-                            .partitionBasedOnRenderThreadability(new TimelineInterval(renderRequest.getStartPosition(), renderRequest.getEndPosition()));
+                            .partitionBasedOnRenderThreadability(new TimelineInterval(segmentStartPosition, segmentEndPosition));
                     MergeOnIntersectingIntervalList partitionList = partitionResult.getSingleThreadedIntervals();
 
                     LOGGER.debug("Partitioned single threaded intervals " + partitionList);
@@ -169,20 +315,25 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
                             .stream()
                             .forEach(a -> a.onStartRender());
 
-                    TimelinePosition currentPosition = renderRequest.getStartPosition();
+                    TimelinePosition currentPosition = segmentStartPosition;
+                    long sequence = 0;
                     try {
                         int partitionIndex = 0;
-                        while (currentPosition.isLessOrEqualToThan(renderRequest.getEndPosition()) && !renderRequest.getIsCancelledSupplier().get()) {
-                            TimelineInterval nextIntersection = partitionList.size() > partitionIndex ? partitionList.get(partitionIndex) : TimelineInterval.ofPoint(renderRequest.getEndPosition());
+                        while (sequence < segment.getNumberOfFrames() && !isCancelledSupplier.get()) {
+                            // after the last single threaded interval every remaining frame is rendered in parallel
+                            TimelineInterval nextIntersection = partitionList.size() > partitionIndex ? partitionList.get(partitionIndex)
+                                    : TimelineInterval.ofPoint(segmentEndPosition.add(renderRequest.getStep()));
 
                             // TODO: parallel and single threaded part is almost entirely a copy-pase of each other, fix it
                             // parallel render
-                            while (currentPosition.isLessOrEqualToThan(renderRequest.getEndPosition())
+                            while (sequence < segment.getNumberOfFrames()
                                     && currentPosition.isLessThan(nextIntersection.getStartPosition())
-                                    && !renderRequest.getIsCancelledSupplier().get()) {
+                                    && !isCancelledSupplier.get()) {
 
                                 TimelinePosition position = currentPosition; // thanks Java...
-                                CompletableFuture<AudioVideoFragment> job = CompletableFuture
+                                long frameSequence = sequence++;
+                                frameRing.awaitFreeSlot(frameSequence);
+                                CompletableFuture
                                         .supplyAsync(() -> {
                                             RenderRequestFrameRequest superRequest = RenderRequestFrameRequest.builder()
                                                     .withBytesPerSample(Optional.of(bytesPerSample))
@@ -196,15 +347,21 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
                                                     .withExpectedWidth(initNativeRequest.renderWidth)
                                                     .build();
                                             return queryFrameAt(superRequest);
-                                        }, executorService);
-                                queue.put(job);
+                                        }, executorService)
+                                        .whenComplete((frame, exception) -> {
+                                            if (exception != null) {
+                                                frameRing.fail(exception);
+                                            } else {
+                                                frameRing.put(frameSequence, frame);
+                                            }
+                                        });
                                 currentPosition = currentPosition.add(renderRequest.getStep());
                             }
 
                             // single threaded render interval
-                            while (currentPosition.isLessOrEqualToThan(renderRequest.getEndPosition())
+                            while (sequence < segment.getNumberOfFrames()
                                     && currentPosition.isLessThan(nextIntersection.getEndPosition())
-                                    && !renderRequest.getIsCancelledSupplier().get()) {
+                                    && !isCancelledSupplier.get()) {
 
                                 RenderRequestFrameRequest superRequest = RenderRequestFrameRequest.builder()
                                         .withBytesPerSample(Optional.of(bytesPerSample))
@@ -217,15 +374,16 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
                                         .withExpectedHeight(initNativeRequest.renderHeight)
                                         .withExpectedWidth(initNativeRequest.renderWidth)
                                         .build();
-                                AudioVideoFragment frame = queryFrameAt(superRequest);
-                                queue.put(CompletableFuture.completedFuture(frame));
+                                long frameSequence = sequence++;
+                                frameRing.awaitFreeSlot(frameSequence);
+                                frameRing.put(frameSequence, queryFrameAt(superRequest));
                                 currentPosition = currentPosition.add(renderRequest.getStep());
                             }
 
                             ++partitionIndex;
                         }
-                    } catch (Exception e) {
-                        isFinished = true;
+                    } catch (Throwable e) {
+                        frameRing.fail(e);
                         throw new RuntimeException(e);
                     }
 
@@ -237,48 +395,51 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
                         e.printStackTrace();
                     }
 
-                    isFinished = true;
+                    frameRing.finish(sequence);
                 }
             };
             producerThread.start();
 
-            // Encoding must be done in single thread
-            while (!producerThread.isFinished || queue.peek() != null) {
-                CompletableFuture<AudioVideoFragment> future = pollQueue(queue);
-                if (future != null) {
-                    AudioVideoFragment frame = future.join();
-                    FFmpegEncodeFrameRequest nativeRequest = new FFmpegEncodeFrameRequest();
-                    nativeRequest.frame = new RenderFFMpegFrame();
-                    RenderFFMpegFrame[] array = (RenderFFMpegFrame[]) nativeRequest.frame.toArray(1);
-                    if (needsVideo) {
-                        array[0].imageData = frame.getVideoResult().getBuffer();
-                    }
-                    boolean audioConverted = false;
+            // Encoding must be done in single thread, the native request is reused for every frame
+            FFmpegEncodeFrameRequest nativeRequest = new FFmpegEncodeFrameRequest();
+            nativeRequest.frame = new RenderFFMpegFrame();
+            nativeRequest.encoderIndex = encoderIndex;
+            RenderFFMpegFrame nativeFrame = nativeRequest.frame;
+            try {
+                Optional<AudioVideoFragment> nextFrame;
+                while ((nextFrame = frameRing.take()).isPresent()) {
+                    AudioVideoFragment frame = nextFrame.get();
+                    nativeFrame.imageData = needsVideo ? frame.getVideoResult().getBuffer() : null;
+                    nativeFrame.audioData = null;
+                    nativeFrame.numberOfAudioSamples = 0;
                     if (needsAudio && frame.getAudioResult().getChannels().size() > 0) {
-                        array[0].audioData = convertAudio(frame.getAudioResult());
-                        array[0].numberOfAudioSamples = frame.getAudioResult().getNumberSamples();
-                        audioConverted = true;
+                        nativeFrame.audioData = audioInterleaver.interleave(frame.getAudioResult());
+                        nativeFrame.numberOfAudioSamples = frame.getAudioResult().getNumberSamples();
                     }
-                    nativeRequest.encoderIndex = encoderIndex;
                     nativeRequest.startFrameIndex = frameIndex;
 
                     int encodeResult = ffmpegBasedMediaEncoder.encodeFrames(nativeRequest);
+
+                    returnFrameBuffers(frame);
+                    if (nativeFrame.audioData != null) {
+                        GlobalMemoryManagerAccessor.memoryManager.returnBuffer(nativeFrame.audioData);
+                    }
+
                     if (encodeResult < 0) {
                         throw new RuntimeException("Cannot encode frames, error code " + encodeResult);
                     }
 
-                    GlobalMemoryManagerAccessor.memoryManager.returnBuffer(frame.getVideoResult().getBuffer());
-                    for (var buffer : frame.getAudioResult().getChannels()) {
-                        GlobalMemoryManagerAccessor.memoryManager.returnBuffer(buffer);
+                    if (reportProgress) {
+                        messagingService.sendAsyncMessage(new ProgressAdvancedMessage(renderRequest.getRenderId(), 1));
                     }
-                    if (audioConverted) {
-                        GlobalMemoryManagerAccessor.memoryManager.returnBuffer(array[0].audioData);
-                    }
-
-                    messagingService.sendAsyncMessage(new ProgressAdvancedMessage(renderRequest.getRenderId(), 1));
                     ++frameIndex;
                 }
-
+            } catch (InterruptedException e) {
+                frameRing.fail(e);
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                frameRing.fail(e);
+                throw e;
             }
 
             try {
@@ -295,6 +456,13 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
         }
     }
 
+    private void returnFrameBuffers(AudioVideoFragment frame) {
+        GlobalMemoryManagerAccessor.memoryManager.returnBuffer(frame.getVideoResult().getBuffer());
+        for (var buffer : frame.getAudioResult().getChannels()) {
+            GlobalMemoryManagerAccessor.memoryManager.returnBuffer(buffer);
+        }
+    }
+
     private NativeMap convertToNativeMap(Map<String, String> metadataMap) {
         if (metadataMap.size() == 0) {
             return null;
@@ -315,29 +483,6 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
         }
     }
 
-    private CompletableFuture<AudioVideoFragment> pollQueue(BlockingQueue<CompletableFuture<AudioVideoFragment>> queue) {
-        try {
-            return queue.poll(1, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private ByteBuffer convertAudio(AudioFrameResult audioResult) {
-        ByteBuffer result = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(audioResult.getBytesPerSample() * audioResult.getNumberSamples() * audioResult.getChannels().size());
-
-        int index = 0;
-        for (int i = 0; i < audioResult.getNumberSamples(); ++i) {
-            for (int j = 0; j < audioResult.getChannels().size(); ++j) {
-                for (int k = 0; k < audioResult.getBytesPerSample(); ++k) {
-                    result.put(index++, audioResult.getChannels().get(j).get(i * audioResult.getBytesPerSample() + k));
-                }
-            }
-        }
-
-        return result;
-    }
-
     @Override
     public String getId() {
         return "ffmpegrenderer";
@@ -465,6 +610,20 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
                 })
                 .build();
 
+        OptionProvider<Integer> numberOfSegmentsProvider = OptionProvider.integerOptionBuilder()
+                .withTitle("Parallel encoded segments")
+                .withDefaultValue(1)
+                .withValidationErrorProvider(t -> {
+                    List<String> errors = new ArrayList<>();
+
+                    if (t < 1) {
+                        errors.add("At least 1 segment is needed");
+                    }
+
+                    return errors;
+                })
+                .build();
+
         LinkedHashMap<String, OptionProvider<?>> result = new LinkedHashMap<>();
 
         result.put("videobitrate", bitRateProvider);
@@ -477,6 +636,7 @@ public class FFmpegBasedRenderService extends AbstractRenderService {
         result.put("videoPixelFormat", videoPixelFormatProvider);
         result.put("preset", presetProviders);
         result.put("threads", numberOfThreadsProvider);
+        result.put("segments", numberOfSegmentsProvider);
 
         return result;
     }
@@ -15,4 +15,6 @@ public interface FFmpegBasedMediaEncoder extends Library {
     public void queryCodecs(QueryCodecRequest request);
 
     public void queryCodecExtraData(CodecExtraDataRequest request);
+
+    public int concatenateSegments(FFmpegConcatenateSegmentsRequest request);
 }
@@ -0,0 +1,18 @@
+package com.helospark.tactview.core.render.ffmpeg;
+
+import java.util.List;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+
+public class FFmpegConcatenateSegmentsRequest extends Structure implements Structure.ByReference {
+    public String fileName;
+    public Pointer segmentFileNames;
+    public int numberOfSegments;
+    public String audioFileName;
+
+    @Override
+    protected List<String> getFieldOrder() {
+        return List.of("fileName", "segmentFileNames", "numberOfSegments", "audioFileName");
+    }
+}
@@ -0,0 +1,72 @@
+package com.helospark.tactview.core.render.helper;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.List;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.timeline.AudioFrameResult;
+
+/**
+ * Converts planar audio (a buffer per channel) to the interleaved layout expected by the encoder.
+ * <p>
+ * Samples are moved as whole shorts or ints through views with the same byte order on both sides, so the bytes are copied unchanged,
+ * a single channel is copied in bulk.
+ */
+@Component
+public class AudioInterleaver {
+
+    /**
+     * @return buffer requested from the memory manager, the caller is responsible to return it
+     */
+    public ByteBuffer interleave(AudioFrameResult audioResult) {
+        List<ByteBuffer> channels = audioResult.getChannels();
+        int bytesPerSample = audioResult.getBytesPerSample();
+        int numberOfSamples = audioResult.getNumberSamples();
+        int numberOfChannels = channels.size();
+        int sampleBytes = bytesPerSample * numberOfSamples;
+        // every byte is written below
+        ByteBuffer result = GlobalMemoryManagerAccessor.memoryManager.requestUninitializedBuffer(sampleBytes * numberOfChannels);
+
+        if (numberOfChannels == 1) {
+            ByteBuffer source = channels.get(0).duplicate();
+            source.clear();
+            source.limit(sampleBytes);
+            result.put(source);
+            result.clear();
+        } else if (bytesPerSample == 2) {
+            ShortBuffer output = result.duplicate().order(ByteOrder.nativeOrder()).asShortBuffer();
+            for (int channel = 0; channel < numberOfChannels; ++channel) {
+                ShortBuffer input = channels.get(channel).duplicate().clear().order(ByteOrder.nativeOrder()).asShortBuffer();
+                for (int i = 0, outputIndex = channel; i < numberOfSamples; ++i, outputIndex += numberOfChannels) {
+                    output.put(outputIndex, input.get(i));
+                }
+            }
+        } else if (bytesPerSample == 4) {
+            IntBuffer output = result.duplicate().order(ByteOrder.nativeOrder()).asIntBuffer();
+            for (int channel = 0; channel < numberOfChannels; ++channel) {
+                IntBuffer input = channels.get(channel).duplicate().clear().order(ByteOrder.nativeOrder()).asIntBuffer();
+                for (int i = 0, outputIndex = channel; i < numberOfSamples; ++i, outputIndex += numberOfChannels) {
+                    output.put(outputIndex, input.get(i));
+                }
+            }
+        } else {
+            int frameBytes = bytesPerSample * numberOfChannels;
+            for (int channel = 0; channel < numberOfChannels; ++channel) {
+                ByteBuffer input = channels.get(channel);
+                for (int i = 0; i < numberOfSamples; ++i) {
+                    int outputOffset = i * frameBytes + channel * bytesPerSample;
+                    for (int k = 0; k < bytesPerSample; ++k) {
+                        result.put(outputOffset + k, input.get(i * bytesPerSample + k));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+}
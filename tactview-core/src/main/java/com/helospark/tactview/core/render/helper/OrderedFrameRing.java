@@ -0,0 +1,132 @@
+package com.helospark.tactview.core.render.helper;
+
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring between the render workers and the single encoder thread.
+ * <p>
+ * Frames are rendered in parallel and may complete in any order, the encoder takes them strictly in sequence order.
+ * Frame n can only be started once frame n - capacity is taken, which bounds the number of rendered frames held in memory.
+ * After a failure the frames in the ring and the frames put later are passed to the discarded frame consumer, so their buffers can be returned.
+ */
+public class OrderedFrameRing<T> {
+    private final Object[] slots;
+    private final Consumer<T> discardedFrameConsumer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final Condition slotFilled = lock.newCondition();
+
+    private long nextSequenceToTake = 0;
+    private long numberOfFrames = Long.MAX_VALUE;
+    private Throwable failure;
+
+    public OrderedFrameRing(int capacity) {
+        this(capacity, frame -> {
+        });
+    }
+
+    public OrderedFrameRing(int capacity, Consumer<T> discardedFrameConsumer) {
+        this.slots = new Object[capacity];
+        this.discardedFrameConsumer = discardedFrameConsumer;
+    }
+
+    /**
+     * Blocks until the frame with the given sequence fits into the ring.
+     */
+    public void awaitFreeSlot(long sequence) throws InterruptedException {
+        lock.lock();
+        try {
+            while (sequence >= nextSequenceToTake + slots.length && failure == null) {
+                slotFreed.await();
+            }
+            throwIfFailed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(long sequence, T frame) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                discardedFrameConsumer.accept(frame); // nobody takes it anymore
+                return;
+            }
+            slots[(int) (sequence % slots.length)] = frame;
+            slotFilled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * No more frames will be put after the given number of frames.
+     */
+    public void finish(long numberOfFrames) {
+        lock.lock();
+        try {
+            this.numberOfFrames = numberOfFrames;
+            slotFilled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up both sides, which then throw the given exception, frames not taken yet are discarded.
+     */
+    @SuppressWarnings("unchecked")
+    public void fail(Throwable throwable) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = throwable;
+            }
+            for (int i = 0; i < slots.length; ++i) {
+                if (slots[i] != null) {
+                    discardedFrameConsumer.accept((T) slots[i]);
+                    slots[i] = null;
+                }
+            }
+            slotFilled.signalAll();
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the next frame in sequence order, or empty after the last frame
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<T> take() throws InterruptedException {
+        lock.lock();
+        try {
+            int index = (int) (nextSequenceToTake % slots.length);
+            while (slots[index] == null && nextSequenceToTake < numberOfFrames && failure == null) {
+                slotFilled.await();
+            }
+            throwIfFailed();
+            if (nextSequenceToTake >= numberOfFrames) {
+                return Optional.empty();
+            }
+            T result = (T) slots[index];
+            slots[index] = null;
+            ++nextSequenceToTake;
+            slotFreed.signalAll();
+            return Optional.of(result);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new IllegalStateException("Rendering failed", failure);
+        }
+    }
+
+}
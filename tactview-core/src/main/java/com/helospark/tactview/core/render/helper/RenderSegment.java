@@ -0,0 +1,28 @@
+package com.helospark.tactview.core.render.helper;
+
+/**
+ * Consecutive frames of a render encoded by the same encoder, frames are indexed from the start of the render.
+ */
+public class RenderSegment {
+    private final long firstFrame;
+    private final long numberOfFrames;
+
+    public RenderSegment(long firstFrame, long numberOfFrames) {
+        this.firstFrame = firstFrame;
+        this.numberOfFrames = numberOfFrames;
+    }
+
+    public long getFirstFrame() {
+        return firstFrame;
+    }
+
+    public long getNumberOfFrames() {
+        return numberOfFrames;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderSegment [firstFrame=" + firstFrame + ", numberOfFrames=" + numberOfFrames + "]";
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.helospark.tactview.core.render.helper;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.timeline.MergeOnIntersectingIntervalList;
+import com.helospark.tactview.core.timeline.TimelineInterval;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+
+/**
+ * Splits a render into segments, which can be encoded in parallel by separate encoders.
+ * <p>
+ * Every segment starts with a new encoder, so its first frame is a keyframe and segments can be concatenated without reencoding.
+ * Boundaries never split a single threaded interval, because the renderables in it expect to be rendered by a single sequence of frames.
+ */
+@Component
+public class RenderSegmentPlanner {
+    static final int MINIMUM_FRAMES_PER_SEGMENT = 30;
+
+    private final IntervalThreadingPartitioner intervalThreadingPartitioner;
+
+    public RenderSegmentPlanner(IntervalThreadingPartitioner intervalThreadingPartitioner) {
+        this.intervalThreadingPartitioner = intervalThreadingPartitioner;
+    }
+
+    public List<RenderSegment> planSegments(TimelinePosition startPosition, BigDecimal step, long numberOfFrames, int maximumNumberOfSegments) {
+        int numberOfSegments = (int) Math.max(1, Math.min(maximumNumberOfSegments, numberOfFrames / MINIMUM_FRAMES_PER_SEGMENT));
+        if (numberOfSegments <= 1) {
+            return List.of(new RenderSegment(0, numberOfFrames));
+        }
+
+        TimelinePosition lastFramePosition = positionOfFrame(startPosition, step, numberOfFrames - 1);
+        MergeOnIntersectingIntervalList singleThreadedIntervals = intervalThreadingPartitioner
+                .partitionBasedOnRenderThreadability(new TimelineInterval(startPosition, lastFramePosition))
+                .getSingleThreadedIntervals();
+
+        List<RenderSegment> result = new ArrayList<>();
+        long segmentStart = 0;
+        for (int i = 1; i < numberOfSegments; ++i) {
+            long boundary = moveOutOfSingleThreadedIntervals(startPosition, step, numberOfFrames * i / numberOfSegments, singleThreadedIntervals);
+            if (boundary > segmentStart && boundary < numberOfFrames) {
+                result.add(new RenderSegment(segmentStart, boundary - segmentStart));
+                segmentStart = boundary;
+            }
+        }
+        result.add(new RenderSegment(segmentStart, numberOfFrames - segmentStart));
+        return result;
+    }
+
+    private long moveOutOfSingleThreadedIntervals(TimelinePosition startPosition, BigDecimal step, long boundary, MergeOnIntersectingIntervalList singleThreadedIntervals) {
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            TimelinePosition lastFrameBefore = positionOfFrame(startPosition, step, boundary - 1);
+            TimelinePosition firstFrameAfter = positionOfFrame(startPosition, step, boundary);
+            for (TimelineInterval interval : singleThreadedIntervals) {
+                if (interval.getStartPosition().isLessOrEqualToThan(firstFrameAfter) && interval.getEndPosition().isGreaterOrEqualToThan(lastFrameBefore)) {
+                    // first boundary where the frame before it is already after the interval
+                    boundary = interval.getEndPosition().getSeconds().subtract(startPosition.getSeconds()).divide(step, 0, RoundingMode.FLOOR).longValue() + 2;
+                    moved = true;
+                    break;
+                }
+            }
+        }
+        return boundary;
+    }
+
+    private TimelinePosition positionOfFrame(TimelinePosition startPosition, BigDecimal step, long frame) {
+        return startPosition.add(step.multiply(BigDecimal.valueOf(frame)));
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Clips active at a single position together with the (cached) render graph describing their dependencies.
+ */
+public class ActiveRenderGraph {
+    private final RenderGraph renderGraph;
+    private final Map<String, TimelineClip> clips;
+    private final Map<String, TimelineChannel> clipIdToChannel;
+
+    public ActiveRenderGraph(RenderGraph renderGraph, Map<String, TimelineClip> clips, Map<String, TimelineChannel> clipIdToChannel) {
+        this.renderGraph = renderGraph;
+        this.clips = clips;
+        this.clipIdToChannel = clipIdToChannel;
+    }
+
+    public RenderGraph getRenderGraph() {
+        return renderGraph;
+    }
+
+    /**
+     * @return active clips in channel order
+     */
+    public Collection<TimelineClip> getClips() {
+        return clips.values();
+    }
+
+    public TimelineClip getClip(String clipId) {
+        return clips.get(clipId);
+    }
+
+    public TimelineChannel getChannelForClip(String clipId) {
+        return clipIdToChannel.get(clipId);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.helospark.tactview.core.timeline;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+
+/**
+ * Renders contiguous blocks of audio independently of the video frame rate.
+ * <p>
+ * The block is split at the start and end of the clips inside it, so every part renders the same clips for its whole length and clips start and stop
+ * at the exact sample instead of at the next frame.
+ */
+@Component
+public class AudioBlockRenderService {
+    private final TimelineManagerRenderService timelineManagerRenderService;
+    private final TimelineChannelsState timelineChannelsState;
+
+    public AudioBlockRenderService(TimelineManagerRenderService timelineManagerRenderService, TimelineChannelsState timelineChannelsState) {
+        this.timelineManagerRenderService = timelineManagerRenderService;
+        this.timelineChannelsState = timelineChannelsState;
+    }
+
+    public AudioFrameResult renderBlock(AudioBlockRequest request) {
+        int numberOfSamples = request.getNumberOfSamples();
+        int sampleRate = request.getSampleRate();
+        AudioSampleBlock result = new AudioSampleBlock(request.getNumberOfChannels(), numberOfSamples, sampleRate);
+
+        int partStart = 0;
+        for (int partEnd : findPartEnds(request)) {
+            TimelineManagerFramesRequest partRequest = TimelineManagerFramesRequest.builder()
+                    .withPosition(request.getPosition().add(samplesToLength(partStart, sampleRate)))
+                    .withNeedSound(true)
+                    .withNeedVideo(false)
+                    .withEffectsEnabled(request.isEffectsEnabled())
+                    .withAudioSampleRate(Optional.of(sampleRate))
+                    .withAudioBytesPerSample(Optional.of(request.getBytesPerSample()))
+                    .withNumberOfChannels(Optional.of(request.getNumberOfChannels()))
+                    .withAudioLength(Optional.of(samplesToLength(partEnd - partStart, sampleRate)))
+                    .build();
+            AudioFrameResult partResult = timelineManagerRenderService.getAudioFrame(partRequest);
+            if (!partResult.getChannels().isEmpty()) {
+                result.addFrame(partResult, partStart, partEnd - partStart);
+                partResult.getChannels()
+                        .forEach(channel -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(channel));
+            }
+            partStart = partEnd;
+        }
+
+        return result.toFrame(request.getBytesPerSample());
+    }
+
+    private TreeSet<Integer> findPartEnds(AudioBlockRequest request) {
+        TimelinePosition start = request.getPosition();
+        TimelineInterval blockInterval = new TimelineInterval(start, samplesToLength(request.getNumberOfSamples(), request.getSampleRate()));
+        TreeSet<Integer> result = new TreeSet<>();
+        result.add(request.getNumberOfSamples());
+        for (TimelineChannel channel : timelineChannelsState.channels) {
+            for (TimelineClip clip : channel.getAllClips().computeIntersectingIntervals(blockInterval)) {
+                addBoundaryIfInside(result, clip.getInterval().getStartPosition(), request);
+                addBoundaryIfInside(result, clip.getInterval().getEndPosition(), request);
+            }
+        }
+        return result;
+    }
+
+    private void addBoundaryIfInside(TreeSet<Integer> partEnds, TimelinePosition boundary, AudioBlockRequest request) {
+        BigDecimal samples = boundary.from(request.getPosition()).getSeconds().multiply(BigDecimal.valueOf(request.getSampleRate()));
+        int sampleIndex = samples.setScale(0, RoundingMode.HALF_UP).intValue();
+        if (sampleIndex > 0 && sampleIndex < request.getNumberOfSamples()) {
+            partEnds.add(sampleIndex);
+        }
+    }
+
+    private TimelineLength samplesToLength(long numberOfSamples, int sampleRate) {
+        if (TimelineTicks.TICKS_PER_SECOND % sampleRate == 0) {
+            return TimelineLength.ofTicks(numberOfSamples * (TimelineTicks.TICKS_PER_SECOND / sampleRate));
+        } else {
+            return new TimelineLength(BigDecimal.valueOf(numberOfSamples).divide(BigDecimal.valueOf(sampleRate), 100, RoundingMode.HALF_DOWN));
+        }
+    }
+
+}
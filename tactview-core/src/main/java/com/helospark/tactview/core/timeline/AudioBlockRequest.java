@@ -0,0 +1,98 @@
+package com.helospark.tactview.core.timeline;
+
+import javax.annotation.Generated;
+
+public class AudioBlockRequest {
+    private TimelinePosition position;
+    private int numberOfSamples;
+    private int sampleRate;
+    private int bytesPerSample;
+    private int numberOfChannels;
+    private boolean effectsEnabled;
+
+    @Generated("SparkTools")
+    private AudioBlockRequest(Builder builder) {
+        this.position = builder.position;
+        this.numberOfSamples = builder.numberOfSamples;
+        this.sampleRate = builder.sampleRate;
+        this.bytesPerSample = builder.bytesPerSample;
+        this.numberOfChannels = builder.numberOfChannels;
+        this.effectsEnabled = builder.effectsEnabled;
+    }
+
+    public TimelinePosition getPosition() {
+        return position;
+    }
+
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getBytesPerSample() {
+        return bytesPerSample;
+    }
+
+    public int getNumberOfChannels() {
+        return numberOfChannels;
+    }
+
+    public boolean isEffectsEnabled() {
+        return effectsEnabled;
+    }
+
+    @Generated("SparkTools")
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Generated("SparkTools")
+    public static final class Builder {
+        private TimelinePosition position;
+        private int numberOfSamples;
+        private int sampleRate;
+        private int bytesPerSample;
+        private int numberOfChannels;
+        private boolean effectsEnabled = true;
+
+        private Builder() {
+        }
+
+        public Builder withPosition(TimelinePosition position) {
+            this.position = position;
+            return this;
+        }
+
+        public Builder withNumberOfSamples(int numberOfSamples) {
+            this.numberOfSamples = numberOfSamples;
+            return this;
+        }
+
+        public Builder withSampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        public Builder withBytesPerSample(int bytesPerSample) {
+            this.bytesPerSample = bytesPerSample;
+            return this;
+        }
+
+        public Builder withNumberOfChannels(int numberOfChannels) {
+            this.numberOfChannels = numberOfChannels;
+            return this;
+        }
+
+        public Builder withEffectsEnabled(boolean effectsEnabled) {
+            this.effectsEnabled = effectsEnabled;
+            return this;
+        }
+
+        public AudioBlockRequest build() {
+            return new AudioBlockRequest(this);
+        }
+    }
+}
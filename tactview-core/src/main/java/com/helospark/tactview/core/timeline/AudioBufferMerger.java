@@ -1,17 +1,16 @@
 package com.helospark.tactview.core.timeline;
 
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import com.helospark.lightdi.annotation.Component;
-import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
-import com.helospark.tactview.core.util.MathUtil;
 
 @Component
 public class AudioBufferMerger {
 
+    /**
+     * Inputs are converted to float samples at the highest sample rate and summed, only the mixed result is converted back to integer samples.
+     */
     public AudioFrameResult mergeBuffers(List<AudioFrameResult> renderAudioFrameData) {
         if (renderAudioFrameData.isEmpty()) {
             return new AudioFrameResult(Collections.emptyList(), 0, 0);
@@ -21,24 +20,14 @@ public class AudioBufferMerger {
         int maximumByteLength = calculateMaximumBitLength(renderAudioFrameData);
         // TODO calculate this:
         int length = renderAudioFrameData.get(0).getChannels().get(0).capacity();
-        List<ByteBuffer> channels = new ArrayList<>();
-        for (int i = 0; i < numberOfChannels; ++i) {
-            ByteBuffer channelData = GlobalMemoryManagerAccessor.memoryManager.requestBuffer(length);
-            channels.add(channelData);
-        }
-        AudioFrameResult audioFrameResult = new AudioFrameResult(channels, maximumQuality, maximumByteLength);
+        int numberOfSamples = length / maximumByteLength;
 
+        AudioSampleBlock result = new AudioSampleBlock(numberOfChannels, numberOfSamples, maximumQuality);
         for (AudioFrameResult data : renderAudioFrameData) {
-            for (int channelIndex = 0; channelIndex < data.getChannels().size(); ++channelIndex) {
-                for (int sampleIndex = 0; sampleIndex < length / maximumByteLength; ++sampleIndex) {
-                    long newData = data.getRescaledSample(channelIndex, maximumByteLength, maximumQuality, sampleIndex);
-                    long oldData = audioFrameResult.getSampleAt(channelIndex, sampleIndex);
-                    audioFrameResult.setSampleAt(channelIndex, sampleIndex, MathUtil.clampToInt(newData + oldData, Integer.MIN_VALUE, Integer.MAX_VALUE));
-                }
-            }
+            result.addFrame(data);
         }
 
-        return audioFrameResult;
+        return result.toFrame(maximumByteLength);
     }
 
     private int calculateMaximumBitLength(List<AudioFrameResult> renderAudioFrameData) {
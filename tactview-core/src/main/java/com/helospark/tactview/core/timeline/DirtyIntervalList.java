@@ -1,54 +1,66 @@
 package com.helospark.tactview.core.timeline;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+/**
+ * Version of each part of the timeline, every dirty interval gets a new version, while the parts of earlier intervals outside of it keep theirs.
+ * <p>
+ * Caches store the version of the position or interval they were rendered from and compare it to the current one to find out whether they are stale.
+ * Modifications are serialized, queries read the copy-on-write interval list without locking.
+ */
 public class DirtyIntervalList {
     private NonIntersectingIntervalList<IntervalContainer> knownIntervals = new NonIntersectingIntervalList<>();
-    private ExecutorService executorService = Executors.newFixedThreadPool(1);
+    private volatile long currentVersion = 0;
 
-    public long positionLastModified(TimelinePosition position) {
-        return knownIntervals.getElementWithIntervalContainingPoint(position)
-                .map(container -> container.lastModified)
-                .orElse(0L);
+    public long positionVersion(TimelinePosition position) {
+        return maxVersion(knownIntervals.getElementsWithIntervalContainingPoint(position), 0L);
     }
 
-    public void dirtyInterval(TimelineInterval interval) {
-        executorService.execute(() -> {
-            List<IntervalContainer> intersections = knownIntervals.computeIntersectingIntervals(interval);
-            knownIntervals.removeAll(intersections);
-            TimelineInterval mergedInterval = mergeIntervals(interval, intersections);
-            IntervalContainer newInterval = new IntervalContainer(mergedInterval, System.currentTimeMillis());
-            knownIntervals.addInterval(newInterval);
-        });
+    public long intervalVersion(TimelineInterval interval) {
+        long result = maxVersion(knownIntervals.computeIntersectingIntervals(interval), 0L);
+        result = maxVersion(knownIntervals.getElementsWithIntervalContainingPoint(interval.getStartPosition()), result);
+        return maxVersion(knownIntervals.getElementsWithIntervalContainingPoint(interval.getEndPosition()), result);
+    }
+
+    private long maxVersion(List<IntervalContainer> containers, long initialVersion) {
+        long result = initialVersion;
+        for (var container : containers) {
+            result = Math.max(result, container.version);
+        }
+        return result;
+    }
 
+    public long getCurrentVersion() {
+        return currentVersion;
     }
 
-    private TimelineInterval mergeIntervals(TimelineInterval interval, List<IntervalContainer> intervalsToReaddForStartPosition) {
-        BigDecimal minStartPosition = interval.getStartPosition().getSeconds();
-        BigDecimal maxEndPosition = interval.getEndPosition().getSeconds();
-        for (var currentInterval : intervalsToReaddForStartPosition) {
-            BigDecimal currentStartSeconds = currentInterval.getInterval().getStartPosition().getSeconds();
-            BigDecimal currentEndSeconds = currentInterval.getInterval().getEndPosition().getSeconds();
-            if (currentStartSeconds.compareTo(minStartPosition) < 0) {
-                minStartPosition = currentStartSeconds;
+    public synchronized long dirtyInterval(TimelineInterval interval) {
+        long newVersion = currentVersion + 1;
+        List<IntervalContainer> intersections = knownIntervals.computeIntersectingIntervals(interval);
+        List<IntervalContainer> newIntervals = new ArrayList<>();
+        for (var intersection : intersections) {
+            TimelineInterval intersectionInterval = intersection.getInterval();
+            if (intersectionInterval.getStartPosition().isLessThan(interval.getStartPosition())) {
+                newIntervals.add(new IntervalContainer(intersectionInterval.butWithEndPosition(interval.getStartPosition()), intersection.version));
             }
-            if (currentEndSeconds.compareTo(maxEndPosition) > 0) {
-                maxEndPosition = currentEndSeconds;
+            if (intersectionInterval.getEndPosition().isGreaterThan(interval.getEndPosition())) {
+                newIntervals.add(new IntervalContainer(intersectionInterval.butWithStartPosition(interval.getEndPosition()), intersection.version));
             }
         }
-        return new TimelineInterval(new TimelinePosition(minStartPosition), new TimelinePosition(maxEndPosition));
+        newIntervals.add(new IntervalContainer(interval, newVersion));
+        knownIntervals.replace(intersections, newIntervals); // queried concurrently, so the split intervals cannot be missing in between
+        currentVersion = newVersion;
+        return newVersion;
     }
 
     static class IntervalContainer implements IntervalAware {
         private TimelineInterval interval;
-        private long lastModified;
+        private long version;
 
-        public IntervalContainer(TimelineInterval interval, long lastModified) {
+        public IntervalContainer(TimelineInterval interval, long version) {
             this.interval = interval;
-            this.lastModified = lastModified;
+            this.version = version;
         }
 
         @Override
@@ -56,13 +68,13 @@ public class DirtyIntervalList {
             return interval;
         }
 
-        public long getLastModified() {
-            return lastModified;
+        public long getVersion() {
+            return version;
         }
 
         @Override
         public String toString() {
-            return "IntervalContainer [interval=" + interval + ", lastModified=" + lastModified + "]";
+            return "IntervalContainer [interval=" + interval + ", version=" + version + "]";
         }
 
     }
@@ -1,5 +1,9 @@
 package com.helospark.tactview.core.timeline;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
 import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
@@ -12,6 +16,7 @@ import com.helospark.tactview.core.util.messaging.MessagingService;
 @Component
 public class GlobalDirtyClipManager {
     private DirtyIntervalList dirtyIntervalList = new DirtyIntervalList();
+    private List<Consumer<TimelineInterval>> dirtyIntervalListeners = new CopyOnWriteArrayList<>();
     private MessagingService messagingService;
     @Slf4j
     private Logger logger;
@@ -26,13 +31,26 @@ public class GlobalDirtyClipManager {
             message.getAffectedIntervals()
                     .stream()
                     .forEach(a -> {
-                        dirtyIntervalList.dirtyInterval(a);
-                        logger.debug("Interval {} marked as dirty", a);
+                        long version = dirtyIntervalList.dirtyInterval(a);
+                        logger.debug("Interval {} marked as dirty with version {}", a, version);
+                        dirtyIntervalListeners.stream()
+                                .forEach(listener -> listener.accept(a));
                     });
         });
     }
 
-    public long positionLastModified(TimelinePosition position) {
-        return dirtyIntervalList.positionLastModified(position);
+    /**
+     * Listener is called on the thread sending the modification message, after the version of the interval is incremented.
+     */
+    public void registerDirtyIntervalListener(Consumer<TimelineInterval> listener) {
+        dirtyIntervalListeners.add(listener);
+    }
+
+    public long positionVersion(TimelinePosition position) {
+        return dirtyIntervalList.positionVersion(position);
+    }
+
+    public long intervalVersion(TimelineInterval interval) {
+        return dirtyIntervalList.intervalVersion(interval);
     }
 }
@@ -0,0 +1,233 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Topologically sorted dependency graph of the clips active at a position.
+ * <p>
+ * The graph only depends on its {@link RenderGraphKey}, so it can be reused for every frame with the same active clips and dependencies.
+ */
+public class RenderGraph {
+    private final List<RenderGraphNode> nodesInRenderOrder;
+    private final Map<String, RenderGraphNode> clipIdToNode;
+    private final Map<String, RenderGraphNode> channelIdToNode;
+    private final List<List<RenderGraphNode>> layers;
+    private final List<String> clipsInCycle;
+
+    private RenderGraph(List<RenderGraphNode> nodesInRenderOrder, Map<String, RenderGraphNode> clipIdToNode, Map<String, RenderGraphNode> channelIdToNode, List<String> clipsInCycle) {
+        this.nodesInRenderOrder = Collections.unmodifiableList(nodesInRenderOrder);
+        this.clipIdToNode = Collections.unmodifiableMap(clipIdToNode);
+        this.channelIdToNode = Collections.unmodifiableMap(channelIdToNode);
+        this.clipsInCycle = Collections.unmodifiableList(clipsInCycle);
+
+        List<List<RenderGraphNode>> layers = new ArrayList<>();
+        for (var node : nodesInRenderOrder) {
+            while (layers.size() <= node.layer) {
+                layers.add(new ArrayList<>());
+            }
+            layers.get(node.layer).add(node);
+        }
+        this.layers = Collections.unmodifiableList(layers);
+    }
+
+    static RenderGraph build(RenderGraphKey key) {
+        Map<String, RenderGraphNode> clipIdToNode = new HashMap<>();
+        Map<String, RenderGraphNode> channelIdToNode = new HashMap<>();
+        List<RenderGraphNode> nodesInChannelOrder = new ArrayList<>();
+
+        for (var entry : key.entries) {
+            RenderGraphNode node = new RenderGraphNode(entry.clipId, entry.channelId, entry.channelIndex);
+            clipIdToNode.put(entry.clipId, node);
+            channelIdToNode.put(entry.channelId, node);
+            nodesInChannelOrder.add(node);
+        }
+
+        Map<RenderGraphNode, Set<RenderGraphNode>> requiredInputs = new HashMap<>();
+        for (var entry : key.entries) {
+            RenderGraphNode node = clipIdToNode.get(entry.clipId);
+            Set<RenderGraphNode> inputs = new LinkedHashSet<>();
+            entry.clipDependencies.stream()
+                    .map(clipId -> clipIdToNode.get(clipId))
+                    .filter(input -> input != null && input != node)
+                    .forEach(inputs::add);
+            entry.channelDependencies.stream()
+                    .map(channelId -> channelIdToNode.get(channelId))
+                    .filter(input -> input != null && input != node)
+                    .forEach(inputs::add);
+            requiredInputs.put(node, inputs);
+        }
+
+        Map<RenderGraphNode, Integer> unresolvedInputCount = new HashMap<>();
+        Map<RenderGraphNode, List<RenderGraphNode>> potentialDependents = new HashMap<>();
+        for (var node : nodesInChannelOrder) {
+            unresolvedInputCount.put(node, requiredInputs.get(node).size());
+            for (var input : requiredInputs.get(node)) {
+                potentialDependents.computeIfAbsent(input, a -> new ArrayList<>()).add(node);
+            }
+        }
+
+        Deque<RenderGraphNode> readyNodes = new ArrayDeque<>();
+        for (var node : nodesInChannelOrder) {
+            if (unresolvedInputCount.get(node) == 0) {
+                readyNodes.add(node);
+            }
+        }
+
+        List<RenderGraphNode> sortedNodes = new ArrayList<>();
+        Set<RenderGraphNode> placedNodes = new LinkedHashSet<>();
+        while (!readyNodes.isEmpty()) {
+            RenderGraphNode node = readyNodes.poll();
+            place(node, requiredInputs.get(node), sortedNodes, placedNodes);
+            for (var dependent : potentialDependents.getOrDefault(node, List.of())) {
+                int remaining = unresolvedInputCount.merge(dependent, -1, Integer::sum);
+                if (remaining == 0) {
+                    readyNodes.add(dependent);
+                }
+            }
+        }
+
+        List<String> clipsInCycle = new ArrayList<>();
+        for (var node : nodesInChannelOrder) {
+            if (!placedNodes.contains(node)) {
+                // Nodes in a cycle only keep the inputs that were already rendered, the rest of the edges are dropped
+                clipsInCycle.add(node.getClipId());
+                place(node, requiredInputs.get(node), sortedNodes, placedNodes);
+            }
+        }
+
+        return new RenderGraph(sortedNodes, clipIdToNode, channelIdToNode, clipsInCycle);
+    }
+
+    private static void place(RenderGraphNode node, Set<RenderGraphNode> requiredInputs, List<RenderGraphNode> sortedNodes, Set<RenderGraphNode> placedNodes) {
+        int layer = 0;
+        for (var input : requiredInputs) {
+            if (placedNodes.contains(input)) {
+                node.inputs.add(input);
+                input.dependents.add(node);
+                layer = Math.max(layer, input.layer + 1);
+            }
+        }
+        node.layer = layer;
+        sortedNodes.add(node);
+        placedNodes.add(node);
+    }
+
+    public List<RenderGraphNode> getNodesInRenderOrder() {
+        return nodesInRenderOrder;
+    }
+
+    public List<List<RenderGraphNode>> getLayers() {
+        return layers;
+    }
+
+    public Optional<RenderGraphNode> findNodeForClip(String clipId) {
+        return Optional.ofNullable(clipIdToNode.get(clipId));
+    }
+
+    public Optional<RenderGraphNode> findNodeForChannel(String channelId) {
+        return Optional.ofNullable(channelIdToNode.get(channelId));
+    }
+
+    public boolean hasCycle() {
+        return !clipsInCycle.isEmpty();
+    }
+
+    public List<String> getClipsInCycle() {
+        return clipsInCycle;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderGraph [nodesInRenderOrder=" + nodesInRenderOrder + ", clipsInCycle=" + clipsInCycle + "]";
+    }
+
+    /**
+     * Everything the render graph depends on: the active clips in channel order with their dependencies at the position.
+     */
+    static class RenderGraphKey {
+        private final List<RenderGraphKeyEntry> entries;
+        private final int hashCode;
+
+        RenderGraphKey(List<RenderGraphKeyEntry> entries) {
+            this.entries = entries;
+            this.hashCode = entries.hashCode();
+        }
+
+        /**
+         * @return false if a channel of the key was removed or moved to another index, so the key cannot be looked up anymore
+         */
+        boolean hasChannelsAt(Map<String, Integer> channelIdToIndex) {
+            for (var entry : entries) {
+                Integer channelIndex = channelIdToIndex.get(entry.channelId);
+                if (channelIndex == null || channelIndex != entry.channelIndex) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RenderGraphKey)) {
+                return false;
+            }
+            RenderGraphKey castOther = (RenderGraphKey) other;
+            return hashCode == castOther.hashCode && Objects.equals(entries, castOther.entries);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return entries.stream()
+                    .map(a -> a.clipId)
+                    .collect(Collectors.joining(",", "RenderGraphKey [", "]"));
+        }
+    }
+
+    static class RenderGraphKeyEntry {
+        private final String clipId;
+        private final String channelId;
+        private final int channelIndex;
+        private final List<String> clipDependencies;
+        private final List<String> channelDependencies;
+
+        RenderGraphKeyEntry(String clipId, String channelId, int channelIndex, List<String> clipDependencies, List<String> channelDependencies) {
+            this.clipId = clipId;
+            this.channelId = channelId;
+            this.channelIndex = channelIndex;
+            this.clipDependencies = clipDependencies;
+            this.channelDependencies = channelDependencies;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RenderGraphKeyEntry)) {
+                return false;
+            }
+            RenderGraphKeyEntry castOther = (RenderGraphKeyEntry) other;
+            return Objects.equals(clipId, castOther.clipId) && Objects.equals(channelId, castOther.channelId) && channelIndex == castOther.channelIndex
+                    && Objects.equals(clipDependencies, castOther.clipDependencies) && Objects.equals(channelDependencies, castOther.channelDependencies);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(clipId, channelId, channelIndex, clipDependencies, channelDependencies);
+        }
+    }
+
+}
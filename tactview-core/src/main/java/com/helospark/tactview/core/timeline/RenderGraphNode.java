@@ -0,0 +1,53 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single clip in the {@link RenderGraph}. Inputs always reference nodes that come earlier in the topological order.
+ */
+public class RenderGraphNode {
+    private final String clipId;
+    private final String channelId;
+    private final int channelIndex;
+    int layer;
+    final List<RenderGraphNode> inputs = new ArrayList<>();
+    final List<RenderGraphNode> dependents = new ArrayList<>();
+
+    RenderGraphNode(String clipId, String channelId, int channelIndex) {
+        this.clipId = clipId;
+        this.channelId = channelId;
+        this.channelIndex = channelIndex;
+    }
+
+    public String getClipId() {
+        return clipId;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public int getChannelIndex() {
+        return channelIndex;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    public List<RenderGraphNode> getInputs() {
+        return Collections.unmodifiableList(inputs);
+    }
+
+    public List<RenderGraphNode> getDependents() {
+        return Collections.unmodifiableList(dependents);
+    }
+
+    @Override
+    public String toString() {
+        return "RenderGraphNode [clipId=" + clipId + ", channelId=" + channelId + ", layer=" + layer + "]";
+    }
+
+}
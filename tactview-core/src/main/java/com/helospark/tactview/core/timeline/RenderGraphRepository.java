@@ -0,0 +1,133 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.timeline.RenderGraph.RenderGraphKey;
+import com.helospark.tactview.core.timeline.RenderGraph.RenderGraphKeyEntry;
+import com.helospark.tactview.core.timeline.message.ChannelAddedMessage;
+import com.helospark.tactview.core.timeline.message.ChannelRemovedMessage;
+import com.helospark.tactview.core.util.logger.Slf4j;
+import com.helospark.tactview.core.util.messaging.AffectedModifiedIntervalAware;
+import com.helospark.tactview.core.util.messaging.MessagingService;
+
+/**
+ * Keeps topologically sorted render graphs, so the clip dependency tree does not have to be rebuilt for every frame.
+ * <p>
+ * A graph only depends on its key, so a changed timeline never makes a cached graph wrong, only unreachable. Graphs used in a modified interval
+ * or containing a moved channel are dropped, the graphs of the rest of the timeline are kept.
+ */
+@Component
+public class RenderGraphRepository {
+    private static final int MAX_CACHED_GRAPHS = 200;
+
+    private final TimelineChannelsState timelineChannelsState;
+    private final MessagingService messagingService;
+
+    private final Map<RenderGraphKey, CachedRenderGraph> renderGraphs = new ConcurrentHashMap<>();
+
+    @Slf4j
+    private Logger logger;
+
+    public RenderGraphRepository(TimelineChannelsState timelineChannelsState, MessagingService messagingService) {
+        this.timelineChannelsState = timelineChannelsState;
+        this.messagingService = messagingService;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Clip, effect and keyframe (including DependentClipProvider) changes are all AffectedModifiedIntervalAware
+        messagingService.register(AffectedModifiedIntervalAware.class, message -> invalidate(message.getAffectedIntervals()));
+        messagingService.register(ChannelAddedMessage.class, message -> invalidateMovedChannels());
+        messagingService.register(ChannelRemovedMessage.class, message -> invalidateMovedChannels());
+    }
+
+    public ActiveRenderGraph getActiveRenderGraph(TimelinePosition position) {
+        Map<String, TimelineClip> clips = new LinkedHashMap<>();
+        Map<String, TimelineChannel> clipIdToChannel = new LinkedHashMap<>();
+        List<RenderGraphKeyEntry> keyEntries = new ArrayList<>();
+
+        int channelIndex = 0;
+        for (TimelineChannel channel : timelineChannelsState.channels) {
+            var optionalClip = channel.getDataAt(position);
+            if (optionalClip.isPresent()) {
+                TimelineClip clip = optionalClip.get();
+                clips.put(clip.getId(), clip);
+                clipIdToChannel.put(clip.getId(), channel);
+                keyEntries.add(new RenderGraphKeyEntry(clip.getId(), channel.getId(), channelIndex, clip.getClipDependency(position), clip.getChannelDependency(position)));
+            }
+            ++channelIndex;
+        }
+
+        RenderGraph renderGraph = getRenderGraph(new RenderGraphKey(keyEntries), position);
+
+        return new ActiveRenderGraph(renderGraph, clips, clipIdToChannel);
+    }
+
+    private RenderGraph getRenderGraph(RenderGraphKey key, TimelinePosition position) {
+        CachedRenderGraph result = renderGraphs.get(key);
+        if (result == null) {
+            RenderGraph renderGraph = RenderGraph.build(key);
+            if (renderGraph.hasCycle()) {
+                logger.error("Cycle in clip dependencies, the dependencies between {} are ignored", renderGraph.getClipsInCycle());
+            }
+            if (renderGraphs.size() >= MAX_CACHED_GRAPHS) {
+                renderGraphs.clear();
+            }
+            result = new CachedRenderGraph(renderGraph, position);
+            renderGraphs.put(key, result);
+        } else {
+            result.usedAt(position);
+        }
+        return result.renderGraph;
+    }
+
+    public void invalidate(List<TimelineInterval> modifiedIntervals) {
+        renderGraphs.values().removeIf(cachedGraph -> cachedGraph.isUsedIn(modifiedIntervals));
+    }
+
+    private void invalidateMovedChannels() {
+        Map<String, Integer> channelIdToIndex = new HashMap<>();
+        int channelIndex = 0;
+        for (TimelineChannel channel : timelineChannelsState.channels) {
+            channelIdToIndex.put(channel.getId(), channelIndex++);
+        }
+        renderGraphs.keySet().removeIf(key -> !key.hasChannelsAt(channelIdToIndex));
+    }
+
+    private static class CachedRenderGraph {
+        private final RenderGraph renderGraph;
+        private TimelinePosition firstUsedPosition;
+        private TimelinePosition lastUsedPosition;
+
+        public CachedRenderGraph(RenderGraph renderGraph, TimelinePosition position) {
+            this.renderGraph = renderGraph;
+            this.firstUsedPosition = position;
+            this.lastUsedPosition = position;
+        }
+
+        public synchronized void usedAt(TimelinePosition position) {
+            if (position.isLessThan(firstUsedPosition)) {
+                firstUsedPosition = position;
+            } else if (position.isGreaterThan(lastUsedPosition)) {
+                lastUsedPosition = position;
+            }
+        }
+
+        public synchronized boolean isUsedIn(List<TimelineInterval> intervals) {
+            TimelineInterval usedInterval = new TimelineInterval(firstUsedPosition, lastUsedPosition);
+            return intervals.stream()
+                    .anyMatch(interval -> interval.intersects(usedInterval));
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Qualifier;
+import com.helospark.tactview.core.util.logger.Slf4j;
+
+/**
+ * Executes the nodes of a {@link RenderGraph}, each node starts as soon as its own inputs are finished instead of waiting for the whole previous layer.
+ */
+@Component
+public class RenderGraphScheduler {
+    private final ForkJoinPool renderForkJoinPool;
+
+    @Slf4j
+    private Logger logger;
+
+    public RenderGraphScheduler(@Qualifier("renderForkJoinPool") ForkJoinPool renderForkJoinPool) {
+        this.renderForkJoinPool = renderForkJoinPool;
+    }
+
+    /**
+     * Blocks until all nodes are executed. Failure of a node is logged, dependent nodes are still executed without its result.
+     */
+    public void execute(RenderGraph renderGraph, Consumer<RenderGraphNode> nodeExecutor) {
+        Map<RenderGraphNode, CompletableFuture<Void>> nodeFutures = new HashMap<>();
+
+        for (var node : renderGraph.getNodesInRenderOrder()) {
+            CompletableFuture<?>[] inputFutures = node.getInputs()
+                    .stream()
+                    .map(input -> nodeFutures.get(input))
+                    .toArray(CompletableFuture[]::new);
+
+            CompletableFuture<Void> nodeFuture = CompletableFuture.allOf(inputFutures)
+                    .thenRunAsync(() -> nodeExecutor.accept(node), renderForkJoinPool)
+                    .exceptionally(e -> {
+                        logger.error("Unable to render clip " + node.getClipId(), e);
+                        return null;
+                    });
+            nodeFutures.put(node, nodeFuture);
+        }
+
+        CompletableFuture.allOf(nodeFutures.values().toArray(new CompletableFuture[nodeFutures.size()])).join();
+    }
+
+}
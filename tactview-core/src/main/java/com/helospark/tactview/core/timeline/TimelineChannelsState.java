@@ -9,4 +9,6 @@ public class TimelineChannelsState {
     Object fullLock = new Object();
 
     CopyOnWriteArrayList<TimelineChannel> channels = new CopyOnWriteArrayList<>();
+
+    TimelineElementIndex elementIndex = new TimelineElementIndex();
 }
@@ -0,0 +1,80 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from clip and effect ids to the containing channel and clip, so lookups by id do not scan every channel.
+ * <p>
+ * Maintained by {@link TimelineManagerAccessor}, modifications are serialized and each of them increments the structural version,
+ * which caches can store and compare to detect that the timeline has changed since.
+ */
+public class TimelineElementIndex {
+    private final Map<String, ClipLocation> clips = new ConcurrentHashMap<>();
+    private final Map<String, TimelineClip> effectIdToClip = new ConcurrentHashMap<>();
+    private volatile long structuralVersion = 0;
+
+    public synchronized void clipAdded(TimelineChannel channel, TimelineClip clip) {
+        clips.put(clip.getId(), new ClipLocation(channel, clip));
+        for (var effect : clip.getEffects()) {
+            effectIdToClip.put(effect.getId(), clip);
+        }
+        ++structuralVersion;
+    }
+
+    public synchronized void clipRemoved(TimelineClip clip) {
+        clips.remove(clip.getId());
+        for (var effect : clip.getEffects()) {
+            effectIdToClip.remove(effect.getId(), clip);
+        }
+        ++structuralVersion;
+    }
+
+    public synchronized void effectAdded(TimelineClip clip, StatelessEffect effect) {
+        effectIdToClip.put(effect.getId(), clip);
+        ++structuralVersion;
+    }
+
+    public synchronized void effectRemoved(TimelineClip clip, String effectId) {
+        effectIdToClip.remove(effectId, clip);
+        ++structuralVersion;
+    }
+
+    /**
+     * Called for modifications which do not change the containing channel or clip of any element, ex. moving or resizing.
+     */
+    public synchronized void structureChanged() {
+        ++structuralVersion;
+    }
+
+    public Optional<TimelineClip> findClipById(String clipId) {
+        ClipLocation location = clips.get(clipId);
+        return location == null ? Optional.empty() : Optional.of(location.clip);
+    }
+
+    public Optional<TimelineChannel> findChannelForClipId(String clipId) {
+        ClipLocation location = clips.get(clipId);
+        return location == null ? Optional.empty() : Optional.of(location.channel);
+    }
+
+    public Optional<TimelineClip> findClipForEffect(String effectId) {
+        return Optional.ofNullable(effectIdToClip.get(effectId));
+    }
+
+    public long getStructuralVersion() {
+        return structuralVersion;
+    }
+
+    static class ClipLocation {
+        final TimelineChannel channel;
+        final TimelineClip clip;
+
+        public ClipLocation(TimelineChannel channel, TimelineClip clip) {
+            this.channel = channel;
+            this.clip = clip;
+        }
+
+    }
+
+}
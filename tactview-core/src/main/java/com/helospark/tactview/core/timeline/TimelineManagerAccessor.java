@@ -99,6 +99,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
         synchronized (channelToAddResourceTo.getFullChannelLock()) {
             if (channelToAddResourceTo.canAddResourceAt(clip.getInterval())) {
                 channelToAddResourceTo.addResource(clip);
+                timelineChannelsState.elementIndex.clipAdded(channelToAddResourceTo, clip);
             } else {
                 throw new IllegalArgumentException("Cannot add clip");
             }
@@ -135,6 +136,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
 
     public void addEffectForClip(TimelineClip clipById, StatelessEffect effect) {
         int newEffectChannelId = clipById.addEffectAtAnyChannel(effect);
+        timelineChannelsState.elementIndex.effectAdded(clipById, effect);
         messagingService.sendAsyncMessage(new EffectDescriptorsAdded(effect.getId(), effect.getValueProviders(), effect));
         messagingService.sendMessage(new EffectAddedMessage(effect.getId(), clipById.getId(), effect.interval.getStartPosition(), effect, newEffectChannelId, effect.getGlobalInterval()));
         effect.notifyAfterInitialized();
@@ -157,25 +159,25 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
             TimelineChannel channel = findChannelForClipId(clipId)
                     .orElseThrow(() -> new IllegalArgumentException("No channel contains " + clipId));
             channel.removeClip(clipId);
+            timelineChannelsState.elementIndex.clipRemoved(originalClip);
         }
         messagingService.sendMessage(new ClipRemovedMessage(clipId, originalInterval));
     }
 
     @Override
     public Optional<TimelineClip> findClipById(String id) {
-        return timelineChannelsState.channels
-                .stream()
-                .map(channel -> channel.findClipById(id))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .findFirst();
+        return timelineChannelsState.elementIndex.findClipById(id);
     }
 
     public Optional<TimelineChannel> findChannelForClipId(String id) {
-        return timelineChannelsState.channels
-                .stream()
-                .filter(channel -> channel.findClipById(id).isPresent())
-                .findFirst();
+        return timelineChannelsState.elementIndex.findChannelForClipId(id);
+    }
+
+    /**
+     * @return version incremented on every structural change of the timeline, caches built from the timeline can compare it to validate themselves
+     */
+    public long getStructuralVersion() {
+        return timelineChannelsState.elementIndex.getStructuralVersion();
     }
 
     public TimelineChannel createChannel(int index) {
@@ -191,6 +193,10 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
             } else {
                 timelineChannelsState.channels.add(channelToInsert);
             }
+            channelToInsert.getAllClipId()
+                    .stream()
+                    .flatMap(clipId -> channelToInsert.findClipById(clipId).stream())
+                    .forEach(clip -> timelineChannelsState.elementIndex.clipAdded(channelToInsert, clip));
         }
         messagingService.sendMessage(new ChannelAddedMessage(channelToInsert.getId(), timelineChannelsState.channels.indexOf(channelToInsert), channelToInsert.isDisabled(), channelToInsert.isMute()));
 
@@ -211,6 +217,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
             findChannelIndex(channelId)
                     .ifPresent(index -> {
                         timelineChannelsState.channels.remove(index.intValue());
+                        timelineChannelsState.elementIndex.structureChanged();
                         messagingService.sendMessage(new ChannelRemovedMessage(channelId));
                     });
             return channel;
@@ -219,11 +226,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
 
     @Override
     public Optional<TimelineClip> findClipForEffect(String effectId) {
-        return timelineChannelsState.channels.stream()
-                .map(channel -> channel.findClipContainingEffect(effectId))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .findFirst();
+        return timelineChannelsState.elementIndex.findClipForEffect(effectId);
     }
 
     public boolean moveClip(MoveClipRequest moveClipRequest) {
@@ -321,6 +324,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
                                 originalMovedChannel.removeClip(clip.getId());
                                 clip.setInterval(clipNewPosition);
                                 newMovedChannel.addResource(clip);
+                                timelineChannelsState.elementIndex.clipAdded(newMovedChannel, clip);
 
                                 messagingService.sendAsyncMessage(new ClipMovedMessage(clip.getId(), clipNewPosition.getStartPosition(), newMovedChannel.getId(), finalSpecialPositionUsed,
                                         clipCurrentInterval, clip.getGlobalInterval(), moveClipRequest.moreMoveExpected));
@@ -354,6 +358,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
                         TimelinePosition clipNewPosition = clipCurrentInterval.getStartPosition().add(relativeMove);
                         clip.setInterval(new TimelineInterval(clipNewPosition, clipCurrentInterval.getLength()));
                         channel.addResource(clip);
+                        timelineChannelsState.elementIndex.structureChanged();
                         messagingService.sendMessage(
                                 new ClipMovedMessage(clip.getId(), clipNewPosition, channel.getId(), finalSpecialPositionUsed, clipCurrentInterval, clip.getGlobalInterval(),
                                         moveClipRequest.moreMoveExpected));
@@ -426,6 +431,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
         }
 
         int newChannel = currentClip.moveEffect(effect, globalNewPosition);
+        timelineChannelsState.elementIndex.structureChanged();
 
         EffectMovedMessage message = EffectMovedMessage.builder()
                 .withEffectId(request.getEffectId())
@@ -453,6 +459,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
 
     private void removeEffect(TimelineClip clip, String effectId) {
         StatelessEffect removedElement = clip.removeEffectById(effectId);
+        timelineChannelsState.elementIndex.effectRemoved(clip, effectId);
         messagingService.sendAsyncMessage(new EffectRemovedMessage(removedElement.getId(), clip.getId(), removedElement.getGlobalInterval()));
 
         removeEmptyEffectChannel(clip);
@@ -509,6 +516,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
 
         boolean success = channel.resizeClip(clip, left, globalPosition);
         if (success) {
+            timelineChannelsState.elementIndex.structureChanged();
             TimelineClip renewedClip = findClipById(clip.getId()).orElseThrow(() -> new IllegalArgumentException("No such clip"));
             ClipResizedMessage clipResizedMessage = ClipResizedMessage.builder()
                     .withClipId(clip.getId())
@@ -551,6 +559,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
         boolean success = clip.resizeEffect(effect, left, newPosition);
 
         if (success) {
+            timelineChannelsState.elementIndex.structureChanged();
             StatelessEffect renewedClip = findEffectById(effect.getId()).orElseThrow(() -> new IllegalArgumentException("No such effect"));
             EffectResizedMessage clipResizedMessage = EffectResizedMessage.builder()
                     .withClipId(clip.getId())
@@ -719,6 +728,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
         synchronized (timelineChannelsState.fullLock) {
             originalClip.removeEffectById(originalEffect.getId());
             newClip.addEffectAtAnyChannel(originalEffect);
+            timelineChannelsState.elementIndex.effectAdded(newClip, originalEffect);
 
             EffectMovedToDifferentClipMessage message = EffectMovedToDifferentClipMessage.builder()
                     .withEffectId(originalEffect.getId())
@@ -803,6 +813,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
                     }
                 }
             }
+            timelineChannelsState.elementIndex.structureChanged();
         }
     }
 
@@ -892,6 +903,7 @@ public class TimelineManagerAccessor implements SaveLoadContributor, TimelineMan
                 TimelineChannel originalChannel = timelineChannelsState.channels.remove(originalIndex);
 
                 timelineChannelsState.channels.add(newIndex, originalChannel);
+                timelineChannelsState.elementIndex.structureChanged();
 
                 List<TimelineInterval> affectedIntervals = originalChannel.getAllClipId().stream()
                         .flatMap(clipId -> findClipById(clipId).stream())
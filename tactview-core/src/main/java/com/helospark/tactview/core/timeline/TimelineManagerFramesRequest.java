@@ -16,6 +16,7 @@ public class TimelineManagerFramesRequest {
     private Optional<Integer> audioSampleRate;
     private Optional<Integer> audioBytesPerSample;
     private Optional<Integer> numberOfChannels;
+    private Optional<TimelineLength> audioLength;
 
     @Generated("SparkTools")
     private TimelineManagerFramesRequest(Builder builder) {
@@ -30,6 +31,7 @@ public class TimelineManagerFramesRequest {
         this.audioSampleRate = builder.audioSampleRate;
         this.audioBytesPerSample = builder.audioBytesPerSample;
         this.numberOfChannels = builder.numberOfChannels;
+        this.audioLength = builder.audioLength;
     }
 
     public boolean isNeedSound() {
@@ -76,6 +78,10 @@ public class TimelineManagerFramesRequest {
         return numberOfChannels;
     }
 
+    public Optional<TimelineLength> getAudioLength() {
+        return audioLength;
+    }
+
     @Generated("SparkTools")
     public static Builder builder() {
         return new Builder();
@@ -94,6 +100,7 @@ public class TimelineManagerFramesRequest {
         private Optional<Integer> audioSampleRate = Optional.empty();
         private Optional<Integer> audioBytesPerSample = Optional.empty();
         private Optional<Integer> numberOfChannels = Optional.empty();
+        private Optional<TimelineLength> audioLength = Optional.empty();
 
         private Builder() {
         }
@@ -153,6 +160,11 @@ public class TimelineManagerFramesRequest {
             return this;
         }
 
+        public Builder withAudioLength(Optional<TimelineLength> audioLength) {
+            this.audioLength = audioLength;
+            return this;
+        }
+
         public TimelineManagerFramesRequest build() {
             return new TimelineManagerFramesRequest(this);
         }
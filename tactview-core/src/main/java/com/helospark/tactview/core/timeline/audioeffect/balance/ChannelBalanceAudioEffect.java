@@ -7,7 +7,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.helospark.tactview.core.clone.CloneRequestMetadata;
 import com.helospark.tactview.core.repository.ProjectRepository;
 import com.helospark.tactview.core.save.LoadMetadata;
-import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.AudioSampleBlock;
 import com.helospark.tactview.core.timeline.StatelessEffect;
 import com.helospark.tactview.core.timeline.TimelineInterval;
 import com.helospark.tactview.core.timeline.audioeffect.AudioEffectRequest;
@@ -37,20 +37,13 @@ public class ChannelBalanceAudioEffect extends StatelessAudioEffect {
     }
 
     @Override
-    protected AudioFrameResult applyEffectInternal(AudioEffectRequest request) {
-        AudioFrameResult input = request.getInput();
-        AudioFrameResult result = AudioFrameResult.sameSizeAndFormatAs(input);
-
-        for (int channel = 0; channel < input.getChannels().size(); ++channel) {
+    protected AudioSampleBlock applyEffectInternal(AudioEffectRequest request, AudioSampleBlock samples) {
+        for (int channel = 0; channel < samples.getNumberOfChannels(); ++channel) {
             double volumeMultiplier = channelVolumeProviders.get(channel).getValueAt(request.getEffectPosition());
-            for (int sampleIndex = 0; sampleIndex < input.getNumberSamples(); ++sampleIndex) {
-                int sample = input.getSampleAt(channel, sampleIndex);
-                sample *= volumeMultiplier;
-                result.setSampleAt(channel, sampleIndex, sample);
-            }
+            samples.multiplyChannel(channel, (float) volumeMultiplier);
         }
 
-        return result;
+        return samples;
     }
 
     @Override
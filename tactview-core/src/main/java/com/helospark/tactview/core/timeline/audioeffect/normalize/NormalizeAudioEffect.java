@@ -5,7 +5,7 @@ import java.util.List;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.helospark.tactview.core.clone.CloneRequestMetadata;
 import com.helospark.tactview.core.save.LoadMetadata;
-import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.AudioSampleBlock;
 import com.helospark.tactview.core.timeline.StatelessEffect;
 import com.helospark.tactview.core.timeline.TimelineInterval;
 import com.helospark.tactview.core.timeline.audioeffect.AudioEffectRequest;
@@ -24,8 +24,7 @@ public class NormalizeAudioEffect extends StatelessAudioEffect implements LongPr
 
     private double multiplier = 1.0;
 
-    private int currentMaximum;
-    private int currentSampleSize = 1;
+    private float currentMaximum;
 
     public NormalizeAudioEffect(TimelineInterval interval) {
         super(interval);
@@ -41,19 +40,9 @@ public class NormalizeAudioEffect extends StatelessAudioEffect implements LongPr
     }
 
     @Override
-    protected AudioFrameResult applyEffectInternal(AudioEffectRequest request) {
-        AudioFrameResult input = request.getInput();
-        AudioFrameResult result = AudioFrameResult.sameSizeAndFormatAs(input);
-
-        for (int channel = 0; channel < input.getChannels().size(); ++channel) {
-            for (int sampleIndex = 0; sampleIndex < input.getNumberSamples(); ++sampleIndex) {
-                int sample = input.getSampleAt(channel, sampleIndex);
-                sample *= multiplier;
-                result.setSampleAt(channel, sampleIndex, sample);
-            }
-        }
-
-        return result;
+    protected AudioSampleBlock applyEffectInternal(AudioEffectRequest request, AudioSampleBlock samples) {
+        samples.multiply((float) multiplier);
+        return samples;
     }
 
     @Override
@@ -77,22 +66,15 @@ public class NormalizeAudioEffect extends StatelessAudioEffect implements LongPr
 
     @Override
     public void longProcessImage(LongProcessAudioPushRequest pushRequest) {
-        AudioFrameResult frame = pushRequest.getFrame();
-        currentSampleSize = frame.getBytesPerSample();
-
-        for (int channel = 0; channel < frame.getChannels().size(); ++channel) {
-            for (int sampleIndex = 0; sampleIndex < frame.getNumberSamples(); ++sampleIndex) {
-                int sample = Math.abs(frame.getSampleAt(channel, sampleIndex));
-                if (sample > currentMaximum) {
-                    currentMaximum = sample;
-                }
-            }
+        float frameMaximum = AudioSampleBlock.fromFrame(pushRequest.getFrame()).getMaximumAbsoluteValue();
+        if (frameMaximum > currentMaximum) {
+            currentMaximum = frameMaximum;
         }
     }
 
     @Override
     public void endToPushLongImages() {
-        multiplier = Math.pow(2.0, currentSampleSize * 8) / currentMaximum;
+        multiplier = currentMaximum > 0.0f ? 1.0 / currentMaximum : 1.0;
     }
 
     @Override
@@ -5,7 +5,7 @@ import java.util.List;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.helospark.tactview.core.clone.CloneRequestMetadata;
 import com.helospark.tactview.core.save.LoadMetadata;
-import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.AudioSampleBlock;
 import com.helospark.tactview.core.timeline.StatelessEffect;
 import com.helospark.tactview.core.timeline.TimelineInterval;
 import com.helospark.tactview.core.timeline.audioeffect.AudioEffectRequest;
@@ -32,20 +32,11 @@ public class VolumeAudioEffect extends StatelessAudioEffect {
     }
 
     @Override
-    protected AudioFrameResult applyEffectInternal(AudioEffectRequest request) {
-        AudioFrameResult input = request.getInput();
-        AudioFrameResult result = AudioFrameResult.sameSizeAndFormatAs(input);
+    protected AudioSampleBlock applyEffectInternal(AudioEffectRequest request, AudioSampleBlock samples) {
         double volumeMultiplier = volumeProvider.getValueAt(request.getEffectPosition());
 
-        for (int channel = 0; channel < input.getChannels().size(); ++channel) {
-            for (int sampleIndex = 0; sampleIndex < input.getNumberSamples(); ++sampleIndex) {
-                int sample = input.getSampleAt(channel, sampleIndex);
-                sample *= volumeMultiplier;
-                result.setSampleAt(channel, sampleIndex, sample);
-            }
-        }
-
-        return result;
+        samples.multiply((float) volumeMultiplier);
+        return samples;
     }
 
     @Override
@@ -2,6 +2,7 @@ package com.helospark.tactview.core.timeline.blendmode;
 
 public abstract class SeparateRgbComponentBlendMode implements BlendModeStrategy {
     private String id;
+    private volatile double[] scaledComponentTable;
 
     public SeparateRgbComponentBlendMode(String id) {
         this.id = id;
@@ -25,6 +26,24 @@ public abstract class SeparateRgbComponentBlendMode implements BlendModeStrategy
 
     public abstract double computeRgbComponent(double topLayer, double bottomLayer);
 
+    /**
+     * computeRgbComponent(top / 255.0, bottom / 255.0) * 255.0 for every component value, indexed by (top << 8) | bottom.
+     * Using it in place of the first multiplication in {@link #computeSeparateComponent(int, int, int)} gives bit identical results.
+     */
+    public double[] getScaledComponentTable() {
+        double[] result = scaledComponentTable;
+        if (result == null) {
+            result = new double[256 * 256];
+            for (int top = 0; top < 256; ++top) {
+                for (int bottom = 0; bottom < 256; ++bottom) {
+                    result[(top << 8) | bottom] = computeRgbComponent(top / 255.0, bottom / 255.0) * 255.0;
+                }
+            }
+            scaledComponentTable = result;
+        }
+        return result;
+    }
+
     @Override
     public String getId() {
         return id;
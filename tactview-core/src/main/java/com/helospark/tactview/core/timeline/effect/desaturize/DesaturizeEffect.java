@@ -35,12 +35,15 @@ public class DesaturizeEffect extends StatelessVideoEffect {
 
     @Override
     public ReadOnlyClipImage createFrame(StatelessEffectRequest request) {
-        return independentPixelOperations.createNewImageWithAppliedTransformation(request.getCurrentFrame(), pixelRequest -> {
-            int desaturized = (pixelRequest.input[0] + pixelRequest.input[1] + pixelRequest.input[2]) / 3;
-            pixelRequest.output[0] = desaturized;
-            pixelRequest.output[1] = desaturized;
-            pixelRequest.output[2] = desaturized;
-            pixelRequest.output[3] = pixelRequest.input[3];
+        return independentPixelOperations.createNewImageWithAppliedRowKernel(request.getCurrentFrame(), (input, inputOffset, output, outputOffset, y, pixelCount) -> {
+            int end = inputOffset + pixelCount * 4;
+            for (int i = inputOffset, j = outputOffset; i < end; i += 4, j += 4) {
+                byte desaturized = (byte) (((input.get(i + 0) & 0xFF) + (input.get(i + 1) & 0xFF) + (input.get(i + 2) & 0xFF)) / 3);
+                output.put(j + 0, desaturized);
+                output.put(j + 1, desaturized);
+                output.put(j + 2, desaturized);
+                output.put(j + 3, input.get(i + 3));
+            }
         });
 
     }
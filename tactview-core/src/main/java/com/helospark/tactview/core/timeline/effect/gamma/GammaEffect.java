@@ -14,6 +14,7 @@ import com.helospark.tactview.core.timeline.effect.interpolation.interpolator.Mu
 import com.helospark.tactview.core.timeline.effect.interpolation.provider.DoubleProvider;
 import com.helospark.tactview.core.timeline.image.ReadOnlyClipImage;
 import com.helospark.tactview.core.util.IndependentPixelOperation;
+import com.helospark.tactview.core.util.MathUtil;
 import com.helospark.tactview.core.util.ReflectionUtil;
 
 public class GammaEffect extends StatelessVideoEffect {
@@ -40,12 +41,19 @@ public class GammaEffect extends StatelessVideoEffect {
     public ReadOnlyClipImage createFrame(StatelessEffectRequest request) {
         double gamma = gammaProvider.getValueAt(request.getEffectPosition());
 
-        return independentPixelOperation.createNewImageWithAppliedTransformation(request.getCurrentFrame(), pixelRequest -> {
-            // if needed lookup table could be used for performance reasons
-            pixelRequest.output[0] = (int) (Math.pow(pixelRequest.input[0] / 255.0, gamma) * 255.0);
-            pixelRequest.output[1] = (int) (Math.pow(pixelRequest.input[1] / 255.0, gamma) * 255.0);
-            pixelRequest.output[2] = (int) (Math.pow(pixelRequest.input[2] / 255.0, gamma) * 255.0);
-            pixelRequest.output[3] = pixelRequest.input[3];
+        byte[] lookupTable = new byte[256];
+        for (int i = 0; i < lookupTable.length; ++i) {
+            lookupTable[i] = (byte) MathUtil.clamp((int) (Math.pow(i / 255.0, gamma) * 255.0), 0, 255);
+        }
+
+        return independentPixelOperation.createNewImageWithAppliedRowKernel(request.getCurrentFrame(), (input, inputOffset, output, outputOffset, y, pixelCount) -> {
+            int end = inputOffset + pixelCount * 4;
+            for (int i = inputOffset, j = outputOffset; i < end; i += 4, j += 4) {
+                output.put(j + 0, lookupTable[input.get(i + 0) & 0xFF]);
+                output.put(j + 1, lookupTable[input.get(i + 1) & 0xFF]);
+                output.put(j + 2, lookupTable[input.get(i + 2) & 0xFF]);
+                output.put(j + 3, input.get(i + 3));
+            }
         });
     }
 
@@ -36,11 +36,14 @@ public class InvertEffect extends StatelessVideoEffect {
 
     @Override
     public ReadOnlyClipImage createFrame(StatelessEffectRequest request) {
-        return independentPixelOperation.createNewImageWithAppliedTransformation(request.getCurrentFrame(), pixelRequest -> {
-            pixelRequest.output[0] = MAX_PIXEL_VALUE - pixelRequest.input[0];
-            pixelRequest.output[1] = MAX_PIXEL_VALUE - pixelRequest.input[1];
-            pixelRequest.output[2] = MAX_PIXEL_VALUE - pixelRequest.input[2];
-            pixelRequest.output[3] = pixelRequest.input[3];
+        return independentPixelOperation.createNewImageWithAppliedRowKernel(request.getCurrentFrame(), (input, inputOffset, output, outputOffset, y, pixelCount) -> {
+            int end = inputOffset + pixelCount * 4;
+            for (int i = inputOffset, j = outputOffset; i < end; i += 4, j += 4) {
+                output.put(j + 0, (byte) (MAX_PIXEL_VALUE - (input.get(i + 0) & 0xFF)));
+                output.put(j + 1, (byte) (MAX_PIXEL_VALUE - (input.get(i + 1) & 0xFF)));
+                output.put(j + 2, (byte) (MAX_PIXEL_VALUE - (input.get(i + 2) & 0xFF)));
+                output.put(j + 3, input.get(i + 3));
+            }
         });
     }
 
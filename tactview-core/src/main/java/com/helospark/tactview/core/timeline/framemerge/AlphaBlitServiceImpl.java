@@ -1,15 +1,132 @@
 package com.helospark.tactview.core.timeline.framemerge;
 
+import java.nio.ByteBuffer;
+
 import com.helospark.lightdi.annotation.Component;
 import com.helospark.tactview.core.timeline.blendmode.BlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.SeparateRgbComponentBlendMode;
 import com.helospark.tactview.core.timeline.image.ClipImage;
 import com.helospark.tactview.core.timeline.image.ReadOnlyClipImage;
+import com.helospark.tactview.core.util.IndependentPixelOperation;
 
+/**
+ * Blend modes blending the RGB components separately are composited a row at a time using the lookup table of the blend mode, with the same
+ * floating point operations in the same order as {@link SeparateRgbComponentBlendMode#computeColor(int[], int[], int[])}, so the result
+ * is bit identical to the per pixel path, which is still used for other blend modes.
+ */
 @Component
 public class AlphaBlitServiceImpl implements AlphaBlitService {
+    private IndependentPixelOperation independentPixelOperation;
+
+    public AlphaBlitServiceImpl(IndependentPixelOperation independentPixelOperation) {
+        this.independentPixelOperation = independentPixelOperation;
+    }
 
     @Override
     public void alphaBlitFrame(ClipImage result, ReadOnlyClipImage clipFrameResult, Integer width, Integer height, BlendModeStrategy blendMode, double globalAlpha) {
+        if (!canUseComponentTable(result, blendMode)) {
+            alphaBlitFrameByPixel(result, clipFrameResult, width, height, blendMode, globalAlpha);
+            return;
+        }
+        double[] scaledComponentTable = ((SeparateRgbComponentBlendMode) blendMode).getScaledComponentTable();
+        ByteBuffer background = result.getBuffer();
+        ByteBuffer foreground = clipFrameResult.getBuffer();
+        int backgroundStride = result.getWidth() * 4;
+        int foregroundStride = clipFrameResult.getWidth() * 4;
+        int pixelCount = width;
+
+        independentPixelOperation.executeOnRows(height, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; ++y) {
+                blendRow(scaledComponentTable, foreground, y * foregroundStride, background, y * backgroundStride, pixelCount, globalAlpha, false, 0.0);
+            }
+        });
+    }
+
+    @Override
+    public void alphaBlitImageIntoResult(ClipImage result, ReadOnlyClipImage toBlit, int blitToX, int blitToY, BlendModeStrategy blendMode, double globalAlpha) {
+        if (!canUseComponentTable(result, blendMode)) {
+            alphaBlitImageIntoResultByPixel(result, toBlit, blitToX, blitToY, blendMode, globalAlpha);
+            return;
+        }
+        blitRows(result, toBlit, blitToX, blitToY, (SeparateRgbComponentBlendMode) blendMode, true, globalAlpha);
+    }
+
+    @Override
+    public void alphaBlitImageIntoResultWithoutPremultiply(ClipImage result, ReadOnlyClipImage toBlit, int blitToX, int blitToY, BlendModeStrategy blendMode, double globalAlpha) {
+        if (!canUseComponentTable(result, blendMode)) {
+            alphaBlitImageIntoResultWithoutPremultiplyByPixel(result, toBlit, blitToX, blitToY, blendMode, globalAlpha);
+            return;
+        }
+        blitRows(result, toBlit, blitToX, blitToY, (SeparateRgbComponentBlendMode) blendMode, false, 0.0);
+    }
+
+    // Shared read-only frames are written through the ClipImage setters, which copy them first
+    private boolean canUseComponentTable(ClipImage result, BlendModeStrategy blendMode) {
+        return blendMode instanceof SeparateRgbComponentBlendMode && !result.getBuffer().isReadOnly();
+    }
+
+    // Blitted images are usually small (brushes), so these are not split between threads
+    private void blitRows(ClipImage result, ReadOnlyClipImage toBlit, int blitToX, int blitToY, SeparateRgbComponentBlendMode blendMode, boolean mix,
+            double mixAlpha) {
+        int startX = Math.max(0, -blitToX);
+        int endX = Math.min(toBlit.getWidth(), result.getWidth() - blitToX);
+        int startY = Math.max(0, -blitToY);
+        int endY = Math.min(toBlit.getHeight(), result.getHeight() - blitToY);
+        if (startX >= endX) {
+            return;
+        }
+        double[] scaledComponentTable = blendMode.getScaledComponentTable();
+        ByteBuffer background = result.getBuffer();
+        ByteBuffer foreground = toBlit.getBuffer();
+        for (int y = startY; y < endY; ++y) {
+            int foregroundOffset = (y * toBlit.getWidth() + startX) * 4;
+            int backgroundOffset = ((blitToY + y) * result.getWidth() + blitToX + startX) * 4;
+            blendRow(scaledComponentTable, foreground, foregroundOffset, background, backgroundOffset, endX - startX, 1.0, mix, mixAlpha);
+        }
+    }
+
+    /**
+     * @param foregroundAlphaMultiplier the foreground alpha is multiplied with this before blending
+     * @param mix whether the blended color is mixed again with the background using the foreground alpha multiplied by mixAlpha
+     */
+    private static void blendRow(double[] scaledComponentTable, ByteBuffer foreground, int foregroundOffset, ByteBuffer background, int backgroundOffset, int pixelCount,
+            double foregroundAlphaMultiplier, boolean mix, double mixAlpha) {
+        int end = pixelCount * 4;
+        for (int i = 0; i < end; i += 4) {
+            int foregroundIndex = foregroundOffset + i;
+            int backgroundIndex = backgroundOffset + i;
+
+            int foregroundAlpha = (int) ((foreground.get(foregroundIndex + 3) & 0xFF) * foregroundAlphaMultiplier);
+            int backgroundAlpha = background.get(backgroundIndex + 3) & 0xFF;
+            double alphaNormalized = foregroundAlpha / 255.0;
+            double inverseAlpha = 1.0 - alphaNormalized;
+            double mixAlphaNormalized = mix ? (foregroundAlpha * mixAlpha) / 255.0 : 0.0;
+
+            for (int component = 0; component < 3; ++component) {
+                int top = foreground.get(foregroundIndex + component) & 0xFF;
+                int bottom = background.get(backgroundIndex + component) & 0xFF;
+                int blended = (int) (scaledComponentTable[(top << 8) | bottom] * alphaNormalized + bottom * inverseAlpha);
+                if (mix) {
+                    blended = (int) ((blended * mixAlphaNormalized) + (bottom * (1.0 - mixAlphaNormalized)));
+                }
+                background.put(backgroundIndex + component, (byte) saturate(blended));
+            }
+            int resultAlpha = (int) (backgroundAlpha + (1.0 - backgroundAlpha / 255.0) * foregroundAlpha);
+            background.put(backgroundIndex + 3, (byte) saturate(resultAlpha));
+        }
+    }
+
+    private static int saturate(int value) {
+        if (value > 255) {
+            return 255;
+        } else if (value < 0) {
+            return 0;
+        } else {
+            return value;
+        }
+    }
+
+    private void alphaBlitFrameByPixel(ClipImage result, ReadOnlyClipImage clipFrameResult, Integer width, Integer height, BlendModeStrategy blendMode, double globalAlpha) {
         int[] forground = new int[4];
         int[] blendedForground = new int[4];
         int[] background = new int[4];
@@ -41,8 +158,7 @@ public class AlphaBlitServiceImpl implements AlphaBlitService {
     }
 
     // TODO: avoid duplication
-    @Override
-    public void alphaBlitImageIntoResult(ClipImage result, ReadOnlyClipImage toBlit, int blitToX, int blitToY, BlendModeStrategy blendMode, double globalAlpha) {
+    private void alphaBlitImageIntoResultByPixel(ClipImage result, ReadOnlyClipImage toBlit, int blitToX, int blitToY, BlendModeStrategy blendMode, double globalAlpha) {
         int[] forground = new int[4];
         int[] blendedForground = new int[4];
         int[] background = new int[4];
@@ -74,8 +190,7 @@ public class AlphaBlitServiceImpl implements AlphaBlitService {
     }
 
     // TODO: avoid duplication
-    @Override
-    public void alphaBlitImageIntoResultWithoutPremultiply(ClipImage result, ReadOnlyClipImage toBlit, int blitToX, int blitToY, BlendModeStrategy blendMode, double globalAlpha) {
+    private void alphaBlitImageIntoResultWithoutPremultiplyByPixel(ClipImage result, ReadOnlyClipImage toBlit, int blitToX, int blitToY, BlendModeStrategy blendMode, double globalAlpha) {
         int[] forground = new int[4];
         int[] blendedForground = new int[4];
         int[] background = new int[4];
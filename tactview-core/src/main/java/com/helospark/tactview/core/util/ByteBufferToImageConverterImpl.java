@@ -1,18 +1,20 @@
 package com.helospark.tactview.core.util;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 
 import com.helospark.lightdi.annotation.Component;
 import com.helospark.tactview.core.timeline.image.ReadOnlyClipImage;
 
+/**
+ * Pixels are written directly into the raster of the image row by row, instead of setting them one by one through Color instances.
+ */
 @Component
 public class ByteBufferToImageConverterImpl implements ByteBufferToImageConverter {
-    private IndependentPixelOperation independentPixelOperation;
-
-    public ByteBufferToImageConverterImpl(IndependentPixelOperation independentPixelOperation) {
-        this.independentPixelOperation = independentPixelOperation;
-    }
 
     @Override
     public BufferedImage frameToBufferedImage(ReadOnlyClipImage currentFrame) {
@@ -22,27 +24,35 @@ public class ByteBufferToImageConverterImpl implements ByteBufferToImageConverte
     @Override
     public BufferedImage byteBufferToBufferedImage(ByteBuffer byteBuffer, int width, int height) {
         BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        independentPixelOperation.executePixelTransformation(width, height, (x, y) -> {
-            int in = y * width * 4 + (x * 4);
-            int r = printByte(byteBuffer.get(in + 0));
-            int g = printByte(byteBuffer.get(in + 1));
-            int b = printByte(byteBuffer.get(in + 2));
-            bufferedImage.setRGB(x, y, new java.awt.Color(r, g, b).getRGB());
-        });
+        int[] data = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+        ByteBuffer source = byteBuffer.duplicate();
+        source.position(0);
+        IntBuffer rgbaPixels = source.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(); // RGBA bytes read as little endian int are 0xAABBGGRR
+        rgbaPixels.get(data, 0, width * height);
+        for (int i = 0; i < data.length; ++i) {
+            int abgr = data[i];
+            data[i] = ((abgr & 0xFF) << 16) | (abgr & 0xFF00) | ((abgr >>> 16) & 0xFF);
+        }
         return bufferedImage;
     }
 
     @Override
     public BufferedImage byteBufferToBufferedImageWithAlpha(ByteBuffer byteBuffer, int width, int height) {
         BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-        independentPixelOperation.executePixelTransformation(width, height, (x, y) -> {
-            int in = y * width * 4 + (x * 4);
-            int r = printByte(byteBuffer.get(in + 0));
-            int g = printByte(byteBuffer.get(in + 1));
-            int b = printByte(byteBuffer.get(in + 2));
-            int a = printByte(byteBuffer.get(in + 3));
-            bufferedImage.setRGB(x, y, new java.awt.Color(r, g, b, a).getRGB());
-        });
+        byte[] data = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
+        byte[] row = new byte[width * 4];
+        ByteBuffer rgbaPixels = byteBuffer.duplicate();
+        for (int y = 0; y < height; ++y) {
+            int rowOffset = y * width * 4;
+            rgbaPixels.position(rowOffset);
+            rgbaPixels.get(row);
+            for (int i = 0; i < row.length; i += 4) {
+                data[rowOffset + i + 0] = row[i + 3];
+                data[rowOffset + i + 1] = row[i + 2];
+                data[rowOffset + i + 2] = row[i + 1];
+                data[rowOffset + i + 3] = row[i + 0];
+            }
+        }
         return bufferedImage;
     }
 
@@ -1,22 +1,31 @@
 package com.helospark.tactview.core.util;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Qualifier;
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
 import com.helospark.tactview.core.timeline.image.ClipImage;
 import com.helospark.tactview.core.timeline.image.ReadOnlyClipImage;
 
 @Component
 public class IndependentPixelOperationImpl implements IndependentPixelOperation {
-    private ExecutorService workerExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-    private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final ForkJoinPool workerPool;
+
+    public IndependentPixelOperationImpl(@Qualifier("renderForkJoinPool") ForkJoinPool workerPool) {
+        this.workerPool = workerPool;
+    }
 
     @Override
     public ClipImage createNewImageWithAppliedTransformation(ReadOnlyClipImage currentFrame, SimplePixelTransformer pixelTransformer) {
@@ -25,72 +34,99 @@ public class IndependentPixelOperationImpl implements IndependentPixelOperation
 
     @Override
     public ClipImage createNewImageWithAppliedTransformation(ReadOnlyClipImage currentFrame, List<ThreadLocalProvider<?>> threadLocalProviders, SimplePixelTransformer pixelTransformer) {
-        ClipImage resultFrame = ClipImage.sameSizeAs(currentFrame);
-
-        int taskSize = resultFrame.getHeight() / numberOfThreads;
-        List<CompletableFuture<?>> futures = new ArrayList<>();
-        for (int i = 0; i < numberOfThreads; ++i) {
-            int currentIndex = i;
-            CompletableFuture<?> future = CompletableFuture.runAsync(() -> {
-                int startIndex = currentIndex * taskSize;
-                int endIndex = (currentIndex == numberOfThreads - 1 ? resultFrame.getHeight() : (currentIndex + 1) * taskSize);
+        // every pixel is written below
+        ByteBuffer resultBuffer = GlobalMemoryManagerAccessor.memoryManager.requestUninitializedBuffer(currentFrame.getWidth() * currentFrame.getHeight() * 4);
+        ClipImage resultFrame = new ClipImage(resultBuffer, currentFrame.getWidth(), currentFrame.getHeight());
 
-                int[] pixelComponents = new int[4];
-                int[] resultPixelComponents = new int[4];
+        // bands running one after the other reuse the thread locals instead of each band creating them again
+        Queue<Map<ThreadLocalProvider<?>, Object>> freeThreadLocals = new ConcurrentLinkedQueue<>();
+        executeOnRows(resultFrame.getHeight(), (startIndex, endIndex) -> {
+            int[] pixelComponents = new int[4];
+            int[] resultPixelComponents = new int[4];
 
-                Map<ThreadLocalProvider<?>, Object> threadLocals = threadLocalProviders.stream()
+            Map<ThreadLocalProvider<?>, Object> threadLocals = freeThreadLocals.poll();
+            if (threadLocals == null) {
+                threadLocals = threadLocalProviders.stream()
                         .collect(Collectors.toMap(a -> a, a -> a.get()));
+            }
 
-                SimplePixelTransformerRequest request = SimplePixelTransformerRequest.builder()
-                        .withx(0)
-                        .withy(0)
-                        .withInput(pixelComponents)
-                        .withOutput(resultPixelComponents)
-                        .withThreadLocals(threadLocals)
-                        .build();
-                for (int y = startIndex; y < endIndex; y++) {
-                    for (int x = 0; x < currentFrame.getWidth(); x++) {
-                        currentFrame.getPixelComponents(pixelComponents, x, y);
-
-                        request.x = x;
-                        request.y = y;
-                        request.output = resultPixelComponents;
-                        request.input = pixelComponents;
-
-                        pixelTransformer.transform(request);
-
-                        resultFrame.setPixel(request.output, x, y);
-                    }
+            SimplePixelTransformerRequest request = SimplePixelTransformerRequest.builder()
+                    .withx(0)
+                    .withy(0)
+                    .withInput(pixelComponents)
+                    .withOutput(resultPixelComponents)
+                    .withThreadLocals(threadLocals)
+                    .build();
+            for (int y = startIndex; y < endIndex; y++) {
+                for (int x = 0; x < currentFrame.getWidth(); x++) {
+                    currentFrame.getPixelComponents(pixelComponents, x, y);
+
+                    request.x = x;
+                    request.y = y;
+                    request.output = resultPixelComponents;
+                    request.input = pixelComponents;
+
+                    pixelTransformer.transform(request);
+
+                    resultFrame.setPixel(request.output, x, y);
                 }
-            }, workerExecutor);
-            futures.add(future);
-        }
-        CompletableFuture.allOf(toArray(futures)).join(); // block until finished
+            }
+            freeThreadLocals.offer(threadLocals);
+        });
         return resultFrame;
     }
 
     @Override
     public void executePixelTransformation(int width, int height, BiConsumer<Integer, Integer> consumer) {
-        int taskSize = height / numberOfThreads;
-        List<CompletableFuture<?>> futures = new ArrayList<>();
-        for (int i = 0; i < numberOfThreads; ++i) {
-            int currentIndex = i;
-            CompletableFuture<?> future = CompletableFuture.runAsync(() -> {
-                int startIndex = currentIndex * taskSize;
-                int endIndex = (currentIndex == numberOfThreads - 1 ? height : (currentIndex + 1) * taskSize);
-                for (int y = startIndex; y < endIndex; y++) {
-                    for (int x = 0; x < width; x++) {
-                        consumer.accept(x, y);
-                    }
+        executeOnRows(height, (startIndex, endIndex) -> {
+            for (int y = startIndex; y < endIndex; y++) {
+                for (int x = 0; x < width; x++) {
+                    consumer.accept(x, y);
                 }
-            }, workerExecutor);
-            futures.add(future);
+            }
+        });
+    }
+
+    /**
+     * Splits the rows into bands. When called from a render worker the bands are forked into the same pool, so idle workers steal them
+     * instead of the caller blocking on another pool.
+     */
+    @Override
+    public void executeOnRows(int height, RowBandConsumer rowBandConsumer) {
+        int minimumRowsPerTask = Math.max(1, height / (workerPool.getParallelism() * TASKS_PER_THREAD));
+        RowBandTask task = new RowBandTask(0, height, minimumRowsPerTask, rowBandConsumer);
+        if (ForkJoinTask.getPool() == workerPool) {
+            task.invoke();
+        } else {
+            workerPool.invoke(task);
         }
-        CompletableFuture.allOf(toArray(futures)).join(); // block until finished
     }
 
-    private CompletableFuture<?>[] toArray(List<CompletableFuture<?>> futures) {
-        return futures.toArray(new CompletableFuture[futures.size()]);
+    static class RowBandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int startRow;
+        private final int endRow;
+        private final int minimumRowsPerTask;
+        private final RowBandConsumer rowBandConsumer;
+
+        public RowBandTask(int startRow, int endRow, int minimumRowsPerTask, RowBandConsumer rowBandConsumer) {
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.minimumRowsPerTask = minimumRowsPerTask;
+            this.rowBandConsumer = rowBandConsumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow <= minimumRowsPerTask) {
+                rowBandConsumer.accept(startRow, endRow);
+            } else {
+                int middleRow = (startRow + endRow) >>> 1;
+                invokeAll(new RowBandTask(startRow, middleRow, minimumRowsPerTask, rowBandConsumer),
+                        new RowBandTask(middleRow, endRow, minimumRowsPerTask, rowBandConsumer));
+            }
+        }
     }
 
 }
@@ -0,0 +1,194 @@
+package com.helospark.tactview.core.util.messaging;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of asynchronous messages delivered in order by a single thread.
+ * <p>
+ * Messages with a coalescing policy are merged into the message with the same key still waiting in the queue, so they are delivered at the position
+ * of the first one. Senders wait while the queue is full, except when sending from the delivering thread itself, which could never be woken up.
+ */
+class AsyncMessageTopic {
+    private final String name;
+    private final int capacity;
+    private final ExecutorService executorService;
+    private final Consumer<Object> deliverer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<PendingMessage> queue = new ArrayDeque<>();
+    private final Map<CoalescingKey, PendingMessage> pendingCoalescableMessages = new HashMap<>();
+    private boolean drainScheduled = false;
+    private volatile Thread deliveringThread;
+
+    private long publishedMessages = 0;
+    private long coalescedMessages = 0;
+    private long deliveredMessages = 0;
+    private long sumDeliveryLatencyNanos = 0;
+    private long maxDeliveryLatencyNanos = 0;
+
+    public AsyncMessageTopic(String name, int capacity, ExecutorService executorService, Consumer<Object> deliverer) {
+        this.name = name;
+        this.capacity = capacity;
+        this.executorService = executorService;
+        this.deliverer = deliverer;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void publish(Object message, CoalescingPolicy coalescingPolicy) {
+        lock.lock();
+        try {
+            ++publishedMessages;
+            CoalescingKey coalescingKey = null;
+            if (coalescingPolicy != null) {
+                coalescingKey = new CoalescingKey(message.getClass(), coalescingPolicy.getKey(message));
+                PendingMessage pendingMessage = pendingCoalescableMessages.get(coalescingKey);
+                if (pendingMessage != null) {
+                    pendingMessage.message = coalescingPolicy.merge(pendingMessage.message, message);
+                    ++coalescedMessages;
+                    return;
+                }
+            }
+            while (queue.size() >= capacity && Thread.currentThread() != deliveringThread) {
+                notFull.awaitUninterruptibly();
+            }
+            PendingMessage pendingMessage = new PendingMessage(message, coalescingKey, System.nanoTime());
+            queue.add(pendingMessage);
+            if (coalescingKey != null) {
+                pendingCoalescableMessages.put(coalescingKey, pendingMessage);
+            }
+            if (!drainScheduled) {
+                drainScheduled = true;
+                executorService.execute(this::drain);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        deliveringThread = Thread.currentThread();
+        boolean drained = false;
+        try {
+            while (true) {
+                PendingMessage pendingMessage = takeNext();
+                if (pendingMessage == null) {
+                    drained = true;
+                    return;
+                }
+                deliverer.accept(pendingMessage.message);
+                recordDelivery(System.nanoTime() - pendingMessage.publishNanos);
+            }
+        } finally {
+            deliveringThread = null;
+            if (!drained) {
+                rescheduleAfterFailedDelivery();
+            }
+        }
+    }
+
+    // The deliverer only catches exceptions, an Error thrown by a listener would otherwise leave the drain scheduled forever and block the senders
+    private void rescheduleAfterFailedDelivery() {
+        lock.lock();
+        try {
+            drainScheduled = !queue.isEmpty();
+            if (drainScheduled) {
+                executorService.execute(this::drain);
+            }
+        } catch (RejectedExecutionException e) {
+            drainScheduled = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PendingMessage takeNext() {
+        lock.lock();
+        try {
+            PendingMessage result = queue.poll();
+            if (result == null) {
+                drainScheduled = false;
+                return null;
+            }
+            if (result.coalescingKey != null) {
+                pendingCoalescableMessages.remove(result.coalescingKey);
+            }
+            notFull.signalAll();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordDelivery(long latencyNanos) {
+        lock.lock();
+        try {
+            ++deliveredMessages;
+            sumDeliveryLatencyNanos += latencyNanos;
+            maxDeliveryLatencyNanos = Math.max(maxDeliveryLatencyNanos, latencyNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public MessageTopicStatistics getStatistics() {
+        lock.lock();
+        try {
+            long averageLatency = deliveredMessages == 0 ? 0 : sumDeliveryLatencyNanos / deliveredMessages;
+            return new MessageTopicStatistics(name, publishedMessages, coalescedMessages, deliveredMessages, queue.size(), averageLatency, maxDeliveryLatencyNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    static class PendingMessage {
+        Object message;
+        final CoalescingKey coalescingKey;
+        final long publishNanos;
+
+        public PendingMessage(Object message, CoalescingKey coalescingKey, long publishNanos) {
+            this.message = message;
+            this.coalescingKey = coalescingKey;
+            this.publishNanos = publishNanos;
+        }
+
+    }
+
+    static class CoalescingKey {
+        private final Class<?> messageType;
+        private final Object key;
+
+        public CoalescingKey(Class<?> messageType, Object key) {
+            this.messageType = messageType;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CoalescingKey)) {
+                return false;
+            }
+            CoalescingKey castOther = (CoalescingKey) other;
+            return messageType.equals(castOther.messageType) && Objects.equals(key, castOther.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(messageType, key);
+        }
+
+    }
+
+}
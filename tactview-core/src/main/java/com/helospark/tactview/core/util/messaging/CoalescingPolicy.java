@@ -0,0 +1,23 @@
+package com.helospark.tactview.core.util.messaging;
+
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+class CoalescingPolicy<T> {
+    private final Function<T, ?> keyExtractor;
+    private final BinaryOperator<T> merger;
+
+    public CoalescingPolicy(Function<T, ?> keyExtractor, BinaryOperator<T> merger) {
+        this.keyExtractor = keyExtractor;
+        this.merger = merger;
+    }
+
+    public Object getKey(T message) {
+        return keyExtractor.apply(message);
+    }
+
+    public T merge(T pendingMessage, T newMessage) {
+        return merger.apply(pendingMessage, newMessage);
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.helospark.tactview.core.util.messaging;
+
+/**
+ * Snapshot of the counters of an asynchronous message topic, latency is measured from the first publish of a message to the end of its delivery.
+ */
+public class MessageTopicStatistics {
+    private final String topicName;
+    private final long publishedMessages;
+    private final long coalescedMessages;
+    private final long deliveredMessages;
+    private final int queueSize;
+    private final long averageDeliveryLatencyNanos;
+    private final long maxDeliveryLatencyNanos;
+
+    public MessageTopicStatistics(String topicName, long publishedMessages, long coalescedMessages, long deliveredMessages, int queueSize, long averageDeliveryLatencyNanos,
+            long maxDeliveryLatencyNanos) {
+        this.topicName = topicName;
+        this.publishedMessages = publishedMessages;
+        this.coalescedMessages = coalescedMessages;
+        this.deliveredMessages = deliveredMessages;
+        this.queueSize = queueSize;
+        this.averageDeliveryLatencyNanos = averageDeliveryLatencyNanos;
+        this.maxDeliveryLatencyNanos = maxDeliveryLatencyNanos;
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public long getPublishedMessages() {
+        return publishedMessages;
+    }
+
+    public long getCoalescedMessages() {
+        return coalescedMessages;
+    }
+
+    public long getDeliveredMessages() {
+        return deliveredMessages;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public long getAverageDeliveryLatencyNanos() {
+        return averageDeliveryLatencyNanos;
+    }
+
+    public long getMaxDeliveryLatencyNanos() {
+        return maxDeliveryLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageTopicStatistics [topicName=" + topicName + ", publishedMessages=" + publishedMessages + ", coalescedMessages=" + coalescedMessages + ", deliveredMessages="
+                + deliveredMessages + ", queueSize=" + queueSize + ", averageDeliveryLatencyNanos=" + averageDeliveryLatencyNanos + ", maxDeliveryLatencyNanos="
+                + maxDeliveryLatencyNanos + "]";
+    }
+
+}
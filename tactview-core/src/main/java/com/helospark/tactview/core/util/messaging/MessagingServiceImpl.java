@@ -1,48 +1,81 @@
 package com.helospark.tactview.core.util.messaging;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 
 import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.timeline.message.progress.ProgressAdvancedMessage;
+import com.helospark.tactview.core.timeline.message.progress.ProgressDoneMessage;
+import com.helospark.tactview.core.timeline.message.progress.ProgressInitializeMessage;
 import com.helospark.tactview.core.util.logger.Slf4j;
 
+/**
+ * Listeners of a message class are resolved once and cached until the listeners change, so sending a message does not check every registered type.
+ * <p>
+ * Asynchronous messages are delivered in order on their topic, progress messages have their own topic, so a long export does not delay other messages.
+ */
 @Component
 public class MessagingServiceImpl implements MessagingService {
+    private static final String DEFAULT_TOPIC = "default";
+    private static final String PROGRESS_TOPIC = "progress";
+    private static final int ASYNC_QUEUE_CAPACITY = 10000;
+
     @Slf4j
     private Logger logger;
 
-    private ExecutorService executorService = Executors.newFixedThreadPool(1);
-    private Map<Class<?>, Queue<MessageListener<?>>> messageListeners = new ConcurrentHashMap<>();
+    private volatile ListenerRegistry listenerRegistry = new ListenerRegistry(new LinkedHashMap<>());
+    private final Map<Class<?>, CoalescingPolicy<?>> coalescingPolicies = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AsyncMessageTopic> topicsByMessageType = new ConcurrentHashMap<>();
+    private final Map<String, AsyncMessageTopic> topics = new LinkedHashMap<>();
 
-    @Override
-    public <T> void register(Class<T> messageType, MessageListener<T> listener) {
-        messageListeners.compute(messageType, (a, value) -> {
-            Queue<MessageListener<?>> queueToAddValueTo;
-            if (value == null) {
-                queueToAddValueTo = new ConcurrentLinkedDeque<>();
-            } else {
-                queueToAddValueTo = value;
-            }
-            queueToAddValueTo.offer(listener);
-            return queueToAddValueTo;
+    public MessagingServiceImpl() {
+        AsyncMessageTopic defaultTopic = createTopic(DEFAULT_TOPIC);
+        AsyncMessageTopic progressTopic = createTopic(PROGRESS_TOPIC);
+        topicsByMessageType.put(Object.class, defaultTopic);
+        topicsByMessageType.put(ProgressInitializeMessage.class, progressTopic);
+        topicsByMessageType.put(ProgressAdvancedMessage.class, progressTopic);
+        topicsByMessageType.put(ProgressDoneMessage.class, progressTopic);
+
+        registerCoalescing(ProgressAdvancedMessage.class, ProgressAdvancedMessage::getId,
+                (pending, message) -> new ProgressAdvancedMessage(pending.getId(), pending.getNumberOfJobsDone() + message.getNumberOfJobsDone()));
+        registerCoalescing(IntervalDirtyMessage.class, message -> IntervalDirtyMessage.class, (pending, message) -> {
+            var intervals = new ArrayList<>(pending.getAffectedIntervals());
+            intervals.addAll(message.getAffectedIntervals());
+            return new IntervalDirtyMessage(intervals);
         });
     }
 
+    private AsyncMessageTopic createTopic(String name) {
+        AsyncMessageTopic topic = new AsyncMessageTopic(name, ASYNC_QUEUE_CAPACITY, Executors.newFixedThreadPool(1), this::deliverAsyncMessage);
+        topics.put(name, topic);
+        return topic;
+    }
+
+    @Override
+    public synchronized <T> void register(Class<T> messageType, MessageListener<T> listener) {
+        Map<Class<?>, List<MessageListener<?>>> newListeners = listenerRegistry.copyListeners();
+        newListeners.computeIfAbsent(messageType, key -> new ArrayList<>()).add(listener);
+        listenerRegistry = new ListenerRegistry(newListeners);
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public <T> void sendMessage(T message) {
         logger.debug("Sending message {}", message);
-        messageListeners.entrySet()
-                .stream()
-                .filter(clazz -> clazz.getKey().isAssignableFrom(message.getClass()))
-                .flatMap(a -> a.getValue().stream())
-                .map(a -> (MessageListener<T>) a)
-                .forEach(listener -> listener.onMessage(message));
+        for (var listener : listenerRegistry.getListenersFor(message.getClass())) {
+            ((MessageListener<T>) listener).onMessage(message);
+        }
     }
 
     /* (non-Javadoc)
@@ -50,17 +83,92 @@ public class MessagingServiceImpl implements MessagingService {
      */
     @Override
     public <T> void sendAsyncMessage(T message) {
-        executorService.execute(() -> {
-            try {
-                sendMessage(message);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        });
+        Class<?> messageType = message.getClass();
+        findTopic(messageType).publish(message, coalescingPolicies.get(messageType));
+    }
+
+    private AsyncMessageTopic findTopic(Class<?> messageType) {
+        AsyncMessageTopic topic = topicsByMessageType.get(messageType);
+        if (topic == null) {
+            topic = topicsByMessageType.computeIfAbsent(messageType, type -> topicsByMessageType.get(Object.class));
+        }
+        return topic;
+    }
+
+    private void deliverAsyncMessage(Object message) {
+        try {
+            sendMessage(message);
+        } catch (Exception e) {
+            logger.error("Unable to deliver message {}", message, e);
+        }
+    }
+
+    @Override
+    public <T> void registerCoalescing(Class<T> messageType, Function<T, ?> keyExtractor, BinaryOperator<T> merger) {
+        coalescingPolicies.put(messageType, new CoalescingPolicy<>(keyExtractor, merger));
     }
 
     @Override
-    public void removeListener(Class<?> clazz, Object progressAdvancer) {
-        messageListeners.get(clazz).remove(progressAdvancer);
+    public synchronized void removeListener(Class<?> clazz, Object progressAdvancer) {
+        Map<Class<?>, List<MessageListener<?>>> newListeners = listenerRegistry.copyListeners();
+        List<MessageListener<?>> listenersOfType = newListeners.get(clazz);
+        if (listenersOfType != null && listenersOfType.remove(progressAdvancer)) {
+            listenerRegistry = new ListenerRegistry(newListeners);
+        }
+    }
+
+    public List<MessageTopicStatistics> getTopicStatistics() {
+        List<MessageTopicStatistics> result = new ArrayList<>();
+        for (var topic : topics.values()) {
+            result.add(topic.getStatistics());
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        logger.debug("Message topic statistics {}", getTopicStatistics());
+        topics.values()
+                .stream()
+                .forEach(topic -> topic.shutdown());
+    }
+
+    /**
+     * Immutable listeners, replaced on every change, so the resolved listeners cached in it are never stale.
+     */
+    static class ListenerRegistry {
+        private final Map<Class<?>, List<MessageListener<?>>> listeners;
+        private final Map<Class<?>, List<MessageListener<?>>> resolvedListeners = new ConcurrentHashMap<>();
+
+        public ListenerRegistry(Map<Class<?>, List<MessageListener<?>>> listeners) {
+            this.listeners = listeners;
+        }
+
+        public List<MessageListener<?>> getListenersFor(Class<?> messageType) {
+            List<MessageListener<?>> result = resolvedListeners.get(messageType);
+            if (result == null) {
+                result = resolvedListeners.computeIfAbsent(messageType, this::resolveListeners);
+            }
+            return result;
+        }
+
+        private List<MessageListener<?>> resolveListeners(Class<?> messageType) {
+            List<MessageListener<?>> result = new ArrayList<>();
+            for (var entry : listeners.entrySet()) {
+                if (entry.getKey().isAssignableFrom(messageType)) {
+                    result.addAll(entry.getValue());
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        public Map<Class<?>, List<MessageListener<?>>> copyListeners() {
+            Map<Class<?>, List<MessageListener<?>>> result = new LinkedHashMap<>();
+            for (var entry : listeners.entrySet()) {
+                result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            return result;
+        }
+
     }
 }
@@ -0,0 +1,54 @@
+package com.helospark.tactview.core.decoder.ffmpeg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveChunkSizeTest {
+    private static final long FULL_HD_FRAME = 1920 * 1080 * 4;
+    private static final long LARGE_CACHE = 100_000_000_000L;
+
+    @Test
+    public void testInitialChunkSizeDependsOnFrameSize() {
+        assertEquals(32, new AdaptiveChunkSize(320 * 200 * 4, LARGE_CACHE).getChunkSize());
+        assertEquals(4, new AdaptiveChunkSize(FULL_HD_FRAME, LARGE_CACHE).getChunkSize());
+    }
+
+    @Test
+    public void testChunkIsLimitedByCacheShare() {
+        // GIVEN
+        long cacheForTwoFramesPerChunk = FULL_HD_FRAME * 2 * AdaptiveChunkSize.CACHE_SHARE_DIVISOR;
+
+        // WHEN
+        AdaptiveChunkSize chunkSize = new AdaptiveChunkSize(FULL_HD_FRAME, cacheForTwoFramesPerChunk);
+        chunkSize.recordDecode(2, 1);
+
+        // THEN
+        assertEquals(2, chunkSize.getChunkSize());
+    }
+
+    @Test
+    public void testFastDecodeGrowsChunk() {
+        // GIVEN
+        AdaptiveChunkSize chunkSize = new AdaptiveChunkSize(FULL_HD_FRAME, LARGE_CACHE);
+
+        // WHEN
+        chunkSize.recordDecode(4, 40);
+
+        // THEN
+        assertEquals(8, chunkSize.getChunkSize());
+    }
+
+    @Test
+    public void testSlowDecodeShrinksChunk() {
+        // GIVEN
+        AdaptiveChunkSize chunkSize = new AdaptiveChunkSize(FULL_HD_FRAME, LARGE_CACHE);
+
+        // WHEN
+        chunkSize.recordDecode(4, 1000);
+
+        // THEN
+        assertEquals(2, chunkSize.getChunkSize());
+    }
+
+}
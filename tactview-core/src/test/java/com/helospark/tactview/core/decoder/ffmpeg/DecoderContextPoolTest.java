@@ -0,0 +1,140 @@
+package com.helospark.tactview.core.decoder.ffmpeg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DecoderContextPoolTest {
+    private FFmpegBasedMediaDecoderImplementation implementation;
+    private DecoderContextPool underTest;
+
+    @BeforeEach
+    public void setUp() {
+        implementation = mock(FFmpegBasedMediaDecoderImplementation.class);
+        AtomicInteger nextId = new AtomicInteger(0);
+        when(implementation.openDecoderContext(anyString(), anyInt(), anyInt())).thenAnswer(invocation -> nextId.getAndIncrement());
+        when(implementation.readFramesWithContext(anyInt(), any(FFmpegImageRequest.class))).thenReturn(1);
+        underTest = new DecoderContextPool(implementation, 2, 1000L);
+    }
+
+    @Test
+    public void testSequentialReadsReuseTheSameContext() {
+        // GIVEN
+        FFmpegImageRequest firstRequest = createRequest("/video.mp4", 0L);
+        FFmpegImageRequest secondRequest = createRequest("/video.mp4", 40000L);
+
+        // WHEN
+        underTest.readFrames(firstRequest);
+        underTest.readFrames(secondRequest);
+
+        // THEN
+        verify(implementation, times(1)).openDecoderContext("/video.mp4", 16, 8);
+        verify(implementation).readFramesWithContext(0, firstRequest);
+        verify(implementation).readFramesWithContext(0, secondRequest);
+        verify(implementation, never()).readFrames(any(FFmpegImageRequest.class));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContextIsClosedOverLimit() {
+        // GIVEN
+        underTest.readFrames(createRequest("/first.mp4", 0L));
+        underTest.readFrames(createRequest("/second.mp4", 0L));
+
+        // WHEN
+        underTest.readFrames(createRequest("/third.mp4", 0L));
+
+        // THEN
+        verify(implementation).closeDecoderContext(0);
+        verify(implementation, never()).closeDecoderContext(1);
+        assertEquals(2, underTest.getNumberOfOpenContexts());
+    }
+
+    @Test
+    public void testReadWaitsForReleasedContextWhenAllContextsAreInUse() throws InterruptedException {
+        // GIVEN
+        DecoderContextPool pool = new DecoderContextPool(implementation, 1, 1000L);
+        CountDownLatch firstReadStarted = new CountDownLatch(1);
+        CountDownLatch firstReadFinishing = new CountDownLatch(1);
+        when(implementation.readFramesWithContext(eq(0), any(FFmpegImageRequest.class))).thenAnswer(invocation -> {
+            firstReadStarted.countDown();
+            firstReadFinishing.await();
+            return 1;
+        });
+        Thread firstReader = new Thread(() -> pool.readFrames(createRequest("/first.mp4", 0L)));
+        firstReader.start();
+        firstReadStarted.await();
+
+        // WHEN
+        Thread secondReader = new Thread(() -> pool.readFrames(createRequest("/second.mp4", 0L)));
+        secondReader.start();
+        while (secondReader.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        int openContextsWhileWaiting = pool.getNumberOfOpenContexts();
+        firstReadFinishing.countDown();
+        firstReader.join();
+        secondReader.join(10000L);
+
+        // THEN
+        assertEquals(1, openContextsWhileWaiting);
+        assertFalse(secondReader.isAlive());
+        verify(implementation).closeDecoderContext(0);
+        verify(implementation).readFramesWithContext(eq(1), any(FFmpegImageRequest.class));
+        verify(implementation, never()).readFrames(any(FFmpegImageRequest.class));
+        assertEquals(1, pool.getNumberOfOpenContexts());
+    }
+
+    @Test
+    public void testIdleContextsAreClosed() {
+        // GIVEN
+        underTest.readFrames(createRequest("/video.mp4", 0L));
+
+        // WHEN
+        underTest.closeIdleContexts(System.currentTimeMillis() + 1000L);
+
+        // THEN
+        verify(implementation).closeDecoderContext(0);
+        assertEquals(0, underTest.getNumberOfOpenContexts());
+    }
+
+    @Test
+    public void testStatelessReadIsUsedWhenNativeLibraryHasNoContextSupport() {
+        // GIVEN
+        when(implementation.openDecoderContext(anyString(), anyInt(), anyInt())).thenThrow(new UnsatisfiedLinkError("Error looking up function"));
+        FFmpegImageRequest request = createRequest("/video.mp4", 0L);
+
+        // WHEN
+        underTest.readFrames(request);
+        underTest.readFrames(request);
+
+        // THEN
+        verify(implementation, times(1)).openDecoderContext("/video.mp4", 16, 8);
+        verify(implementation, times(2)).readFrames(request);
+        assertEquals(0, underTest.getNumberOfOpenContexts());
+    }
+
+    private FFmpegImageRequest createRequest(String path, long startMicroseconds) {
+        FFmpegImageRequest result = new FFmpegImageRequest();
+        result.path = path;
+        result.width = 16;
+        result.height = 8;
+        result.numberOfFrames = 1;
+        result.startMicroseconds = startMicroseconds;
+        return result;
+    }
+
+}
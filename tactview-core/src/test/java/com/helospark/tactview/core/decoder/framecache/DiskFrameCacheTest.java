@@ -0,0 +1,148 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.decoder.framecache.MediaCache.MediaHashValue;
+
+public class DiskFrameCacheTest {
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+
+    private File cacheDirectory;
+    private MemoryManager memoryManager;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        cacheDirectory = Files.createTempDirectory("diskframecache").toFile();
+        memoryManager = mock(MemoryManager.class);
+        when(memoryManager.requestUninitializedBuffer(anyInt())).thenAnswer(invocation -> ByteBuffer.allocateDirect(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.walk(cacheDirectory.toPath())
+                .sorted(Comparator.reverseOrder())
+                .map(path -> path.toFile())
+                .forEach(File::delete);
+    }
+
+    @Test
+    public void testStoredFramesAreReadBack() throws IOException {
+        // GIVEN
+        DiskFrameCache diskFrameCache = createCache(1_000_000L);
+        DiskFrameCacheKey key = createKey(0, 2);
+        List<ByteBuffer> frames = List.of(createFrame(1).asReadOnlyBuffer(), createFrame(2).asReadOnlyBuffer());
+
+        // WHEN
+        diskFrameCache.store(key.toFileName(), key, frames);
+        Optional<MediaHashValue> result = diskFrameCache.read(key);
+
+        // THEN
+        assertTrue(result.isPresent());
+        assertEquals(2, result.get().frames.size());
+        assertEquals(createFrame(1), result.get().frames.get(0));
+        assertEquals(createFrame(2), result.get().frames.get(1));
+    }
+
+    @Test
+    public void testFilesAreFoundAfterRestart() throws IOException {
+        // GIVEN
+        DiskFrameCacheKey key = createKey(0, 1);
+        createCache(1_000_000L).store(key.toFileName(), key, List.of(createFrame(3)));
+
+        // WHEN
+        Optional<MediaHashValue> result = createCache(1_000_000L).read(key);
+
+        // THEN
+        assertTrue(result.isPresent());
+        assertEquals(createFrame(3), result.get().frames.get(0));
+        assertFalse(createCache(1_000_000L).read(createKey(1, 2)).isPresent());
+    }
+
+    @Test
+    public void testChunkContainingRequestedRangeIsFound() throws IOException {
+        // GIVEN
+        DiskFrameCache diskFrameCache = createCache(1_000_000L);
+        DiskFrameCacheKey key = createKey(10, 13);
+        diskFrameCache.store(key.toFileName(), key, List.of(createFrame(1), createFrame(2), createFrame(3)));
+
+        // WHEN
+        Optional<MediaHashValue> result = diskFrameCache.read(createKey(11, 13));
+        Optional<MediaHashValue> partiallyCoveredResult = diskFrameCache.read(createKey(12, 14));
+
+        // THEN
+        assertTrue(result.isPresent());
+        assertEquals(10, result.get().frameStart);
+        assertEquals(13, result.get().endIndex);
+        assertEquals(createFrame(2), result.get().frames.get(1));
+        assertFalse(partiallyCoveredResult.isPresent());
+    }
+
+    @Test
+    public void testChunkWithSameStartReplacesPreviousChunk() throws IOException {
+        // GIVEN
+        DiskFrameCache diskFrameCache = createCache(1_000_000L);
+        DiskFrameCacheKey shortKey = createKey(0, 1);
+        DiskFrameCacheKey longKey = createKey(0, 2);
+
+        // WHEN
+        diskFrameCache.store(shortKey.toFileName(), shortKey, List.of(createFrame(1)));
+        diskFrameCache.store(longKey.toFileName(), longKey, List.of(createFrame(1), createFrame(2)));
+
+        // THEN
+        assertEquals(1, cacheDirectory.listFiles().length);
+        assertEquals(2, diskFrameCache.read(shortKey).get().frames.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFileIsDeletedOverBudget() throws IOException {
+        // GIVEN
+        DiskFrameCache diskFrameCache = createCache(1L);
+        DiskFrameCacheKey firstKey = createKey(0, 1);
+        DiskFrameCacheKey secondKey = createKey(1, 2);
+
+        // WHEN
+        diskFrameCache.store(firstKey.toFileName(), firstKey, List.of(createFrame(1)));
+        diskFrameCache.store(secondKey.toFileName(), secondKey, List.of(createFrame(2)));
+
+        // THEN
+        assertFalse(diskFrameCache.read(firstKey).isPresent());
+        assertEquals(0, cacheDirectory.listFiles().length);
+    }
+
+    private DiskFrameCache createCache(long maximumSize) {
+        DiskFrameCache result = new DiskFrameCache(memoryManager, true, maximumSize, cacheDirectory);
+        result.init();
+        return result;
+    }
+
+    private DiskFrameCacheKey createKey(int frameStart, int frameEnd) {
+        return new DiskFrameCacheKey("/video.mp4", 1234L, 5678L, WIDTH, HEIGHT, frameStart, frameEnd);
+    }
+
+    private ByteBuffer createFrame(int seed) {
+        ByteBuffer result = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        for (int i = 0; i < result.capacity(); ++i) {
+            result.put(i, (byte) ((i / 64) * seed));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.decoder.framecache.MediaCache.MediaHashValue;
+import com.helospark.tactview.core.util.logger.Slf4jBeanPostProcessor;
+import com.helospark.tactview.core.util.messaging.MessagingService;
+
+public class MediaCacheTest {
+    private static final String KEY = "/video.mp4 16 8";
+    private static final String AUDIO_KEY = "/video.mp4";
+
+    private MemoryManager originalMemoryManager;
+    private MediaCache mediaCache;
+
+    @BeforeEach
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        GlobalMemoryManagerAccessor.memoryManager = mock(MemoryManager.class);
+
+        mediaCache = new MediaCache(GlobalMemoryManagerAccessor.memoryManager, 1_000_000L, mock(MessagingService.class), mock(DiskFrameCache.class));
+        new Slf4jBeanPostProcessor().postProcessAfterInitialization(mediaCache, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Test
+    public void testFrameOfLongerChunkIsFoundAfterNestedShorterChunk() {
+        // GIVEN
+        MediaHashValue longChunk = createChunk(0, 30);
+        mediaCache.cacheMedia(KEY, longChunk, false);
+        mediaCache.cacheMedia(KEY, createChunk(10, 20), false);
+
+        // WHEN
+        Optional<MediaHashValue> result = mediaCache.findInCache(KEY, 25);
+
+        // THEN
+        assertTrue(result.isPresent());
+        assertEquals(longChunk, result.get());
+        assertTrue(mediaCache.isCached(KEY, 25));
+    }
+
+    @Test
+    public void testChunkCoveredByNewChunkIsRemoved() {
+        // GIVEN
+        mediaCache.cacheMedia(KEY, createChunk(10, 20), false);
+        MediaHashValue longChunk = createChunk(0, 30);
+
+        // WHEN
+        mediaCache.cacheMedia(KEY, longChunk, false);
+
+        // THEN
+        assertEquals(longChunk, mediaCache.findInCache(KEY, 15).get());
+        assertEquals(30 * 4, mediaCache.getCachedBytes());
+    }
+
+    @Test
+    public void testRangeIsCachedOnlyIfAllFramesAreCached() {
+        // GIVEN
+        mediaCache.cacheMedia(KEY, createChunk(0, 30), false);
+
+        // WHEN
+        boolean partiallyCachedResult = mediaCache.isCached(KEY, 20, 40);
+        mediaCache.cacheMedia(KEY, createChunk(30, 40), false);
+        boolean cachedResult = mediaCache.isCached(KEY, 20, 40);
+
+        // THEN
+        assertFalse(partiallyCachedResult);
+        assertTrue(cachedResult);
+    }
+
+    @Test
+    public void testLongAudioChunkDoesNotWidenLookupOfVideoChunks() {
+        // GIVEN
+        mediaCache.cacheMedia(AUDIO_KEY, createChunk(0, 2_880_000, 1), false);
+        MediaHashValue videoChunk = createChunk(30, 60);
+
+        // WHEN
+        mediaCache.cacheMedia(KEY, createChunk(0, 30), false);
+        mediaCache.cacheMedia(KEY, videoChunk, false);
+
+        // THEN
+        assertEquals(30, mediaCache.getLongestChunk(KEY));
+        assertEquals(2_880_000, mediaCache.getLongestChunk(AUDIO_KEY));
+        assertEquals(videoChunk, mediaCache.findInCache(KEY, 45).get());
+        assertTrue(mediaCache.isCached(AUDIO_KEY, 2_000_000));
+        assertFalse(mediaCache.isCached(KEY, 60));
+    }
+
+    private MediaHashValue createChunk(int frameStart, int frameEnd, int numberOfFrames) {
+        List<ByteBuffer> frames = new ArrayList<>();
+        for (int i = 0; i < numberOfFrames; ++i) {
+            frames.add(ByteBuffer.allocateDirect(4));
+        }
+        return new MediaHashValue(frameStart, frameEnd, frames);
+    }
+
+    private MediaHashValue createChunk(int frameStart, int frameEnd) {
+        List<ByteBuffer> frames = new ArrayList<>();
+        for (int i = frameStart; i < frameEnd; ++i) {
+            frames.add(ByteBuffer.allocateDirect(4));
+        }
+        return new MediaHashValue(frameStart, frameEnd, frames);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reuses returned buffers of the same size, so benchmarks measure the code under test instead of the allocation of direct buffers.
+ */
+public class PooledMemoryManager implements MemoryManager {
+    private final Map<Integer, Queue<ByteBuffer>> freeBuffers = new ConcurrentHashMap<>();
+
+    @Override
+    public ByteBuffer requestBuffer(Integer bytes) {
+        ByteBuffer result = requestUninitializedBuffer(bytes);
+        for (int i = 0; i < bytes; ++i) {
+            result.put(i, (byte) 0);
+        }
+        return result;
+    }
+
+    @Override
+    public ByteBuffer requestUninitializedBuffer(Integer bytes) {
+        ByteBuffer result = freeBuffersOfSize(bytes).poll();
+        return result != null ? result : ByteBuffer.allocateDirect(bytes);
+    }
+
+    @Override
+    public List<ByteBuffer> requestBuffers(Integer bytes, int count) {
+        List<ByteBuffer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            result.add(requestBuffer(bytes));
+        }
+        return result;
+    }
+
+    @Override
+    public void returnBuffer(ByteBuffer buffer) {
+        freeBuffersOfSize(buffer.capacity()).offer(buffer);
+    }
+
+    @Override
+    public void returnBuffers(List<ByteBuffer> buffers) {
+        buffers.forEach(this::returnBuffer);
+    }
+
+    @Override
+    public void dropAllBuffers() {
+        freeBuffers.clear();
+    }
+
+    private Queue<ByteBuffer> freeBuffersOfSize(int bytes) {
+        return freeBuffers.computeIfAbsent(bytes, size -> new ConcurrentLinkedQueue<>());
+    }
+
+}
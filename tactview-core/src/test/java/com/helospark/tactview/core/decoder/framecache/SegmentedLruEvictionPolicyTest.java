@@ -0,0 +1,77 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SegmentedLruEvictionPolicyTest {
+
+    @Test
+    public void testLeastRecentlyUsedIsEvictedFirst() {
+        // GIVEN
+        SegmentedLruEvictionPolicy<String> policy = new SegmentedLruEvictionPolicy<>(300, 0.8);
+        policy.add("a", 100);
+        policy.add("b", 100);
+        policy.add("c", 100);
+
+        // WHEN
+        policy.add("d", 100);
+        List<String> result = policy.evictOverBudget();
+
+        // THEN
+        assertEquals(List.of("a"), result);
+        assertEquals(300, policy.getWeight());
+    }
+
+    @Test
+    public void testScanDoesNotEvictFramesUsedAgain() {
+        // GIVEN
+        SegmentedLruEvictionPolicy<String> policy = new SegmentedLruEvictionPolicy<>(300, 0.8);
+        policy.add("repeated", 100);
+        policy.recordAccess("repeated");
+
+        // WHEN
+        policy.add("scan1", 100);
+        policy.add("scan2", 100);
+        policy.add("scan3", 100);
+        List<String> result = policy.evictOverBudget();
+
+        // THEN
+        assertEquals(List.of("scan1"), result);
+    }
+
+    @Test
+    public void testOverflowingProtectedSegmentIsDemoted() {
+        // GIVEN
+        SegmentedLruEvictionPolicy<String> policy = new SegmentedLruEvictionPolicy<>(300, 0.5);
+        policy.add("a", 100);
+        policy.add("b", 100);
+        policy.recordAccess("a");
+
+        // WHEN
+        policy.recordAccess("b");
+
+        // THEN
+        assertEquals(100, policy.getProtectedWeight());
+        assertEquals(List.of("a"), policy.evictUntil(100));
+    }
+
+    @Test
+    public void testWeightIsUpdatedOnRemove() {
+        // GIVEN
+        SegmentedLruEvictionPolicy<String> policy = new SegmentedLruEvictionPolicy<>(300, 0.8);
+        policy.add("a", 100);
+        policy.add("b", 50);
+        policy.recordAccess("b");
+
+        // WHEN
+        policy.remove("b");
+
+        // THEN
+        assertEquals(100, policy.getWeight());
+        assertEquals(0, policy.getProtectedWeight());
+    }
+
+}
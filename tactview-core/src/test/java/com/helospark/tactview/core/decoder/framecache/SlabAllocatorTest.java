@@ -0,0 +1,121 @@
+package com.helospark.tactview.core.decoder.framecache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SlabAllocatorTest {
+    private static final int SLAB_SIZE = 1024 * 1024;
+
+    private List<ByteBuffer> releasedArenas;
+    private SlabAllocator slabAllocator;
+
+    @BeforeEach
+    public void setUp() {
+        releasedArenas = new ArrayList<>();
+        slabAllocator = new SlabAllocator(SLAB_SIZE, ByteBuffer::allocateDirect, releasedArenas::add);
+    }
+
+    @Test
+    public void testSizeClasses() {
+        assertEquals(256, SlabAllocator.sizeClassFor(1));
+        assertEquals(1024, SlabAllocator.sizeClassFor(1024));
+        assertEquals(1280, SlabAllocator.sizeClassFor(1025));
+        assertEquals(1536, SlabAllocator.sizeClassFor(1300));
+        assertEquals(1792, SlabAllocator.sizeClassFor(1700));
+        assertEquals(2048, SlabAllocator.sizeClassFor(1900));
+        assertEquals(8388608, SlabAllocator.sizeClassFor(1920 * 1080 * 4));
+    }
+
+    @Test
+    public void testBufferHasRequestedCapacityAndDoesNotOverlap() {
+        ByteBuffer first = slabAllocator.allocate(1000);
+        ByteBuffer second = slabAllocator.allocate(1000);
+
+        for (int i = 0; i < 1000; ++i) {
+            first.put(i, (byte) 1);
+            second.put(i, (byte) 2);
+        }
+
+        assertEquals(1000, first.capacity());
+        assertTrue(first.isDirect());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(1, first.get(i));
+        }
+        assertEquals(1, slabAllocator.getStatistics().getNumberOfSlabs());
+    }
+
+    @Test
+    public void testSimilarSizesShareBlocks() {
+        ByteBuffer buffer = slabAllocator.allocate(1000);
+        slabAllocator.free(buffer);
+
+        ByteBuffer otherBuffer = slabAllocator.allocate(1010);
+
+        assertEquals(1010, otherBuffer.capacity());
+        assertEquals(1, slabAllocator.getStatistics().getNumberOfSizeClasses());
+        assertEquals(1, slabAllocator.getStatistics().getNumberOfSlabs());
+    }
+
+    @Test
+    public void testFreeingUnknownOrAlreadyFreedBuffer() {
+        ByteBuffer buffer = slabAllocator.allocate(1000);
+
+        assertTrue(slabAllocator.free(buffer));
+        assertFalse(slabAllocator.free(buffer));
+        assertFalse(slabAllocator.free(ByteBuffer.allocateDirect(1000)));
+    }
+
+    @Test
+    public void testViewOfBufferIsNotFreed() {
+        ByteBuffer buffer = slabAllocator.allocate(1000);
+
+        assertFalse(slabAllocator.free(buffer.duplicate()));
+        assertFalse(slabAllocator.free(buffer.slice()));
+        assertTrue(slabAllocator.free(buffer));
+    }
+
+    @Test
+    public void testSmallSizeClassReservesSmallSlab() {
+        slabAllocator.allocate(100);
+
+        assertEquals(SlabAllocator.MIN_BLOCK_SIZE * SlabAllocator.MAX_BLOCKS_PER_SLAB, slabAllocator.getReservedBytes());
+    }
+
+    @Test
+    public void testOnlyFullyFreeSlabIsReleased() {
+        ByteBuffer buffer = slabAllocator.allocate(SLAB_SIZE / 2);
+        ByteBuffer otherBuffer = slabAllocator.allocate(SLAB_SIZE / 2);
+
+        slabAllocator.free(buffer);
+
+        assertEquals(0, slabAllocator.releaseAllFreeSlabs());
+        assertEquals(SLAB_SIZE / 2, slabAllocator.getStatistics().getFreeBytesInPartiallyUsedSlabs());
+        assertEquals(0.5, slabAllocator.getStatistics().getExternalFragmentation(), 0.0001);
+
+        slabAllocator.free(otherBuffer);
+
+        assertEquals(SLAB_SIZE, slabAllocator.releaseAllFreeSlabs());
+        assertEquals(1, releasedArenas.size());
+        assertEquals(0, slabAllocator.getReservedBytes());
+    }
+
+    @Test
+    public void testInternalFragmentation() {
+        slabAllocator.allocate(1025);
+
+        SlabAllocatorStatistics statistics = slabAllocator.getStatistics();
+
+        assertEquals(1280, statistics.getBlockBytesInUse());
+        assertEquals(1025, statistics.getRequestedBytesInUse());
+        assertEquals((1280.0 - 1025.0) / 1280.0, statistics.getInternalFragmentation(), 0.0001);
+    }
+
+}
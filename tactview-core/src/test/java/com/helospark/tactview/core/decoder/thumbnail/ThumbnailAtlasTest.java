@@ -0,0 +1,102 @@
+package com.helospark.tactview.core.decoder.thumbnail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ThumbnailAtlasTest {
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 2;
+    private static final int NUMBER_OF_SLOTS = 10;
+
+    private File atlasFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        atlasFile = Files.createTempFile("thumbnailatlas", ".thumbnails").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        atlasFile.delete();
+    }
+
+    @Test
+    public void testWrittenThumbnailIsReadBackAfterReopen() throws IOException {
+        // GIVEN
+        try (ThumbnailAtlas atlas = ThumbnailAtlas.open(atlasFile, WIDTH, HEIGHT, NUMBER_OF_SLOTS)) {
+            atlas.write(3, createThumbnail(3));
+            atlas.write(7, createThumbnail(7));
+        }
+
+        // WHEN
+        Optional<ByteBuffer> result;
+        Optional<ByteBuffer> missingResult;
+        try (ThumbnailAtlas atlas = ThumbnailAtlas.open(atlasFile, WIDTH, HEIGHT, NUMBER_OF_SLOTS)) {
+            result = atlas.read(7);
+            missingResult = atlas.read(4);
+        }
+
+        // THEN
+        assertTrue(result.isPresent());
+        assertEquals(createThumbnail(7), result.get());
+        assertFalse(missingResult.isPresent());
+    }
+
+    @Test
+    public void testAtlasOfDifferentSizeIsStartedAgain() throws IOException {
+        // GIVEN
+        try (ThumbnailAtlas atlas = ThumbnailAtlas.open(atlasFile, WIDTH, HEIGHT, NUMBER_OF_SLOTS)) {
+            atlas.write(3, createThumbnail(3));
+        }
+
+        // WHEN
+        Optional<ByteBuffer> result;
+        try (ThumbnailAtlas atlas = ThumbnailAtlas.open(atlasFile, WIDTH * 2, HEIGHT * 2, NUMBER_OF_SLOTS)) {
+            result = atlas.read(3);
+        }
+
+        // THEN
+        assertFalse(result.isPresent());
+    }
+
+    @Test
+    public void testClosedAtlasIsReadableAndDeletedOnlyAfterLastReferenceIsReleased() throws IOException {
+        // GIVEN
+        ThumbnailAtlas atlas = ThumbnailAtlas.open(atlasFile, WIDTH, HEIGHT, NUMBER_OF_SLOTS);
+        atlas.write(3, createThumbnail(3));
+        assertTrue(atlas.retain());
+        atlas.deleteWhenClosed();
+
+        // WHEN
+        atlas.close();
+        Optional<ByteBuffer> resultWhileRetained = atlas.read(3);
+        boolean existsWhileRetained = atlasFile.exists();
+        atlas.release();
+
+        // THEN
+        assertEquals(createThumbnail(3), resultWhileRetained.get());
+        assertTrue(existsWhileRetained);
+        assertFalse(atlasFile.exists());
+        assertFalse(atlas.retain());
+    }
+
+    private ByteBuffer createThumbnail(int value) {
+        ByteBuffer result = ByteBuffer.allocate(WIDTH * HEIGHT * 4);
+        for (int i = 0; i < result.capacity(); ++i) {
+            result.put(i, (byte) (value + i));
+        }
+        return result;
+    }
+
+}
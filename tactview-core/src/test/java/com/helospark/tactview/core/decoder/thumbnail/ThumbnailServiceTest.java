@@ -0,0 +1,64 @@
+package com.helospark.tactview.core.decoder.thumbnail;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.util.messaging.MessagingService;
+
+public class ThumbnailServiceTest {
+    private static final int ATLAS_FILE_SIZE = 100;
+
+    private File thumbnailDirectory;
+    private ThumbnailService underTest;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        thumbnailDirectory = Files.createTempDirectory("thumbnails").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (underTest != null) {
+            underTest.destroy();
+        }
+        for (File file : thumbnailDirectory.listFiles()) {
+            file.delete();
+        }
+        thumbnailDirectory.delete();
+    }
+
+    @Test
+    public void testLeastRecentlyModifiedAtlasesAreDeletedWhenDirectoryIsOverBudget() throws IOException {
+        // GIVEN
+        File oldestAtlas = createAtlasFile("oldest", 1000);
+        File olderAtlas = createAtlasFile("older", 2000);
+        File newestAtlas = createAtlasFile("newest", 3000);
+        underTest = new ThumbnailService(thumbnailDirectory, 1000L, 2L * ATLAS_FILE_SIZE, mock(MemoryManager.class), mock(MessagingService.class));
+
+        // WHEN
+        underTest.init();
+
+        // THEN
+        assertFalse(oldestAtlas.exists());
+        assertTrue(olderAtlas.exists());
+        assertTrue(newestAtlas.exists());
+    }
+
+    private File createAtlasFile(String name, long lastModified) throws IOException {
+        File file = new File(thumbnailDirectory, name + ".thumbnails");
+        Files.write(file.toPath(), new byte[ATLAS_FILE_SIZE]);
+        file.setLastModified(lastModified);
+        return file;
+    }
+
+}
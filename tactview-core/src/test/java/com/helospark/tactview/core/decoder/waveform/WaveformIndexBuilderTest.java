@@ -0,0 +1,68 @@
+package com.helospark.tactview.core.decoder.waveform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.timeline.AudioFrameResult;
+
+public class WaveformIndexBuilderTest {
+    private static final double EPSILON = 0.001;
+
+    @Test
+    public void testPeaksAreReducedIntoCoarserLevels() {
+        // GIVEN
+        WaveformIndexBuilder builder = new WaveformIndexBuilder(44100, 1);
+        builder.addSamples(createFrame(0.5f, 256));
+        builder.addSamples(createFrame(-0.25f, 768));
+
+        // WHEN
+        WaveformIndex index = new WaveformIndex(builder.build());
+
+        // THEN
+        assertEquals(3, index.getNumberOfLevels());
+        assertEquals(4, index.getNumberOfBuckets(0));
+        assertEquals(1, index.getNumberOfBuckets(2));
+        assertEquals(1024, index.getNumberOfSamples());
+        assertEquals(0.5, index.getMaxRms(), EPSILON);
+
+        WaveformPeak firstBucket = index.getPeak(0, 0, 256);
+        assertEquals(0.5, firstBucket.getMinimum(), EPSILON);
+        assertEquals(0.5, firstBucket.getMaximum(), EPSILON);
+
+        WaveformPeak firstHalf = index.getPeak(0, 0, 512);
+        assertEquals(-0.25, firstHalf.getMinimum(), EPSILON);
+        assertEquals(0.5, firstHalf.getMaximum(), EPSILON);
+        assertEquals(Math.sqrt((0.25 + 0.0625) / 2), firstHalf.getRms(), EPSILON);
+
+        WaveformPeak whole = index.getPeak(0, 0, 1024);
+        assertEquals(Math.sqrt((256 * 0.25 + 768 * 0.0625) / 1024), whole.getRms(), EPSILON);
+    }
+
+    @Test
+    public void testRangeAfterEndIsSilence() {
+        // GIVEN
+        WaveformIndexBuilder builder = new WaveformIndexBuilder(44100, 1);
+        builder.addSamples(createFrame(0.5f, 300));
+
+        // WHEN
+        WaveformIndex index = new WaveformIndex(builder.build());
+
+        // THEN
+        assertEquals(2, index.getNumberOfLevels());
+        assertEquals(0.5, index.getPeak(0, 290, 310).getMaximum(), EPSILON);
+        assertEquals(0.0, index.getPeak(0, 300, 400).getRms(), EPSILON);
+    }
+
+    private AudioFrameResult createFrame(float value, int numberOfSamples) {
+        ByteBuffer channel = ByteBuffer.allocate(numberOfSamples * 2);
+        for (int i = 0; i < numberOfSamples; ++i) {
+            channel.putShort(i * 2, (short) (value * Short.MAX_VALUE));
+        }
+        return new AudioFrameResult(List.of(channel), 44100, 2);
+    }
+
+}
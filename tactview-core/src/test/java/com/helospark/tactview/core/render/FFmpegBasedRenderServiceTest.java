@@ -0,0 +1,221 @@
+package com.helospark.tactview.core.render;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.optionprovider.OptionProvider;
+import com.helospark.tactview.core.render.ffmpeg.FFmpegBasedMediaEncoder;
+import com.helospark.tactview.core.render.ffmpeg.FFmpegConcatenateSegmentsRequest;
+import com.helospark.tactview.core.render.ffmpeg.FFmpegEncodeFrameRequest;
+import com.helospark.tactview.core.render.ffmpeg.FFmpegInitEncoderRequest;
+import com.helospark.tactview.core.render.helper.AudioInterleaver;
+import com.helospark.tactview.core.render.helper.IntervalThreadingPartitioner;
+import com.helospark.tactview.core.render.helper.RenderSegmentPlanner;
+import com.helospark.tactview.core.render.helper.ThreadingAccessorResult;
+import com.helospark.tactview.core.repository.ProjectRepository;
+import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.AudioVideoFragment;
+import com.helospark.tactview.core.timeline.MergeOnIntersectingIntervalList;
+import com.helospark.tactview.core.timeline.TimelineInterval;
+import com.helospark.tactview.core.timeline.TimelineManagerAccessor;
+import com.helospark.tactview.core.timeline.TimelineManagerFramesRequest;
+import com.helospark.tactview.core.timeline.TimelineManagerRenderService;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+import com.helospark.tactview.core.timeline.effect.scale.service.ScaleService;
+import com.helospark.tactview.core.timeline.image.ClipImage;
+import com.helospark.tactview.core.timeline.threading.SingleThreadedRenderable;
+import com.helospark.tactview.core.util.messaging.MessagingService;
+
+public class FFmpegBasedRenderServiceTest {
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+    private static final int SAMPLE_RATE = 44100;
+    private static final BigDecimal STEP = new BigDecimal("0.04");
+    private static final int SAMPLES_PER_FRAME = 1764;
+    private static final int NUMBER_OF_FRAMES = 100;
+
+    private MemoryManager originalMemoryManager;
+    private FFmpegBasedMediaEncoder encoder;
+    private FFmpegBasedRenderService underTest;
+
+    private List<FFmpegInitEncoderRequest> initRequests = new CopyOnWriteArrayList<>();
+    private Map<Integer, List<Integer>> encodedFrameIndices = new ConcurrentHashMap<>();
+    private Map<Integer, AtomicInteger> encodedAudioSamples = new ConcurrentHashMap<>();
+    private Map<Integer, AtomicInteger> encodedVideoFrames = new ConcurrentHashMap<>();
+    private AtomicReference<String> concatenatedAudioFileName = new AtomicReference<>();
+    private AtomicInteger concatenatedSegments = new AtomicInteger();
+    private AtomicInteger videoFramesEncodedBeforeAudioPass = new AtomicInteger(-1);
+    private List<SingleThreadedRenderable> singleThreadedRenderables = List.of();
+
+    @BeforeEach
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        GlobalMemoryManagerAccessor.memoryManager = mock(MemoryManager.class);
+        when(GlobalMemoryManagerAccessor.memoryManager.requestUninitializedBuffer(anyInt())).thenAnswer(invocation -> ByteBuffer.allocateDirect(invocation.getArgument(0)));
+
+        TimelineManagerRenderService timelineManagerRenderService = mock(TimelineManagerRenderService.class);
+        when(timelineManagerRenderService.getFrame(any(TimelineManagerFramesRequest.class))).thenAnswer(invocation -> {
+            TimelineManagerFramesRequest request = invocation.getArgument(0);
+            List<ByteBuffer> audio = request.isNeedSound() ? List.of(ByteBuffer.allocateDirect(SAMPLES_PER_FRAME * 2)) : List.of();
+            return new AudioVideoFragment(new ClipImage(ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4), WIDTH, HEIGHT), new AudioFrameResult(audio, SAMPLE_RATE, 2));
+        });
+
+        IntervalThreadingPartitioner intervalThreadingPartitioner = mock(IntervalThreadingPartitioner.class);
+        when(intervalThreadingPartitioner.partitionBasedOnRenderThreadability(any(TimelineInterval.class)))
+                .thenAnswer(invocation -> new ThreadingAccessorResult(singleThreadedRenderables, new MergeOnIntersectingIntervalList()));
+
+        ProjectRepository projectRepository = mock(ProjectRepository.class);
+        when(projectRepository.getWidth()).thenReturn(WIDTH);
+
+        encoder = mock(FFmpegBasedMediaEncoder.class);
+        when(encoder.initEncoder(any(FFmpegInitEncoderRequest.class))).thenAnswer(invocation -> {
+            FFmpegInitEncoderRequest request = invocation.getArgument(0);
+            if (request.videoCodec.equals("none")) {
+                videoFramesEncodedBeforeAudioPass.set(encodedVideoFrames.values().stream().mapToInt(AtomicInteger::get).sum());
+            }
+            initRequests.add(request);
+            return initRequests.size() - 1;
+        });
+        when(encoder.encodeFrames(any(FFmpegEncodeFrameRequest.class))).thenAnswer(invocation -> {
+            FFmpegEncodeFrameRequest request = invocation.getArgument(0);
+            encodedFrameIndices.computeIfAbsent(request.encoderIndex, index -> Collections.synchronizedList(new ArrayList<>())).add(request.startFrameIndex);
+            encodedAudioSamples.computeIfAbsent(request.encoderIndex, index -> new AtomicInteger()).addAndGet(request.frame.numberOfAudioSamples);
+            encodedVideoFrames.computeIfAbsent(request.encoderIndex, index -> new AtomicInteger()).addAndGet(request.frame.imageData != null ? 1 : 0);
+            return 0;
+        });
+        when(encoder.concatenateSegments(any(FFmpegConcatenateSegmentsRequest.class))).thenAnswer(invocation -> {
+            FFmpegConcatenateSegmentsRequest request = invocation.getArgument(0);
+            concatenatedAudioFileName.set(request.audioFileName);
+            concatenatedSegments.set(request.numberOfSegments);
+            return 0;
+        });
+
+        underTest = new FFmpegBasedRenderService(timelineManagerRenderService, encoder, mock(MessagingService.class), mock(ScaleService.class), mock(TimelineManagerAccessor.class),
+                projectRepository, intervalThreadingPartitioner, new AudioInterleaver(), new RenderSegmentPlanner(intervalThreadingPartitioner));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Test
+    public void testSegmentedRenderEncodesAudioOfWholeRenderInSinglePass() {
+        // GIVEN
+        RenderRequest request = createRenderRequest(3);
+
+        // WHEN
+        underTest.renderInternal(request);
+
+        // THEN
+        assertEquals(4, initRequests.size());
+        int audioEncoderIndex = -1;
+        int videoFrames = 0;
+        for (int i = 0; i < initRequests.size(); ++i) {
+            if (initRequests.get(i).videoCodec.equals("none")) {
+                audioEncoderIndex = i;
+                assertEquals("default", initRequests.get(i).audioCodec);
+            } else {
+                assertEquals("none", initRequests.get(i).audioCodec);
+                assertEquals(0, encodedAudioSamples.get(i).get());
+                videoFrames += encodedVideoFrames.get(i).get();
+            }
+        }
+        assertEquals(NUMBER_OF_FRAMES, videoFrames);
+
+        List<Integer> audioFrameIndices = encodedFrameIndices.get(audioEncoderIndex);
+        assertEquals(NUMBER_OF_FRAMES, audioFrameIndices.size());
+        for (int i = 0; i < audioFrameIndices.size(); ++i) {
+            assertEquals(i, audioFrameIndices.get(i).intValue());
+        }
+        int audioSamples = encodedAudioSamples.get(audioEncoderIndex).get();
+        assertEquals(NUMBER_OF_FRAMES * SAMPLES_PER_FRAME, audioSamples);
+        assertEquals(0, STEP.multiply(BigDecimal.valueOf(NUMBER_OF_FRAMES)).compareTo(BigDecimal.valueOf(audioSamples).divide(BigDecimal.valueOf(SAMPLE_RATE))));
+
+        assertEquals(3, concatenatedSegments.get());
+        assertEquals(initRequests.get(audioEncoderIndex).fileName, concatenatedAudioFileName.get());
+        assertTrue(concatenatedAudioFileName.get().endsWith(".audio.mp4"));
+        assertFalse(new File(concatenatedAudioFileName.get()).getParentFile().exists());
+    }
+
+    @Test
+    public void testAudioPassStartsAfterVideoSegmentsWhenSingleThreadedRenderablesAreRendered() {
+        // GIVEN
+        singleThreadedRenderables = List.of(new SingleThreadedRenderable() {
+        });
+        RenderRequest request = createRenderRequest(3);
+
+        // WHEN
+        underTest.renderInternal(request);
+
+        // THEN
+        assertEquals(4, initRequests.size());
+        assertEquals(NUMBER_OF_FRAMES, videoFramesEncodedBeforeAudioPass.get());
+    }
+
+    @Test
+    public void testSingleSegmentRenderEncodesAudioWithVideo() {
+        // GIVEN
+        RenderRequest request = createRenderRequest(1);
+
+        // WHEN
+        underTest.renderInternal(request);
+
+        // THEN
+        assertEquals(1, initRequests.size());
+        assertEquals(NUMBER_OF_FRAMES * SAMPLES_PER_FRAME, encodedAudioSamples.get(0).get());
+        assertEquals(NUMBER_OF_FRAMES, encodedVideoFrames.get(0).get());
+        assertNull(concatenatedAudioFileName.get());
+    }
+
+    private RenderRequest createRenderRequest(int segments) {
+        Map<String, OptionProvider<?>> options = Map.ofEntries(
+                Map.entry("threads", OptionProvider.integerOptionBuilder().withDefaultValue(4).build()),
+                Map.entry("segments", OptionProvider.integerOptionBuilder().withDefaultValue(segments).build()),
+                Map.entry("videobitrate", OptionProvider.integerOptionBuilder().withDefaultValue(3200000).build()),
+                Map.entry("audiobitrate", OptionProvider.integerOptionBuilder().withDefaultValue(192000).build()),
+                Map.entry("audiosamplerate", OptionProvider.integerOptionBuilder().withDefaultValue(SAMPLE_RATE).build()),
+                Map.entry("audiobytespersample", OptionProvider.stringOptionBuilder().withDefaultValue("2").build()),
+                Map.entry("audionumberofchannels", OptionProvider.stringOptionBuilder().withDefaultValue("1").build()),
+                Map.entry("videocodec", OptionProvider.stringOptionBuilder().withDefaultValue("default").build()),
+                Map.entry("audiocodec", OptionProvider.stringOptionBuilder().withDefaultValue("default").build()),
+                Map.entry("videoPixelFormat", OptionProvider.stringOptionBuilder().withDefaultValue("default").build()));
+        return RenderRequest.builder()
+                .withStartPosition(TimelinePosition.ofZero())
+                .withEndPosition(new TimelinePosition(STEP.multiply(BigDecimal.valueOf(NUMBER_OF_FRAMES - 1))))
+                .withStep(STEP)
+                .withFps(25)
+                .withWidth(WIDTH)
+                .withHeight(HEIGHT)
+                .withUpscale(BigDecimal.ONE)
+                .withFileName("/tmp/output.mp4")
+                .withOptions(options)
+                .withIsCancelledSupplier(() -> false)
+                .build();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.helospark.tactview.core.render.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.timeline.AudioFrameResult;
+
+public class AudioInterleaverTest {
+    private static final int NUMBER_OF_SAMPLES = 7;
+    private MemoryManager originalMemoryManager;
+    private AudioInterleaver underTest = new AudioInterleaver();
+
+    @BeforeEach
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        MemoryManager memoryManager = mock(MemoryManager.class);
+        when(memoryManager.requestUninitializedBuffer(anyInt())).thenAnswer(invocation -> ByteBuffer.allocateDirect(invocation.getArgument(0)));
+        GlobalMemoryManagerAccessor.memoryManager = memoryManager;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2, 3, 4 })
+    public void testInterleavedBytesAreSameAsPerByteCopy(int bytesPerSample) {
+        // GIVEN
+        ByteBuffer left = createChannel(bytesPerSample, 3);
+        ByteBuffer right = createChannel(bytesPerSample, 101);
+        right.order(ByteOrder.LITTLE_ENDIAN);
+        AudioFrameResult audioFrame = new AudioFrameResult(List.of(left, right), 44100, bytesPerSample);
+
+        // WHEN
+        ByteBuffer result = underTest.interleave(audioFrame);
+
+        // THEN
+        int index = 0;
+        for (int i = 0; i < NUMBER_OF_SAMPLES; ++i) {
+            for (ByteBuffer channel : List.of(left, right)) {
+                for (int k = 0; k < bytesPerSample; ++k) {
+                    assertEquals(channel.get(i * bytesPerSample + k), result.get(index++));
+                }
+            }
+        }
+    }
+
+    private ByteBuffer createChannel(int bytesPerSample, int seed) {
+        ByteBuffer result = ByteBuffer.allocateDirect(bytesPerSample * NUMBER_OF_SAMPLES);
+        for (int i = 0; i < result.capacity(); ++i) {
+            result.put(i, (byte) (i * seed + 17));
+        }
+        return result;
+    }
+
+}
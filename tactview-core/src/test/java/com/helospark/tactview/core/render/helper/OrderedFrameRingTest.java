@@ -0,0 +1,70 @@
+package com.helospark.tactview.core.render.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class OrderedFrameRingTest {
+
+    @Test
+    public void testFramesAreTakenInSequenceOrder() throws InterruptedException {
+        // GIVEN
+        OrderedFrameRing<String> underTest = new OrderedFrameRing<>(3);
+        underTest.awaitFreeSlot(2);
+        underTest.put(2, "third");
+        underTest.put(0, "first");
+        underTest.put(1, "second");
+        underTest.finish(3);
+
+        // WHEN
+        String first = underTest.take().get();
+        String second = underTest.take().get();
+        String third = underTest.take().get();
+        Optional<String> end = underTest.take();
+
+        // THEN
+        assertEquals("first", first);
+        assertEquals("second", second);
+        assertEquals("third", third);
+        assertFalse(end.isPresent());
+    }
+
+    @Test
+    public void testFailureIsThrownOnTake() {
+        // GIVEN
+        OrderedFrameRing<String> underTest = new OrderedFrameRing<>(2);
+        RuntimeException failure = new RuntimeException("render failed");
+        underTest.fail(failure);
+
+        // WHEN
+        IllegalStateException result = assertThrows(IllegalStateException.class, () -> underTest.take());
+
+        // THEN
+        assertSame(failure, result.getCause());
+    }
+
+    @Test
+    public void testFramesNotTakenAreDiscardedOnFailure() throws InterruptedException {
+        // GIVEN
+        List<String> discardedFrames = new ArrayList<>();
+        OrderedFrameRing<String> underTest = new OrderedFrameRing<>(3, discardedFrames::add);
+        underTest.put(0, "first");
+        underTest.put(1, "second");
+        underTest.take();
+
+        // WHEN
+        underTest.fail(new RuntimeException("encode failed"));
+        underTest.put(2, "third");
+
+        // THEN
+        assertEquals(List.of("second", "third"), discardedFrames);
+    }
+
+}
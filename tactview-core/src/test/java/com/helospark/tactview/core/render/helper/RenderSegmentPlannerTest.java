@@ -0,0 +1,79 @@
+package com.helospark.tactview.core.render.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.timeline.MergeOnIntersectingIntervalList;
+import com.helospark.tactview.core.timeline.TimelineInterval;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+
+public class RenderSegmentPlannerTest {
+    private static final BigDecimal STEP = new BigDecimal("0.04");
+    private IntervalThreadingPartitioner intervalThreadingPartitioner;
+    private MergeOnIntersectingIntervalList singleThreadedIntervals;
+    private RenderSegmentPlanner underTest;
+
+    @BeforeEach
+    public void setUp() {
+        intervalThreadingPartitioner = mock(IntervalThreadingPartitioner.class);
+        singleThreadedIntervals = new MergeOnIntersectingIntervalList();
+        when(intervalThreadingPartitioner.partitionBasedOnRenderThreadability(any(TimelineInterval.class)))
+                .thenReturn(new ThreadingAccessorResult(List.of(), singleThreadedIntervals));
+        underTest = new RenderSegmentPlanner(intervalThreadingPartitioner);
+    }
+
+    @Test
+    public void testFramesAreSplitEvenly() {
+        // GIVEN
+
+        // WHEN
+        List<RenderSegment> result = underTest.planSegments(TimelinePosition.ofZero(), STEP, 250, 4);
+
+        // THEN
+        assertEquals(4, result.size());
+        assertSegment(result.get(0), 0, 62);
+        assertSegment(result.get(1), 62, 63);
+        assertSegment(result.get(2), 125, 62);
+        assertSegment(result.get(3), 187, 63);
+    }
+
+    @Test
+    public void testSingleThreadedIntervalIsNotSplit() {
+        // GIVEN
+        singleThreadedIntervals.addInterval(new TimelineInterval(TimelinePosition.ofSeconds(2.0), TimelinePosition.ofSeconds(3.0)));
+
+        // WHEN
+        List<RenderSegment> result = underTest.planSegments(TimelinePosition.ofZero(), STEP, 125, 2);
+
+        // THEN
+        assertEquals(2, result.size());
+        assertSegment(result.get(0), 0, 77);
+        assertSegment(result.get(1), 77, 48);
+    }
+
+    @Test
+    public void testShortRenderIsNotSplit() {
+        // GIVEN
+
+        // WHEN
+        List<RenderSegment> result = underTest.planSegments(TimelinePosition.ofZero(), STEP, 40, 4);
+
+        // THEN
+        assertEquals(1, result.size());
+        assertSegment(result.get(0), 0, 40);
+    }
+
+    private void assertSegment(RenderSegment segment, long expectedFirstFrame, long expectedNumberOfFrames) {
+        assertEquals(expectedFirstFrame, segment.getFirstFrame());
+        assertEquals(expectedNumberOfFrames, segment.getNumberOfFrames());
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.helospark.tactview.core.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+
+public class AudioBlockRenderServiceTest {
+    private MemoryManager originalMemoryManager;
+    private TimelineManagerRenderService timelineManagerRenderService;
+    private TimelineChannelsState timelineChannelsState;
+    private AudioBlockRenderService underTest;
+
+    @BeforeEach
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        MemoryManager memoryManager = mock(MemoryManager.class);
+        when(memoryManager.requestBuffer(anyInt())).thenAnswer(invocation -> ByteBuffer.allocateDirect(invocation.getArgument(0)));
+        GlobalMemoryManagerAccessor.memoryManager = memoryManager;
+
+        timelineManagerRenderService = mock(TimelineManagerRenderService.class);
+        timelineChannelsState = new TimelineChannelsState();
+        underTest = new AudioBlockRenderService(timelineManagerRenderService, timelineChannelsState);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Test
+    public void testBlockIsSplitAtClipStart() {
+        // GIVEN
+        TimelineClip clip = mock(TimelineClip.class);
+        when(clip.getInterval()).thenReturn(new TimelineInterval(new TimelinePosition(new BigDecimal("0.05")), new TimelinePosition(new BigDecimal("2"))));
+        TimelineChannel channel = new TimelineChannel();
+        channel.addResource(clip);
+        timelineChannelsState.channels.add(channel);
+        when(timelineManagerRenderService.getAudioFrame(any())).thenReturn(new AudioFrameResult(Collections.emptyList(), 0, 0));
+
+        // WHEN
+        AudioFrameResult result = underTest.renderBlock(AudioBlockRequest.builder()
+                .withPosition(TimelinePosition.ofZero())
+                .withNumberOfSamples(4410)
+                .withSampleRate(44100)
+                .withBytesPerSample(2)
+                .withNumberOfChannels(2)
+                .build());
+
+        // THEN
+        ArgumentCaptor<TimelineManagerFramesRequest> captor = ArgumentCaptor.forClass(TimelineManagerFramesRequest.class);
+        verify(timelineManagerRenderService, times(2)).getAudioFrame(captor.capture());
+        List<TimelineManagerFramesRequest> requests = captor.getAllValues();
+        assertEquals(TimelinePosition.ofZero(), requests.get(0).getPosition());
+        assertEquals(new TimelinePosition(new BigDecimal("0.05")), requests.get(1).getPosition());
+        assertEquals(0, requests.get(0).getAudioLength().get().getSeconds().compareTo(new BigDecimal("0.05")));
+        assertEquals(0, requests.get(1).getAudioLength().get().getSeconds().compareTo(new BigDecimal("0.05")));
+        assertEquals(4410, result.getNumberSamples());
+        assertEquals(2, result.getChannels().size());
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.helospark.tactview.core.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+
+public class AudioBufferMergerTest {
+    private MemoryManager originalMemoryManager;
+    private AudioBufferMerger underTest = new AudioBufferMerger();
+
+    @BeforeEach
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        MemoryManager memoryManager = mock(MemoryManager.class);
+        when(memoryManager.requestBuffer(anyInt())).thenAnswer(invocation -> ByteBuffer.allocateDirect(invocation.getArgument(0)));
+        GlobalMemoryManagerAccessor.memoryManager = memoryManager;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Test
+    public void testSamplesAreSummedAndSaturated() {
+        // GIVEN
+        AudioFrameResult first = createShortFrame(100, 30000, -30000, 7);
+        AudioFrameResult second = createShortFrame(100, 5000, -5000, -2);
+
+        // WHEN
+        AudioFrameResult result = underTest.mergeBuffers(List.of(first, second));
+
+        // THEN
+        assertEquals(2, result.getBytesPerSample());
+        assertEquals(3, result.getNumberSamples());
+        assertEquals(Short.MAX_VALUE, result.getSampleAt(0, 0));
+        assertEquals(Short.MIN_VALUE, result.getSampleAt(0, 1));
+        assertEquals(5, result.getSampleAt(0, 2));
+    }
+
+    @Test
+    public void testSmallerSamplesAreRescaledToLargestSampleSize() {
+        // GIVEN
+        AudioFrameResult first = createShortFrame(100, 256, 0, -512);
+        ByteBuffer byteSamples = ByteBuffer.wrap(new byte[] { 1, -1, 0 });
+        AudioFrameResult second = new AudioFrameResult(List.of(byteSamples), 100, 1);
+
+        // WHEN
+        AudioFrameResult result = underTest.mergeBuffers(List.of(first, second));
+
+        // THEN
+        assertEquals(512, result.getSampleAt(0, 0));
+        assertEquals(-256, result.getSampleAt(0, 1));
+        assertEquals(-512, result.getSampleAt(0, 2));
+    }
+
+    @Test
+    public void testLowerSampleRateIsResampled() {
+        // GIVEN
+        AudioFrameResult first = createShortFrame(200, 0, 0, 0, 0);
+        AudioFrameResult second = createShortFrame(100, 1000, 1000, 1000);
+
+        // WHEN
+        AudioFrameResult result = underTest.mergeBuffers(List.of(first, second));
+
+        // THEN
+        assertEquals(200, result.getSamplePerSecond());
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(1000, result.getSampleAt(0, i), 2);
+        }
+    }
+
+    private AudioFrameResult createShortFrame(int sampleRate, int... samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * 2);
+        for (int i = 0; i < samples.length; ++i) {
+            buffer.putShort(i * 2, (short) samples[i]);
+        }
+        return new AudioFrameResult(List.of(buffer), sampleRate, 2);
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.helospark.tactview.core.timeline;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.decoder.framecache.PooledMemoryManager;
+import com.helospark.tactview.core.util.MathUtil;
+
+/**
+ * Mixes 16 stereo 16 bit tracks of 100 ms with the per sample integer path the merger used before and with {@link AudioSampleBlock}.
+ * Half of the tracks use the given sample rate, so with 48000 they are resampled to it.
+ * <p>
+ * Run from tactview-core with: mvn test-compile exec:java -Dexec.mainClass=com.helospark.tactview.core.timeline.AudioMixBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AudioMixBenchmark {
+    private static final int NUMBER_OF_TRACKS = 16;
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    @Param({ "44100", "48000" })
+    private int otherSampleRate;
+
+    private MemoryManager originalMemoryManager;
+    private AudioBufferMerger audioBufferMerger;
+    private List<AudioFrameResult> tracks;
+
+    @Setup
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        GlobalMemoryManagerAccessor.memoryManager = new PooledMemoryManager();
+        audioBufferMerger = new AudioBufferMerger();
+
+        Random random = new Random(1);
+        tracks = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_TRACKS; ++i) {
+            int sampleRate = i % 2 == 0 ? SAMPLE_RATE : otherSampleRate;
+            tracks.add(createTrack(random, sampleRate / 10));
+        }
+    }
+
+    private AudioFrameResult createTrack(Random random, int numberOfSamples) {
+        List<ByteBuffer> channels = new ArrayList<>();
+        for (int channel = 0; channel < 2; ++channel) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(numberOfSamples * BYTES_PER_SAMPLE);
+            for (int i = 0; i < numberOfSamples; ++i) {
+                buffer.putShort(i * BYTES_PER_SAMPLE, (short) (random.nextInt(4000) - 2000));
+            }
+            channels.add(buffer);
+        }
+        return new AudioFrameResult(channels, numberOfSamples * 10, BYTES_PER_SAMPLE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Benchmark
+    public AudioFrameResult mixPerSample() {
+        int numberOfChannels = 2;
+        int maximumQuality = Math.max(SAMPLE_RATE, otherSampleRate);
+        int maximumByteLength = BYTES_PER_SAMPLE;
+        int length = tracks.get(0).getChannels().get(0).capacity();
+        List<ByteBuffer> channels = new ArrayList<>();
+        for (int i = 0; i < numberOfChannels; ++i) {
+            channels.add(GlobalMemoryManagerAccessor.memoryManager.requestBuffer(length));
+        }
+        AudioFrameResult audioFrameResult = new AudioFrameResult(channels, maximumQuality, maximumByteLength);
+
+        for (AudioFrameResult data : tracks) {
+            for (int channelIndex = 0; channelIndex < data.getChannels().size(); ++channelIndex) {
+                for (int sampleIndex = 0; sampleIndex < length / maximumByteLength; ++sampleIndex) {
+                    long newData = data.getRescaledSample(channelIndex, maximumByteLength, maximumQuality, sampleIndex);
+                    long oldData = audioFrameResult.getSampleAt(channelIndex, sampleIndex);
+                    audioFrameResult.setSampleAt(channelIndex, sampleIndex, MathUtil.clampToInt(newData + oldData, Integer.MIN_VALUE, Integer.MAX_VALUE));
+                }
+            }
+        }
+        return release(audioFrameResult);
+    }
+
+    @Benchmark
+    public AudioFrameResult mixFloatBlocks() {
+        return release(audioBufferMerger.mergeBuffers(tracks));
+    }
+
+    // buffers are returned, so the benchmark measures the mixing instead of the allocation
+    private AudioFrameResult release(AudioFrameResult result) {
+        GlobalMemoryManagerAccessor.memoryManager.returnBuffers(result.getChannels());
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AudioMixBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
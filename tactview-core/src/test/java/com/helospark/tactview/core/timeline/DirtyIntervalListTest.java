@@ -0,0 +1,46 @@
+package com.helospark.tactview.core.timeline;
+
+import static com.helospark.tactview.core.timeline.TimelinePosition.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class DirtyIntervalListTest {
+
+    @Test
+    public void testOnlyDirtiedPartGetsNewVersion() {
+        // GIVEN
+        DirtyIntervalList underTest = new DirtyIntervalList();
+        long firstVersion = underTest.dirtyInterval(new TimelineInterval(ofSeconds(0), ofSeconds(10)));
+
+        // WHEN
+        long secondVersion = underTest.dirtyInterval(new TimelineInterval(ofSeconds(4), ofSeconds(6)));
+
+        // THEN
+        assertEquals(firstVersion, underTest.positionVersion(ofSeconds(2)));
+        assertEquals(secondVersion, underTest.positionVersion(ofSeconds(5)));
+        assertEquals(firstVersion, underTest.positionVersion(ofSeconds(8)));
+        assertEquals(secondVersion, underTest.positionVersion(ofSeconds(6)));
+        assertEquals(0L, underTest.positionVersion(ofSeconds(11)));
+        assertEquals(firstVersion, underTest.intervalVersion(new TimelineInterval(ofSeconds(7), ofSeconds(9))));
+        assertEquals(secondVersion, underTest.intervalVersion(new TimelineInterval(ofSeconds(1), ofSeconds(4))));
+        assertEquals(secondVersion, underTest.getCurrentVersion());
+    }
+
+    @Test
+    public void testOverlappingIntervalsAreSplit() {
+        // GIVEN
+        DirtyIntervalList underTest = new DirtyIntervalList();
+        long firstVersion = underTest.dirtyInterval(new TimelineInterval(ofSeconds(0), ofSeconds(4)));
+        underTest.dirtyInterval(new TimelineInterval(ofSeconds(6), ofSeconds(10)));
+
+        // WHEN
+        long thirdVersion = underTest.dirtyInterval(new TimelineInterval(ofSeconds(3), ofSeconds(7)));
+
+        // THEN
+        assertEquals(firstVersion, underTest.positionVersion(ofSeconds(1)));
+        assertEquals(thirdVersion, underTest.positionVersion(ofSeconds(5)));
+        assertEquals(thirdVersion - 1, underTest.positionVersion(ofSeconds(9)));
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.helospark.tactview.core.timeline.DirtyIntervalList.IntervalContainer;
+
+/**
+ * Lookups of {@link NonIntersectingIntervalList} with 10k and 100k short intervals (ex. a podcast cut into many clips),
+ * compared with the linear scan the list used before.
+ * <p>
+ * Run from tactview-core with: mvn test-compile exec:java -Dexec.mainClass=com.helospark.tactview.core.timeline.NonIntersectingIntervalListBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NonIntersectingIntervalListBenchmark {
+    private static final int FRAMES_PER_SECOND = 30;
+
+    @Param({ "10000", "100000" })
+    private int numberOfIntervals;
+
+    private NonIntersectingIntervalList<IntervalContainer> list;
+    private List<IntervalContainer> arrayList;
+    private TimelinePosition[] queryPositions;
+    private int queryIndex = 0;
+
+    @Setup
+    public void setUp() {
+        list = new NonIntersectingIntervalList<>();
+        arrayList = new ArrayList<>();
+        for (int i = 0; i < numberOfIntervals; ++i) {
+            // one second clips with a frame gap between them
+            TimelinePosition start = TimelinePosition.ofSeconds(i);
+            TimelinePosition end = start.add(TimelinePosition.fromFrameIndexWithFps(FRAMES_PER_SECOND - 1, FRAMES_PER_SECOND));
+            IntervalContainer container = new IntervalContainer(new TimelineInterval(start, end), i);
+            list.addInterval(container);
+            arrayList.add(container);
+        }
+        queryPositions = new TimelinePosition[1024];
+        for (int i = 0; i < queryPositions.length; ++i) {
+            long frame = (i * 7919L * FRAMES_PER_SECOND + i) % ((long) numberOfIntervals * FRAMES_PER_SECOND);
+            queryPositions[i] = TimelinePosition.fromFrameIndexWithFps(frame, FRAMES_PER_SECOND);
+        }
+    }
+
+    @Benchmark
+    public Optional<IntervalContainer> elementAtPosition() {
+        return list.getElementWithIntervalContainingPoint(nextQueryPosition());
+    }
+
+    @Benchmark
+    public Optional<IntervalContainer> elementAtPositionWithLinearScan() {
+        TimelinePosition position = nextQueryPosition();
+        for (IntervalContainer container : arrayList) {
+            if (container.getInterval().contains(position)) {
+                return Optional.of(container);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Benchmark
+    public List<IntervalContainer> intersectingIntervals() {
+        TimelinePosition position = nextQueryPosition();
+        return list.computeIntersectingIntervals(new TimelineInterval(position, TimelineLength.ofSeconds(5)));
+    }
+
+    @Benchmark
+    public boolean moveInterval() {
+        IntervalContainer container = list.get(queryIndex++ % list.size());
+        list.remove(container);
+        return list.addInterval(container);
+    }
+
+    private TimelinePosition nextQueryPosition() {
+        return queryPositions[queryIndex++ & (queryPositions.length - 1)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NonIntersectingIntervalListBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.helospark.tactview.core.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PolyphaseResamplerTest {
+
+    @Test
+    public void testToneBelowNyquistIsPreserved() {
+        // GIVEN
+        float[] input = createSine(1000.0, 48000, 4800);
+        float[] output = new float[4410];
+        PolyphaseResampler underTest = PolyphaseResampler.forSampleRates(48000, 44100);
+
+        // WHEN
+        underTest.mixInto(input, output, output.length);
+
+        // THEN
+        float[] expected = createSine(1000.0, 44100, 4410);
+        for (int i = 100; i < output.length - 100; ++i) {
+            assertEquals(expected[i], output[i], 0.001);
+        }
+    }
+
+    @Test
+    public void testToneAboveOutputNyquistIsFilteredOut() {
+        // GIVEN
+        float[] input = createSine(30000.0, 96000, 9600);
+        float[] output = new float[4410];
+        PolyphaseResampler underTest = PolyphaseResampler.forSampleRates(96000, 44100);
+
+        // WHEN
+        underTest.mixInto(input, output, output.length);
+
+        // THEN
+        for (int i = 100; i < output.length - 100; ++i) {
+            assertTrue(Math.abs(output[i]) < 0.001, "Aliased sample " + output[i] + " at " + i);
+        }
+    }
+
+    private float[] createSine(double frequency, int sampleRate, int numberOfSamples) {
+        float[] result = new float[numberOfSamples];
+        for (int i = 0; i < numberOfSamples; ++i) {
+            result[i] = (float) Math.sin(2.0 * Math.PI * frequency * i / sampleRate);
+        }
+        return result;
+    }
+
+}
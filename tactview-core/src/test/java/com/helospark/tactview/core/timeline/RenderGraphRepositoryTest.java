@@ -0,0 +1,61 @@
+package com.helospark.tactview.core.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.util.messaging.MessagingService;
+
+public class RenderGraphRepositoryTest {
+    private static final TimelinePosition FIRST_CLIP_POSITION = TimelinePosition.ofSeconds(5);
+    private static final TimelinePosition SECOND_CLIP_POSITION = TimelinePosition.ofSeconds(25);
+
+    private RenderGraphRepository underTest;
+
+    @BeforeEach
+    public void setUp() {
+        TimelineClip firstClip = mockClip("clip1");
+        TimelineClip secondClip = mockClip("clip2");
+        TimelineChannel channel = mock(TimelineChannel.class);
+        when(channel.getId()).thenReturn("channel1");
+        when(channel.getDataAt(any())).thenAnswer(invocation -> {
+            TimelinePosition position = invocation.getArgument(0);
+            return Optional.of(position.isLessThan(TimelinePosition.ofSeconds(10)) ? firstClip : secondClip);
+        });
+
+        TimelineChannelsState timelineChannelsState = new TimelineChannelsState();
+        timelineChannelsState.channels.add(channel);
+        underTest = new RenderGraphRepository(timelineChannelsState, mock(MessagingService.class));
+    }
+
+    @Test
+    public void testOnlyGraphsUsedInModifiedIntervalAreRebuilt() {
+        // GIVEN
+        RenderGraph firstGraph = underTest.getActiveRenderGraph(FIRST_CLIP_POSITION).getRenderGraph();
+        RenderGraph secondGraph = underTest.getActiveRenderGraph(SECOND_CLIP_POSITION).getRenderGraph();
+
+        // WHEN
+        underTest.invalidate(List.of(new TimelineInterval(TimelinePosition.ofSeconds(0), TimelinePosition.ofSeconds(10))));
+
+        // THEN
+        assertNotSame(firstGraph, underTest.getActiveRenderGraph(FIRST_CLIP_POSITION).getRenderGraph());
+        assertSame(secondGraph, underTest.getActiveRenderGraph(SECOND_CLIP_POSITION).getRenderGraph());
+    }
+
+    private TimelineClip mockClip(String id) {
+        TimelineClip clip = mock(TimelineClip.class);
+        when(clip.getId()).thenReturn(id);
+        when(clip.getClipDependency(any())).thenReturn(List.of());
+        when(clip.getChannelDependency(any())).thenReturn(List.of());
+        return clip;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.helospark.tactview.core.timeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.helospark.tactview.core.timeline.RenderGraph.RenderGraphKey;
+import com.helospark.tactview.core.timeline.RenderGraph.RenderGraphKeyEntry;
+import com.helospark.tactview.core.util.IndependentPixelOperationImpl;
+
+/**
+ * Compares frames/sec of the previous layer-by-layer barrier rendering with the dependency driven {@link RenderGraphScheduler}
+ * on a synthetic 20 clip timeline with mixed clip and channel dependencies.
+ * Each clip does a per clip cost and a nested pixel loop, like an effect would.
+ * <p>
+ * Run from tactview-core with: mvn test-compile exec:java -Dexec.mainClass=com.helospark.tactview.core.timeline.RenderGraphSchedulerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderGraphSchedulerBenchmark {
+    private static final int NUMBER_OF_CLIPS = 20;
+    private static final int IMAGE_WIDTH = 64;
+    private static final int IMAGE_HEIGHT = 32;
+
+    private RenderGraph renderGraph;
+
+    private ExecutorService layeredClipExecutor;
+    private ForkJoinPool layeredPixelPool;
+    private IndependentPixelOperationImpl layeredPixelOperation;
+
+    private ForkJoinPool sharedPool;
+    private RenderGraphScheduler scheduler;
+    private IndependentPixelOperationImpl sharedPixelOperation;
+
+    @Setup
+    public void setUp() {
+        List<RenderGraphKeyEntry> entries = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_CLIPS; ++i) {
+            List<String> clipDependencies = (i % 5 == 4) ? List.of("clip" + (i - 3)) : List.of();
+            List<String> channelDependencies = (i % 7 == 6) ? List.of("channel" + (i - 6)) : List.of();
+            entries.add(new RenderGraphKeyEntry("clip" + i, "channel" + i, i, clipDependencies, channelDependencies));
+        }
+        renderGraph = RenderGraph.build(new RenderGraphKey(entries));
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        layeredClipExecutor = Executors.newFixedThreadPool(threads);
+        layeredPixelPool = new ForkJoinPool(threads);
+        layeredPixelOperation = new IndependentPixelOperationImpl(layeredPixelPool);
+
+        sharedPool = new ForkJoinPool(threads);
+        scheduler = new RenderGraphScheduler(sharedPool);
+        sharedPixelOperation = new IndependentPixelOperationImpl(sharedPool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        layeredClipExecutor.shutdownNow();
+        layeredPixelPool.shutdownNow();
+        sharedPool.shutdownNow();
+    }
+
+    @Benchmark
+    public void layerBarriers() {
+        for (var layer : renderGraph.getLayers()) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (var node : layer) {
+                futures.add(CompletableFuture.runAsync(() -> renderClip(node, layeredPixelOperation), layeredClipExecutor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+        }
+    }
+
+    @Benchmark
+    public void dependencyDrivenScheduler() {
+        scheduler.execute(renderGraph, node -> renderClip(node, sharedPixelOperation));
+    }
+
+    private void renderClip(RenderGraphNode node, IndependentPixelOperationImpl pixelOperation) {
+        int clipIndex = node.getChannelIndex();
+        Blackhole.consumeCPU(20_000L * (1 + clipIndex % 4));
+        pixelOperation.executePixelTransformation(IMAGE_WIDTH, IMAGE_HEIGHT, (x, y) -> Blackhole.consumeCPU(20));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RenderGraphSchedulerBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
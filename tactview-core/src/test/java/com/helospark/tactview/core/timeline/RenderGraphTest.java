@@ -0,0 +1,79 @@
+package com.helospark.tactview.core.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.timeline.RenderGraph.RenderGraphKey;
+import com.helospark.tactview.core.timeline.RenderGraph.RenderGraphKeyEntry;
+
+public class RenderGraphTest {
+
+    @Test
+    public void testDependenciesAreRenderedFirst() {
+        // GIVEN
+        RenderGraphKey key = new RenderGraphKey(List.of(
+                new RenderGraphKeyEntry("a", "channel1", 0, List.of("b"), List.of()),
+                new RenderGraphKeyEntry("b", "channel2", 1, List.of(), List.of("channel3")),
+                new RenderGraphKeyEntry("c", "channel3", 2, List.of(), List.of()),
+                new RenderGraphKeyEntry("d", "channel4", 3, List.of(), List.of())));
+
+        // WHEN
+        RenderGraph result = RenderGraph.build(key);
+
+        // THEN
+        assertFalse(result.hasCycle());
+        assertEquals(List.of("c", "d", "b", "a"), clipIds(result.getNodesInRenderOrder()));
+        assertEquals(3, result.getLayers().size());
+        assertEquals(List.of("c", "d"), clipIds(result.getLayers().get(0)));
+        assertEquals(List.of("b"), clipIds(result.getLayers().get(1)));
+        assertEquals(List.of("a"), clipIds(result.getLayers().get(2)));
+        assertEquals(List.of("b"), clipIds(result.findNodeForClip("a").get().getInputs()));
+        assertEquals("c", result.findNodeForChannel("channel3").get().getClipId());
+    }
+
+    @Test
+    public void testDependencyOnInactiveClipIsIgnored() {
+        // GIVEN
+        RenderGraphKey key = new RenderGraphKey(List.of(
+                new RenderGraphKeyEntry("a", "channel1", 0, List.of("notActive"), List.of("notActiveChannel"))));
+
+        // WHEN
+        RenderGraph result = RenderGraph.build(key);
+
+        // THEN
+        assertEquals(1, result.getLayers().size());
+        assertTrue(result.findNodeForClip("a").get().getInputs().isEmpty());
+    }
+
+    @Test
+    public void testCycleIsDetectedAndBroken() {
+        // GIVEN
+        RenderGraphKey key = new RenderGraphKey(List.of(
+                new RenderGraphKeyEntry("a", "channel1", 0, List.of("b"), List.of()),
+                new RenderGraphKeyEntry("b", "channel2", 1, List.of("a"), List.of()),
+                new RenderGraphKeyEntry("c", "channel3", 2, List.of(), List.of())));
+
+        // WHEN
+        RenderGraph result = RenderGraph.build(key);
+
+        // THEN
+        assertTrue(result.hasCycle());
+        assertEquals(List.of("a", "b"), result.getClipsInCycle());
+        assertEquals(List.of("c", "a", "b"), clipIds(result.getNodesInRenderOrder()));
+        assertTrue(result.findNodeForClip("a").get().getInputs().isEmpty());
+        assertEquals(List.of("a"), clipIds(result.findNodeForClip("b").get().getInputs()));
+    }
+
+    private List<String> clipIds(List<RenderGraphNode> nodes) {
+        return nodes.stream()
+                .map(a -> a.getClipId())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.helospark.tactview.core.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TimelineElementIndexTest {
+    private TimelineChannel channel;
+    private TimelineChannel otherChannel;
+    private TimelineClip clip;
+    private StatelessEffect effect;
+    private TimelineElementIndex underTest;
+
+    @BeforeEach
+    public void setUp() {
+        channel = mock(TimelineChannel.class);
+        otherChannel = mock(TimelineChannel.class);
+        clip = mock(TimelineClip.class);
+        effect = mock(StatelessEffect.class);
+        when(clip.getId()).thenReturn("clip");
+        when(effect.getId()).thenReturn("effect");
+        when(clip.getEffects()).thenReturn(List.of(effect));
+        underTest = new TimelineElementIndex();
+    }
+
+    @Test
+    public void testClipAndItsEffectsAreIndexed() {
+        // GIVEN
+        long originalVersion = underTest.getStructuralVersion();
+
+        // WHEN
+        underTest.clipAdded(channel, clip);
+
+        // THEN
+        assertEquals(Optional.of(clip), underTest.findClipById("clip"));
+        assertEquals(Optional.of(channel), underTest.findChannelForClipId("clip"));
+        assertEquals(Optional.of(clip), underTest.findClipForEffect("effect"));
+        assertTrue(underTest.getStructuralVersion() > originalVersion);
+    }
+
+    @Test
+    public void testMovedClipIsFoundInNewChannel() {
+        // GIVEN
+        underTest.clipAdded(channel, clip);
+
+        // WHEN
+        underTest.clipAdded(otherChannel, clip);
+
+        // THEN
+        assertEquals(Optional.of(otherChannel), underTest.findChannelForClipId("clip"));
+    }
+
+    @Test
+    public void testRemovedClipIsNotFound() {
+        // GIVEN
+        underTest.clipAdded(channel, clip);
+        long versionBeforeRemove = underTest.getStructuralVersion();
+
+        // WHEN
+        underTest.clipRemoved(clip);
+
+        // THEN
+        assertEquals(Optional.empty(), underTest.findClipById("clip"));
+        assertEquals(Optional.empty(), underTest.findChannelForClipId("clip"));
+        assertEquals(Optional.empty(), underTest.findClipForEffect("effect"));
+        assertTrue(underTest.getStructuralVersion() > versionBeforeRemove);
+    }
+
+}
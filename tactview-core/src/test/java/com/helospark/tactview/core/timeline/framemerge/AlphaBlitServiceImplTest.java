@@ -0,0 +1,151 @@
+package com.helospark.tactview.core.timeline.framemerge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.timeline.blendmode.BlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.AddBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.AvarageBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.BurnBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.ColorBurnBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.ColorDodgeBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.DarkenBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.DifferenceBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.ExclusionBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.LightenBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.Multiply2BlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.MultiplyBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.NegateBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.NormalBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.OverlayBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.ReflectBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.ScreenBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.SoftLightBlendModeStrategy;
+import com.helospark.tactview.core.timeline.blendmode.impl.SubtractBlendModeStrategy;
+import com.helospark.tactview.core.timeline.image.ClipImage;
+import com.helospark.tactview.core.util.IndependentPixelOperationImpl;
+
+public class AlphaBlitServiceImplTest {
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 31;
+    private static final List<Double> GLOBAL_ALPHAS = List.of(1.0, 0.73, 0.0);
+
+    private ForkJoinPool workerPool;
+    private AlphaBlitServiceImpl underTest;
+
+    @BeforeEach
+    public void setUp() {
+        workerPool = new ForkJoinPool(4);
+        underTest = new AlphaBlitServiceImpl(new IndependentPixelOperationImpl(workerPool));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        workerPool.shutdownNow();
+    }
+
+    @Test
+    public void testFrameBlitIsBitIdenticalToPerPixelBlending() {
+        for (BlendModeStrategy blendMode : createBlendModes()) {
+            for (double globalAlpha : GLOBAL_ALPHAS) {
+                // GIVEN
+                ClipImage foreground = createRandomImage(WIDTH, HEIGHT, 1);
+                ClipImage expected = createRandomImage(WIDTH, HEIGHT, 2);
+                ClipImage result = createRandomImage(WIDTH, HEIGHT, 2);
+
+                // WHEN
+                underTest.alphaBlitFrame(expected, foreground, WIDTH, HEIGHT, perPixel(blendMode), globalAlpha);
+                underTest.alphaBlitFrame(result, foreground, WIDTH, HEIGHT, blendMode, globalAlpha);
+
+                // THEN
+                assertEquals(expected.getBuffer().clear(), result.getBuffer().clear(), blendMode.getId() + " " + globalAlpha);
+            }
+        }
+    }
+
+    @Test
+    public void testImageBlitIsBitIdenticalToPerPixelBlending() {
+        for (BlendModeStrategy blendMode : createBlendModes()) {
+            for (double globalAlpha : GLOBAL_ALPHAS) {
+                // GIVEN
+                ClipImage toBlit = createRandomImage(20, 15, 3);
+                ClipImage expected = createRandomImage(WIDTH, HEIGHT, 4);
+                ClipImage result = createRandomImage(WIDTH, HEIGHT, 4);
+                ClipImage expectedWithoutPremultiply = createRandomImage(WIDTH, HEIGHT, 4);
+                ClipImage resultWithoutPremultiply = createRandomImage(WIDTH, HEIGHT, 4);
+
+                // WHEN
+                for (int[] position : new int[][]{{-5, -3}, {10, 7}, {60, 25}}) {
+                    underTest.alphaBlitImageIntoResult(expected, toBlit, position[0], position[1], perPixel(blendMode), globalAlpha);
+                    underTest.alphaBlitImageIntoResult(result, toBlit, position[0], position[1], blendMode, globalAlpha);
+                    underTest.alphaBlitImageIntoResultWithoutPremultiply(expectedWithoutPremultiply, toBlit, position[0], position[1], perPixel(blendMode), globalAlpha);
+                    underTest.alphaBlitImageIntoResultWithoutPremultiply(resultWithoutPremultiply, toBlit, position[0], position[1], blendMode, globalAlpha);
+                }
+
+                // THEN
+                assertEquals(expected.getBuffer().clear(), result.getBuffer().clear(), blendMode.getId() + " " + globalAlpha);
+                assertEquals(expectedWithoutPremultiply.getBuffer().clear(), resultWithoutPremultiply.getBuffer().clear(), blendMode.getId() + " " + globalAlpha);
+            }
+        }
+    }
+
+    private List<BlendModeStrategy> createBlendModes() {
+        return List.of(
+                new AddBlendModeStrategy(),
+                new AvarageBlendModeStrategy(),
+                new BurnBlendModeStrategy(),
+                new ColorBurnBlendModeStrategy(),
+                new ColorDodgeBlendModeStrategy(),
+                new DarkenBlendModeStrategy(),
+                new DifferenceBlendModeStrategy(),
+                new ExclusionBlendModeStrategy(),
+                new LightenBlendModeStrategy(),
+                new Multiply2BlendModeStrategy(),
+                new MultiplyBlendModeStrategy(),
+                new NegateBlendModeStrategy(),
+                new NormalBlendModeStrategy(),
+                new OverlayBlendModeStrategy(),
+                new ReflectBlendModeStrategy(),
+                new ScreenBlendModeStrategy(),
+                new SoftLightBlendModeStrategy(),
+                new SubtractBlendModeStrategy());
+    }
+
+    // Not a SeparateRgbComponentBlendMode, so it is blended pixel by pixel
+    private BlendModeStrategy perPixel(BlendModeStrategy blendMode) {
+        return new BlendModeStrategy() {
+
+            @Override
+            public void computeColor(int[] topLayer, int[] bottomLayer, int[] resultOut) {
+                blendMode.computeColor(topLayer, bottomLayer, resultOut);
+            }
+
+            @Override
+            public String getId() {
+                return blendMode.getId();
+            }
+        };
+    }
+
+    private ClipImage createRandomImage(int width, int height, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4);
+        byte[] data = new byte[buffer.capacity()];
+        Random random = new Random(seed);
+        random.nextBytes(data);
+        for (int i = 3; i < data.length; i += 16) {
+            data[i] = (byte) (i % 3 == 0 ? 0 : 255); // fully transparent and opaque pixels as well
+        }
+        buffer.put(data);
+        buffer.clear();
+        return new ClipImage(buffer, width, height);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.helospark.tactview.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class ByteBufferToImageConverterImplTest {
+    private ByteBufferToImageConverterImpl underTest = new ByteBufferToImageConverterImpl();
+
+    @Test
+    public void testConvertedImageHasSameColors() {
+        // GIVEN
+        ByteBuffer buffer = createImage();
+
+        // WHEN
+        BufferedImage result = underTest.byteBufferToBufferedImage(buffer, 2, 2);
+
+        // THEN
+        assertEquals(new java.awt.Color(10, 20, 30).getRGB(), result.getRGB(0, 0));
+        assertEquals(new java.awt.Color(200, 150, 100).getRGB(), result.getRGB(1, 0));
+        assertEquals(new java.awt.Color(255, 0, 128).getRGB(), result.getRGB(0, 1));
+        assertEquals(new java.awt.Color(1, 2, 3).getRGB(), result.getRGB(1, 1));
+    }
+
+    @Test
+    public void testConvertedImageWithAlphaHasSameColors() {
+        // GIVEN
+        ByteBuffer buffer = createImage();
+
+        // WHEN
+        BufferedImage result = underTest.byteBufferToBufferedImageWithAlpha(buffer, 2, 2);
+
+        // THEN
+        assertEquals(new java.awt.Color(10, 20, 30, 255).getRGB(), result.getRGB(0, 0));
+        assertEquals(new java.awt.Color(200, 150, 100, 0).getRGB(), result.getRGB(1, 0));
+        assertEquals(new java.awt.Color(255, 0, 128, 128).getRGB(), result.getRGB(0, 1));
+        assertEquals(new java.awt.Color(1, 2, 3, 4).getRGB(), result.getRGB(1, 1));
+    }
+
+    private ByteBuffer createImage() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 * 2 * 4);
+        buffer.put(new byte[] { 10, 20, 30, (byte) 255, (byte) 200, (byte) 150, 100, 0, (byte) 255, 0, (byte) 128, (byte) 128, 1, 2, 3, 4 });
+        return buffer;
+    }
+
+}
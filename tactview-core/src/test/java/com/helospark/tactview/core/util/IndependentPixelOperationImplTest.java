@@ -0,0 +1,98 @@
+package com.helospark.tactview.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.timeline.image.ClipImage;
+
+public class IndependentPixelOperationImplTest {
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    private MemoryManager originalMemoryManager;
+    private ForkJoinPool workerPool;
+    private IndependentPixelOperationImpl underTest;
+
+    @BeforeEach
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        MemoryManager memoryManager = mock(MemoryManager.class);
+        when(memoryManager.requestUninitializedBuffer(anyInt())).thenAnswer(invocation -> ByteBuffer.allocateDirect(invocation.getArgument(0)));
+        GlobalMemoryManagerAccessor.memoryManager = memoryManager;
+
+        workerPool = new ForkJoinPool(4);
+        underTest = new IndependentPixelOperationImpl(workerPool);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        workerPool.shutdownNow();
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Test
+    public void testRowKernelGivesSameResultAsPixelTransformer() {
+        // GIVEN
+        ClipImage input = createRandomImage();
+
+        // WHEN
+        ClipImage pixelResult = underTest.createNewImageWithAppliedTransformation(input, pixelRequest -> {
+            pixelRequest.output[0] = 255 - pixelRequest.input[0];
+            pixelRequest.output[1] = pixelRequest.input[1] / 2;
+            pixelRequest.output[2] = pixelRequest.y;
+            pixelRequest.output[3] = pixelRequest.input[3];
+        });
+        ClipImage rowResult = underTest.createNewImageWithAppliedRowKernel(input, (in, inputOffset, out, outputOffset, y, pixelCount) -> {
+            for (int i = 0; i < pixelCount * 4; i += 4) {
+                out.put(outputOffset + i + 0, (byte) (255 - (in.get(inputOffset + i + 0) & 0xFF)));
+                out.put(outputOffset + i + 1, (byte) ((in.get(inputOffset + i + 1) & 0xFF) / 2));
+                out.put(outputOffset + i + 2, (byte) y);
+                out.put(outputOffset + i + 3, in.get(inputOffset + i + 3));
+            }
+        });
+
+        // THEN
+        assertEquals(pixelResult.getBuffer().clear(), rowResult.getBuffer().clear());
+    }
+
+    @Test
+    public void testEveryRowIsProcessedOnce() {
+        // GIVEN
+        AtomicIntegerArray processedRows = new AtomicIntegerArray(HEIGHT);
+
+        // WHEN
+        underTest.executeOnRows(HEIGHT, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; ++y) {
+                processedRows.incrementAndGet(y);
+            }
+        });
+
+        // THEN
+        for (int y = 0; y < HEIGHT; ++y) {
+            assertEquals(1, processedRows.get(y));
+        }
+    }
+
+    private ClipImage createRandomImage() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        byte[] data = new byte[buffer.capacity()];
+        new Random(12).nextBytes(data);
+        buffer.put(data);
+        buffer.clear();
+        return new ClipImage(buffer, WIDTH, HEIGHT);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.helospark.tactview.core.util;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.framecache.MemoryManager;
+import com.helospark.tactview.core.decoder.framecache.PooledMemoryManager;
+import com.helospark.tactview.core.timeline.image.ClipImage;
+
+/**
+ * Compares the per pixel {@link SimplePixelTransformer} path with the {@link PixelRowKernel} path for the invert, desaturize and gamma effects
+ * on a 1080p frame.
+ * <p>
+ * Run from tactview-core with: mvn test-compile exec:java -Dexec.mainClass=com.helospark.tactview.core.util.PixelRowKernelBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PixelRowKernelBenchmark {
+    private static final int IMAGE_WIDTH = 1920;
+    private static final int IMAGE_HEIGHT = 1080;
+    private static final double GAMMA = 0.8;
+
+    private MemoryManager originalMemoryManager;
+    private ForkJoinPool workerPool;
+    private IndependentPixelOperationImpl pixelOperation;
+    private ClipImage inputImage;
+    private byte[] gammaLookupTable;
+
+    @Setup
+    public void setUp() {
+        originalMemoryManager = GlobalMemoryManagerAccessor.memoryManager;
+        GlobalMemoryManagerAccessor.memoryManager = new PooledMemoryManager();
+
+        workerPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        pixelOperation = new IndependentPixelOperationImpl(workerPool);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(IMAGE_WIDTH * IMAGE_HEIGHT * 4);
+        byte[] data = new byte[buffer.capacity()];
+        new Random(1).nextBytes(data);
+        buffer.put(data);
+        inputImage = new ClipImage(buffer, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+        gammaLookupTable = new byte[256];
+        for (int i = 0; i < gammaLookupTable.length; ++i) {
+            gammaLookupTable[i] = (byte) MathUtil.clamp((int) (Math.pow(i / 255.0, GAMMA) * 255.0), 0, 255);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        workerPool.shutdownNow();
+        GlobalMemoryManagerAccessor.memoryManager = originalMemoryManager;
+    }
+
+    @Benchmark
+    public ClipImage invertPerPixel() {
+        return release(pixelOperation.createNewImageWithAppliedTransformation(inputImage, pixelRequest -> {
+            pixelRequest.output[0] = 255 - pixelRequest.input[0];
+            pixelRequest.output[1] = 255 - pixelRequest.input[1];
+            pixelRequest.output[2] = 255 - pixelRequest.input[2];
+            pixelRequest.output[3] = pixelRequest.input[3];
+        }));
+    }
+
+    @Benchmark
+    public ClipImage invertRowKernel() {
+        return release(pixelOperation.createNewImageWithAppliedRowKernel(inputImage, (input, inputOffset, output, outputOffset, y, pixelCount) -> {
+            int end = inputOffset + pixelCount * 4;
+            for (int i = inputOffset, j = outputOffset; i < end; i += 4, j += 4) {
+                output.put(j + 0, (byte) (255 - (input.get(i + 0) & 0xFF)));
+                output.put(j + 1, (byte) (255 - (input.get(i + 1) & 0xFF)));
+                output.put(j + 2, (byte) (255 - (input.get(i + 2) & 0xFF)));
+                output.put(j + 3, input.get(i + 3));
+            }
+        }));
+    }
+
+    @Benchmark
+    public ClipImage desaturizePerPixel() {
+        return release(pixelOperation.createNewImageWithAppliedTransformation(inputImage, pixelRequest -> {
+            int desaturized = (pixelRequest.input[0] + pixelRequest.input[1] + pixelRequest.input[2]) / 3;
+            pixelRequest.output[0] = desaturized;
+            pixelRequest.output[1] = desaturized;
+            pixelRequest.output[2] = desaturized;
+            pixelRequest.output[3] = pixelRequest.input[3];
+        }));
+    }
+
+    @Benchmark
+    public ClipImage desaturizeRowKernel() {
+        return release(pixelOperation.createNewImageWithAppliedRowKernel(inputImage, (input, inputOffset, output, outputOffset, y, pixelCount) -> {
+            int end = inputOffset + pixelCount * 4;
+            for (int i = inputOffset, j = outputOffset; i < end; i += 4, j += 4) {
+                byte desaturized = (byte) (((input.get(i + 0) & 0xFF) + (input.get(i + 1) & 0xFF) + (input.get(i + 2) & 0xFF)) / 3);
+                output.put(j + 0, desaturized);
+                output.put(j + 1, desaturized);
+                output.put(j + 2, desaturized);
+                output.put(j + 3, input.get(i + 3));
+            }
+        }));
+    }
+
+    @Benchmark
+    public ClipImage gammaPerPixel() {
+        return release(pixelOperation.createNewImageWithAppliedTransformation(inputImage, pixelRequest -> {
+            pixelRequest.output[0] = (int) (Math.pow(pixelRequest.input[0] / 255.0, GAMMA) * 255.0);
+            pixelRequest.output[1] = (int) (Math.pow(pixelRequest.input[1] / 255.0, GAMMA) * 255.0);
+            pixelRequest.output[2] = (int) (Math.pow(pixelRequest.input[2] / 255.0, GAMMA) * 255.0);
+            pixelRequest.output[3] = pixelRequest.input[3];
+        }));
+    }
+
+    @Benchmark
+    public ClipImage gammaRowKernel() {
+        byte[] lookupTable = gammaLookupTable;
+        return release(pixelOperation.createNewImageWithAppliedRowKernel(inputImage, (input, inputOffset, output, outputOffset, y, pixelCount) -> {
+            int end = inputOffset + pixelCount * 4;
+            for (int i = inputOffset, j = outputOffset; i < end; i += 4, j += 4) {
+                output.put(j + 0, lookupTable[input.get(i + 0) & 0xFF]);
+                output.put(j + 1, lookupTable[input.get(i + 1) & 0xFF]);
+                output.put(j + 2, lookupTable[input.get(i + 2) & 0xFF]);
+                output.put(j + 3, input.get(i + 3));
+            }
+        }));
+    }
+
+    // buffers are returned, so the benchmark measures the transformation instead of the allocation
+    private ClipImage release(ClipImage image) {
+        image.returnBuffer();
+        return image;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PixelRowKernelBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
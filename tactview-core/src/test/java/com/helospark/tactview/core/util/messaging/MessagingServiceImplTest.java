@@ -0,0 +1,107 @@
+package com.helospark.tactview.core.util.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import com.helospark.tactview.core.timeline.message.progress.ProgressAdvancedMessage;
+import com.helospark.tactview.core.timeline.message.progress.ProgressDoneMessage;
+import com.helospark.tactview.core.timeline.message.progress.ProgressInitializeMessage;
+
+public class MessagingServiceImplTest {
+    private MessagingServiceImpl underTest;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        underTest = new MessagingServiceImpl();
+        Field loggerField = MessagingServiceImpl.class.getDeclaredField("logger");
+        loggerField.setAccessible(true);
+        loggerField.set(underTest, LoggerFactory.getLogger(MessagingServiceImpl.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    public void testListenersOfSuperTypeReceiveMessage() {
+        // GIVEN
+        List<Object> received = new CopyOnWriteArrayList<>();
+        underTest.register(Object.class, message -> received.add("object"));
+        underTest.register(AffectedModifiedIntervalAware.class, message -> received.add("interval"));
+        underTest.register(ProgressDoneMessage.class, message -> received.add("done"));
+
+        // WHEN
+        underTest.sendMessage(new IntervalDirtyMessage(List.of()));
+
+        // THEN
+        assertEquals(List.of("object", "interval"), received);
+    }
+
+    @Test
+    public void testPendingProgressMessagesAreCoalescedInOrder() throws Exception {
+        // GIVEN
+        CountDownLatch blockDelivery = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        underTest.register(ProgressInitializeMessage.class, message -> awaitUninterruptibly(blockDelivery));
+        underTest.register(ProgressAdvancedMessage.class, message -> received.add(message.getNumberOfJobsDone()));
+        underTest.register(ProgressDoneMessage.class, message -> {
+            received.add("done");
+            done.countDown();
+        });
+
+        // WHEN
+        underTest.sendAsyncMessage(new ProgressInitializeMessage("id", 10));
+        underTest.sendAsyncMessage(new ProgressAdvancedMessage("other", 100));
+        for (int i = 0; i < 10; ++i) {
+            underTest.sendAsyncMessage(new ProgressAdvancedMessage("id", 1));
+        }
+        underTest.sendAsyncMessage(new ProgressDoneMessage("id"));
+        blockDelivery.countDown();
+        done.await(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals(List.of(100, 10, "done"), received);
+    }
+
+    @Test
+    public void testMessagesAreDeliveredAfterListenerThrowsError() throws Exception {
+        // GIVEN
+        CountDownLatch delivered = new CountDownLatch(2);
+        underTest.register(String.class, message -> {
+            delivered.countDown();
+            if (delivered.getCount() == 1) {
+                throw new StackOverflowError("listener failure");
+            }
+        });
+
+        // WHEN
+        underTest.sendAsyncMessage("first");
+        underTest.sendAsyncMessage("second");
+        boolean result = delivered.await(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertTrue(result);
+    }
+
+    private void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -2,6 +2,7 @@
 #include <map>
 #include <set>
 #include <iostream>
+#include <mutex>
 #include "common.h"
 
 const int QUEUE_SIZE = 10;
@@ -51,10 +52,16 @@ extern "C" {
         int64_t lastPts = -1;
         std::set<DecodedPackage, PtsComparator> decodedPackages;
         int width, height;
+        std::mutex decodeMutex;
     };
 
 
-    std::map<std::string, DecodeStructure*> idTodecodeStructureMap;
+    // Guards the context map, a single structure is guarded by its own decodeMutex
+    std::mutex decodeStructureMapMutex;
+
+    // Contexts explicitly opened and closed by the caller, see openDecoderContext
+    int nextDecoderContextId = 0;
+    std::map<int, DecodeStructure*> decoderContextMap;
 
     void copyFrameData(AVFrame *pFrame, int width, int height, int iFrame, char* frames)
     {
@@ -231,7 +238,7 @@ extern "C" {
         av_frame_free(&frame);
     }
 
-    DecodeStructure* openFile(FFmpegImageRequest* request);
+    DecodeStructure* openFile(const char* path, int width, int height);
 
     void emptyQueue(DecodeStructure* decodeStructure)
     {
@@ -291,30 +298,20 @@ extern "C" {
         //std::cout << "Set filled: " << element->decodedPackages << std::endl;
     }
 
-    EXPORTED void readFrames(FFmpegImageRequest* request)
+    void freeDecodeStructure(DecodeStructure* decodeStructure)
     {
+        emptyQueue(decodeStructure);
+        sws_freeContext(decodeStructure->sws_ctx);
+        av_frame_free(&decodeStructure->pFrame);
+        avcodec_close(decodeStructure->pCodecCtx);
+        avcodec_free_context(&decodeStructure->pCodecCtx);
+        avcodec_close(decodeStructure->pCodecCtxOrig); // owned by the stream, freed by avformat_close_input
+        avformat_close_input(&decodeStructure->pFormatCtx);
+        delete decodeStructure;
+    }
 
-        std::string key = (std::string(request->path) + "_" + std::to_string(request->width) + "_" + std::to_string(request->height)); // copypaste merge
-        std::map<std::string,DecodeStructure*>::iterator elementIterator = idTodecodeStructureMap.find(key);
-
-        DecodeStructure* decodeStructure;
-
-
-        if (elementIterator == idTodecodeStructureMap.end())
-        {
-            decodeStructure = openFile(request);
-        }
-        else
-        {
-            std::cout << "Found Element" <<  elementIterator->first << std::endl;
-            decodeStructure = elementIterator->second;
-        }
-
-        if (decodeStructure == NULL)
-        {
-            return;
-        }
-
+    int decodeFrames(DecodeStructure* decodeStructure, FFmpegImageRequest* request)
+    {
         int i = 0;
         AVFormatContext   *pFormatCtx = decodeStructure->pFormatCtx;
         int               videoStream = decodeStructure->videoStream;
@@ -405,12 +402,91 @@ extern "C" {
             }
         }
         std::cout << "Queue size: " << decodeStructure->decodedPackages.size() << std::endl;
+        return i;
+    }
+
+    /**
+     * Stateless read, the file is opened and closed for every call. Only used when no decoder context can be used,
+     * repeated reads should go through openDecoderContext, which the Java side keeps in a bounded pool.
+     */
+    EXPORTED void readFrames(FFmpegImageRequest* request)
+    {
+        DecodeStructure* decodeStructure = openFile(request->path, request->width, request->height);
+        if (decodeStructure == NULL)
+        {
+            return;
+        }
+
+        decodeFrames(decodeStructure, request);
+        freeDecodeStructure(decodeStructure);
+    }
 
+    /**
+     * Opens the container and the codec once, the returned id can be used for any number of readFramesWithContext calls,
+     * until closeDecoderContext is called.
+     * Returns -1 if the file cannot be decoded.
+     */
+    EXPORTED int openDecoderContext(const char* path, int width, int height)
+    {
+        DecodeStructure* decodeStructure = openFile(path, width, height);
+        if (decodeStructure == NULL)
+        {
+            return -1;
+        }
+
+        std::lock_guard<std::mutex> mapLock(decodeStructureMapMutex);
+        int id = nextDecoderContextId++;
+        decoderContextMap[id] = decodeStructure;
+        return id;
+    }
+
+    /**
+     * Reads frames using an already opened context, if the request continues where the previous request on the same context ended,
+     * decoding continues from the current position without seeking.
+     * Returns the number of frames read or -1 if the context does not exist.
+     */
+    EXPORTED int readFramesWithContext(int contextId, FFmpegImageRequest* request)
+    {
+        DecodeStructure* decodeStructure;
+        {
+            std::lock_guard<std::mutex> mapLock(decodeStructureMapMutex);
+            std::map<int,DecodeStructure*>::iterator elementIterator = decoderContextMap.find(contextId);
+            if (elementIterator == decoderContextMap.end())
+            {
+                std::cerr << "Decoder context " << contextId << " does not exist" << std::endl;
+                return -1;
+            }
+            decodeStructure = elementIterator->second;
+        }
+
+        std::lock_guard<std::mutex> decodeLock(decodeStructure->decodeMutex);
+        return decodeFrames(decodeStructure, request);
     }
 
-    DecodeStructure* openFile(FFmpegImageRequest* request)
+    EXPORTED void closeDecoderContext(int contextId)
     {
-        std::cout << "Opening file " << request->path << " " << request->width << " " << request->height << std::endl;
+        DecodeStructure* decodeStructure;
+        {
+            std::lock_guard<std::mutex> mapLock(decodeStructureMapMutex);
+            std::map<int,DecodeStructure*>::iterator elementIterator = decoderContextMap.find(contextId);
+            if (elementIterator == decoderContextMap.end())
+            {
+                return;
+            }
+            decodeStructure = elementIterator->second;
+            decoderContextMap.erase(elementIterator);
+        }
+
+        {
+            // wait for a read that is still in progress
+            std::lock_guard<std::mutex> decodeLock(decodeStructure->decodeMutex);
+        }
+        freeDecodeStructure(decodeStructure);
+    }
+
+    DecodeStructure* openFile(const char* path, int width, int height)
+    {
+        std::cout << "Opening file " << path << " " << width << " " << height << std::endl;
 
         // Initalizing these to NULL prevents segfaults!
         AVFormatContext   *pFormatCtx = NULL;
@@ -425,7 +501,7 @@ extern "C" {
 
         av_register_all();
 
-        if(avformat_open_input(&pFormatCtx, request->path, NULL, NULL)!=0)
+        if(avformat_open_input(&pFormatCtx, path, NULL, NULL)!=0)
         {
             std::cerr << "Cannot open input " << std::endl;
             return NULL;
@@ -446,7 +522,7 @@ extern "C" {
             }
         if(videoStream==-1)
         {
-            std::cerr << "No video stream found in " << request->path << std::endl;
+            std::cerr << "No video stream found in " << path << std::endl;
             return NULL;
         }
 
@@ -457,7 +533,7 @@ extern "C" {
             std::cerr << "Unsupported codec: " << pCodecCtxOrig->codec_id << std::endl;
             return NULL;
         }
-        std::cout << "Using codec " << pCodec->name << " for " << request->path << std::endl;
+        std::cout << "Using codec " << pCodec->name << " for " << path << std::endl;
 
         pCodecCtx = avcodec_alloc_context3(pCodec);
 
@@ -475,13 +551,13 @@ extern "C" {
 
         pFrame=av_frame_alloc();
 
-        std::cout << "Opening file with size " << request->width << " " << request->height << std::endl;
+        std::cout << "Opening file with size " << width << " " << height << std::endl;
 
         sws_ctx = sws_getContext(pCodecCtx->width,
                                  pCodecCtx->height,
                                  pCodecCtx->pix_fmt,
-                                 request->width,
-                                 request->height,
+                                 width,
+                                 height,
                                  AV_PIX_FMT_BGRA,
                                  SWS_BILINEAR,
                                  NULL,
@@ -499,12 +575,8 @@ extern "C" {
         element->packet = packet;
         element->buffer = buffer;
         element->sws_ctx = sws_ctx;
-        element->width = request->width;
-        element->height = request->height;
-
-        std::string key = (std::string(request->path) + "_" + std::to_string(request->width) + "_" + std::to_string(request->height)); // copypaste merge
-
-        idTodecodeStructureMap.insert(std::pair<std::string, DecodeStructure*>(std::string(key), element));
+        element->width = width;
+        element->height = height;
 
         return element;
     }
@@ -6,7 +6,7 @@
 * - sound is buffered, since we need to fill the entire audio frame buffer and it's usually not the same size as we get from Java side
 * 
 * Note that synchronization is done on Java side by sending sound and image for every frame, so no need for the original pts synch here.
-* Note that this is single threaded due to global variables used
+* Note that every encoder has its own context identified by encoderIndex, so segments of a render can be encoded in parallel
 *
 * More information about how this was developed can be found here: https://hips.hearstapps.com/ghk.h-cdn.co/assets/cm/15/11/54ffe5266025c-dog1.jpg
 */
@@ -15,6 +15,8 @@
 #define __STDC_CONSTANT_MACROS whatisthis
 
 #include <iostream>
+#include <map>
+#include <mutex>
 #include "common.h"
 
 extern "C" {
@@ -75,6 +77,11 @@ extern "C" {
         // data about sound may no belong here
         AVSampleFormat sampleFormat;
         int bytesPerSample;
+        int inputChannels;
+        int inputSampleRate;
+
+        int inputWidth;
+        int inputHeight;
 
         struct SwsContext *sws_ctx;
         struct SwrContext *swr_ctx;
@@ -104,7 +111,16 @@ extern "C" {
         int renderHeight;
         AVPixelFormat videoPixelFormat;    
     };
-    RenderContext renderContext;
+    std::mutex encoderInitMutex;
+    std::mutex renderContextMapMutex;
+    int nextEncoderIndex = 0;
+    std::map<int, RenderContext*> renderContextMap;
+
+    RenderContext* findRenderContext(int encoderIndex) {
+        std::lock_guard<std::mutex> guard(renderContextMapMutex);
+        std::map<int, RenderContext*>::iterator element = renderContextMap.find(encoderIndex);
+        return element == renderContextMap.end() ? NULL : element->second;
+    }
 
     struct FFmpegClearEncoderRequest {
         int encoderIndex;
@@ -192,6 +208,8 @@ extern "C" {
 
         if (oc->oformat->flags & AVFMT_GLOBALHEADER)
             c->flags |= AV_CODEC_FLAG_GLOBAL_HEADER;
+        ost->inputWidth = request->actualWidth;
+        ost->inputHeight = request->actualHeight;
         ost->sws_ctx = sws_getContext(request->actualWidth, request->actualHeight,
                                   AV_PIX_FMT_BGR32, c->width, c->height,
                                   videoPixelFormat, 0, 0, 0, 0);
@@ -330,7 +348,8 @@ extern "C" {
             ost->sampleFormat = AV_SAMPLE_FMT_S64;
         }
         ost->bytesPerSample = request->bytesPerSample;
-        renderContext.numberOfSamplesPerAudioFrame = nb_samples;
+        ost->inputChannels = request->audioChannels;
+        ost->inputSampleRate = request->sampleRate;
 
 
         ost->frame     = alloc_audio_frame(c->sample_fmt, c->channel_layout,
@@ -381,7 +400,7 @@ extern "C" {
 
         int copySampleFromIndex = 0;
         for (j = 0; j <frame->nb_samples; j++) {
-            for (i = 0; i < renderContext.audioChannels; i++) {
+            for (i = 0; i < ost->inputChannels; i++) {
                 for (int k = 0; k < ost->bytesPerSample; ++k) {
                     *q++ = dataStart[copySampleFromIndex++];
                 }
@@ -413,9 +432,9 @@ extern "C" {
         if (frame) {
             /* convert samples from native format to destination codec format, using the resampler */
                 /* compute destination number of samples */
-                int a = swr_get_delay(ost->swr_ctx, renderContext.sampleRate) + frame->nb_samples;
-                dst_nb_samples = av_rescale_rnd(a, c->sample_rate, renderContext.sampleRate, AV_ROUND_UP);
-                //std::cout << a << " , " << c->sample_rate << " , " << renderContext.sampleRate << " , " << frame->nb_samples << std::endl;
+                int a = swr_get_delay(ost->swr_ctx, ost->inputSampleRate) + frame->nb_samples;
+                dst_nb_samples = av_rescale_rnd(a, c->sample_rate, ost->inputSampleRate, AV_ROUND_UP);
+                //std::cout << a << " , " << c->sample_rate << " , " << ost->inputSampleRate << " , " << frame->nb_samples << std::endl;
                 std::cout << dst_nb_samples << " == " << ost->frame->nb_samples << " | " << std::endl;
                 dst_nb_samples = ost->frame->nb_samples < dst_nb_samples ? ost->frame->nb_samples : dst_nb_samples;
                 //av_assert0(dst_nb_samples == frame->nb_samples);
@@ -545,8 +564,8 @@ extern "C" {
 
         SwsContext * ctx = ost->sws_ctx;
         uint8_t * inData[1] = { frame->imageData };
-        int inLinesize[1] = { 4*renderContext.actualWidth };
-        sws_scale(ctx, inData, inLinesize, 0, renderContext.actualHeight, ost->frame->data, ost->frame->linesize);
+        int inLinesize[1] = { 4*ost->inputWidth };
+        sws_scale(ctx, inData, inLinesize, 0, ost->inputHeight, ost->frame->data, ost->frame->linesize);
 
         ost->frame->pts = ost->next_pts++;
 
@@ -613,6 +632,7 @@ extern "C" {
     /* media file output */
 
     EXPORTED int initEncoder(FFmpegInitEncoderRequest* request) {
+        std::lock_guard<std::mutex> initGuard(encoderInitMutex);
         std::cout << "[INFO] Initializing encoder " << request->actualWidth << " " << request->actualHeight << std::endl;
         av_register_all();
         AVFormatContext *oc;
@@ -628,7 +648,6 @@ extern "C" {
         AVDictionary *opt = NULL;
 
         int i;
-        memset(&renderContext, 0, sizeof(RenderContext));
 
 
         const char* filename = request->fileName;
@@ -672,8 +691,6 @@ extern "C" {
             }
             have_video = 1;
             encode_video = 1;
-
-            renderContext.videoPixelFormat =  videoPixelFormat;
         }
         if (fmt->audio_codec != AV_CODEC_ID_NONE && request->audioChannels > 0 && strcmp(request->audioCodec, "none") != 0) {
             if (strcmp(request->audioCodec, "default") != 0) {            
@@ -720,33 +737,51 @@ extern "C" {
             std::cout <<  "[ERROR] Error occurred when opening output file"<<std::endl;
             return -1;
         }
-        renderContext.oc = oc;
-        renderContext.fmt = fmt;
-        renderContext.have_audio = have_audio;
-        renderContext.have_video = have_video;
-        renderContext.audio_st = audio_st;
-        renderContext.video_st = video_st;
-        renderContext.audio_codec = audio_codec;
-        renderContext.video_codec = video_codec;
-        renderContext.encode_video = encode_video;
-        renderContext.encode_audio = encode_audio;
-        renderContext.opt = opt;
-        renderContext.bytesPerSample = audio_st->bytesPerSample;
+        RenderContext* renderContext = new RenderContext();
+        renderContext->oc = oc;
+        renderContext->fmt = fmt;
+        renderContext->have_audio = have_audio;
+        renderContext->have_video = have_video;
+        renderContext->audio_st = audio_st;
+        renderContext->video_st = video_st;
+        renderContext->audio_codec = audio_codec;
+        renderContext->video_codec = video_codec;
+        renderContext->encode_video = encode_video;
+        renderContext->encode_audio = encode_audio;
+        renderContext->opt = opt;
+        renderContext->bytesPerSample = audio_st->bytesPerSample;
         if (have_audio) {
-          renderContext.audioBuffer = new unsigned char[audio_st->tmp_frame->nb_samples * renderContext.bytesPerSample * request->audioChannels];
-          renderContext.audioChannels = request->audioChannels;
-          renderContext.sampleRate = request->sampleRate;
+          renderContext->numberOfSamplesPerAudioFrame = audio_st->frame->nb_samples;
+          renderContext->audioBuffer = new unsigned char[audio_st->tmp_frame->nb_samples * renderContext->bytesPerSample * request->audioChannels];
+          renderContext->audioChannels = request->audioChannels;
+          renderContext->sampleRate = request->sampleRate;
         }
-        renderContext.actualWidth = request->actualWidth;
-        renderContext.actualHeight = request->actualHeight;
-        renderContext.renderWidth = request->renderWidth;
-        renderContext.renderHeight = request->renderHeight;
-
-        return 0; // TODO: generate an index, so more renders can proceed in parallel
+        renderContext->actualWidth = request->actualWidth;
+        renderContext->actualHeight = request->actualHeight;
+        renderContext->renderWidth = request->renderWidth;
+        renderContext->renderHeight = request->renderHeight;
+        renderContext->videoPixelFormat = videoPixelFormat;
+
+        std::lock_guard<std::mutex> guard(renderContextMapMutex);
+        int encoderIndex = nextEncoderIndex++;
+        renderContextMap[encoderIndex] = renderContext;
+        return encoderIndex;
     }
 
     EXPORTED void clearEncoder(FFmpegClearEncoderRequest* request) {
-        //av_interleaved_write_frame(renderContext.oc, NULL);
+        RenderContext* renderContext;
+        {
+            std::lock_guard<std::mutex> guard(renderContextMapMutex);
+            std::map<int, RenderContext*>::iterator element = renderContextMap.find(request->encoderIndex);
+            if (element == renderContextMap.end()) {
+                std::cout << "[ERROR] No encoder with index " << request->encoderIndex << std::endl;
+                return;
+            }
+            renderContext = element->second;
+            renderContextMap.erase(element);
+        }
+
+        //av_interleaved_write_frame(renderContext->oc, NULL);
         /* Write the trailer, if any. The trailer must be written before you
          * close the CodecContexts open when you wrote the header; otherwise
          * av_write_trailer() may try to use memory that was freed on
@@ -757,57 +792,306 @@ extern "C" {
         while(proceeding) {
            // DELAYED frames
            std::cout << "Writing delayed frames" << std::endl;
-           proceeding = write_video_frame(renderContext.oc, renderContext.video_st, NULL);
+           proceeding = write_video_frame(renderContext->oc, renderContext->video_st, NULL);
         }*/
-        av_write_trailer(renderContext.oc);
+        av_write_trailer(renderContext->oc);
 
         /* Close each codec. */
-        if (renderContext.have_video)
-            close_stream(renderContext.oc, renderContext.video_st);
-        if (renderContext.have_audio)
-            close_stream(renderContext.oc, renderContext.audio_st);
+        if (renderContext->have_video)
+            close_stream(renderContext->oc, renderContext->video_st);
+        if (renderContext->have_audio)
+            close_stream(renderContext->oc, renderContext->audio_st);
 
-        if (!(renderContext.fmt->flags & AVFMT_NOFILE))
+        if (!(renderContext->fmt->flags & AVFMT_NOFILE))
             /* Close the output file. */
-            avio_closep(&renderContext.oc->pb);
+            avio_closep(&renderContext->oc->pb);
 
         /* free the stream */
-        avformat_free_context(renderContext.oc);
+        avformat_free_context(renderContext->oc);
+
+        delete renderContext->video_st;
+        delete renderContext->audio_st;
+        delete[] renderContext->audioBuffer;
+        delete renderContext;
     }
 
     EXPORTED int encodeFrames(FFmpegEncodeFrameRequest* request) {
-            OutputStream* video_st = renderContext.video_st;
-            OutputStream* audio_st = renderContext.audio_st;
-
-            if (renderContext.encode_audio) {
-              int nbSamples = renderContext.numberOfSamplesPerAudioFrame;
-
-              for (int i = 0; i < request->frame->numberOfAudioSamples * renderContext.bytesPerSample * renderContext.audioChannels; ++i) {
-                  renderContext.audioBuffer[renderContext.audioBufferPointer++] = request->frame->audioData[i];
-
-                  if (renderContext.audioBufferPointer >= audio_st->tmp_frame->nb_samples * renderContext.bytesPerSample * renderContext.audioChannels) {
-                      AVFrame *frame = get_audio_frame(audio_st, renderContext.audioBuffer);
-                      renderContext.encode_audio = !write_audio_frame(renderContext.oc, audio_st, frame);
-                      renderContext.audioBufferPointer = 0;
+            RenderContext* renderContext = findRenderContext(request->encoderIndex);
+            if (renderContext == NULL) {
+              std::cout << "[ERROR] No encoder with index " << request->encoderIndex << std::endl;
+              return -1;
+            }
+            OutputStream* video_st = renderContext->video_st;
+            OutputStream* audio_st = renderContext->audio_st;
+
+            if (renderContext->encode_audio) {
+              unsigned int audioFrameBytes = audio_st->tmp_frame->nb_samples * renderContext->bytesPerSample * renderContext->audioChannels;
+              unsigned int inputBytes = request->frame->numberOfAudioSamples * renderContext->bytesPerSample * renderContext->audioChannels;
+              unsigned int inputPointer = 0;
+
+              // copy as much as fits into the current audio frame at once, encode whenever it is full
+              while (inputPointer < inputBytes) {
+                  unsigned int bytesToCopy = audioFrameBytes - renderContext->audioBufferPointer;
+                  if (bytesToCopy > inputBytes - inputPointer) {
+                      bytesToCopy = inputBytes - inputPointer;
+                  }
+                  memcpy(renderContext->audioBuffer + renderContext->audioBufferPointer, request->frame->audioData + inputPointer, bytesToCopy);
+                  renderContext->audioBufferPointer += bytesToCopy;
+                  inputPointer += bytesToCopy;
+
+                  if (renderContext->audioBufferPointer >= audioFrameBytes) {
+                      AVFrame *frame = get_audio_frame(audio_st, renderContext->audioBuffer);
+                      renderContext->encode_audio = !write_audio_frame(renderContext->oc, audio_st, frame);
+                      renderContext->audioBufferPointer = 0;
                   }
               }
             }
         
 
-            if (renderContext.encode_video) {
+            if (renderContext->encode_video) {
               AVFrame *frame = get_video_frame(video_st, request->frame);
               if (frame == NULL) {
                 return -1;
               }
-              int ret = write_video_frame(renderContext.oc, video_st, frame);
+              int ret = write_video_frame(renderContext->oc, video_st, frame);
               if (ret < 0) {
                 return ret;
               }
-              renderContext.encode_video = !ret;
+              renderContext->encode_video = !ret;
             }
             return 0;
     }
 
+    struct FFmpegConcatenateSegmentsRequest {
+        const char* fileName;
+        const char** segmentFileNames;
+        int numberOfSegments;
+        const char* audioFileName;
+    };
+
+    struct ConcatenateAudioInput {
+        AVFormatContext* context = NULL;
+        int outputStreamOffset = 0;
+        AVPacket packet;
+        bool packetPending = false;
+        bool finished = false;
+    };
+
+    // Copies the audio packets starting up to endTime (AV_TIME_BASE), so the muxer receives audio and video interleaved
+    int writeAudioPacketsUntil(AVFormatContext* outputContext, ConcatenateAudioInput* audioInput, int64_t endTime) {
+        while (audioInput->context != NULL && !audioInput->finished) {
+            if (!audioInput->packetPending) {
+                if (av_read_frame(audioInput->context, &audioInput->packet) < 0) {
+                    audioInput->finished = true;
+                    break;
+                }
+                audioInput->packetPending = true;
+            }
+            AVPacket* packet = &audioInput->packet;
+            AVStream* inputStream = audioInput->context->streams[packet->stream_index];
+            int64_t packetTime = packet->dts != AV_NOPTS_VALUE ? packet->dts : packet->pts;
+            if (packetTime != AV_NOPTS_VALUE && av_rescale_q(packetTime, inputStream->time_base, AV_TIME_BASE_Q) > endTime) {
+                break;
+            }
+            AVStream* outputStream = outputContext->streams[audioInput->outputStreamOffset + packet->stream_index];
+            av_packet_rescale_ts(packet, inputStream->time_base, outputStream->time_base);
+            packet->stream_index = outputStream->index;
+            packet->pos = -1;
+            audioInput->packetPending = false;
+            if (av_interleaved_write_frame(outputContext, packet) < 0) {
+                std::cout << "[ERROR] Error while writing audio packet" << std::endl;
+                return -1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Copies the packets of the video segments into a single file without reencoding.
+     * Every segment starts where the video of the previous one ended.
+     * The audio is encoded in a single continuous pass into audioFileName (NULL if there is no audio), its packets are copied with unchanged
+     * timestamps, so encoder delay and partial audio frames are handled once by the audio encoder instead of at every segment boundary.
+     */
+    EXPORTED int concatenateSegments(FFmpegConcatenateSegmentsRequest* request) {
+        av_register_all();
+
+        AVFormatContext* outputContext = NULL;
+        avformat_alloc_output_context2(&outputContext, NULL, NULL, request->fileName);
+        if (!outputContext) {
+            std::cout << "[ERROR] Could not create output context for " << request->fileName << std::endl;
+            return -1;
+        }
+
+        int result = 0;
+        int numberOfStreams = 0;
+        int videoStreamIndex = -1;
+        bool headerWritten = false;
+        int64_t segmentStart = 0; // AV_TIME_BASE
+        int64_t* lastDts = NULL;
+        int64_t* streamEnds = NULL;
+        ConcatenateAudioInput audioInput;
+
+        if (request->audioFileName != NULL) {
+            if (avformat_open_input(&audioInput.context, request->audioFileName, NULL, NULL) < 0) {
+                std::cout << "[ERROR] Could not open audio " << request->audioFileName << std::endl;
+                result = -1;
+            } else if (avformat_find_stream_info(audioInput.context, NULL) < 0) {
+                std::cout << "[ERROR] Could not read stream info of audio " << request->audioFileName << std::endl;
+                result = -1;
+            }
+        }
+
+        for (int i = 0; i < request->numberOfSegments && result >= 0; ++i) {
+            AVFormatContext* inputContext = NULL;
+            if (avformat_open_input(&inputContext, request->segmentFileNames[i], NULL, NULL) < 0) {
+                std::cout << "[ERROR] Could not open segment " << request->segmentFileNames[i] << std::endl;
+                result = -1;
+                break;
+            }
+            if (avformat_find_stream_info(inputContext, NULL) < 0) {
+                std::cout << "[ERROR] Could not read stream info of segment " << request->segmentFileNames[i] << std::endl;
+                avformat_close_input(&inputContext);
+                result = -1;
+                break;
+            }
+
+            if (!headerWritten) {
+                numberOfStreams = inputContext->nb_streams;
+                for (int j = 0; j < numberOfStreams && result >= 0; ++j) {
+                    AVStream* inputStream = inputContext->streams[j];
+                    AVStream* outputStream = avformat_new_stream(outputContext, NULL);
+                    if (!outputStream || avcodec_parameters_copy(outputStream->codecpar, inputStream->codecpar) < 0) {
+                        result = -1;
+                        break;
+                    }
+                    outputStream->codecpar->codec_tag = 0;
+                    outputStream->time_base = inputStream->time_base;
+                    if (videoStreamIndex == -1 && inputStream->codecpar->codec_type == AVMEDIA_TYPE_VIDEO) {
+                        videoStreamIndex = j;
+                    }
+                }
+                if (audioInput.context != NULL) {
+                    audioInput.outputStreamOffset = numberOfStreams;
+                    for (unsigned int j = 0; j < audioInput.context->nb_streams && result >= 0; ++j) {
+                        AVStream* inputStream = audioInput.context->streams[j];
+                        AVStream* outputStream = avformat_new_stream(outputContext, NULL);
+                        // initial_padding is copied with the parameters, so players skip the encoder delay
+                        if (!outputStream || avcodec_parameters_copy(outputStream->codecpar, inputStream->codecpar) < 0) {
+                            result = -1;
+                            break;
+                        }
+                        outputStream->codecpar->codec_tag = 0;
+                        outputStream->time_base = inputStream->time_base;
+                    }
+                }
+                av_dict_copy(&outputContext->metadata, inputContext->metadata, 0);
+                if (result >= 0 && !(outputContext->oformat->flags & AVFMT_NOFILE) && avio_open(&outputContext->pb, request->fileName, AVIO_FLAG_WRITE) < 0) {
+                    std::cout << "[ERROR] Could not open '" << request->fileName << "'" << std::endl;
+                    result = -1;
+                }
+                if (result >= 0 && avformat_write_header(outputContext, NULL) < 0) {
+                    std::cout << "[ERROR] Error occurred when writing header of " << request->fileName << std::endl;
+                    result = -1;
+                }
+                if (result < 0) {
+                    avformat_close_input(&inputContext);
+                    break;
+                }
+                headerWritten = true;
+                lastDts = new int64_t[numberOfStreams];
+                streamEnds = new int64_t[numberOfStreams];
+                for (int j = 0; j < numberOfStreams; ++j) {
+                    lastDts[j] = AV_NOPTS_VALUE;
+                }
+            } else if ((int)inputContext->nb_streams != numberOfStreams) {
+                std::cout << "[ERROR] Segment " << request->segmentFileNames[i] << " has different streams" << std::endl;
+                avformat_close_input(&inputContext);
+                result = -1;
+                break;
+            }
+
+            for (int j = 0; j < numberOfStreams; ++j) {
+                streamEnds[j] = segmentStart;
+            }
+
+            AVPacket packet;
+            while (result >= 0 && av_read_frame(inputContext, &packet) >= 0) {
+                int streamIndex = packet.stream_index;
+                AVStream* inputStream = inputContext->streams[streamIndex];
+                AVStream* outputStream = outputContext->streams[streamIndex];
+
+                av_packet_rescale_ts(&packet, inputStream->time_base, outputStream->time_base);
+                int64_t offset = av_rescale_q(segmentStart, AV_TIME_BASE_Q, outputStream->time_base);
+                if (packet.pts != AV_NOPTS_VALUE) {
+                    packet.pts += offset;
+                }
+                if (packet.dts != AV_NOPTS_VALUE) {
+                    packet.dts += offset;
+                    // segments contain only video starting with a keyframe, so their timestamps continue the previous segment
+                    if (lastDts[streamIndex] != AV_NOPTS_VALUE && packet.dts <= lastDts[streamIndex]) {
+                        std::cout << "[ERROR] Timestamps of segment " << request->segmentFileNames[i] << " overlap the previous segment" << std::endl;
+                        av_packet_unref(&packet);
+                        result = -1;
+                        break;
+                    }
+                    lastDts[streamIndex] = packet.dts;
+                }
+                int64_t packetTime = packet.pts != AV_NOPTS_VALUE ? packet.pts : packet.dts;
+                if (packetTime != AV_NOPTS_VALUE) {
+                    int64_t packetEnd = av_rescale_q(packetTime + packet.duration, outputStream->time_base, AV_TIME_BASE_Q);
+                    if (packetEnd > streamEnds[streamIndex]) {
+                        streamEnds[streamIndex] = packetEnd;
+                    }
+                }
+                packet.pos = -1;
+
+                int64_t packetDts = packet.dts != AV_NOPTS_VALUE ? packet.dts : packetTime;
+                if (packetDts != AV_NOPTS_VALUE && writeAudioPacketsUntil(outputContext, &audioInput, av_rescale_q(packetDts, outputStream->time_base, AV_TIME_BASE_Q)) < 0) {
+                    av_packet_unref(&packet);
+                    result = -1;
+                    break;
+                }
+                if (av_interleaved_write_frame(outputContext, &packet) < 0) {
+                    std::cout << "[ERROR] Error while writing packet of segment " << request->segmentFileNames[i] << std::endl;
+                    result = -1;
+                    break;
+                }
+            }
+            avformat_close_input(&inputContext);
+
+            if (videoStreamIndex != -1) {
+                segmentStart = streamEnds[videoStreamIndex];
+            } else {
+                for (int j = 0; j < numberOfStreams; ++j) {
+                    if (streamEnds[j] > segmentStart) {
+                        segmentStart = streamEnds[j];
+                    }
+                }
+            }
+        }
+
+        if (result >= 0 && headerWritten && writeAudioPacketsUntil(outputContext, &audioInput, INT64_MAX) < 0) {
+            result = -1;
+        }
+        if (headerWritten) {
+            av_write_trailer(outputContext);
+        }
+        if (!(outputContext->oformat->flags & AVFMT_NOFILE)) {
+            avio_closep(&outputContext->pb);
+        }
+        avformat_free_context(outputContext);
+        if (audioInput.packetPending) {
+            av_packet_unref(&audioInput.packet);
+        }
+        if (audioInput.context != NULL) {
+            avformat_close_input(&audioInput.context);
+        }
+        delete[] lastDts;
+        delete[] streamEnds;
+
+        return result;
+    }
+
     struct CodecInformation {
         const char* id;
         const char* longName;
@@ -1,135 +1,193 @@
 package com.helospark.tactview.ui.javafx;
 
 import java.math.BigDecimal;
-import java.util.LinkedHashMap;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.math.RoundingMode;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
 
 import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.timeline.AudioBlockRenderService;
+import com.helospark.tactview.core.timeline.AudioBlockRequest;
+import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.GlobalDirtyClipManager;
+import com.helospark.tactview.core.timeline.TimelineInterval;
 import com.helospark.tactview.core.timeline.TimelinePosition;
-import com.helospark.tactview.core.util.messaging.AffectedModifiedIntervalAware;
-import com.helospark.tactview.core.util.messaging.MessagingService;
+import com.helospark.tactview.core.util.logger.Slf4j;
+import com.helospark.tactview.ui.javafx.UiTimelineManager.PlaybackStatus;
 import com.helospark.tactview.ui.javafx.audio.AudioStreamService;
+import com.helospark.tactview.ui.javafx.audio.JavaByteArrayConverter;
+import com.helospark.tactview.ui.javafx.uicomponents.TimelineState;
 import com.helospark.tactview.ui.javafx.uicomponents.audiocomponent.AudioVisualizationComponent;
 
+/**
+ * Renders the audio during playback in blocks of {@value #SAMPLES_PER_BLOCK} samples on its own thread, as far ahead as the audio output buffer allows.
+ * <p>
+ * The played audio is the playback clock, the timeline position follows the sample currently heard, so video is displayed in sync with the audio
+ * even when rendering falls behind.
+ */
 @Component
 public class AudioUpdaterService {
-    private static final int AUDIOFRAME_NUMBER_PER_ELEMENT = 15;
-
-    private UiTimelineManager uiTimelineManager;
-    private PlaybackController playbackController;
-    private AudioStreamService audioStreamService;
-    private MessagingService messagingService;
-    private AudioVisualizationComponent audioVisualizationComponent;
-    private UiPlaybackPreferenceRepository playbackPreferenceRepository;
-
-    private LinkedHashMap<BigDecimal, AudioData> buffer = new LinkedHashMap<>();
-
-    private ExecutorService executorService = Executors.newFixedThreadPool(2);
-
-    private volatile TimelinePosition lastPlayedTimelinePosition = TimelinePosition.ofZero();
+    private static final int SAMPLES_PER_BLOCK = 4096;
+    private static final int FRAME_SIZE = PlaybackController.BYTES * PlaybackController.CHANNELS;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final UiTimelineManager uiTimelineManager;
+    private final AudioBlockRenderService audioBlockRenderService;
+    private final JavaByteArrayConverter javaByteArrayConverter;
+    private final AudioStreamService audioStreamService;
+    private final AudioVisualizationComponent audioVisualizationComponent;
+    private final UiPlaybackPreferenceRepository playbackPreferenceRepository;
+    private final GlobalDirtyClipManager globalDirtyClipManager;
+    private final TimelineState timelineState;
+
+    private final AtomicReference<TimelinePosition> requestedStartPosition = new AtomicReference<>();
+    private volatile TimelinePosition startPosition = TimelinePosition.ofZero();
+    private volatile TimelinePosition renderPosition = TimelinePosition.ofZero();
     private volatile boolean playbackRunning = false;
+    private volatile boolean running = true;
 
-    public AudioUpdaterService(UiTimelineManager uiTimelineManager, PlaybackController playbackController, AudioStreamService audioStreamService, MessagingService messagingService,
-            AudioVisualizationComponent audioVisualizationComponent, UiPlaybackPreferenceRepository playbackPreferenceRepository) {
+    @Slf4j
+    private Logger logger;
+
+    public AudioUpdaterService(UiTimelineManager uiTimelineManager, AudioBlockRenderService audioBlockRenderService, JavaByteArrayConverter javaByteArrayConverter,
+            AudioStreamService audioStreamService, AudioVisualizationComponent audioVisualizationComponent, UiPlaybackPreferenceRepository playbackPreferenceRepository,
+            GlobalDirtyClipManager globalDirtyClipManager, TimelineState timelineState) {
         this.uiTimelineManager = uiTimelineManager;
-        this.playbackController = playbackController;
+        this.audioBlockRenderService = audioBlockRenderService;
+        this.javaByteArrayConverter = javaByteArrayConverter;
         this.audioStreamService = audioStreamService;
-        this.messagingService = messagingService;
         this.audioVisualizationComponent = audioVisualizationComponent;
         this.playbackPreferenceRepository = playbackPreferenceRepository;
+        this.globalDirtyClipManager = globalDirtyClipManager;
+        this.timelineState = timelineState;
     }
 
     @PostConstruct
     public void init() {
-        messagingService.register(AffectedModifiedIntervalAware.class, message -> {
-            buffer.clear(); // TODO: finer control here
+        globalDirtyClipManager.registerDirtyIntervalListener(dirtyInterval -> {
+            Optional<TimelinePosition> playedPosition = getPlaybackPosition();
+            if (playedPosition.isPresent() && renderPosition.isGreaterThan(playedPosition.get())
+                    && dirtyInterval.intersects(new TimelineInterval(playedPosition.get(), renderPosition))) {
+                requestedStartPosition.compareAndSet(null, playedPosition.get()); // already rendered audio is outdated
+            }
         });
         uiTimelineManager.registerStoppedConsumer(status -> {
-            playbackRunning = false;
-            buffer.clear();
-        });
-    }
-
-    public void updateAtPosition(TimelinePosition position) {
-        audioVisualizationComponent.updateAudioComponent(position);
-        if (uiTimelineManager.isPlaybackInProgress() && !playbackPreferenceRepository.isMute()) {
-            playbackRunning = true;
-            lastPlayedTimelinePosition = position;
-            BigDecimal normalizedStartPosition = normalizePosition(position);
-
-            AudioData currentData = buffer.get(normalizedStartPosition);
-            if (currentData != null && currentData.hasData()) {
-                byte[] bytes = currentData.get();
-                audioStreamService.streamAudio(bytes);
+            if (status == PlaybackStatus.STARTED) {
+                requestedStartPosition.set(uiTimelineManager.getCurrentPosition());
+                playbackRunning = true;
             } else {
-                System.out.println("Key " + currentData + " " + " is not ready at " + normalizedStartPosition);
+                playbackRunning = false;
+                requestedStartPosition.set(null);
             }
-
-            for (int i = 0; i < 100; i += AUDIOFRAME_NUMBER_PER_ELEMENT) {
-                BigDecimal nextPosition = normalizedStartPosition.add(uiTimelineManager.getIncrement().multiply(BigDecimal.valueOf(i)));
-                TimelinePosition timelinePosition = new TimelinePosition(nextPosition);
-                if (!buffer.containsKey(nextPosition)) {
-                    System.out.println("Starting: " + nextPosition);
-                    Future<byte[]> future = executorService.submit(() -> {
-                        if (timelinePosition.compareTo(lastPlayedTimelinePosition) >= 0 && playbackRunning) {
-                            return playbackController.getAudioFrameAt(timelinePosition, AUDIOFRAME_NUMBER_PER_ELEMENT);
-                        } else {
-                            return new byte[0];
-                        }
-                    });
-                    buffer.put(nextPosition, new AudioData(timelinePosition, future));
-                }
+        });
+        uiTimelineManager.registerSeekConsumer(position -> {
+            if (playbackRunning) {
+                requestedStartPosition.set(position);
             }
+        });
+        uiTimelineManager.registerPlaybackClock(() -> getPlaybackPosition());
 
-            buffer.entrySet()
-                    .removeIf(e -> e.getKey().compareTo(normalizedStartPosition) < 0);
-        }
-    }
-
-    private BigDecimal normalizePosition(TimelinePosition position) {
-        return position.getSeconds().subtract(position.getSeconds().remainder(uiTimelineManager.getIncrement()));
+        Thread renderThread = new Thread(() -> renderAudio(), "audio-render-thread");
+        renderThread.setDaemon(true);
+        renderThread.start();
     }
 
-    public void playbackStopped() {
-        audioStreamService.clearBuffer();
+    @PreDestroy
+    public void destroy() {
+        running = false;
     }
 
-    static class AudioData {
-        TimelinePosition startPosition;
-        Future<byte[]> futureData;
-
-        public AudioData(TimelinePosition position, TimelinePosition endPosition, CompletableFuture<byte[]> futureData) {
-            this.startPosition = position;
-            this.futureData = futureData;
-        }
-
-        public byte[] get() {
+    private void renderAudio() {
+        while (running) {
             try {
-                return futureData.get();
+                TimelinePosition newStartPosition = requestedStartPosition.get();
+                if (newStartPosition != null) {
+                    startPosition = newStartPosition;
+                    renderPosition = newStartPosition;
+                    audioStreamService.restart();
+                    requestedStartPosition.compareAndSet(newStartPosition, null);
+                }
+                if (playbackRunning && audioStreamService.isAvailable() && audioStreamService.numberOfBytesThatCanBeWritten() >= SAMPLES_PER_BLOCK * FRAME_SIZE) {
+                    renderNextBlock();
+                } else {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
             } catch (Exception e) {
-                return new byte[0];
+                logger.warn("Unable to render audio at {}", renderPosition, e);
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
             }
         }
+    }
 
-        public boolean hasData() {
-            return futureData.isDone();
+    private void renderNextBlock() {
+        TimelinePosition position = renderPosition;
+        int numberOfSamples = SAMPLES_PER_BLOCK;
+        if (timelineState.loopingEnabled()) {
+            TimelinePosition loopStart = timelineState.getLoopStartTime();
+            TimelinePosition loopEnd = timelineState.getLoopEndTime();
+            if (position.isLessThan(loopStart) || position.compareTo(loopEnd) >= 0) {
+                position = loopStart;
+            }
+            int samplesUntilLoopEnd = loopEnd.from(position).getSeconds().multiply(BigDecimal.valueOf(PlaybackController.FREQUENCY)).setScale(0, RoundingMode.CEILING).intValue();
+            numberOfSamples = Math.max(1, Math.min(numberOfSamples, samplesUntilLoopEnd));
         }
 
-        public AudioData(TimelinePosition position, Future<byte[]> future) {
-            this.startPosition = position;
-            this.futureData = future;
+        byte[] data;
+        if (playbackPreferenceRepository.isMute()) {
+            data = new byte[numberOfSamples * FRAME_SIZE]; // silence still drives the playback clock
+        } else {
+            AudioBlockRequest request = AudioBlockRequest.builder()
+                    .withPosition(position)
+                    .withNumberOfSamples(numberOfSamples)
+                    .withSampleRate(PlaybackController.FREQUENCY)
+                    .withBytesPerSample(PlaybackController.BYTES)
+                    .withNumberOfChannels(PlaybackController.CHANNELS)
+                    .build();
+            AudioFrameResult block = audioBlockRenderService.renderBlock(request);
+            data = javaByteArrayConverter.convert(block, PlaybackController.BYTES, PlaybackController.FREQUENCY, PlaybackController.CHANNELS);
+            block.getChannels()
+                    .forEach(channel -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(channel));
         }
 
-        @Override
-        public String toString() {
-            return "AudioData [startPosition=" + startPosition + "]";
+        if (requestedStartPosition.get() == null) { // otherwise the block is outdated
+            audioStreamService.writeBlock(data, position);
+            renderPosition = position.add(BigDecimal.valueOf(numberOfSamples).divide(BigDecimal.valueOf(PlaybackController.FREQUENCY), 100, RoundingMode.HALF_DOWN));
         }
+    }
 
+    /**
+     * @return position of the currently heard sample, or empty if playback is not timed by audio
+     */
+    public Optional<TimelinePosition> getPlaybackPosition() {
+        if (!playbackRunning || !audioStreamService.isAvailable()) {
+            return Optional.empty();
+        }
+        TimelinePosition newStartPosition = requestedStartPosition.get();
+        if (newStartPosition != null) {
+            return Optional.of(newStartPosition);
+        }
+        Optional<TimelinePosition> playedPosition = audioStreamService.getPlayedPosition();
+        if (playedPosition.isPresent()) {
+            return playedPosition;
+        } else {
+            return Optional.of(startPosition); // waiting for the first block
+        }
+    }
+
+    public void updateAtPosition(TimelinePosition position) {
+        audioVisualizationComponent.updateAudioComponent(position);
+    }
+
+    public void playbackStopped() {
+        audioStreamService.stop();
     }
 
 }
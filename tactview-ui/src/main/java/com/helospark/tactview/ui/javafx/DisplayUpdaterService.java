@@ -1,11 +1,9 @@
 package com.helospark.tactview.ui.javafx;
 
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -16,6 +14,7 @@ import com.helospark.lightdi.annotation.Component;
 import com.helospark.lightdi.annotation.Value;
 import com.helospark.tactview.core.timeline.AudioVideoFragment;
 import com.helospark.tactview.core.timeline.GlobalDirtyClipManager;
+import com.helospark.tactview.core.timeline.TimelineInterval;
 import com.helospark.tactview.core.timeline.TimelinePosition;
 import com.helospark.tactview.core.util.logger.Slf4j;
 import com.helospark.tactview.core.util.messaging.MessagingService;
@@ -32,12 +31,12 @@ import javafx.scene.image.Image;
 
 @Component
 public class DisplayUpdaterService implements ScenePostProcessor {
-    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
-    private final Map<TimelinePosition, Future<JavaDisplayableAudioVideoFragment>> framecache = new ConcurrentHashMap<>();
-    private volatile long currentPositionLastRendered = -1;
+    private final BlockingQueue<TimelineInterval> dirtyIntervals = new LinkedBlockingQueue<>();
+    private volatile long currentPositionRenderedVersion = -1;
     private volatile boolean running = true;
 
     private final PlaybackController playbackController;
+    private final PlaybackFrameCache playbackFrameCache;
     private final UiProjectRepository uiProjectRepostiory;
     private final UiTimelineManager uiTimelineManager;
     private final GlobalDirtyClipManager globalDirtyClipManager;
@@ -48,7 +47,7 @@ public class DisplayUpdaterService implements ScenePostProcessor {
 
     // cache current frame
     private Image cacheCurrentImage;
-    private long cacheLastModifiedTime;
+    private long cacheVersion;
     private TimelinePosition cachePosition;
     // end of current frame cache
 
@@ -57,10 +56,11 @@ public class DisplayUpdaterService implements ScenePostProcessor {
 
     private Canvas canvas;
 
-    public DisplayUpdaterService(PlaybackController playbackController, UiProjectRepository uiProjectRepostiory, UiTimelineManager uiTimelineManager,
+    public DisplayUpdaterService(PlaybackController playbackController, PlaybackFrameCache playbackFrameCache, UiProjectRepository uiProjectRepostiory, UiTimelineManager uiTimelineManager,
             GlobalDirtyClipManager globalDirtyClipManager, List<DisplayUpdatedListener> displayUpdateListeners, MessagingService messagingService,
             @Value("${debug.display-audio-updater.enabled}") boolean debugAudioUpdateEnabled) {
         this.playbackController = playbackController;
+        this.playbackFrameCache = playbackFrameCache;
         this.uiProjectRepostiory = uiProjectRepostiory;
         this.uiTimelineManager = uiTimelineManager;
         this.globalDirtyClipManager = globalDirtyClipManager;
@@ -73,11 +73,15 @@ public class DisplayUpdaterService implements ScenePostProcessor {
     public void init() {
         messagingService.register(DisplayUpdateRequestMessage.class, message -> {
             if (message.isInvalidateCache()) {
+                playbackFrameCache.clear(); // finished long processes change frames without marking them dirty
                 updateCurrentPositionWithInvalidatedCache();
             } else {
                 updateCurrentPositionWithoutInvalidatedCache();
             }
         });
+        messagingService.registerCoalescing(DisplayUpdateRequestMessage.class, message -> DisplayUpdateRequestMessage.class,
+                (pending, message) -> new DisplayUpdateRequestMessage(pending.isInvalidateCache() || message.isInvalidateCache()));
+        globalDirtyClipManager.registerDirtyIntervalListener(interval -> dirtyIntervals.offer(interval));
     }
 
     @Override
@@ -85,10 +89,13 @@ public class DisplayUpdaterService implements ScenePostProcessor {
         Thread thread = new Thread(() -> {
             while (running) {
                 try {
-                    Thread.sleep(200);
+                    if (dirtyIntervals.poll(1, TimeUnit.SECONDS) == null) {
+                        continue;
+                    }
+                    dirtyIntervals.clear();
                     TimelinePosition currentPosition = uiTimelineManager.getCurrentPosition();
-                    long currentPostionLastModified = globalDirtyClipManager.positionLastModified(currentPosition);
-                    if (currentPostionLastModified > currentPositionLastRendered) {
+                    long currentPositionVersion = globalDirtyClipManager.positionVersion(currentPosition);
+                    if (currentPositionVersion > currentPositionRenderedVersion) {
                         updateCurrentPositionWithInvalidatedCache();
                         logger.debug("Current position changed, updating {}", currentPosition);
                     }
@@ -127,28 +134,19 @@ public class DisplayUpdaterService implements ScenePostProcessor {
     }
 
     public void updateDisplay(TimelinePosition currentPosition) {
-        long currentPostionLastModified = globalDirtyClipManager.positionLastModified(currentPosition);
+        long currentPositionVersion = globalDirtyClipManager.positionVersion(currentPosition);
         JavaDisplayableAudioVideoFragment actualAudioVideoFragment;
-        if (cacheCurrentImage != null && currentPosition.equals(cachePosition) && cacheLastModifiedTime == currentPostionLastModified) {
+        if (cacheCurrentImage != null && currentPosition.equals(cachePosition) && cacheVersion == currentPositionVersion) {
             actualAudioVideoFragment = new JavaDisplayableAudioVideoFragment(cacheCurrentImage, null);
         } else {
-            Future<JavaDisplayableAudioVideoFragment> cachedKey = framecache.remove(currentPosition);
-            if (cachedKey == null) {
-                actualAudioVideoFragment = playbackController.getVideoFrameAt(currentPosition);
+            actualAudioVideoFragment = playbackFrameCache.getFrame(currentPosition);
 
-                if (debugAudioUpdateEnabled) { // just so it is easier to debug. Will need to think of other solution later
-                    AudioVideoFragment result = playbackController.getSingleAudioFrameAtPosition(currentPosition);
-                    result.free();
-                }
-            } else {
-                try {
-                    actualAudioVideoFragment = cachedKey.get();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+            if (debugAudioUpdateEnabled) { // just so it is easier to debug. Will need to think of other solution later
+                AudioVideoFragment result = playbackController.getSingleAudioFrameAtPosition(currentPosition);
+                result.free();
             }
-            currentPositionLastRendered = System.currentTimeMillis();
-            logger.debug("Rendered at {}", currentPositionLastRendered);
+            currentPositionRenderedVersion = currentPositionVersion;
+            logger.debug("Rendered version {}", currentPositionRenderedVersion);
         }
         Platform.runLater(() -> {
             try {
@@ -166,7 +164,7 @@ public class DisplayUpdaterService implements ScenePostProcessor {
                         .build();
                 cacheCurrentImage = image;
                 cachePosition = currentPosition;
-                cacheLastModifiedTime = currentPostionLastModified;
+                cacheVersion = currentPositionVersion;
 
                 displayUpdateListeners.stream()
                         .forEach(a -> a.displayUpdated(displayUpdateRequest));
@@ -175,20 +173,7 @@ public class DisplayUpdaterService implements ScenePostProcessor {
             }
         });
 
-        startCacheJobs(currentPosition);
-    }
-
-    private void startCacheJobs(TimelinePosition currentPosition) {
-        List<TimelinePosition> expectedNextFrames = uiTimelineManager.expectedNextFrames();
-        for (TimelinePosition nextFrameTime : expectedNextFrames) {
-            if (!framecache.containsKey(nextFrameTime)) {
-                Future<JavaDisplayableAudioVideoFragment> task = executorService.submit(() -> {
-                    return playbackController.getVideoFrameAt(currentPosition);
-                });
-                framecache.put(nextFrameTime, task);
-                System.out.println("started " + nextFrameTime);
-            }
-        }
+        playbackFrameCache.prefetchAround(currentPosition);
     }
 
 }
@@ -1,21 +1,16 @@
 package com.helospark.tactview.ui.javafx;
 
-import java.io.ByteArrayOutputStream;
-import java.math.BigDecimal;
+import java.util.Optional;
 
 import com.helospark.lightdi.annotation.Component;
-import com.helospark.tactview.core.repository.ProjectRepository;
 import com.helospark.tactview.core.timeline.AudioVideoFragment;
 import com.helospark.tactview.core.timeline.TimelineManagerFramesRequest;
 import com.helospark.tactview.core.timeline.TimelineManagerRenderService;
 import com.helospark.tactview.core.timeline.TimelinePosition;
-import com.helospark.tactview.ui.javafx.audio.JavaByteArrayConverter;
 import com.helospark.tactview.ui.javafx.repository.UiProjectRepository;
 import com.helospark.tactview.ui.javafx.util.ByteBufferToJavaFxImageConverter;
 
 import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 
 @Component
 public class PlaybackController {
@@ -24,55 +19,37 @@ public class PlaybackController {
     public static final int BYTES = 2;
     private final TimelineManagerRenderService timelineManager;
     private final UiProjectRepository uiProjectRepository;
-    private final ProjectRepository projectRepository;
     private final ByteBufferToJavaFxImageConverter byteBufferToImageConverter;
-    private final JavaByteArrayConverter javaByteArrayConverter;
     private final UiPlaybackPreferenceRepository uiPlaybackPreferenceRepository;
 
-    public PlaybackController(TimelineManagerRenderService timelineManager, UiProjectRepository uiProjectRepository, ProjectRepository projectRepository,
-            ByteBufferToJavaFxImageConverter byteBufferToImageConverter, JavaByteArrayConverter javaByteArrayConverter,
-            UiPlaybackPreferenceRepository uiPlaybackPreferenceRepository) {
+    public PlaybackController(TimelineManagerRenderService timelineManager, UiProjectRepository uiProjectRepository,
+            ByteBufferToJavaFxImageConverter byteBufferToImageConverter, UiPlaybackPreferenceRepository uiPlaybackPreferenceRepository) {
         this.timelineManager = timelineManager;
         this.uiProjectRepository = uiProjectRepository;
         this.byteBufferToImageConverter = byteBufferToImageConverter;
-        this.javaByteArrayConverter = javaByteArrayConverter;
-        this.projectRepository = projectRepository;
         this.uiPlaybackPreferenceRepository = uiPlaybackPreferenceRepository;
     }
 
     public JavaDisplayableAudioVideoFragment getVideoFrameAt(TimelinePosition position) {
-        Image imageWithEffects = getImageWithEffectEnabled(position, true);
+        Integer width = uiProjectRepository.getPreviewWidth();
+        Integer height = uiProjectRepository.getPreviewHeight();
+        AudioVideoFragment frameWithEffects = getFrameWithEffectEnabled(position, true);
 
         Image result;
         if (uiPlaybackPreferenceRepository.isHalfEffect()) {
-            Image javafxImageWithoutEffects = getImageWithEffectEnabled(position, false);
-            result = mergeImages(imageWithEffects, javafxImageWithoutEffects);
+            AudioVideoFragment frameWithoutEffects = getFrameWithEffectEnabled(position, false);
+            result = byteBufferToImageConverter.convertToJavafxImage(frameWithEffects.getVideoResult().getBuffer(), frameWithoutEffects.getVideoResult().getBuffer(), width, height,
+                    width / 2);
+            frameWithoutEffects.free();
         } else {
-            result = imageWithEffects;
+            result = byteBufferToImageConverter.convertToJavafxImage(frameWithEffects.getVideoResult().getBuffer(), width, height);
         }
+        frameWithEffects.free();
 
         return new JavaDisplayableAudioVideoFragment(result, new byte[0]);
     }
 
-    private Image mergeImages(Image javafxImage, Image javafxImageWithoutEffects) {
-        int width = (int) javafxImageWithoutEffects.getWidth();
-        int height = (int) javafxImage.getHeight();
-        WritableImage result = new WritableImage(width, height);
-        for (int y = 0; y < height; ++y) {
-            for (int x = 0; x < width / 2; ++x) {
-                Color color = javafxImage.getPixelReader().getColor(x, y);
-                result.getPixelWriter().setColor(x, y, color);
-            }
-            for (int x = width / 2; x < width; ++x) {
-                Color color = javafxImageWithoutEffects.getPixelReader().getColor(x, y);
-                result.getPixelWriter().setColor(x, y, color);
-            }
-        }
-
-        return result;
-    }
-
-    private Image getImageWithEffectEnabled(TimelinePosition position, boolean enableEffect) {
+    private AudioVideoFragment getFrameWithEffectEnabled(TimelinePosition position, boolean enableEffect) {
         Integer width = uiProjectRepository.getPreviewWidth();
         Integer height = uiProjectRepository.getPreviewHeight();
         TimelineManagerFramesRequest request = TimelineManagerFramesRequest.builder()
@@ -85,29 +62,7 @@ public class PlaybackController {
                 .withLowResolutionPreview(true)
                 .withEffectsEnabled(enableEffect)
                 .build();
-        AudioVideoFragment frame = timelineManager.getFrame(request);
-        Image javafxImage = byteBufferToImageConverter.convertToJavafxImage(frame.getVideoResult().getBuffer(), width, height);
-        frame.free();
-        return javafxImage;
-    }
-
-    public byte[] getAudioFrameAt(TimelinePosition position, int samples) {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            for (int i = 0; i < samples; ++i) {
-                AudioVideoFragment frame = getSingleAudioFrameAtPosition(position.add(projectRepository.getFrameTime().multiply(BigDecimal.valueOf(i))));
-                byte[] buffer = javaByteArrayConverter.convert(frame.getAudioResult(), BYTES, FREQUENCY, CHANNELS); // move data to repository
-
-                frame.free();
-
-                baos.write(buffer);
-            }
-
-            return baos.toByteArray();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new byte[0];
-        }
+        return timelineManager.getFrame(request);
     }
 
     public AudioVideoFragment getSingleAudioFrameAtPosition(TimelinePosition position) {
@@ -120,6 +75,9 @@ public class PlaybackController {
                 .withPreviewHeight(height)
                 .withNeedSound(true)
                 .withNeedVideo(false)
+                .withAudioSampleRate(Optional.of(FREQUENCY)) // sources are resampled once when decoding, instead of every frame on playback
+                .withAudioBytesPerSample(Optional.of(BYTES))
+                .withNumberOfChannels(Optional.of(CHANNELS))
                 .build();
         AudioVideoFragment frame = timelineManager.getFrame(request);
         return frame;
@@ -0,0 +1,253 @@
+package com.helospark.tactview.ui.javafx;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+
+import com.helospark.lightdi.annotation.Component;
+import com.helospark.lightdi.annotation.Value;
+import com.helospark.tactview.core.timeline.GlobalDirtyClipManager;
+import com.helospark.tactview.core.timeline.TimelineInterval;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+import com.helospark.tactview.core.util.logger.Slf4j;
+import com.helospark.tactview.ui.javafx.UiTimelineManager.PlaybackStatus;
+import com.helospark.tactview.ui.javafx.repository.UiProjectRepository;
+import com.helospark.tactview.ui.javafx.uicomponents.TimelineState;
+
+/**
+ * Rendered preview frames around the current position.
+ * <p>
+ * Frames are prefetched in the direction the position moves, as many as needed to cover the measured render time, so they are ready by the time they are
+ * displayed. Prefetch jobs outside of the new window are cancelled when the position jumps. When the frames are over the memory limit the least recently used
+ * ones are evicted, the frames in the loop region last, so after the first pass looped playback is displayed from the cache.
+ */
+@Component
+public class PlaybackFrameCache {
+    private static final int PREFETCH_THREADS = 4;
+    private static final int MAX_PREFETCHED_FRAMES = 60;
+    private static final double RENDER_TIME_SMOOTHING = 0.2;
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(PREFETCH_THREADS);
+    private final LinkedHashMap<TimelinePosition, CachedFrame> frames = new LinkedHashMap<>(16, 0.75f, true);
+    private Set<TimelinePosition> prefetchWindow = new HashSet<>();
+    private TimelinePosition lastPosition = TimelinePosition.ofZero();
+    private boolean movingBackward = false;
+    private volatile double averageRenderNanos = 0.0;
+
+    private final PlaybackController playbackController;
+    private final UiTimelineManager uiTimelineManager;
+    private final TimelineState timelineState;
+    private final UiProjectRepository uiProjectRepository;
+    private final GlobalDirtyClipManager globalDirtyClipManager;
+    private final long maxCacheSize;
+
+    @Slf4j
+    private Logger logger;
+
+    public PlaybackFrameCache(PlaybackController playbackController, UiTimelineManager uiTimelineManager, TimelineState timelineState,
+            UiProjectRepository uiProjectRepository, GlobalDirtyClipManager globalDirtyClipManager, @Value("${preview.framecache.max.size}") Long maxCacheSize) {
+        this.playbackController = playbackController;
+        this.uiTimelineManager = uiTimelineManager;
+        this.timelineState = timelineState;
+        this.uiProjectRepository = uiProjectRepository;
+        this.globalDirtyClipManager = globalDirtyClipManager;
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        globalDirtyClipManager.registerDirtyIntervalListener(interval -> invalidate(interval));
+        uiTimelineManager.registerStoppedConsumer(status -> {
+            if (status == PlaybackStatus.STOPPED) {
+                prefetchAround(uiTimelineManager.getCurrentPosition());
+            }
+        });
+        uiProjectRepository.getPreviewWidthProperty().addListener((observable, oldValue, newValue) -> clear());
+        uiProjectRepository.getPreviewHeightProperty().addListener((observable, oldValue, newValue) -> clear());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Returns the cached frame if it was rendered from the current state of the position, otherwise waits for the prefetch job, or renders it.
+     */
+    public JavaDisplayableAudioVideoFragment getFrame(TimelinePosition position) {
+        long version = globalDirtyClipManager.positionVersion(position);
+        CachedFrame cachedFrame;
+        FutureTask<JavaDisplayableAudioVideoFragment> taskToRun = null;
+        synchronized (this) {
+            cachedFrame = frames.get(position);
+            if (cachedFrame == null || cachedFrame.version != version || cachedFrame.future.isCancelled()) {
+                taskToRun = new FutureTask<>(() -> render(position));
+                cachedFrame = new CachedFrame(version, taskToRun);
+                frames.put(position, cachedFrame);
+            }
+        }
+        if (taskToRun != null) {
+            taskToRun.run(); // outside of the lock, other threads requesting the same frame wait for it
+        }
+        try {
+            return cachedFrame.future.get();
+        } catch (CancellationException e) {
+            return render(position); // invalidated while waiting for it
+        } catch (Exception e) {
+            synchronized (this) {
+                frames.remove(position, cachedFrame);
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Starts rendering the frames expected to be displayed after the given position and cancels the jobs of the frames no longer expected.
+     */
+    public synchronized void prefetchAround(TimelinePosition position) {
+        int comparison = position.compareTo(lastPosition);
+        if (comparison != 0 && !uiTimelineManager.isPlaybackInProgress()) {
+            movingBackward = comparison < 0;
+        }
+        lastPosition = position;
+
+        List<TimelinePosition> expectedFrames = expectedFrames(position);
+        Set<TimelinePosition> newPrefetchWindow = new HashSet<>(expectedFrames);
+        newPrefetchWindow.add(position);
+
+        for (var oldPosition : prefetchWindow) {
+            if (!newPrefetchWindow.contains(oldPosition)) {
+                CachedFrame cachedFrame = frames.get(oldPosition);
+                if (cachedFrame != null && !cachedFrame.future.isDone()) {
+                    cachedFrame.future.cancel(false);
+                    frames.remove(oldPosition);
+                }
+            }
+        }
+        prefetchWindow = newPrefetchWindow;
+
+        for (var nextPosition : expectedFrames) {
+            long version = globalDirtyClipManager.positionVersion(nextPosition);
+            CachedFrame cachedFrame = frames.get(nextPosition);
+            if (cachedFrame == null || cachedFrame.version != version) {
+                Future<JavaDisplayableAudioVideoFragment> future = executorService.submit(() -> render(nextPosition));
+                frames.put(nextPosition, new CachedFrame(version, future));
+            }
+        }
+        evictIfNeeded();
+    }
+
+    private List<TimelinePosition> expectedFrames(TimelinePosition position) {
+        if (uiTimelineManager.isPlaybackInProgress()) {
+            return uiTimelineManager.expectedNextFrames(numberOfFramesToPrefetch());
+        }
+        BigDecimal increment = movingBackward ? uiTimelineManager.getIncrement().negate() : uiTimelineManager.getIncrement();
+        List<TimelinePosition> result = new ArrayList<>();
+        TimelinePosition nextPosition = position;
+        for (int i = 0; i < uiTimelineManager.getNumberOfFramesToCache(); ++i) {
+            nextPosition = nextPosition.add(increment);
+            if (nextPosition.isLessThan(0)) {
+                break;
+            }
+            result.add(nextPosition);
+        }
+        return result;
+    }
+
+    /**
+     * A frame has to be started render time earlier than it's displayed, so this many frames are rendered at the same time during playback.
+     */
+    private int numberOfFramesToPrefetch() {
+        double frameNanos = uiTimelineManager.getIncrement().doubleValue() * 1_000_000_000.0;
+        int framesCoveringRenderTime = (int) Math.ceil(averageRenderNanos / frameNanos) + 1;
+        int maxFrames = (int) Math.min(MAX_PREFETCHED_FRAMES, maxNumberOfFrames() / 2);
+        return Math.max(uiTimelineManager.getNumberOfFramesToCache(), Math.min(framesCoveringRenderTime, maxFrames));
+    }
+
+    private JavaDisplayableAudioVideoFragment render(TimelinePosition position) {
+        long start = System.nanoTime();
+        JavaDisplayableAudioVideoFragment result = playbackController.getVideoFrameAt(position);
+        long renderNanos = System.nanoTime() - start;
+        averageRenderNanos = averageRenderNanos == 0.0 ? renderNanos : averageRenderNanos + (renderNanos - averageRenderNanos) * RENDER_TIME_SMOOTHING;
+        return result;
+    }
+
+    private void evictIfNeeded() {
+        long maxFrames = maxNumberOfFrames();
+        if (frames.size() <= maxFrames) {
+            return;
+        }
+        evict(maxFrames, false);
+        if (frames.size() > maxFrames) {
+            evict(maxFrames, true);
+        }
+        logger.debug("Frame cache evicted to {} frames", frames.size());
+    }
+
+    private void evict(long maxFrames, boolean evictLoopRegion) {
+        Iterator<Map.Entry<TimelinePosition, CachedFrame>> iterator = frames.entrySet().iterator(); // least recently used first
+        while (frames.size() > maxFrames && iterator.hasNext()) {
+            var entry = iterator.next();
+            if (prefetchWindow.contains(entry.getKey()) || (!evictLoopRegion && isInLoopRegion(entry.getKey()))) {
+                continue;
+            }
+            entry.getValue().future.cancel(false);
+            iterator.remove();
+        }
+    }
+
+    private boolean isInLoopRegion(TimelinePosition position) {
+        return timelineState.loopingEnabled() && new TimelineInterval(timelineState.getLoopStartTime(), timelineState.getLoopEndTime()).contains(position);
+    }
+
+    private long maxNumberOfFrames() {
+        long frameSize = (long) uiProjectRepository.getPreviewWidth() * uiProjectRepository.getPreviewHeight() * 4;
+        return Math.max(1, maxCacheSize / Math.max(1, frameSize));
+    }
+
+    private synchronized void invalidate(TimelineInterval interval) {
+        Iterator<Map.Entry<TimelinePosition, CachedFrame>> iterator = frames.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (interval.contains(entry.getKey())) {
+                entry.getValue().future.cancel(false);
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        for (var cachedFrame : frames.values()) {
+            cachedFrame.future.cancel(false);
+        }
+        frames.clear();
+        prefetchWindow = new HashSet<>();
+    }
+
+    static class CachedFrame {
+        final long version;
+        final Future<JavaDisplayableAudioVideoFragment> future;
+
+        public CachedFrame(long version, Future<JavaDisplayableAudioVideoFragment> future) {
+            this.version = version;
+            this.future = future;
+        }
+
+    }
+
+}
@@ -5,7 +5,9 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.helospark.lightdi.annotation.Component;
 import com.helospark.tactview.core.preference.PreferenceValue;
@@ -17,11 +19,14 @@ import javafx.application.Platform;
 
 @Component
 public class UiTimelineManager {
+    private static final long PLAYBACK_CLOCK_POLL_MILLIS = 2;
     private int numberOfFramesToCache = 4;
     // private IntegerProperty timelinePosition = new SimpleIntegerProperty(0);
     private List<Consumer<TimelinePosition>> uiPlaybackConsumers = new ArrayList<>();
     private List<Consumer<TimelinePosition>> playbackConsumers = new ArrayList<>();
     private List<Consumer<PlaybackStatus>> statusChangeConsumers = new ArrayList<>();
+    private List<Consumer<TimelinePosition>> seekConsumers = new ArrayList<>();
+    private Supplier<Optional<TimelinePosition>> playbackClock = () -> Optional.empty();
 
     private volatile TimelinePosition currentPosition = new TimelinePosition(BigDecimal.ZERO);
     private volatile boolean isPlaying;
@@ -48,6 +53,20 @@ public class UiTimelineManager {
         this.statusChangeConsumers.add(consumer);
     }
 
+    /**
+     * Called when the position is changed by the user during playback.
+     */
+    public void registerSeekConsumer(Consumer<TimelinePosition> consumer) {
+        this.seekConsumers.add(consumer);
+    }
+
+    /**
+     * When the clock returns a position, playback follows it instead of advancing by the frame time.
+     */
+    public void registerPlaybackClock(Supplier<Optional<TimelinePosition>> playbackClock) {
+        this.playbackClock = playbackClock;
+    }
+
     public void startPlayback() {
         BigDecimal fps = projectRepository.getFps();
         long sleepTime = BigDecimal.ONE.divide(fps, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(1000)).longValue();
@@ -59,6 +78,12 @@ public class UiTimelineManager {
                     .forEach(consumer -> consumer.accept(PlaybackStatus.STARTED));
             runThread = new Thread(() -> {
                 while (isPlaying) {
+                    Optional<TimelinePosition> clockPosition = playbackClock.get();
+                    if (clockPosition.isPresent()) {
+                        followPlaybackClock(clockPosition.get(), increment);
+                        sleep(PLAYBACK_CLOCK_POLL_MILLIS);
+                        continue;
+                    }
                     if (timelineState.loopingEnabled() && currentPosition.isLessThan(timelineState.getLoopStartTime())) {
                         currentPosition = timelineState.getLoopStartTime();
                     }
@@ -77,6 +102,16 @@ public class UiTimelineManager {
         }
     }
 
+    private void followPlaybackClock(TimelinePosition clockPosition, BigDecimal increment) {
+        TimelinePosition framePosition = new TimelinePosition(clockPosition.getSeconds().subtract(clockPosition.getSeconds().remainder(increment)));
+        if (!framePosition.equals(currentPosition)) {
+            synchronized (timelineLock) {
+                currentPosition = framePosition;
+            }
+            notifyConsumers();
+        }
+    }
+
     public void stopPlayback() {
         if (isPlaying) {
             isPlaying = false;
@@ -92,6 +127,7 @@ public class UiTimelineManager {
                 currentPosition = TimelinePosition.ofZero();
             }
         }
+        notifySeekConsumers();
         notifyConsumers();
     }
 
@@ -102,6 +138,7 @@ public class UiTimelineManager {
         synchronized (timelineLock) {
             currentPosition = new TimelinePosition(seconds);
         }
+        notifySeekConsumers();
         notifyConsumers();
     }
 
@@ -117,6 +154,14 @@ public class UiTimelineManager {
         }
     }
 
+    private void notifySeekConsumers() {
+        if (isPlaying) {
+            for (var consumer : seekConsumers) {
+                consumer.accept(currentPosition);
+            }
+        }
+    }
+
     private void notifyConsumers() {
         for (var consumer : playbackConsumers) {
             consumer.accept(currentPosition);
@@ -168,6 +213,10 @@ public class UiTimelineManager {
         jumpRelative(getIncrement());
     }
 
+    public int getNumberOfFramesToCache() {
+        return numberOfFramesToCache;
+    }
+
     public BigDecimal getIncrement() {
         BigDecimal fps = projectRepository.getFps();
         return new BigDecimal(1).divide(fps, 100, RoundingMode.HALF_DOWN);
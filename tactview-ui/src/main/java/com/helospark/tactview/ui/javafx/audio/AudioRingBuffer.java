@@ -0,0 +1,69 @@
+package com.helospark.tactview.ui.javafx.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free byte ring buffer for exactly one writing and one reading thread.
+ * <p>
+ * Read and write positions only grow, the writer publishes data by advancing the write position after copying it, the reader frees space by advancing
+ * the read position after copying, so neither side waits for the other.
+ */
+public class AudioRingBuffer {
+    private final byte[] buffer;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    public AudioRingBuffer(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * Called only from the writing thread.
+     * @return number of bytes written, less than the length if the buffer is full
+     */
+    public int write(byte[] data, int offset, int length) {
+        long write = writePosition.get();
+        int bytesToWrite = Math.min(length, buffer.length - (int) (write - readPosition.get()));
+        int start = (int) (write % buffer.length);
+        int firstPart = Math.min(bytesToWrite, buffer.length - start);
+        System.arraycopy(data, offset, buffer, start, firstPart);
+        System.arraycopy(data, offset + firstPart, buffer, 0, bytesToWrite - firstPart);
+        writePosition.lazySet(write + bytesToWrite);
+        return bytesToWrite;
+    }
+
+    /**
+     * Called only from the reading thread.
+     * @return number of bytes read, less than the length if there is not enough data
+     */
+    public int read(byte[] target, int offset, int length) {
+        long read = readPosition.get();
+        int bytesToRead = Math.min(length, (int) (writePosition.get() - read));
+        int start = (int) (read % buffer.length);
+        int firstPart = Math.min(bytesToRead, buffer.length - start);
+        System.arraycopy(buffer, start, target, offset, firstPart);
+        System.arraycopy(buffer, 0, target, offset + firstPart, bytesToRead - firstPart);
+        readPosition.lazySet(read + bytesToRead);
+        return bytesToRead;
+    }
+
+    /**
+     * Drops the unread data, called only from the reading thread while the writer is not writing.
+     */
+    public void discard() {
+        readPosition.set(writePosition.get());
+    }
+
+    public int availableToWrite() {
+        return buffer.length - (int) (writePosition.get() - readPosition.get());
+    }
+
+    public long getWritePosition() {
+        return writePosition.get();
+    }
+
+    public long getReadPosition() {
+        return readPosition.get();
+    }
+
+}
@@ -1,53 +1,162 @@
 package com.helospark.tactview.ui.javafx.audio;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.DataLine;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.SourceDataLine;
 
+import org.slf4j.Logger;
+
 import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.timeline.TimelinePosition;
+import com.helospark.tactview.core.util.logger.Slf4j;
 import com.helospark.tactview.ui.javafx.PlaybackController;
 
+/**
+ * Plays the audio written into a ring buffer on its own thread, and tells which timeline position is heard right now.
+ * <p>
+ * Blocks are written with the timeline position of their first sample, so the played position follows the sound card even when blocks jump,
+ * for example at the end of the loop region.
+ */
 @Component
 public class AudioStreamService {
-    private DataLine.Info dataLineInfo;
+    private static final int FRAME_SIZE = PlaybackController.BYTES * PlaybackController.CHANNELS;
+    private static final int RING_BUFFER_SIZE = 8 * 4096 * FRAME_SIZE;
+    private static final int OUTPUT_CHUNK_SIZE = 1024 * FRAME_SIZE;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AudioRingBuffer ringBuffer = new AudioRingBuffer(RING_BUFFER_SIZE);
+    private final ConcurrentSkipListMap<Long, TimelinePosition> blockStartPositions = new ConcurrentSkipListMap<>(); // ring buffer position -> timeline position
     private SourceDataLine sourceDataLine;
 
+    private volatile boolean running = true;
+    private volatile boolean outputEnabled = false;
+    private final AtomicLong requestedReset = new AtomicLong();
+    private volatile long completedReset = 0;
+    // written by the output thread after a reset, line frame position where the ring buffer position was ringBufferBase
+    private volatile long lineFrameBase = 0;
+    private volatile long ringBufferBase = 0;
+
+    @Slf4j
+    private Logger logger;
+
     @PostConstruct
     public void init() {
         try {
             AudioFormat format = new AudioFormat(PlaybackController.FREQUENCY, PlaybackController.BYTES * 8, PlaybackController.CHANNELS, true, true);
-            dataLineInfo = new DataLine.Info(SourceDataLine.class, format);
+            DataLine.Info dataLineInfo = new DataLine.Info(SourceDataLine.class, format);
             sourceDataLine = (SourceDataLine) AudioSystem.getLine(dataLineInfo);
             sourceDataLine.open(format);
             sourceDataLine.start();
-        } catch (LineUnavailableException e) {
-            e.printStackTrace();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            logger.warn("Audio output is not available, playback is timed without audio", e);
+            sourceDataLine = null;
+            return;
+        }
+        Thread outputThread = new Thread(() -> writeToLine(), "audio-output-thread");
+        outputThread.setDaemon(true);
+        outputThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+    }
+
+    private void writeToLine() {
+        byte[] chunk = new byte[OUTPUT_CHUNK_SIZE];
+        while (running) {
+            long reset = requestedReset.get();
+            if (reset != completedReset) {
+                sourceDataLine.flush();
+                ringBuffer.discard();
+                blockStartPositions.clear();
+                ringBufferBase = ringBuffer.getReadPosition();
+                lineFrameBase = sourceDataLine.getLongFramePosition();
+                completedReset = reset;
+            }
+            int bytesRead = outputEnabled ? ringBuffer.read(chunk, 0, chunk.length) : 0;
+            if (bytesRead > 0) {
+                sourceDataLine.write(chunk, 0, bytesRead); // blocks until the sound card takes it, so this thread is paced by the audio clock
+            } else {
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+            }
+        }
+    }
+
+    public boolean isAvailable() {
+        return sourceDataLine != null;
+    }
+
+    /**
+     * Drops everything not played yet and waits until the output thread did so, called only from the thread writing blocks.
+     */
+    public void restart() {
+        if (!isAvailable()) {
+            return;
         }
+        resetAndWait();
+        outputEnabled = true;
     }
 
-    public void streamAudio(byte[] data) {
-        System.out.println("Streaming " + data.length);
-        if (data.length > 0) {
-            //            System.out.println("Sending this music: ");
-            //            for (int i = 0; i < data.length && i < 500; ++i) {
-            //                System.out.print(((int) data[i]) + " ");
-            //            }
-            //            System.out.println();
+    /**
+     * Stops the output and waits until the output thread dropped everything not played yet, so the discard cannot overlap with blocks written after a
+     * following restart.
+     */
+    public void stop() {
+        outputEnabled = false;
+        if (isAvailable()) {
+            resetAndWait();
+        }
+    }
 
-            int availableBytes = sourceDataLine.available();
-            int bytesToWrite = Math.min(data.length, availableBytes);
-            sourceDataLine.write(data, 0, bytesToWrite - (bytesToWrite % (PlaybackController.BYTES * PlaybackController.CHANNELS)));
+    private void resetAndWait() {
+        long reset = requestedReset.incrementAndGet();
+        while (completedReset < reset && running) { // a later reset requested from another thread acknowledges this one as well
+            LockSupport.parkNanos(IDLE_WAIT_NANOS);
         }
     }
 
     public int numberOfBytesThatCanBeWritten() {
-        return sourceDataLine.available();
+        return ringBuffer.availableToWrite();
     }
 
-    public void clearBuffer() {
-        sourceDataLine.flush();
+    /**
+     * Called only from the thread writing blocks, the whole block must fit.
+     */
+    public void writeBlock(byte[] data, TimelinePosition position) {
+        blockStartPositions.put(ringBuffer.getWritePosition(), position);
+        ringBuffer.write(data, 0, data.length);
     }
+
+    /**
+     * @return position of the sample heard right now or empty if none of the blocks written since the last restart is played yet
+     */
+    public Optional<TimelinePosition> getPlayedPosition() {
+        if (!isAvailable() || completedReset != requestedReset.get()) {
+            return Optional.empty();
+        }
+        long playedFrames = Math.max(0, sourceDataLine.getLongFramePosition() - lineFrameBase);
+        long playedRingBufferPosition = Math.min(ringBufferBase + playedFrames * FRAME_SIZE, ringBuffer.getReadPosition());
+        Map.Entry<Long, TimelinePosition> blockStart = blockStartPositions.floorEntry(playedRingBufferPosition);
+        if (blockStart == null) {
+            return Optional.empty();
+        }
+        blockStartPositions.headMap(blockStart.getKey()).clear(); // already played
+        long framesIntoBlock = (playedRingBufferPosition - blockStart.getKey()) / FRAME_SIZE;
+        return Optional.of(blockStart.getValue().add(BigDecimal.valueOf(framesIntoBlock).divide(BigDecimal.valueOf(PlaybackController.FREQUENCY), 100, RoundingMode.HALF_DOWN)));
+    }
+
 }
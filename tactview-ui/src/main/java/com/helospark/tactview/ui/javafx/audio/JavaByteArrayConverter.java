@@ -2,30 +2,36 @@ package com.helospark.tactview.ui.javafx.audio;
 
 import com.helospark.lightdi.annotation.Configuration;
 import com.helospark.tactview.core.timeline.AudioFrameResult;
+import com.helospark.tactview.core.timeline.AudioSampleBlock;
 
 @Configuration
 public class JavaByteArrayConverter {
 
     public byte[] convert(AudioFrameResult audioFrameResult, int bytes, int samples, int channels) {
-        double length = audioFrameResult.getLength().getSeconds().doubleValue();
-        int numberOfSamplesPerChannel = (int) Math.ceil(bytes * samples * length);
         int numberOfChannels = channels;
-        int originalNumberOfChannels = audioFrameResult.getChannels().size();
-        int fullLength = numberOfChannels * numberOfSamplesPerChannel;
-        byte[] result = new byte[fullLength];
+        int samplesToWrite;
+        if (audioFrameResult.getChannels().isEmpty()) {
+            samplesToWrite = 0;
+        } else if (audioFrameResult.getSamplePerSecond() == samples) {
+            samplesToWrite = audioFrameResult.getNumberSamples(); // exact, so consecutive blocks are contiguous
+        } else {
+            samplesToWrite = (int) Math.floor(samples * audioFrameResult.getLength().getSeconds().doubleValue());
+        }
+        byte[] result = new byte[numberOfChannels * samplesToWrite * bytes];
+        if (samplesToWrite == 0) {
+            return result;
+        }
+        AudioSampleBlock sampleBlock = AudioSampleBlock.fromFrame(audioFrameResult, samples, samplesToWrite);
+        int channelsToWrite = Math.min(numberOfChannels, sampleBlock.getNumberOfChannels()); // missing channels are left silent
+        long scale = 1L << (bytes * 8 - 1);
 
-        for (int sample = 0; sample < (int) Math.floor(samples * length); ++sample) {
-            for (int channel = 0; channel < numberOfChannels; ++channel) {
-                if (channel < originalNumberOfChannels) {
-                    int rescaledSample = audioFrameResult.getRescaledSample(channel, bytes, samples, sample);
-                    byte[] bytesToAdd = toBytes(rescaledSample, bytes);
-                    for (int i = 0; i < bytes; ++i) {
-                        result[sample * bytes * numberOfChannels + channel * bytes + i] = bytesToAdd[i];
-                    }
-                } else {
-                    for (int i = 0; i < bytes; ++i) {
-                        result[sample * bytes * numberOfChannels + channel * bytes + i] = 0;
-                    }
+        for (int channel = 0; channel < channelsToWrite; ++channel) {
+            float[] channelSamples = sampleBlock.getChannel(channel);
+            for (int sample = 0; sample < samplesToWrite; ++sample) {
+                long value = Math.max(-scale, Math.min(scale - 1, (long) (channelSamples[sample] * scale)));
+                int offset = sample * bytes * numberOfChannels + channel * bytes;
+                for (int i = 0; i < bytes; ++i) {
+                    result[offset + i] = (byte) (value >>> ((bytes - i - 1) * 8));
                 }
             }
         }
@@ -33,12 +39,4 @@ public class JavaByteArrayConverter {
         return result;
     }
 
-    private byte[] toBytes(int sample, int bytes) {
-        byte[] result = new byte[bytes];
-        for (int i = 0; i < bytes; ++i) {
-            result[i] = (byte) ((sample >>> ((bytes - i - 1) * 8)) & 0xFF);
-        }
-        return result;
-    }
-
 }
@@ -9,13 +9,17 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import com.helospark.lightdi.annotation.Service;
 import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.waveform.WaveformIndex;
+import com.helospark.tactview.core.decoder.waveform.WaveformIndexService;
 import com.helospark.tactview.core.repository.ProjectRepository;
 import com.helospark.tactview.core.timeline.AudibleTimelineClip;
 import com.helospark.tactview.core.timeline.AudioFrameResult;
 import com.helospark.tactview.core.timeline.AudioRequest;
+import com.helospark.tactview.core.timeline.SoundClip;
 import com.helospark.tactview.core.timeline.TimelineInterval;
 import com.helospark.tactview.core.timeline.TimelineLength;
 import com.helospark.tactview.ui.javafx.repository.SoundRmsRepository;
@@ -28,18 +32,21 @@ import javafx.scene.image.Image;
 public class AudioImagePatternService {
     private static final int NUMBER_OF_PIXELS_FOR_SAMPLE = 1;
     private static final int RECTANGLE_HEIGHT = 50;
+    private static final double NORMALIZED_TO_RMS_UNIT = Byte.MAX_VALUE; // RMS is measured on samples rescaled to a single byte
 
     private ByteBufferToJavaFxImageConverter byteBufferToJavaFxImageConverter;
     private ProjectRepository projectRepository;
     private SoundRmsRepository soundRmsRepository;
     private AudioRmsCalculator audioRmsCalculator;
+    private WaveformIndexService waveformIndexService;
 
     public AudioImagePatternService(ByteBufferToJavaFxImageConverter byteBufferToJavaFxImageConverter, ProjectRepository projectRepository, SoundRmsRepository soundRmsRepository,
-            AudioRmsCalculator audioRmsCalculator) {
+            AudioRmsCalculator audioRmsCalculator, WaveformIndexService waveformIndexService) {
         this.byteBufferToJavaFxImageConverter = byteBufferToJavaFxImageConverter;
         this.projectRepository = projectRepository;
         this.soundRmsRepository = soundRmsRepository;
         this.audioRmsCalculator = audioRmsCalculator;
+        this.waveformIndexService = waveformIndexService;
     }
 
     public Image createAudioImagePattern(AudibleTimelineClip audibleTimelineClip, int width) {
@@ -47,8 +54,58 @@ public class AudioImagePatternService {
         int scaledFrameHeight = RECTANGLE_HEIGHT;
         int numberOfChannels = projectRepository.getNumberOfChannels();
         int channelHeight = scaledFrameHeight / numberOfChannels;
+
+        BufferedImage result = new BufferedImage(scaledFrameWidth, scaledFrameHeight, TYPE_INT_RGB);
+        Graphics graphics = result.getGraphics();
+
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(0, 0, scaledFrameWidth, scaledFrameHeight);
+        graphics.setColor(Color.GRAY);
+
+        for (int i = 0; i < numberOfChannels; ++i) {
+            int y = ((i + 1) * channelHeight) + 1;
+            graphics.drawLine(0, y, width, y);
+        }
+        graphics.setColor(new Color(0, 255, 0, 200));
+
+        Optional<WaveformIndex> waveformIndex = Optional.empty();
+        if (audibleTimelineClip instanceof SoundClip) {
+            waveformIndex = waveformIndexService.findOrScheduleIndex(((SoundClip) audibleTimelineClip).getBackingSource(), audibleTimelineClip.getMediaMetadata());
+        }
+        double currentMaxRms;
+        if (waveformIndex.isPresent()) {
+            currentMaxRms = drawFromWaveformIndex(audibleTimelineClip, waveformIndex.get(), graphics, width, numberOfChannels, channelHeight);
+        } else {
+            currentMaxRms = drawFromSampledFrames(audibleTimelineClip, graphics, width, numberOfChannels, channelHeight);
+        }
+        soundRmsRepository.setRmsForClip(audibleTimelineClip.getId(), currentMaxRms);
+
+        return byteBufferToJavaFxImageConverter.convertToJavafxImage(result);
+    }
+
+    private double drawFromWaveformIndex(AudibleTimelineClip audibleTimelineClip, WaveformIndex waveformIndex, Graphics graphics, int width, int numberOfChannels,
+            int channelHeight) {
         double maxRmsToDisplayUiWith = soundRmsRepository.getMaxRms();
+        double sampleRate = waveformIndex.getSampleRate();
+        double startSample = audibleTimelineClip.getRenderOffset().getSeconds().doubleValue() * sampleRate;
+        double samplesPerPixel = audibleTimelineClip.getInterval().getLength().getSeconds().doubleValue() * sampleRate / width;
 
+        for (int i = 0; i < width; ++i) {
+            long pixelStartSample = (long) (startSample + i * samplesPerPixel);
+            long pixelEndSample = (long) (startSample + (i + 1) * samplesPerPixel);
+            for (int j = 0; j < numberOfChannels; ++j) {
+                int sourceChannel = Math.min(j, waveformIndex.getNumberOfChannels() - 1);
+                double rms = waveformIndex.getPeak(sourceChannel, pixelStartSample, pixelEndSample).getRms() * NORMALIZED_TO_RMS_UNIT;
+                int point = soundHeight(rms, channelHeight, maxRmsToDisplayUiWith);
+                graphics.drawLine(i, ((j + 1) * channelHeight), i, ((j + 1) * channelHeight) - point - 1);
+            }
+        }
+        return waveformIndex.getMaxRms() * NORMALIZED_TO_RMS_UNIT;
+    }
+
+    // used for generated audio and until the waveform index of the source is built
+    private double drawFromSampledFrames(AudibleTimelineClip audibleTimelineClip, Graphics graphics, int width, int numberOfChannels, int channelHeight) {
+        double maxRmsToDisplayUiWith = soundRmsRepository.getMaxRms();
         List<MutableInteger> lastPointPerChannel = new ArrayList<>();
         for (int i = 0; i < numberOfChannels; ++i) {
             lastPointPerChannel.add(new MutableInteger((i + 1) * channelHeight));
@@ -64,18 +121,6 @@ public class AudioImagePatternService {
                 .intValue();
         BigDecimal timeJump = lengthInSeconds.divide(BigDecimal.valueOf(numberOfSamplesToCollect), 2, RoundingMode.HALF_UP);
 
-        BufferedImage result = new BufferedImage(scaledFrameWidth, scaledFrameHeight, TYPE_INT_RGB);
-        Graphics graphics = result.getGraphics();
-
-        graphics.setColor(Color.BLACK);
-        graphics.fillRect(0, 0, scaledFrameWidth, scaledFrameHeight);
-        graphics.setColor(Color.GRAY);
-
-        for (int i = 0; i < numberOfChannels; ++i) {
-            int y = ((i + 1) * channelHeight) + 1;
-            graphics.drawLine(0, y, width, y);
-        }
-        graphics.setColor(new Color(0, 255, 0, 200));
         double currentMaxRms = 0.0;
 
         for (int i = 0; i < numberOfSamplesToCollect; ++i) {
@@ -105,11 +150,7 @@ public class AudioImagePatternService {
                     .stream()
                     .forEach(a -> GlobalMemoryManagerAccessor.memoryManager.returnBuffer(a));
         }
-        // tight coupling would be good to avoid here, but calculating rms for full clip is expensive to do twice
-        // maybe some cache magic could work?!
-        soundRmsRepository.setRmsForClip(audibleTimelineClip.getId(), currentMaxRms);
-
-        return byteBufferToJavaFxImageConverter.convertToJavafxImage(result);
+        return currentMaxRms;
     }
 
     private int soundHeight(double rms, int channelHeight, double maxRms) {
@@ -12,10 +12,14 @@ import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 
 import com.helospark.lightdi.annotation.Component;
+import com.helospark.tactview.core.decoder.thumbnail.ThumbnailReadyMessage;
+import com.helospark.tactview.core.decoder.waveform.WaveformIndexReadyMessage;
 import com.helospark.tactview.core.preference.PreferenceValue;
 import com.helospark.tactview.core.timeline.AudibleTimelineClip;
+import com.helospark.tactview.core.timeline.SoundClip;
 import com.helospark.tactview.core.timeline.TimelineClip;
 import com.helospark.tactview.core.timeline.TimelineManagerAccessor;
+import com.helospark.tactview.core.timeline.VideoClip;
 import com.helospark.tactview.core.timeline.VisualTimelineClip;
 import com.helospark.tactview.core.timeline.message.ClipAddedMessage;
 import com.helospark.tactview.core.timeline.message.ClipRemovedMessage;
@@ -101,6 +105,23 @@ public class ClipPatternDrawerListener {
                 updateRequests.add(new ClipPatternUpdateRequest(message.getContainerId()));
             }
         });
+        messagingService.register(WaveformIndexReadyMessage.class, message -> {
+            for (var entry : clipsToUpdate.entrySet()) {
+                TimelineClip clip = entry.getValue().videoClip;
+                if (clip instanceof SoundClip && ((SoundClip) clip).getBackingSource().getBackingFile().equals(message.getBackingFile())) {
+                    updateRequests.add(new ClipPatternUpdateRequest(entry.getKey()));
+                }
+            }
+        });
+        messagingService.registerCoalescing(ThumbnailReadyMessage.class, message -> message.getBackingFile(), (previous, next) -> next);
+        messagingService.register(ThumbnailReadyMessage.class, message -> {
+            for (var entry : clipsToUpdate.entrySet()) {
+                TimelineClip clip = entry.getValue().videoClip;
+                if (clip instanceof VideoClip && ((VideoClip) clip).getBackingSource().getBackingFile().equals(message.getBackingFile())) {
+                    updateRequests.add(new ClipPatternUpdateRequest(entry.getKey()));
+                }
+            }
+        });
         messagingService.register(RegenerateAllImagePatternsMessage.class, message -> {
             updateRequests.clear();
             timelineManager.getAllClipIds()
@@ -4,16 +4,22 @@ import static java.awt.image.BufferedImage.TYPE_INT_RGB;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Optional;
 
 import com.helospark.lightdi.annotation.Service;
 import com.helospark.tactview.core.decoder.VisualMediaMetadata;
 import com.helospark.tactview.core.decoder.framecache.GlobalMemoryManagerAccessor;
+import com.helospark.tactview.core.decoder.thumbnail.ThumbnailService;
 import com.helospark.tactview.core.timeline.GetFrameRequest;
 import com.helospark.tactview.core.timeline.TimelineInterval;
 import com.helospark.tactview.core.timeline.TimelinePosition;
+import com.helospark.tactview.core.timeline.VideoClip;
 import com.helospark.tactview.core.timeline.VisualTimelineClip;
 import com.helospark.tactview.core.timeline.image.ClipImage;
 import com.helospark.tactview.core.timeline.image.ReadOnlyClipImage;
@@ -38,13 +44,15 @@ public class TimelineImagePatternService {
     private ByteBufferToImageConverter byteBufferToImageConverter;
     private ByteBufferToJavaFxImageConverter byteBufferToJavaFxImageConverter;
     private FrameExtender frameExtender;
+    private ThumbnailService thumbnailService;
 
     public TimelineImagePatternService(UiProjectRepository uiProjectRepository, ByteBufferToImageConverter byteBufferToImageConverter,
-            ByteBufferToJavaFxImageConverter byteBufferToJavaFxImageConverter, FrameExtender frameExtender) {
+            ByteBufferToJavaFxImageConverter byteBufferToJavaFxImageConverter, FrameExtender frameExtender, ThumbnailService thumbnailService) {
         this.uiProjectRepository = uiProjectRepository;
         this.byteBufferToImageConverter = byteBufferToImageConverter;
         this.byteBufferToJavaFxImageConverter = byteBufferToJavaFxImageConverter;
         this.frameExtender = frameExtender;
+        this.thumbnailService = thumbnailService;
     }
 
     public Image createTimelinePattern(VisualTimelineClip videoClip, int timelineWidth) {
@@ -65,48 +73,20 @@ public class TimelineImagePatternService {
                 .divide(BigDecimal.valueOf(numberOfFrames), 2, RoundingMode.HALF_UP);
 
         BufferedImage result = new BufferedImage(timelineWidth, RECTANGLE_HEIGHT, TYPE_INT_RGB);
-        Graphics graphics = result.getGraphics();
+        Graphics2D graphics = (Graphics2D) result.getGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
 
         graphics.setColor(Color.BLACK);
         graphics.fillRect(0, 0, timelineWidth, FILM_TAPE_SIZE);
 
-        boolean isDynamicallyGenerated = videoClip instanceof ProceduralVisualClip;
         for (int i = 0; i < numberOfFrames; ++i) {
             TimelinePosition position = new TimelinePosition(timejump.multiply(BigDecimal.valueOf(i)));
-            int width = isDynamicallyGenerated ? uiProjectRepository.getPreviewWidth() : videoClip.getMediaMetadata().getWidth();
-            int height = isDynamicallyGenerated ? uiProjectRepository.getPreviewHeight() : videoClip.getMediaMetadata().getHeight();
-            GetFrameRequest frameRequest = GetFrameRequest.builder()
-                    .withApplyEffects(false)
-                    .withUseApproximatePosition(true)
-                    .withExpectedWidth(width)
-                    .withExpectedHeight(height)
-                    .withRelativePosition(position)
-                    .withScale(uiProjectRepository.getScaleFactor())
-                    .build();
-            ReadOnlyClipImage frame = videoClip.getFrame(frameRequest);
-
-            if (isDynamicallyGenerated) {
-                FrameExtendRequest extendFrameRequest = FrameExtendRequest.builder()
-                        .withClip(videoClip)
-                        .withFrameResult(frame)
-                        .withPreviewWidth(uiProjectRepository.getPreviewWidth())
-                        .withPreviewHeight(uiProjectRepository.getPreviewHeight())
-                        .withScale(uiProjectRepository.getScaleFactor())
-                        .withTimelinePosition(position.add(videoClip.getInterval().getStartPosition()))
-                        .build();
-
-                ClipImage expandedFrame = frameExtender.expandFrame(extendFrameRequest);
-
-                BufferedImage bf = byteBufferToImageConverter.byteBufferToBufferedImage(expandedFrame.getBuffer(), expandedFrame.getWidth(), expandedFrame.getHeight());
-                java.awt.Image img = bf.getScaledInstance(scaledFrameWidth, scaledFrameHeight, BufferedImage.SCALE_SMOOTH);
-                GlobalMemoryManagerAccessor.memoryManager.returnBuffer(frame.getBuffer());
-                GlobalMemoryManagerAccessor.memoryManager.returnBuffer(expandedFrame.getBuffer());
-                graphics.drawImage(img, i * (scaledFrameWidth + BLACK_FILM_TAPE_LINE_WIDTH) + BLACK_FILM_TAPE_LINE_WIDTH, FILM_TAPE_SIZE, null);
+            int x = i * (scaledFrameWidth + BLACK_FILM_TAPE_LINE_WIDTH) + BLACK_FILM_TAPE_LINE_WIDTH;
+
+            if (videoClip instanceof VideoClip) {
+                drawThumbnail((VideoClip) videoClip, position, graphics, x, scaledFrameWidth, scaledFrameHeight);
             } else {
-                BufferedImage bf = byteBufferToImageConverter.byteBufferToBufferedImage(frame.getBuffer(), frame.getWidth(), frame.getHeight());
-                java.awt.Image img = bf.getScaledInstance(scaledFrameWidth, scaledFrameHeight, BufferedImage.SCALE_SMOOTH);
-                graphics.drawImage(img, i * (scaledFrameWidth + BLACK_FILM_TAPE_LINE_WIDTH) + BLACK_FILM_TAPE_LINE_WIDTH, FILM_TAPE_SIZE, null);
-                GlobalMemoryManagerAccessor.memoryManager.returnBuffer(frame.getBuffer());
+                drawFrame(videoClip, position, graphics, x, scaledFrameWidth, scaledFrameHeight);
             }
         }
 
@@ -115,6 +95,55 @@ public class TimelineImagePatternService {
         return byteBufferToJavaFxImageConverter.convertToJavafxImage(result);
     }
 
+    private void drawThumbnail(VideoClip videoClip, TimelinePosition position, Graphics2D graphics, int x, int scaledFrameWidth, int scaledFrameHeight) {
+        VisualMediaMetadata metadata = videoClip.getMediaMetadata();
+        Optional<ByteBuffer> thumbnail = thumbnailService.findOrScheduleThumbnail(videoClip.getBackingSource(), metadata, videoClip.calculateSourcePosition(position), PREVIEW_HEIGHT);
+        if (thumbnail.isPresent()) {
+            int thumbnailWidth = thumbnailService.getThumbnailWidth(metadata, PREVIEW_HEIGHT);
+            graphics.drawImage(byteBufferToImageConverter.byteBufferToBufferedImage(thumbnail.get(), thumbnailWidth, PREVIEW_HEIGHT), x, FILM_TAPE_SIZE, null);
+        } else {
+            graphics.setColor(Color.DARK_GRAY); // filled in when the thumbnail is decoded
+            graphics.fillRect(x, FILM_TAPE_SIZE, scaledFrameWidth, scaledFrameHeight);
+        }
+    }
+
+    private void drawFrame(VisualTimelineClip videoClip, TimelinePosition position, Graphics2D graphics, int x, int scaledFrameWidth, int scaledFrameHeight) {
+        boolean isDynamicallyGenerated = videoClip instanceof ProceduralVisualClip;
+        int width = isDynamicallyGenerated ? uiProjectRepository.getPreviewWidth() : videoClip.getMediaMetadata().getWidth();
+        int height = isDynamicallyGenerated ? uiProjectRepository.getPreviewHeight() : videoClip.getMediaMetadata().getHeight();
+        GetFrameRequest frameRequest = GetFrameRequest.builder()
+                .withApplyEffects(false)
+                .withUseApproximatePosition(true)
+                .withExpectedWidth(width)
+                .withExpectedHeight(height)
+                .withRelativePosition(position)
+                .withScale(uiProjectRepository.getScaleFactor())
+                .build();
+        ReadOnlyClipImage frame = videoClip.getFrame(frameRequest);
+
+        if (isDynamicallyGenerated) {
+            FrameExtendRequest extendFrameRequest = FrameExtendRequest.builder()
+                    .withClip(videoClip)
+                    .withFrameResult(frame)
+                    .withPreviewWidth(uiProjectRepository.getPreviewWidth())
+                    .withPreviewHeight(uiProjectRepository.getPreviewHeight())
+                    .withScale(uiProjectRepository.getScaleFactor())
+                    .withTimelinePosition(position.add(videoClip.getInterval().getStartPosition()))
+                    .build();
+
+            ClipImage expandedFrame = frameExtender.expandFrame(extendFrameRequest);
+
+            BufferedImage bf = byteBufferToImageConverter.byteBufferToBufferedImage(expandedFrame.getBuffer(), expandedFrame.getWidth(), expandedFrame.getHeight());
+            GlobalMemoryManagerAccessor.memoryManager.returnBuffer(frame.getBuffer());
+            GlobalMemoryManagerAccessor.memoryManager.returnBuffer(expandedFrame.getBuffer());
+            graphics.drawImage(bf, x, FILM_TAPE_SIZE, scaledFrameWidth, scaledFrameHeight, null);
+        } else {
+            BufferedImage bf = byteBufferToImageConverter.byteBufferToBufferedImage(frame.getBuffer(), frame.getWidth(), frame.getHeight());
+            graphics.drawImage(bf, x, FILM_TAPE_SIZE, scaledFrameWidth, scaledFrameHeight, null);
+            GlobalMemoryManagerAccessor.memoryManager.returnBuffer(frame.getBuffer());
+        }
+    }
+
     private void dragFilmEffect(int timelineWidth, Graphics graphics) {
         graphics.setColor(Color.BLACK);
         graphics.fillRect(0, 0, timelineWidth, FILM_TAPE_SIZE);
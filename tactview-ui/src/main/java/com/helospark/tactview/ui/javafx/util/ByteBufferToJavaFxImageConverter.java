@@ -2,28 +2,76 @@ package com.helospark.tactview.ui.javafx.util;
 
 import java.awt.image.BufferedImage;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 
 import com.helospark.lightdi.annotation.Component;
-import com.helospark.tactview.core.util.ByteBufferToImageConverter;
 
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 
+/**
+ * RGBA frames are converted to opaque BGRA rows in a reused per thread buffer and written into the image with a single setPixels call,
+ * without creating an intermediate BufferedImage.
+ */
 @Component
 public class ByteBufferToJavaFxImageConverter {
-    private ByteBufferToImageConverter converter;
-
-    public ByteBufferToJavaFxImageConverter(ByteBufferToImageConverter converter) {
-        this.converter = converter;
-    }
+    private final ThreadLocal<ByteBuffer> bgraBuffers = new ThreadLocal<>();
 
     public Image convertToJavafxImage(BufferedImage bufferedImage) {
         return SwingFXUtils.toFXImage(bufferedImage, null);
     }
 
     public Image convertToJavafxImage(ByteBuffer frame, int width, int height) {
-        BufferedImage bufferedImage = converter.byteBufferToBufferedImage(frame, width, height);
-        return convertToJavafxImage(bufferedImage);
+        return convertToJavafxImage(frame, frame, width, height, width);
+    }
+
+    /**
+     * Columns before splitX are taken from the left frame, the rest from the right frame.
+     */
+    public Image convertToJavafxImage(ByteBuffer leftFrame, ByteBuffer rightFrame, int width, int height, int splitX) {
+        ByteBuffer bgraBuffer = getBgraBuffer(width * height * 4);
+        IntBuffer output = bgraBuffer.asIntBuffer();
+        IntBuffer leftPixels = asIntBuffer(leftFrame);
+        IntBuffer rightPixels = asIntBuffer(rightFrame);
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; ++y) {
+            int rowOffset = y * width;
+            leftPixels.position(rowOffset);
+            leftPixels.get(row, 0, splitX);
+            if (splitX < width) {
+                rightPixels.position(rowOffset + splitX);
+                rightPixels.get(row, splitX, width - splitX);
+            }
+            for (int x = 0; x < width; ++x) {
+                int abgr = row[x]; // RGBA bytes read as little endian int
+                row[x] = 0xFF000000 | ((abgr & 0xFF) << 16) | (abgr & 0xFF00) | ((abgr >>> 16) & 0xFF);
+            }
+            output.put(row);
+        }
+
+        WritableImage result = new WritableImage(width, height);
+        result.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getByteBgraPreInstance(), bgraBuffer, width * 4);
+        return result;
+    }
+
+    private IntBuffer asIntBuffer(ByteBuffer frame) {
+        ByteBuffer source = frame.duplicate();
+        source.position(0);
+        return source.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private ByteBuffer getBgraBuffer(int size) {
+        ByteBuffer buffer = bgraBuffers.get();
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+            bgraBuffers.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
     }
 
 }